@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Minimal WebHDFS stand-in on the loopback interface, for measuring the client's stream code without a
+ * network or an account. Every path is a file of {@code fileSize} bytes; writes are read and discarded.
+ */
+class LoopbackServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long fileSize;
+    private final byte[] data = new byte[64 * 1024];
+
+    LoopbackServer(long fileSize) throws IOException {
+        this.fileSize = fileSize;
+        for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newFixedThreadPool(16);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    String getAccount() {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String op = params.get("op");
+        drain(exchange.getRequestBody());
+
+        if ("GETFILESTATUS".equals(op)) {
+            byte[] body = ("{\"FileStatus\":{\"length\":" + fileSize + ",\"pathSuffix\":\"\",\"type\":\"FILE\"," +
+                    "\"blockSize\":268435456,\"accessTime\":1494290436000,\"modificationTime\":1494290436000," +
+                    "\"replication\":1,\"permission\":\"770\",\"owner\":\"owner\",\"group\":\"group\"}}")
+                    .getBytes(Charset.forName("UTF-8"));
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } else if ("OPEN".equals(op)) {
+            long offset = params.containsKey("offset") ? Long.parseLong(params.get("offset")) : 0;
+            long length = fileSize - offset;
+            if (params.containsKey("length")) length = Math.min(Long.parseLong(params.get("length")), length);
+            exchange.sendResponseHeaders(200, length);
+            OutputStream out = exchange.getResponseBody();
+            while (length > 0) {
+                int n = (int) Math.min(length, data.length);
+                out.write(data, 0, n);
+                length -= n;
+            }
+        } else if ("CREATE".equals(op)) {
+            exchange.sendResponseHeaders(201, -1);
+        } else {
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] b = new byte[64 * 1024];
+        while (in.read(b) >= 0) ;
+        in.close();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+}
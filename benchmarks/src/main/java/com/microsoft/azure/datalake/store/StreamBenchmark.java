@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures reading and writing a whole file through {@link ADLFileInputStream} and {@link ADLFileOutputStream},
+ * against a server on the loopback interface. This covers the client's buffering, request building and
+ * response handling; the network is as fast as it gets, so differences are in client overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamBenchmark {
+
+    @Param({"16777216"})
+    public long fileSize;
+
+    @Param({"65536"})
+    public int ioSize;
+
+    private LoopbackServer server;
+    private ADLStoreClient client;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new LoopbackServer(fileSize);
+        client = ADLStoreClient.createClient(server.getAccount(), "token");
+        client.setInsecureTransport();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        byte[] b = new byte[ioSize];
+        long total = 0;
+        ADLFileInputStream in = client.getReadStream("/bench/read.bin");
+        try {
+            int n;
+            while ((n = in.read(b)) >= 0) total += n;
+        } finally {
+            in.close();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        byte[] b = new byte[ioSize];
+        long total = 0;
+        ADLFileOutputStream out = client.createOutputStream("/bench/write.bin", IfExists.OVERWRITE);
+        try {
+            while (total < fileSize) {
+                int n = (int) Math.min(b.length, fileSize - total);
+                out.write(b, 0, n);
+                total += n;
+            }
+        } finally {
+            out.close();
+        }
+        return total;
+    }
+}
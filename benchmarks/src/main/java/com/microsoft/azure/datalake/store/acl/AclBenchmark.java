@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.acl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures parsing and serializing ACL specs, as done for every ACL call (and for every file of a recursive
+ * ACL change).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AclBenchmark {
+
+    @Param({"4", "32"})
+    public int entries;
+
+    private String spec;
+    private List<AclEntry> list;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("user::rwx,group::r-x,other::---,mask::rwx");
+        for (int i = 4; i < entries; i++) {
+            sb.append(i % 2 == 0 ? ",user:" : ",default:group:").append(UUID.randomUUID()).append(":r-x");
+        }
+        spec = sb.toString();
+        list = AclEntry.parseAclSpec(spec);
+    }
+
+    @Benchmark
+    public List<AclEntry> parseAclSpec() {
+        return AclEntry.parseAclSpec(spec);
+    }
+
+    @Benchmark
+    public String aclListToString() {
+        return AclEntry.aclListToString(list);
+    }
+}
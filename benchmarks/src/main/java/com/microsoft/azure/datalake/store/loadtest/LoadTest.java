@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.loadtest;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.LatencyModel;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.protocol.MetricsSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+
+/**
+ * End-to-end load generator for the SDK: runs workloads on N threads through {@link ADLStoreClient} and reports
+ * operations per second, MB per second and latency percentiles, on the console and optionally as JSON.
+ * <P>
+ * By default it runs against an in-process {@link FakeAdlServer} (with optional latency and bandwidth cap),
+ * so results compare SDK versions and settings on one machine without an account. With {@code --account} and
+ * {@code --token} it runs against a real account instead. Run with {@code --help} for all options:
+ * </P>
+ * <pre>
+ *     java -cp target/benchmarks.jar com.microsoft.azure.datalake.store.loadtest.LoadTest --help
+ * </pre>
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException ex) {
+            if (ex.getMessage() != null && !ex.getMessage().equals("")) System.err.println(ex.getMessage());
+            System.err.println(LoadTestOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        FakeAdlServer server = null;
+        ADLStoreClient client;
+        if (options.account == null) {
+            server = new FakeAdlServer(new FakeFileSystem(false)).start();   // lengths only, no file data kept
+            if (options.latencyMillis > 0) {
+                server.setLatency(LatencyModel.logNormal(options.latencyMillis, options.latencySigma));
+            }
+            server.setBandwidth(options.bandwidth);
+            client = server.createClient();
+        } else {
+            client = ADLStoreClient.createClient(options.account, options.token);
+        }
+
+        String runDir = options.baseDir + "/" + UUID.randomUUID();
+        List<WorkloadResult> results = new ArrayList<WorkloadResult>();
+        try {
+            for (String name : options.workloads) {
+                Workload workload = Workload.forName(name, options);
+                workload.setup(client, runDir);
+                try {
+                    if (options.warmupSeconds > 0) run(workload, client, options, options.warmupSeconds);
+                    WorkloadResult result = run(workload, client, options, options.durationSeconds);
+                    results.add(result);
+                    System.out.println(result.summaryLine());
+                } finally {
+                    workload.cleanup();
+                }
+            }
+        } finally {
+            try {
+                client.deleteRecursive(runDir);
+            } finally {
+                if (server != null) server.stop();
+            }
+        }
+
+        if (options.output != null) {
+            writeJson(new File(options.output), options, client, results);
+            System.out.println("results written to " + options.output);
+        }
+    }
+
+    /**
+     * runs a workload on {@code options.threads} threads for a number of seconds
+     */
+    static WorkloadResult run(final Workload workload, ADLStoreClient client, LoadTestOptions options, int seconds)
+            throws InterruptedException {
+        final int threads = options.threads;
+        final long[][] latencies = new long[threads][];
+        final int[] counts = new int[threads];
+        final long[] errors = new long[threads];
+        final long[] bytes = new long[threads];
+        final String[] firstErrors = new String[threads];
+        final CountDownLatch start = new CountDownLatch(1);
+        final long durationNanos = seconds * 1000000000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int id = i;
+            workers[i] = new Thread("loadtest-" + workload.name + "-" + i) {
+                public void run() {
+                    Workload.Worker worker = new Workload.Worker(id);
+                    long[] samples = new long[1024];
+                    int n = 0;
+                    try {
+                        start.await();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    long deadline = System.nanoTime() + durationNanos;
+                    while (System.nanoTime() < deadline) {
+                        try {
+                            workload.prepare(worker);
+                            long t0 = System.nanoTime();
+                            long b = workload.run(worker);
+                            long elapsed = System.nanoTime() - t0;
+                            if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                            samples[n++] = elapsed;
+                            bytes[id] += b;
+                        } catch (IOException ex) {
+                            errors[id]++;
+                            if (firstErrors[id] == null) firstErrors[id] = ex.toString();
+                        }
+                        worker.sequence++;
+                    }
+                    latencies[id] = samples;
+                    counts[id] = n;
+                }
+            };
+            workers[i].start();
+        }
+
+        client.resetMetrics();
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread t : workers) t.join();
+        double elapsedSeconds = (System.nanoTime() - t0) / 1e9;
+        MetricsSnapshot requests = client.getMetricsSnapshotAndReset();
+
+        int total = 0;
+        for (int c : counts) total += c;
+        long[] all = new long[total];
+        int pos = 0;
+        long totalErrors = 0;
+        long totalBytes = 0;
+        String firstError = null;
+        for (int i = 0; i < threads; i++) {
+            if (latencies[i] != null) System.arraycopy(latencies[i], 0, all, pos, counts[i]);
+            pos += counts[i];
+            totalErrors += errors[i];
+            totalBytes += bytes[i];
+            if (firstError == null) firstError = firstErrors[i];
+        }
+        return new WorkloadResult(workload.name, threads, elapsedSeconds, totalErrors, totalBytes, all, requests,
+                firstError);
+    }
+
+    static void writeJson(File file, LoadTestOptions options, ADLStoreClient client, List<WorkloadResult> results)
+            throws IOException {
+        JsonGenerator g = new JsonFactory().createGenerator(file, JsonEncoding.UTF8);
+        try {
+            g.useDefaultPrettyPrinter();
+            g.writeStartObject();
+            g.writeNumberField("timestamp", System.currentTimeMillis());
+            g.writeStringField("userAgent", client.getUserAgent());
+            g.writeStringField("javaVersion", System.getProperty("java.version"));
+            g.writeNumberField("processors", Runtime.getRuntime().availableProcessors());
+            g.writeStringField("target", options.account == null ? "fake-server" : options.account);
+
+            g.writeObjectFieldStart("options");
+            g.writeNumberField("threads", options.threads);
+            g.writeNumberField("warmupSeconds", options.warmupSeconds);
+            g.writeNumberField("durationSeconds", options.durationSeconds);
+            g.writeNumberField("fileSize", options.fileSize);
+            g.writeNumberField("ioSize", options.ioSize);
+            g.writeNumberField("readSize", options.readSize);
+            g.writeNumberField("smallFileSize", options.smallFileSize);
+            g.writeNumberField("listEntries", options.listEntries);
+            g.writeNumberField("concatSources", options.concatSources);
+            if (options.account == null) {
+                g.writeNumberField("latencyMillis", options.latencyMillis);
+                g.writeNumberField("latencySigma", options.latencySigma);
+                g.writeNumberField("bandwidth", options.bandwidth);
+            }
+            g.writeEndObject();
+
+            g.writeArrayFieldStart("results");
+            for (WorkloadResult r : results) r.writeJson(g);
+            g.writeEndArray();
+            g.writeEndObject();
+        } finally {
+            g.close();
+        }
+    }
+}
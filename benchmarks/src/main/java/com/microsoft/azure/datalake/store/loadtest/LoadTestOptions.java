@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Command-line options of {@link LoadTest}.
+ */
+class LoadTestOptions {
+
+    List<String> workloads = new ArrayList<String>(Workload.NAMES);
+    int threads = 8;
+    int warmupSeconds = 5;
+    int durationSeconds = 30;
+
+    long fileSize = 64L * 1024 * 1024;     // file read by seqread/randread, and written by write
+    int ioSize = 4 * 1024 * 1024;          // buffer size for sequential reads and writes
+    int readSize = 64 * 1024;              // size of each randread
+    int smallFileSize = 1024;              // file written by create, and each concat source
+    int listEntries = 1000;                // files in the list/stat directory
+    int concatSources = 10;                // files per concat
+
+    String account = null;                 // null: run against an in-process fake server
+    String token = null;
+    String baseDir = "/loadtest";
+
+    double latencyMillis = 0;              // fake server only: median service latency
+    double latencySigma = 0.5;             // fake server only: spread of the log-normal latency
+    long bandwidth = 0;                    // fake server only: bytes/second cap, 0 for none
+
+    String output = null;                  // JSON results file; null for stdout only
+
+    static final String USAGE =
+            "usage: LoadTest [options]\n" +
+            "  --workloads a,b,...     workloads to run, in order (default: all of " + Workload.NAMES + ")\n" +
+            "  --threads N             worker threads (default 8)\n" +
+            "  --warmup S              warmup seconds per workload, not measured (default 5)\n" +
+            "  --duration S            measured seconds per workload (default 30)\n" +
+            "  --file-size SIZE        file size for seqread, randread and write (default 64m)\n" +
+            "  --io-size SIZE          buffer size for sequential reads and writes (default 4m)\n" +
+            "  --read-size SIZE        size of each random read (default 64k)\n" +
+            "  --small-file-size SIZE  size of files made by create and concat (default 1k)\n" +
+            "  --list-entries N        files in the directory used by list and stat (default 1000)\n" +
+            "  --concat-sources N      files per concat (default 10)\n" +
+            "  --account FQDN          run against this account instead of the fake server\n" +
+            "  --token TOKEN           OAuth2 access token for --account\n" +
+            "  --dir PATH              base directory for test files (default /loadtest)\n" +
+            "  --latency MS            fake server: median latency added to each request (default 0)\n" +
+            "  --latency-sigma X       fake server: log-normal spread of the latency (default 0.5)\n" +
+            "  --bandwidth SIZE        fake server: bytes/second cap on transfers (default none)\n" +
+            "  --output FILE           write results as JSON to FILE\n" +
+            "Sizes take an optional k, m or g suffix.";
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions o = new LoadTestOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) throw new IllegalArgumentException("");
+            if (i + 1 >= args.length) throw new IllegalArgumentException("missing value for " + arg);
+            String value = args[++i];
+            if (arg.equals("--workloads")) {
+                o.workloads = Arrays.asList(value.split(","));
+                for (String w : o.workloads) {
+                    if (!Workload.NAMES.contains(w)) throw new IllegalArgumentException("unknown workload " + w);
+                }
+            } else if (arg.equals("--threads")) {
+                o.threads = Integer.parseInt(value);
+            } else if (arg.equals("--warmup")) {
+                o.warmupSeconds = Integer.parseInt(value);
+            } else if (arg.equals("--duration")) {
+                o.durationSeconds = Integer.parseInt(value);
+            } else if (arg.equals("--file-size")) {
+                o.fileSize = parseSize(value);
+            } else if (arg.equals("--io-size")) {
+                o.ioSize = (int) parseSize(value);
+            } else if (arg.equals("--read-size")) {
+                o.readSize = (int) parseSize(value);
+            } else if (arg.equals("--small-file-size")) {
+                o.smallFileSize = (int) parseSize(value);
+            } else if (arg.equals("--list-entries")) {
+                o.listEntries = Integer.parseInt(value);
+            } else if (arg.equals("--concat-sources")) {
+                o.concatSources = Integer.parseInt(value);
+            } else if (arg.equals("--account")) {
+                o.account = value;
+            } else if (arg.equals("--token")) {
+                o.token = value;
+            } else if (arg.equals("--dir")) {
+                o.baseDir = value;
+            } else if (arg.equals("--latency")) {
+                o.latencyMillis = Double.parseDouble(value);
+            } else if (arg.equals("--latency-sigma")) {
+                o.latencySigma = Double.parseDouble(value);
+            } else if (arg.equals("--bandwidth")) {
+                o.bandwidth = parseSize(value);
+            } else if (arg.equals("--output")) {
+                o.output = value;
+            } else {
+                throw new IllegalArgumentException("unknown option " + arg);
+            }
+        }
+        if (o.threads < 1) throw new IllegalArgumentException("--threads must be at least 1");
+        if (o.durationSeconds < 1) throw new IllegalArgumentException("--duration must be at least 1");
+        if (o.readSize > o.fileSize) throw new IllegalArgumentException("--read-size is larger than --file-size");
+        if (o.account != null && o.token == null) throw new IllegalArgumentException("--account needs --token");
+        return o;
+    }
+
+    static long parseSize(String s) {
+        String v = s.trim().toLowerCase();
+        long multiplier = 1;
+        if (v.endsWith("k")) multiplier = 1024L;
+        if (v.endsWith("m")) multiplier = 1024L * 1024;
+        if (v.endsWith("g")) multiplier = 1024L * 1024 * 1024;
+        if (multiplier != 1) v = v.substring(0, v.length() - 1);
+        return Long.parseLong(v) * multiplier;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.loadtest;
+
+import com.microsoft.azure.datalake.store.ADLFileInputStream;
+import com.microsoft.azure.datalake.store.ADLFileOutputStream;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.IfExists;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * One kind of load: what a worker thread does for each operation, and the files it needs set up first.
+ * <P>
+ * {@link #run(Worker)} is timed as one operation; {@link #prepare(Worker)} runs before it, untimed, for
+ * per-operation setup such as creating the sources of a concat.
+ * </P>
+ */
+abstract class Workload {
+
+    final String name;
+    final LoadTestOptions options;
+    ADLStoreClient client;
+    String dir;
+
+    Workload(String name, LoadTestOptions options) {
+        this.name = name;
+        this.options = options;
+    }
+
+    /**
+     * state of one worker thread
+     */
+    static class Worker {
+        final int id;
+        final Random random;
+        long sequence = 0;        // operations run by this worker
+        List<String> prepared;    // files made by prepare(), for run()
+
+        Worker(int id) {
+            this.id = id;
+            this.random = new Random(id);
+        }
+    }
+
+    static final List<String> NAMES = Arrays.asList("seqread", "randread", "write", "create", "list", "stat", "concat");
+
+    static Workload forName(String name, LoadTestOptions options) {
+        if (name.equals("seqread"))  return new SequentialRead(options);
+        if (name.equals("randread")) return new RandomRead(options);
+        if (name.equals("write"))    return new LargeWrite(options);
+        if (name.equals("create"))   return new SmallFileCreate(options);
+        if (name.equals("list"))     return new ListStorm(options);
+        if (name.equals("stat"))     return new StatStorm(options);
+        if (name.equals("concat"))   return new Concat(options);
+        throw new IllegalArgumentException("Unknown workload " + name + "; valid workloads are " + NAMES);
+    }
+
+    /**
+     * creates the files the workload needs, under its own directory
+     */
+    void setup(ADLStoreClient client, String baseDir) throws IOException {
+        this.client = client;
+        this.dir = baseDir + "/" + name;
+        client.createDirectory(dir);
+    }
+
+    void prepare(Worker worker) throws IOException {
+    }
+
+    /**
+     * runs one operation
+     *
+     * @return the number of bytes of file data the operation read or wrote
+     */
+    abstract long run(Worker worker) throws IOException;
+
+    void cleanup() throws IOException {
+        client.deleteRecursive(dir);
+    }
+
+    /* writes a file of the given size in ioSize pieces */
+    static void writeFile(ADLStoreClient client, String path, long size, int ioSize) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(ioSize, Math.max(size, 1))];
+        new Random(size).nextBytes(buffer);
+        ADLFileOutputStream out = client.createOutputStream(path, IfExists.OVERWRITE);
+        try {
+            for (long written = 0; written < size; ) {
+                int n = (int) Math.min(buffer.length, size - written);
+                out.write(buffer, 0, n);
+                written += n;
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /* -------------------------------------------------------------------------------------------------- */
+
+    /**
+     * reads a whole file front to back through {@link ADLFileInputStream}
+     */
+    static class SequentialRead extends Workload {
+        private String file;
+
+        SequentialRead(LoadTestOptions options) {
+            super("seqread", options);
+        }
+
+        void setup(ADLStoreClient client, String baseDir) throws IOException {
+            super.setup(client, baseDir);
+            file = dir + "/data";
+            writeFile(client, file, options.fileSize, options.ioSize);
+        }
+
+        long run(Worker worker) throws IOException {
+            byte[] buffer = new byte[options.ioSize];
+            long total = 0;
+            ADLFileInputStream in = client.getReadStream(file);
+            try {
+                in.setBufferSize(options.ioSize);
+                int n;
+                while ((n = in.read(buffer)) != -1) total += n;
+            } finally {
+                in.close();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * positioned reads of {@code readSize} bytes at random offsets in one file
+     */
+    static class RandomRead extends Workload {
+        private String file;
+        private ADLFileInputStream[] streams;
+
+        RandomRead(LoadTestOptions options) {
+            super("randread", options);
+        }
+
+        void setup(ADLStoreClient client, String baseDir) throws IOException {
+            super.setup(client, baseDir);
+            file = dir + "/data";
+            writeFile(client, file, options.fileSize, options.ioSize);
+            streams = new ADLFileInputStream[options.threads];
+            for (int i = 0; i < streams.length; i++) streams[i] = client.getReadStream(file);
+        }
+
+        long run(Worker worker) throws IOException {
+            byte[] buffer = new byte[options.readSize];
+            long range = Math.max(options.fileSize - options.readSize, 1);
+            long offset = (long) (worker.random.nextDouble() * range);
+            int n = streams[worker.id].read(offset, buffer, 0, buffer.length);
+            return Math.max(n, 0);
+        }
+
+        void cleanup() throws IOException {
+            for (ADLFileInputStream in : streams) in.close();
+            super.cleanup();
+        }
+    }
+
+    /**
+     * writes a new file of {@code fileSize} bytes through {@link ADLFileOutputStream}
+     */
+    static class LargeWrite extends Workload {
+        LargeWrite(LoadTestOptions options) {
+            super("write", options);
+        }
+
+        long run(Worker worker) throws IOException {
+            writeFile(client, dir + "/w" + worker.id + "-" + worker.sequence, options.fileSize, options.ioSize);
+            return options.fileSize;
+        }
+    }
+
+    /**
+     * creates a small file of {@code smallFileSize} bytes: one create and one append request
+     */
+    static class SmallFileCreate extends Workload {
+        private byte[] contents;
+
+        SmallFileCreate(LoadTestOptions options) {
+            super("create", options);
+        }
+
+        void setup(ADLStoreClient client, String baseDir) throws IOException {
+            super.setup(client, baseDir);
+            contents = new byte[options.smallFileSize];
+            new Random(0).nextBytes(contents);
+        }
+
+        long run(Worker worker) throws IOException {
+            ADLFileOutputStream out = client.createOutputStream(dir + "/c" + worker.id + "-" + worker.sequence,
+                    IfExists.OVERWRITE);
+            out.write(contents);
+            out.close();
+            return contents.length;
+        }
+    }
+
+    /* a directory of listEntries empty files, shared by the list and stat workloads */
+    static List<String> createListDirectory(ADLStoreClient client, String dir, int entries) throws IOException {
+        List<String> names = new ArrayList<String>(entries);
+        for (int i = 0; i < entries; i++) {
+            String name = String.format("%s/f%06d", dir, i);
+            client.createOutputStream(name, IfExists.OVERWRITE).close();
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * enumerates a directory of {@code listEntries} files
+     */
+    static class ListStorm extends Workload {
+        ListStorm(LoadTestOptions options) {
+            super("list", options);
+        }
+
+        void setup(ADLStoreClient client, String baseDir) throws IOException {
+            super.setup(client, baseDir);
+            createListDirectory(client, dir, options.listEntries);
+        }
+
+        long run(Worker worker) throws IOException {
+            client.enumerateDirectory(dir);
+            return 0;
+        }
+    }
+
+    /**
+     * gets the status of a random file out of {@code listEntries}
+     */
+    static class StatStorm extends Workload {
+        private List<String> files;
+
+        StatStorm(LoadTestOptions options) {
+            super("stat", options);
+        }
+
+        void setup(ADLStoreClient client, String baseDir) throws IOException {
+            super.setup(client, baseDir);
+            files = createListDirectory(client, dir, options.listEntries);
+        }
+
+        long run(Worker worker) throws IOException {
+            client.getDirectoryEntry(files.get(worker.random.nextInt(files.size())));
+            return 0;
+        }
+    }
+
+    /**
+     * concatenates {@code concatSources} files of {@code smallFileSize} bytes into a new file. Creating the
+     * sources is not timed.
+     */
+    static class Concat extends Workload {
+        private byte[] contents;
+
+        Concat(LoadTestOptions options) {
+            super("concat", options);
+        }
+
+        void setup(ADLStoreClient client, String baseDir) throws IOException {
+            super.setup(client, baseDir);
+            contents = new byte[options.smallFileSize];
+        }
+
+        void prepare(Worker worker) throws IOException {
+            worker.prepared = new ArrayList<String>(options.concatSources);
+            for (int i = 0; i < options.concatSources; i++) {
+                String name = dir + "/s" + worker.id + "-" + worker.sequence + "-" + i;
+                ADLFileOutputStream out = client.createOutputStream(name, IfExists.OVERWRITE);
+                out.write(contents);
+                out.close();
+                worker.prepared.add(name);
+            }
+        }
+
+        long run(Worker worker) throws IOException {
+            client.concatenateFiles(dir + "/t" + worker.id + "-" + worker.sequence, worker.prepared);
+            return (long) contents.length * worker.prepared.size();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.loadtest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.microsoft.azure.datalake.store.protocol.MetricsSnapshot;
+import com.microsoft.azure.datalake.store.protocol.OperationMetrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Measurements of one workload run: operation latencies recorded by the workers, and the SDK's own
+ * request metrics over the same interval.
+ */
+class WorkloadResult {
+
+    final String workload;
+    final int threads;
+    final double seconds;
+    final long operations;
+    final long errors;
+    final long bytes;
+    final long[] sortedLatencies;   // nanoseconds, one per successful operation
+    final MetricsSnapshot requests;
+    final String firstError;
+
+    WorkloadResult(String workload, int threads, double seconds, long errors, long bytes, long[] latencies,
+                   MetricsSnapshot requests, String firstError) {
+        this.workload = workload;
+        this.threads = threads;
+        this.seconds = seconds;
+        this.operations = latencies.length;
+        this.errors = errors;
+        this.bytes = bytes;
+        this.sortedLatencies = latencies;
+        Arrays.sort(this.sortedLatencies);
+        this.requests = requests;
+        this.firstError = firstError;
+    }
+
+    double opsPerSecond() {
+        return operations / seconds;
+    }
+
+    double megabytesPerSecond() {
+        return bytes / (1024.0 * 1024.0) / seconds;
+    }
+
+    /* nearest-rank percentile, in milliseconds */
+    double percentileMillis(double percentile) {
+        if (sortedLatencies.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length);
+        return sortedLatencies[Math.max(rank - 1, 0)] / 1e6;
+    }
+
+    double meanMillis() {
+        if (sortedLatencies.length == 0) return 0;
+        double sum = 0;
+        for (long l : sortedLatencies) sum += l;
+        return sum / sortedLatencies.length / 1e6;
+    }
+
+    String summaryLine() {
+        return String.format("%-9s %7d ops %6d err %10.1f ops/s %9.1f MB/s   p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms",
+                workload, operations, errors, opsPerSecond(), megabytesPerSecond(), percentileMillis(50),
+                percentileMillis(90), percentileMillis(99), percentileMillis(99.9), percentileMillis(100));
+    }
+
+    void writeJson(JsonGenerator g) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("workload", workload);
+        g.writeNumberField("threads", threads);
+        g.writeNumberField("seconds", seconds);
+        g.writeNumberField("operations", operations);
+        g.writeNumberField("errors", errors);
+        g.writeNumberField("bytes", bytes);
+        g.writeNumberField("opsPerSecond", opsPerSecond());
+        g.writeNumberField("megabytesPerSecond", megabytesPerSecond());
+        g.writeObjectFieldStart("latencyMillis");
+        g.writeNumberField("mean", meanMillis());
+        g.writeNumberField("p50", percentileMillis(50));
+        g.writeNumberField("p90", percentileMillis(90));
+        g.writeNumberField("p99", percentileMillis(99));
+        g.writeNumberField("p999", percentileMillis(99.9));
+        g.writeNumberField("max", percentileMillis(100));
+        g.writeEndObject();
+        if (firstError != null) g.writeStringField("firstError", firstError);
+
+        // HTTP requests the SDK made for the workload, per operation
+        g.writeObjectFieldStart("requests");
+        for (OperationMetrics m : requests.operations.values()) {
+            g.writeObjectFieldStart(m.operation);
+            g.writeNumberField("count", m.requestCount);
+            g.writeNumberField("failed", m.failedRequestCount);
+            g.writeNumberField("retries", m.retryCount);
+            g.writeNumberField("throttled", m.getThrottledCount());
+            g.writeNumberField("p50Millis", m.latency.getP50Nanos() / 1e6);
+            g.writeNumberField("p99Millis", m.latency.getP99Nanos() / 1e6);
+            g.writeEndObject();
+        }
+        g.writeEndObject();
+        g.writeEndObject();
+    }
+}
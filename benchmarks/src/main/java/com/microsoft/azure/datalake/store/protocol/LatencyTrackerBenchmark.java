@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures {@link LatencyTracker} under contention. Every request made by the SDK adds one entry to the tracker
+ * and takes up to three entries off it (to send in the {@code x-ms-adl-client-latency} header), so the
+ * interesting case is many threads doing both at once.
+ * <P>
+ * Lives in the {@code protocol} package to reach the package-private tracker methods.
+ * </P>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LatencyTrackerBenchmark {
+
+    private final String requestId = UUID.randomUUID().toString() + ".0";
+
+    /**
+     * what every request thread does: report its own latency, and pick up pending entries for its header
+     */
+    @Benchmark
+    @Threads(8)
+    public String addAndGet() {
+        LatencyTracker.addLatency(requestId, 0, 42, "OPEN", 4 * 1024 * 1024, 1);
+        return LatencyTracker.get();
+    }
+
+    /**
+     * failures are reported through a different path, which used to format the error name on every call
+     */
+    @Benchmark
+    @Threads(8)
+    public String addErrorAndGet() {
+        LatencyTracker.addError(requestId, 1, 42, 503, null, "APPEND", 4 * 1024 * 1024, 1);
+        return LatencyTracker.get();
+    }
+
+    /**
+     * producers and consumers on separate threads: producers only add (and mostly find the ring full),
+     * consumers only drain
+     */
+    @Benchmark
+    @Group("producerConsumer")
+    @GroupThreads(6)
+    public void producer() {
+        LatencyTracker.addLatency(requestId, 0, 42, "GETFILESTATUS", 512, 1);
+    }
+
+    @Benchmark
+    @Group("producerConsumer")
+    @GroupThreads(2)
+    public String consumer() {
+        return LatencyTracker.get();
+    }
+}
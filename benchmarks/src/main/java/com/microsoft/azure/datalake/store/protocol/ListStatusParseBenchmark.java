@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import com.microsoft.azure.datalake.store.DirectoryEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures parsing the JSON response of {@code LISTSTATUS} into {@link DirectoryEntry} objects, as done by
+ * {@link Core#listStatus}. The service returns up to 4000 entries per page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListStatusParseBenchmark {
+
+    @Param({"100", "4000"})
+    public int entries;
+
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        json = listing(entries).getBytes(Charset.forName("UTF-8"));
+    }
+
+    static String listing(int entries) {
+        StringBuilder sb = new StringBuilder("{\"FileStatuses\":{\"FileStatus\":[");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"length\":").append(1024L * i)
+              .append(",\"pathSuffix\":\"part-").append(String.format("%05d", i)).append(".csv\"")
+              .append(",\"type\":\"").append(i % 10 == 0 ? "DIRECTORY" : "FILE").append('"')
+              .append(",\"blockSize\":268435456,\"accessTime\":1494290436000,\"modificationTime\":1494290436000")
+              .append(",\"replication\":1,\"permission\":\"770\"")
+              .append(",\"owner\":\"4b27fe1a-d9ab-4a04-ad7a-4cba72cd9f8a\"")
+              .append(",\"group\":\"4b27fe1a-d9ab-4a04-ad7a-4cba72cd9f8a\"}");
+        }
+        sb.append("]}}");
+        return sb.toString();
+    }
+
+    @Benchmark
+    public List<DirectoryEntry> parse() throws IOException {
+        return Core.parseListStatus("/data/2017/05", new ByteArrayInputStream(json));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures building the request URL (scheme, account, endpoint, encoded path and query string), as done once
+ * per try by {@link HttpTransport#makeSingleCall}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlBuildBenchmark {
+
+    @Param({"/data/2017/05/part-00042.csv", "/data/year=2017/month=05/päth with spaces/part 00042.csv"})
+    public String path;
+
+    private ADLStoreClient client;
+    private QueryParams queryParams;
+
+    @Setup
+    public void setup() {
+        client = ADLStoreClient.createClient("contoso.azuredatalakestore.net", "token");
+        queryParams = new QueryParams();
+        queryParams.add("read", "true");
+        queryParams.add("offset", "4194304");
+        queryParams.add("length", "4194304");
+        queryParams.setOp(Operation.OPEN);
+        queryParams.setApiVersion("2015-10-01-preview");
+    }
+
+    @Benchmark
+    public String buildUrl() throws URISyntaxException {
+        return HttpTransport.buildUrl(client, Operation.OPEN, path, queryParams);
+    }
+}
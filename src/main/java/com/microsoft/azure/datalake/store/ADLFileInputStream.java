@@ -6,9 +6,12 @@
 
 package com.microsoft.azure.datalake.store;
 
+import com.microsoft.azure.datalake.store.jfr.JfrEvents;
+import com.microsoft.azure.datalake.store.protocol.BandwidthLimiter;
 import com.microsoft.azure.datalake.store.protocol.Core;
 import com.microsoft.azure.datalake.store.protocol.OperationResponse;
 import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import com.microsoft.azure.datalake.store.protocol.RequestPriority;
 import com.microsoft.azure.datalake.store.retrypolicies.ExponentialOnThrottlePolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +60,8 @@ public class ADLFileInputStream extends InputStream {
     private int limit = 0;     // offset of next byte to be read into buffer from service (i.e., upper marker+1
                                //                                                      of valid bytes in buffer)
     private boolean streamClosed = false;
+    private BandwidthLimiter bandwidthLimiter = null;
+    private RequestPriority priority = null;
 
 
     // no constructor - use Factory Method in AzureDataLakeStoreClient
@@ -65,6 +70,7 @@ public class ADLFileInputStream extends InputStream {
         this.filename = filename;
         this.client = client;
         this.directoryEntry = de;
+        client.getStreamStatistics().inputStreamOpened(blocksize);
         if (log.isTraceEnabled()) {
             log.trace("ADLFIleInputStream created for client {} for file {}", client.getClientId(), filename);
         }
@@ -100,6 +106,7 @@ public class ADLFileInputStream extends InputStream {
         // make server call to get more data
         RequestOptions opts = new RequestOptions();
         opts.retryPolicy = new ExponentialOnThrottlePolicy();
+        opts.priority = priority;
         OperationResponse resp = new OperationResponse();
         InputStream inStream = Core.open(filename, position, length, sessionId, client, opts, resp);
         if (resp.httpResponseCode == 403 || resp.httpResponseCode == 416) {
@@ -114,6 +121,7 @@ public class ADLFileInputStream extends InputStream {
             do {
                 bytesRead = inStream.read(b, offset + totalBytesRead, length - totalBytesRead);
                 if (bytesRead > 0) { // if not EOF of the Core.open's stream
+                    throttle(bytesRead);
                     totalBytesRead += bytesRead;
                 }
             } while (bytesRead >= 0 && totalBytesRead < length);
@@ -121,6 +129,7 @@ public class ADLFileInputStream extends InputStream {
             throw new ADLException("Error reading data from response stream in positioned read() for file " + filename, ex);
         } finally {
             inStream.close();
+            client.getStreamStatistics().bytesRead.addAndGet(totalBytesRead);
         }
         return totalBytesRead;
     }
@@ -196,7 +205,10 @@ public class ADLFileInputStream extends InputStream {
         // make server call to get more data
         RequestOptions opts = new RequestOptions();
         opts.retryPolicy = new ExponentialOnThrottlePolicy();
+        opts.priority = priority;
         OperationResponse resp = new OperationResponse();
+        Object jfrEvent = JfrEvents.beginStreamRefill();
+        long startOffset = fCursor;
         InputStream str = Core.open(filename, fCursor, blocksize, sessionId, client, opts, resp);
         if (resp.httpResponseCode == 403 || resp.httpResponseCode == 416) {
             resp.successful = true;
@@ -210,6 +222,7 @@ public class ADLFileInputStream extends InputStream {
             do {
                 bytesRead = str.read(buffer, limit, blocksize - limit);
                 if (bytesRead > 0) { // if not EOF of the Core.open's stream
+                    throttle(bytesRead);
                     limit += bytesRead;
                     fCursor += bytesRead;
                     totalBytesRead += bytesRead;
@@ -219,10 +232,22 @@ public class ADLFileInputStream extends InputStream {
             throw new ADLException("Error reading data from response stream for file " + filename, ex);
         } finally {
             str.close();
+            client.getStreamStatistics().bytesRead.addAndGet(totalBytesRead);
+            JfrEvents.endStreamRefill(jfrEvent, filename, startOffset, totalBytesRead, blocksize);
         }
         return totalBytesRead;
     }
 
+    /*
+     waits for bandwidth for data read from the service. Reading slowly applies TCP backpressure, so the
+     limit holds on the wire and not just for the application.
+     */
+    private void throttle(int bytes) throws IOException {
+        BandwidthLimiter clientLimiter = client.getBandwidthLimiter();
+        if (clientLimiter != null) clientLimiter.acquire(bytes, priority);
+        if (bandwidthLimiter != null) bandwidthLimiter.acquire(bytes, priority);
+    }
+
     /**
      * Seek to given position in stream.
      * @param n position to seek to
@@ -288,6 +313,7 @@ public class ADLFileInputStream extends InputStream {
         // the extra complexity is not worth it.
         unbuffer();
 
+        if (!streamClosed) client.getStreamStatistics().inputBufferBytes.addAndGet(newSize - blocksize);
         blocksize = newSize;
         buffer = new byte[blocksize];
     }
@@ -328,11 +354,31 @@ public class ADLFileInputStream extends InputStream {
         bCursor = 0;
     }
 
+    /**
+     * Limits the rate at which this stream reads data, in addition to any limit set on the client.
+     *
+     * @param bandwidthLimiter the limiter to use, or {@code null} for no stream-specific limit
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * Sets the priority of this stream's reads. Reads a user is waiting on can use
+     * {@link RequestPriority#INTERACTIVE} to go ahead of background transfers through a shared limiter.
+     *
+     * @param priority the priority, or {@code null} for {@link RequestPriority#NORMAL}
+     */
+    public void setPriority(RequestPriority priority) {
+        this.priority = priority;
+    }
+
     @Override
     public void close() throws IOException {
         if (log.isTraceEnabled()) {
             log.trace("ADLFileInputStream.close() for client {} for file {}", client.getClientId(), filename);
         }
+        if (!streamClosed) client.getStreamStatistics().inputStreamClosed(blocksize);
         streamClosed = true;
     }
 
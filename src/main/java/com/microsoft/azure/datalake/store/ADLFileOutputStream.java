@@ -6,9 +6,12 @@
 
 package com.microsoft.azure.datalake.store;
 
+import com.microsoft.azure.datalake.store.jfr.JfrEvents;
+import com.microsoft.azure.datalake.store.protocol.BandwidthLimiter;
 import com.microsoft.azure.datalake.store.protocol.Core;
 import com.microsoft.azure.datalake.store.protocol.OperationResponse;
 import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import com.microsoft.azure.datalake.store.protocol.RequestPriority;
 import com.microsoft.azure.datalake.store.retrypolicies.ExponentialOnThrottlePolicy;
 import com.microsoft.azure.datalake.store.retrypolicies.NoRetryPolicy;
 import org.slf4j.Logger;
@@ -16,6 +19,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.UUID;
 
 /**
@@ -34,11 +38,13 @@ public class ADLFileOutputStream extends OutputStream {
     private final String leaseId;
 
     private int blocksize = 4 * 1024 *1024;
-    private byte[] buffer = new byte[blocksize]; //4MB byte-buffer
+    private byte[] buffer = null; // allocated on first write, so streams fed by transferFrom never need one
 
     private int cursor = 0;
     private long remoteCursor = 0;
     private boolean streamClosed = false;
+    private BandwidthLimiter bandwidthLimiter = null;
+    private RequestPriority priority = null;
 
     // package-private constructor - use Factory Method in AzureDataLakeStoreClient
     ADLFileOutputStream(String filename,
@@ -51,6 +57,7 @@ public class ADLFileOutputStream extends OutputStream {
         this.isCreate = isCreate;
         if (leaseId == null) leaseId = UUID.randomUUID().toString();
         this.leaseId = leaseId;
+        client.getStreamStatistics().outputStreamOpened(blocksize);
         if (log.isTraceEnabled()) {
             log.trace("ADLFIleOutputStream created for client {} for file {}, create={}", client.getClientId(), filename, isCreate);
         }
@@ -99,7 +106,7 @@ public class ADLFileOutputStream extends OutputStream {
         // now len == the remaining length
 
         //if adding this to buffer would overflow buffer, then flush buffer first
-        if (len > buffer.length - cursor) {
+        if (len > blocksize - cursor) {
             flush();
         }
         // now we know b will fit in remaining buffer, so just add it in
@@ -112,42 +119,84 @@ public class ADLFileOutputStream extends OutputStream {
 
 
     private void addToBuffer(byte[] b, int off, int len) {
+        if (buffer == null) buffer = new byte[blocksize];
         if (len > buffer.length - cursor) { // if requesting to copy more than remaining space in buffer
             throw new IllegalArgumentException("invalid buffer copy requested in addToBuffer");
         }
         System.arraycopy(b, off, buffer, cursor, len);
         cursor += len;
+        client.getStreamStatistics().outputPendingBytes.addAndGet(len);
     }
 
     @Override
     public void flush() throws IOException {
         if (streamClosed) throw new IOException("attempting to flush a closed stream;");
-        if (isCreate) {
-            RequestOptions opts = new RequestOptions();
-            opts.retryPolicy = new ExponentialOnThrottlePolicy();
-            OperationResponse resp = new OperationResponse();
-            if (log.isTraceEnabled()) {
-                log.trace("append to file with data size {} for client {} for file {}", cursor, client.getClientId(), filename);
-            }
-            Core.append(filename, remoteCursor, buffer, 0, cursor, leaseId, leaseId, client, opts, resp);
-            if (!resp.successful) {
-                throw client.getExceptionFromResp(resp, "Error appending to file " + filename);
-            }
-            remoteCursor += cursor;
-            cursor = 0;
-        } else { // !isCreate - i.e., append stream
-            RequestOptions opts = new RequestOptions();
-            opts.retryPolicy = new NoRetryPolicy();
-            OperationResponse resp = new OperationResponse();
-            if (log.isTraceEnabled()) {
-                log.trace("append to file with data size {} for client {} for file {}", cursor, client.getClientId(), filename);
-            }
-            Core.append(filename, -1, buffer, 0, cursor, leaseId, leaseId, client, opts, resp);
-            if (!resp.successful) {
-                throw client.getExceptionFromResp(resp, "Error appending to file " + filename);
-            }
-            cursor = 0;
+        append(buffer, null, 0, cursor);
+        sent(cursor);
+        cursor = 0;
+    }
+
+    /**
+     * Writes a region of a local file to the stream. The data goes straight from the file channel to the
+     * network, without being copied through this stream's buffer, in appends of the stream's buffer size
+     * (see {@link #setBufferSize(int)}), just as if it had been written with {@code write}.
+     * <P>
+     * Any data already buffered is flushed first. The channel's position is neither used nor changed.
+     * </P>
+     *
+     * @param src channel of the local file to read from
+     * @param position offset within the local file to start reading from
+     * @param count number of bytes to write
+     * @return the number of bytes written, which is {@code count}
+     * @throws IOException throws {@link ADLException} if there is an error
+     */
+    public long transferFrom(FileChannel src, long position, long count) throws IOException {
+        if (streamClosed) throw new IOException("attempting to write to a closed stream;");
+        if (src == null) throw new NullPointerException();
+        if (position < 0 || count < 0) throw new IllegalArgumentException("position and count cannot be negative");
+        if (count == 0) return 0;
+
+        if (cursor != 0) flush();   // preserve the order of data, and the record boundary of the last append
+        for (long done = 0; done < count; ) {
+            int n = (int) Math.min(blocksize, count - done);
+            append(null, src, position + done, n);
+            client.getStreamStatistics().bytesWritten.addAndGet(n);
+            done += n;
+        }
+        return count;
+    }
+
+    /*
+     sends one append, from either the array or the file channel
+     */
+    private void append(byte[] data, FileChannel channel, long position, int length) throws IOException {
+        RequestOptions opts = new RequestOptions();
+        // appends to a stream opened for create go at known offsets, so they can be retried safely
+        opts.retryPolicy = isCreate ? new ExponentialOnThrottlePolicy() : new NoRetryPolicy();
+        opts.priority = priority;
+        opts.bandwidthLimiter = bandwidthLimiter;
+        OperationResponse resp = new OperationResponse();
+        if (log.isTraceEnabled()) {
+            log.trace("append to file with data size {} for client {} for file {}", length, client.getClientId(), filename);
+        }
+        long offset = isCreate ? remoteCursor : -1;
+        Object jfrEvent = JfrEvents.beginStreamFlush();
+        if (channel == null) {
+            Core.append(filename, offset, data, 0, length, leaseId, leaseId, client, opts, resp);
+        } else {
+            Core.append(filename, offset, channel, position, length, leaseId, leaseId, client, opts, resp);
         }
+        if (!resp.successful) {
+            throw client.getExceptionFromResp(resp, "Error appending to file " + filename);
+        }
+        JfrEvents.endStreamFlush(jfrEvent, filename, offset, length);
+        if (isCreate) remoteCursor += length;
+    }
+
+    private void sent(int len) {
+        StreamStatistics stats = client.getStreamStatistics();
+        stats.outputPendingBytes.addAndGet(-len);
+        stats.bytesWritten.addAndGet(len);
     }
 
     /**
@@ -163,8 +212,28 @@ public class ADLFileOutputStream extends OutputStream {
         if (cursor != 0) {   // if there's data in the buffer then flush it first
             flush();
         }
+        if (!streamClosed) client.getStreamStatistics().outputBufferBytes.addAndGet(newSize - blocksize);
         blocksize = newSize;
-        buffer = new byte[blocksize];
+        buffer = null;
+    }
+
+    /**
+     * Limits the rate at which this stream sends data, in addition to any limit set on the client.
+     *
+     * @param bandwidthLimiter the limiter to use, or {@code null} for no stream-specific limit
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * Sets the priority of this stream's requests. Bulk uploads that should yield to interactive work
+     * can use {@link RequestPriority#BACKGROUND}.
+     *
+     * @param priority the priority, or {@code null} for {@link RequestPriority#NORMAL}
+     */
+    public void setPriority(RequestPriority priority) {
+        this.priority = priority;
     }
 
     @Override
@@ -172,6 +241,7 @@ public class ADLFileOutputStream extends OutputStream {
         if(streamClosed) return; // Return silently upon multiple closes
         flush();
         streamClosed = true;
+        client.getStreamStatistics().outputStreamClosed(blocksize);
         if (log.isTraceEnabled()) {
             log.trace("Stream closed for client {} for file {}", client.getClientId(), filename);
         }
@@ -11,18 +11,27 @@ import com.microsoft.azure.datalake.store.acl.AclEntry;
 import com.microsoft.azure.datalake.store.acl.AclStatus;
 import com.microsoft.azure.datalake.store.oauth2.AccessTokenProvider;
 import com.microsoft.azure.datalake.store.oauth2.AzureADToken;
+import com.microsoft.azure.datalake.store.protocol.BandwidthLimiter;
+import com.microsoft.azure.datalake.store.protocol.ClientMetrics;
 import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.HedgingPolicy;
+import com.microsoft.azure.datalake.store.protocol.MetricsSnapshot;
 import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestListener;
+import com.microsoft.azure.datalake.store.protocol.RequestMetrics;
 import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import com.microsoft.azure.datalake.store.protocol.RequestScheduler;
 import com.microsoft.azure.datalake.store.retrypolicies.ExponentialOnThrottlePolicy;
 import com.microsoft.azure.datalake.store.retrypolicies.NoRetryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -50,6 +59,14 @@ public class ADLStoreClient {
     private String proto = "https";
     private boolean enableRemoteExceptions = false;
     private String pathPrefix = null;
+    private volatile HedgingPolicy hedgingPolicy = null;
+    private volatile BandwidthLimiter bandwidthLimiter = null;
+    private volatile RequestScheduler requestScheduler = null;
+    private volatile int expectContinueThreshold = -1;
+    private volatile boolean dnsTimingEnabled = false;
+    private final ClientMetrics metrics = new ClientMetrics();
+    private final StreamStatistics streamStatistics = new StreamStatistics();
+    private ClientMBeans mbeans = null;
 
     private static String userAgent =
             String.format("%s-%s/%s-%s/%s/%s-%s",
@@ -231,6 +248,18 @@ public class ADLStoreClient {
         return new ADLFileOutputStream(path, this, false, null);
     }
 
+    /**
+     * gets a writer that batches records appended from many threads into concurrent appends to a file.
+     * See {@link ConcurrentAppendWriter} for details. Share one writer between all the threads writing to the file.
+     *
+     * @param path full pathname of file to append to
+     * @return {@link ConcurrentAppendWriter} to append records with
+     */
+    public ConcurrentAppendWriter getConcurrentAppendWriter(String path) {
+        if (path == null || path.trim().equals("")) throw new IllegalArgumentException("path cannot be null");
+        return new ConcurrentAppendWriter(path, this);
+    }
+
     /**
      * Concatenate the specified list of files into this file. The target should not exist.
      * The source files will be deleted if the concatenate succeeds.
@@ -253,6 +282,35 @@ public class ADLStoreClient {
         return true;
     }
 
+    /**
+     * Concatenate the specified list of files into this file, for lists too long for one request. The target
+     * should not exist. The source files will be deleted if the concatenate succeeds.
+     * <P>
+     * A list of up to {@code maxSourcesPerConcat} files is concatenated in one request, as by
+     * {@link #concatenateFiles(String, List)}. A longer list is concatenated in a tree: runs of files are
+     * concatenated in parallel into hidden intermediate files next to the target, and the intermediates are
+     * concatenated in turn, until one request can take what is left.
+     * </P><P>
+     * Since concatenating deletes the sources, a tree that fails part way cannot be undone. Instead, each
+     * intermediate file left is renamed to the first source file concatenated into it. The source files that
+     * still exist then hold all the data, in the order of the list, and can be concatenated again.
+     * </P>
+     *
+     * @param path full pathname of the destination to concatenate files into
+     * @param fileList {@link List} of strings containing full pathnames of the files to concatenate.
+     *                Cannot be null or empty.
+     * @param maxSourcesPerConcat the most files to concatenate in one request; at least 2
+     * @param maxConcurrency the most requests to have in flight at once
+     * @return returns true if the call succeeds
+     * @throws IOException {@link ADLException} is thrown if there is an error in concatenating files
+     */
+    public boolean concatenateFiles(String path, List<String> fileList, int maxSourcesPerConcat, int maxConcurrency)
+            throws IOException {
+        if (maxSourcesPerConcat < 2) throw new IllegalArgumentException("maxSourcesPerConcat must be at least 2");
+        ConcatTree.concatenate(this, path, fileList, maxSourcesPerConcat, maxConcurrency);
+        return true;
+    }
+
     /*
     *
     * Methods that apply to Directories only
@@ -423,6 +481,31 @@ public class ADLStoreClient {
         return succeeded;
     }
 
+    /**
+     * deletes a directory tree from the client side, in parallel and bottom-up, for trees too big for a single
+     * server-side {@link #deleteRecursive(String) deleteRecursive} call to finish before it times out.
+     * <P>
+     * Files are deleted as they are listed, and each directory once it is empty; huge directories are listed
+     * in parallel name ranges. Directories with only a few files (see
+     * {@link TreeOperationOptions#serverSideDeleteThreshold}) are deleted with one server-side call. A failure
+     * on one path does not stop the operation, but leaves its parent directories in place; failures are
+     * listed in the returned report, and running the delete again picks up what is left. The operation backs
+     * off when the service throttles. With a {@link TreeOperationOptions#filter filter}, only matching files
+     * are deleted, and directories that still have entries are reported as failures.
+     * </P>
+     *
+     * @param path full pathname of the directory (or file) to delete
+     * @param options options for the recursive operation, or {@code null} for the defaults
+     * @return {@link TreeOperationReport} with the counts and failures
+     * @throws IOException {@link ADLException} is thrown if the path cannot be read, or the checkpoint
+     *                     file cannot be used
+     */
+    public TreeOperationReport deleteRecursive(String path, TreeOperationOptions options) throws IOException {
+        if (options == null) options = new TreeOperationOptions();
+        DeleteTreeVisitor visitor = new DeleteTreeVisitor(this, options.serverSideDeleteThreshold);
+        return new TreeWalker(this, "DELETE", options).walk(path, visitor);
+    }
+
     /**
      * removes all default acl entries from a directory. The access ACLs for the directory itself are
      * not modified.
@@ -520,6 +603,56 @@ public class ADLStoreClient {
         return dirEnt;
     }
 
+    /**
+     * Gets the directory metadata of many files or directories, with up to 16 calls in flight at once. When 20
+     * or more of the paths share a parent directory, they are read from a listing of the parent where that
+     * takes fewer calls.
+     *
+     * @param paths full pathnames of the files and directories; repeated paths are fetched once
+     * @return {@link DirectoryEntryBatch} with the entry or the error for each path
+     * @throws IOException {@link java.io.InterruptedIOException} is thrown if the thread is interrupted.
+     *                     Errors for individual paths are returned in the batch, not thrown.
+     */
+    public DirectoryEntryBatch getDirectoryEntries(Collection<String> paths) throws IOException {
+        return getDirectoryEntries(paths, 16, 20);
+    }
+
+    /**
+     * Gets the directory metadata of many files or directories, with a bounded number of calls in flight.
+     *
+     * @param paths full pathnames of the files and directories; repeated paths are fetched once
+     * @param maxConcurrency the most calls to have in flight at once
+     * @param listThreshold how many of the paths must share a parent directory for them to be read from a
+     *                      listing of the parent, rather than one call each. 0 to never use listings.
+     * @return {@link DirectoryEntryBatch} with the entry or the error for each path
+     * @throws IOException {@link java.io.InterruptedIOException} is thrown if the thread is interrupted.
+     *                     Errors for individual paths are returned in the batch, not thrown.
+     */
+    public DirectoryEntryBatch getDirectoryEntries(Collection<String> paths, int maxConcurrency, int listThreshold)
+            throws IOException {
+        return new DirectoryEntryFetcher(this, maxConcurrency, listThreshold).fetch(paths);
+    }
+
+    /**
+     * Merges the small files in a directory into fewer, bigger files, by concatenating them on the server.
+     * <P>
+     * Files smaller than {@link CompactionOptions#smallFileThreshold} are taken in name order and packed into
+     * groups of up to {@link CompactionOptions#targetSize}; each group is concatenated into a new file in the
+     * same directory, named after the first file in it, and the small files are deleted. Groups are merged
+     * concurrently, and a group with more files than one request can take is merged in parallel levels.
+     * Subdirectories are not compacted. A failed merge does not stop the others; it is listed in the returned
+     * report, and whatever it had merged so far is left in the directory as merged files.
+     * </P>
+     *
+     * @param path full pathname of the directory to compact
+     * @param options options for the compaction, or {@code null} for the defaults
+     * @return {@link CompactionReport} with the counts and failures
+     * @throws IOException {@link ADLException} is thrown if the directory cannot be listed
+     */
+    public CompactionReport compactDirectory(String path, CompactionOptions options) throws IOException {
+        return new Compactor(this, options).compact(path);
+    }
+
 
     /**
      * Gets the content summary of a file or directory.
@@ -745,6 +878,141 @@ public class ADLStoreClient {
         return status;
     }
 
+    /**
+     * Modifies the acl entries of a directory and everything under it, in parallel. Default ACL entries
+     * in the spec are only applied to directories.
+     * <P>
+     * A failure on one path does not stop the operation; failures are listed in the returned report.
+     * The operation backs off when the service throttles, and can be resumed from a checkpoint; see
+     * {@link TreeOperationOptions}.
+     * </P>
+     *
+     * @param path full pathname of the directory (or file) to change ACLs for
+     * @param aclSpec {@link List} of {@link AclEntry}s, containing the entries to add or modify
+     * @param options options for the recursive operation, or {@code null} for the defaults
+     * @return {@link TreeOperationReport} with the counts and failures
+     * @throws IOException {@link ADLException} is thrown if the path cannot be read, or the checkpoint
+     *                     file cannot be used
+     */
+    public TreeOperationReport modifyAclEntriesRecursive(String path, List<AclEntry> aclSpec,
+                                                         TreeOperationOptions options) throws IOException {
+        return changeAclRecursive(path, AclTreeVisitor.Mode.MODIFY, aclSpec, options);
+    }
+
+    /**
+     * Sets the ACLs of a directory and everything under it, in parallel. Default ACL entries in the spec
+     * are only applied to directories. See {@link #modifyAclEntriesRecursive(String, List, TreeOperationOptions)
+     * modifyAclEntriesRecursive} for how failures and throttling are handled.
+     *
+     * @param path full pathname of the directory (or file) to set ACLs for
+     * @param aclSpec {@link List} of {@link AclEntry}s, containing the entries to set
+     * @param options options for the recursive operation, or {@code null} for the defaults
+     * @return {@link TreeOperationReport} with the counts and failures
+     * @throws IOException {@link ADLException} is thrown if the path cannot be read, or the checkpoint
+     *                     file cannot be used
+     */
+    public TreeOperationReport setAclRecursive(String path, List<AclEntry> aclSpec,
+                                               TreeOperationOptions options) throws IOException {
+        return changeAclRecursive(path, AclTreeVisitor.Mode.SET, aclSpec, options);
+    }
+
+    /**
+     * Removes the specified ACL entries from a directory and everything under it, in parallel. See
+     * {@link #modifyAclEntriesRecursive(String, List, TreeOperationOptions) modifyAclEntriesRecursive}
+     * for how failures and throttling are handled.
+     *
+     * @param path full pathname of the directory (or file) to remove ACLs for
+     * @param aclSpec {@link List} of {@link AclEntry}s to remove
+     * @param options options for the recursive operation, or {@code null} for the defaults
+     * @return {@link TreeOperationReport} with the counts and failures
+     * @throws IOException {@link ADLException} is thrown if the path cannot be read, or the checkpoint
+     *                     file cannot be used
+     */
+    public TreeOperationReport removeAclEntriesRecursive(String path, List<AclEntry> aclSpec,
+                                                         TreeOperationOptions options) throws IOException {
+        return changeAclRecursive(path, AclTreeVisitor.Mode.REMOVE, aclSpec, options);
+    }
+
+    /**
+     * Removes the default ACLs from a directory and every directory under it, in parallel. See
+     * {@link #modifyAclEntriesRecursive(String, List, TreeOperationOptions) modifyAclEntriesRecursive}
+     * for how failures and throttling are handled.
+     *
+     * @param path full pathname of the directory to remove default ACLs from
+     * @param options options for the recursive operation, or {@code null} for the defaults
+     * @return {@link TreeOperationReport} with the counts and failures
+     * @throws IOException {@link ADLException} is thrown if the path cannot be read, or the checkpoint
+     *                     file cannot be used
+     */
+    public TreeOperationReport removeDefaultAclsRecursive(String path, TreeOperationOptions options)
+            throws IOException {
+        return changeAclRecursive(path, AclTreeVisitor.Mode.REMOVE_DEFAULT, null, options);
+    }
+
+    /**
+     * Sets the permissions of a directory and everything under it, in parallel. Directories and files take
+     * separate permissions, since directories usually need execute permission where files do not. See
+     * {@link #modifyAclEntriesRecursive(String, List, TreeOperationOptions) modifyAclEntriesRecursive}
+     * for how failures and throttling are handled.
+     *
+     * @param path full pathname of the directory (or file) to set permissions for
+     * @param directoryPermission the permissions for directories, in unix octal form (for example, '755'),
+     *                            or {@code null} to leave directories unchanged
+     * @param filePermission the permissions for files, in unix octal form (for example, '644'),
+     *                       or {@code null} to leave files unchanged
+     * @param options options for the recursive operation, or {@code null} for the defaults
+     * @return {@link TreeOperationReport} with the counts and failures
+     * @throws IOException {@link ADLException} is thrown if the path cannot be read, or the checkpoint
+     *                     file cannot be used
+     */
+    public TreeOperationReport setPermissionRecursive(String path, String directoryPermission,
+                                                      String filePermission, TreeOperationOptions options)
+            throws IOException {
+        if (directoryPermission == null && filePermission == null) {
+            throw new IllegalArgumentException("directoryPermission and filePermission cannot both be null");
+        }
+        if ((directoryPermission != null && !Core.isValidOctal(directoryPermission))
+                || (filePermission != null && !Core.isValidOctal(filePermission))) {
+            throw new IllegalArgumentException("Specified permissions are not valid Octal Permissions: "
+                    + directoryPermission + ", " + filePermission);
+        }
+        PermissionTreeVisitor visitor = PermissionTreeVisitor.permission(this, directoryPermission, filePermission);
+        return new TreeWalker(this, visitor.getOperation(), options).walk(path, visitor);
+    }
+
+    /**
+     * Sets the owning user and group of a directory and everything under it, in parallel. If the user or
+     * group are {@code null}, then they are not changed. See
+     * {@link #modifyAclEntriesRecursive(String, List, TreeOperationOptions) modifyAclEntriesRecursive}
+     * for how failures and throttling are handled.
+     *
+     * @param path full pathname of the directory (or file) to set owner/group for
+     * @param owner the ID of the user, or {@code null}
+     * @param group the ID of the group, or {@code null}
+     * @param options options for the recursive operation, or {@code null} for the defaults
+     * @return {@link TreeOperationReport} with the counts and failures
+     * @throws IOException {@link ADLException} is thrown if the path cannot be read, or the checkpoint
+     *                     file cannot be used
+     */
+    public TreeOperationReport setOwnerRecursive(String path, String owner, String group,
+                                                 TreeOperationOptions options) throws IOException {
+        if ((owner == null || owner.equals("")) && (group == null || group.equals(""))) {
+            throw new IllegalArgumentException("Both user and owner names cannot be blank");
+        }
+        PermissionTreeVisitor visitor = PermissionTreeVisitor.owner(this,
+                "".equals(owner) ? null : owner, "".equals(group) ? null : group);
+        return new TreeWalker(this, visitor.getOperation(), options).walk(path, visitor);
+    }
+
+    private TreeOperationReport changeAclRecursive(String path, AclTreeVisitor.Mode mode, List<AclEntry> aclSpec,
+                                                   TreeOperationOptions options) throws IOException {
+        if (mode != AclTreeVisitor.Mode.REMOVE_DEFAULT && (aclSpec == null || aclSpec.size() == 0)) {
+            throw new IllegalArgumentException("aclSpec cannot be null or empty");
+        }
+        AclTreeVisitor visitor = new AclTreeVisitor(this, mode, aclSpec);
+        return new TreeWalker(this, visitor.getOperation(), options).walk(path, visitor);
+    }
+
 
     /* ----------------------------------------------------------------------------------------------------------*/
 
@@ -869,6 +1137,221 @@ public class ADLStoreClient {
     }
 
 
+    /**
+     * Gets the metrics registry of this client. The registry has per-operation latency histograms,
+     * request, retry and error counts, and byte counts for all calls made through this client.
+     *
+     * @return read-only {@link RequestMetrics} of this client
+     */
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets a copy of the metrics collected by this client since it was created, or since the metrics were
+     * last reset.
+     *
+     * @return {@link MetricsSnapshot} containing the metrics
+     */
+    public MetricsSnapshot getMetricsSnapshot() {
+        return metrics.snapshot(false);
+    }
+
+    /**
+     * Gets a copy of the metrics collected by this client, and resets the metrics. Counts recorded while the
+     * snapshot is being taken are not lost - they show up in the next snapshot.
+     *
+     * @return {@link MetricsSnapshot} containing the metrics for the interval since the last reset
+     */
+    public MetricsSnapshot getMetricsSnapshotAndReset() {
+        return metrics.snapshot(true);
+    }
+
+    /**
+     * Resets the metrics collected by this client.
+     */
+    public void resetMetrics() {
+        metrics.reset();
+    }
+
+    /**
+     * Registers JMX MBeans for this client with the platform MBean server. Three beans are registered, under
+     * the domain {@code com.microsoft.azure.datalake.store} with the account name and client ID as keys:
+     * <UL>
+     *     <LI>{@code type=ADLStoreClient} - see {@link ADLStoreClientMXBean}</LI>
+     *     <LI>{@code type=Transport} - see {@link ADLTransportMXBean}</LI>
+     *     <LI>{@code type=Streams} - see {@link ADLStreamsMXBean}</LI>
+     * </UL>
+     * The beans hold a reference to this client; call {@link #unregisterMBeans()} when the client is no longer
+     * used. Calling this method again on a client that is already registered does nothing.
+     *
+     * @throws JMException if the beans cannot be registered
+     */
+    public synchronized void registerMBeans() throws JMException {
+        if (mbeans != null) return;
+        ClientMBeans beans = new ClientMBeans(this);
+        beans.register();
+        mbeans = beans;
+    }
+
+    /**
+     * Unregisters the JMX MBeans registered by {@link #registerMBeans()}. Does nothing if the beans
+     * are not registered.
+     *
+     * @throws JMException if the beans cannot be unregistered
+     */
+    public synchronized void unregisterMBeans() throws JMException {
+        if (mbeans == null) return;
+        mbeans.unregister();
+        mbeans = null;
+    }
+
+    /**
+     * Registers a listener to receive lifecycle events (start, retries, response headers, completion and
+     * failure) of every REST call made through this client. See {@link RequestListener}.
+     * <P>
+     * Listeners are called synchronously on the calling thread, so they add to the latency of every call.
+     * When no listeners are registered, the cost is a single check per call.
+     * </P>
+     *
+     * @param listener the listener to add
+     */
+    public void addRequestListener(RequestListener listener) {
+        if (listener == null) throw new IllegalArgumentException("listener cannot be null");
+        metrics.addRequestListener(listener);
+    }
+
+    /**
+     * Removes a listener registered with {@link #addRequestListener(RequestListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeRequestListener(RequestListener listener) {
+        metrics.removeRequestListener(listener);
+    }
+
+    StreamStatistics getStreamStatistics() {
+        return streamStatistics;
+    }
+
+    AccessTokenProvider getTokenProvider() {
+        return tokenProvider;
+    }
+
+    /**
+     * Enable hedging of idempotent reads ({@code OPEN}, {@code GETFILESTATUS} and {@code LISTSTATUS}) made
+     * through this client. A read that is slower than usual is duplicated, and whichever copy returns first
+     * is used. See {@link HedgingPolicy} for details.
+     *
+     * @param hedgingPolicy the {@link HedgingPolicy} to use, or {@code null} to disable hedging
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Gets the {@link HedgingPolicy} in effect for this client. The policy also has the counters
+     * reporting hedge rates and wins.
+     *
+     * @return the hedging policy, or {@code null} if hedging is not enabled
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Limits the bandwidth used by this client: request bodies sent (appends and creates) and data read
+     * through the client's {@link ADLFileInputStream}s. Streams can have their own, lower, limit as well.
+     * A {@link BandwidthLimiter} can be shared by several clients to limit them together.
+     *
+     * @param bandwidthLimiter the limiter to use, or {@code null} for no limit
+     */
+    public void setBandwidthLimiter(BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+
+    /**
+     * Gets the {@link BandwidthLimiter} in effect for this client.
+     *
+     * @return the limiter, or {@code null} if bandwidth is not limited
+     */
+    public BandwidthLimiter getBandwidthLimiter() {
+        return bandwidthLimiter;
+    }
+
+    /**
+     * Limits the number of requests this client has in flight, and orders waiting requests by their
+     * {@link com.microsoft.azure.datalake.store.protocol.RequestPriority RequestPriority}. See
+     * {@link RequestScheduler} for details.
+     *
+     * @param requestScheduler the scheduler to use, or {@code null} to send requests as soon as they are made
+     */
+    public void setRequestScheduler(RequestScheduler requestScheduler) {
+        this.requestScheduler = requestScheduler;
+    }
+
+    /**
+     * Gets the {@link RequestScheduler} in effect for this client. The scheduler also has the counters
+     * reporting queueing per priority.
+     *
+     * @return the scheduler, or {@code null} if requests are not scheduled
+     */
+    public RequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /**
+     * Sends {@code Expect: 100-continue} on requests whose body is at least this large. The server can then
+     * reject such a request (when the token has expired, the lease is held by another writer, or the account
+     * is being throttled) before the body is sent, instead of after, which saves the upload on every rejected
+     * try.
+     * <P>
+     * What happens if the server does not answer the {@code Expect} header depends on the request's read
+     * timeout, {@link RequestOptions#timeout}. With no read timeout (0), the JDK waits five seconds and then
+     * sends the body anyway. With a read timeout, the try fails with a {@link java.net.SocketTimeoutException}
+     * once the timeout passes, without sending the body, and is retried as the retry policy allows.
+     * </P>
+     * <P>
+     * This costs a round trip on every request it applies to, so it is for large bodies only. Disabled by default.
+     * </P>
+     *
+     * @param bytes smallest body to send {@code Expect: 100-continue} with, or -1 to disable
+     */
+    public void setExpectContinueThreshold(int bytes) {
+        if (bytes < -1) throw new IllegalArgumentException("threshold must be -1 (disabled) or at least 0");
+        this.expectContinueThreshold = bytes;
+    }
+
+    /**
+     * Gets the smallest request body that is sent with {@code Expect: 100-continue}.
+     *
+     * @return the threshold in bytes, or -1 if disabled
+     */
+    public int getExpectContinueThreshold() {
+        return expectContinueThreshold;
+    }
+
+    /**
+     * Times the resolution of the account's host name on each request, for the DNS phase of the
+     * {@link #getMetrics() metrics}. This costs a lookup before each request (usually answered from the JVM's
+     * cache), and is skipped for requests sent through a proxy, which resolves the name itself. Disabled by default.
+     *
+     * @param enabled true to time host name resolution
+     */
+    public void setDnsTimingEnabled(boolean enabled) {
+        this.dnsTimingEnabled = enabled;
+    }
+
+    /**
+     * Gets whether host name resolution is timed on each request.
+     *
+     * @return true if DNS timing is enabled
+     */
+    public boolean isDnsTimingEnabled() {
+        return dnsTimingEnabled;
+    }
+
+
     /**
      * Set a prefix that will be prepended to all file paths from this client. This allows the
      * client to be scoped to a subset of the directory Azure Data Lake Store tree.
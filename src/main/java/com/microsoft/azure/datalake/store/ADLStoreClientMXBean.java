@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.util.Date;
+import java.util.Map;
+
+
+/**
+ * JMX view of an {@link ADLStoreClient}: request rates, latency percentiles and token refreshes.
+ * Registered by {@link ADLStoreClient#registerMBeans()}.
+ * <P>
+ * Counts and latencies cover the interval since the client's metrics were last reset (see
+ * {@link ADLStoreClient#resetMetrics()}). Rates are computed over the last sampling period of about one second.
+ * Latencies are of individual HTTP requests, not of calls including retries.
+ * </P>
+ */
+public interface ADLStoreClientMXBean {
+
+    /** @return the account this client talks to */
+    String getAccountName();
+
+    /** @return the client's ID, as used in logs */
+    long getClientId();
+
+    /** @return number of HTTP requests currently in progress */
+    int getInFlightRequests();
+
+    /** @return number of calls made (a call may be several HTTP requests, if it was retried) */
+    long getRequestCount();
+
+    /** @return number of calls that failed after all retries */
+    long getFailedRequestCount();
+
+    /** @return calls per second */
+    double getRequestsPerSecond();
+
+    /** @return failed calls per second */
+    double getFailedRequestsPerSecond();
+
+    /** @return mean latency of HTTP requests, in milliseconds */
+    double getLatencyMeanMillis();
+
+    /** @return median latency of HTTP requests, in milliseconds */
+    double getLatencyP50Millis();
+
+    /** @return 99th percentile latency of HTTP requests, in milliseconds */
+    double getLatencyP99Millis();
+
+    /** @return 99.9th percentile latency of HTTP requests, in milliseconds */
+    double getLatencyP999Millis();
+
+    /** @return maximum latency of HTTP requests, in milliseconds */
+    double getLatencyMaxMillis();
+
+    /** @return number of calls, by operation name (e.g., {@code OPEN}, {@code APPEND}) */
+    Map<String, Long> getRequestCountByOperation();
+
+    /** @return 99th percentile latency of HTTP requests in milliseconds, by operation name */
+    Map<String, Double> getLatencyP99MillisByOperation();
+
+    /** @return start of the interval the counts cover */
+    Date getMetricsIntervalStartTime();
+
+    /** @return time the token was last refreshed, or {@code null} if the client has a fixed token */
+    Date getLastTokenRefreshTime();
+
+    /** @return duration of the last token refresh in milliseconds, or -1 if there wasn't one */
+    long getLastTokenRefreshDurationMillis();
+
+    /** @return number of successful token refreshes */
+    long getTokenRefreshCount();
+
+    /** @return number of failed token refreshes */
+    long getTokenRefreshFailureCount();
+
+    /** @return expiry time of the current token, or {@code null} if not known */
+    Date getTokenExpiry();
+
+    /**
+     * resets the client's metrics. This resets the metrics returned by
+     * {@link ADLStoreClient#getMetricsSnapshot()} too.
+     */
+    void resetMetrics();
+}
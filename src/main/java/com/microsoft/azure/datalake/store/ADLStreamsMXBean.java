@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+
+/**
+ * JMX view of the {@link ADLFileInputStream}s and {@link ADLFileOutputStream}s of an {@link ADLStoreClient}.
+ * Registered by {@link ADLStoreClient#registerMBeans()}.
+ * <P>
+ * Unlike the request metrics, these counters are never reset.
+ * </P>
+ */
+public interface ADLStreamsMXBean {
+
+    /** @return number of input streams opened and not yet closed */
+    long getOpenInputStreams();
+
+    /** @return number of output streams opened and not yet closed */
+    long getOpenOutputStreams();
+
+    /** @return number of input streams opened so far */
+    long getInputStreamsOpened();
+
+    /** @return number of output streams opened so far */
+    long getOutputStreamsOpened();
+
+    /** @return memory held by the read buffers of open input streams, in bytes */
+    long getInputBufferBytes();
+
+    /** @return memory held by the write buffers of open output streams, in bytes */
+    long getOutputBufferBytes();
+
+    /** @return data written to output streams and not yet sent to the server, in bytes */
+    long getOutputPendingBytes();
+
+    /** @return data read from the server by input streams, in bytes */
+    long getBytesRead();
+
+    /** @return data sent to the server by output streams, in bytes */
+    long getBytesWritten();
+}
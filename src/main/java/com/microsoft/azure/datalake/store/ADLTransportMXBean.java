@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.util.Map;
+
+
+/**
+ * JMX view of the HTTP requests made by an {@link ADLStoreClient}: retries, throttling, errors, bytes
+ * transferred and hedging. Registered by {@link ADLStoreClient#registerMBeans()}.
+ * <P>
+ * Counts cover the interval since the client's metrics were last reset. Rates are computed over the last
+ * sampling period of about one second.
+ * </P>
+ */
+public interface ADLTransportMXBean {
+
+    /** @return number of HTTP requests made, including retries */
+    long getTryCount();
+
+    /** @return number of retries */
+    long getRetryCount();
+
+    /** @return retries per second */
+    double getRetriesPerSecond();
+
+    /** @return number of requests throttled by the server (HTTP 429 or 503) */
+    long getThrottledCount();
+
+    /** @return throttled requests per second */
+    double getThrottledPerSecond();
+
+    /** @return number of requests that failed without an HTTP response (connection errors, timeouts) */
+    long getNoResponseErrorCount();
+
+    /** @return number of failed requests, by HTTP response code. Code 0 means there was no response. */
+    Map<Integer, Long> getErrorCountByHttpCode();
+
+    /** @return bytes sent in request bodies */
+    long getBytesSent();
+
+    /** @return bytes received in response bodies */
+    long getBytesReceived();
+
+    /** @return bytes sent per second */
+    double getBytesSentPerSecond();
+
+    /** @return bytes received per second */
+    double getBytesReceivedPerSecond();
+
+    /** @return number of hedged requests sent, or 0 if hedging is off */
+    long getHedgeCount();
+
+    /** @return number of hedged requests that returned before the original request, or 0 if hedging is off */
+    long getHedgeWinCount();
+
+    /** @return number of hedges not sent because the hedging budget was used up, or 0 if hedging is off */
+    long getHedgesDeniedByBudgetCount();
+}
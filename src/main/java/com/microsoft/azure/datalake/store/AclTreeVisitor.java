@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.acl.AclEntry;
+import com.microsoft.azure.datalake.store.acl.AclScope;
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Applies an ACL change to every file and directory in a tree. Default ACL entries only apply to
+ * directories, so files get the spec without them (and are left alone if nothing else is in the spec).
+ */
+class AclTreeVisitor extends TreeWalker.Visitor {
+
+    enum Mode { MODIFY, SET, REMOVE, REMOVE_DEFAULT }
+
+    private final ADLStoreClient client;
+    private final Mode mode;
+    private final List<AclEntry> directorySpec;
+    private final List<AclEntry> fileSpec;
+
+    AclTreeVisitor(ADLStoreClient client, Mode mode, List<AclEntry> aclSpec) {
+        this.client = client;
+        this.mode = mode;
+        this.directorySpec = aclSpec;
+        if (aclSpec == null) {
+            this.fileSpec = null;
+        } else {
+            this.fileSpec = new ArrayList<AclEntry>(aclSpec.size());
+            for (AclEntry entry : aclSpec) {
+                if (entry.scope != AclScope.DEFAULT) fileSpec.add(entry);
+            }
+        }
+    }
+
+    /*
+     describes the change, to tie a checkpoint file to it
+     */
+    String getOperation() {
+        if (directorySpec == null) return mode.toString();
+        return mode + " " + AclEntry.aclListToString(directorySpec, mode == Mode.REMOVE);
+    }
+
+    @Override
+    boolean appliesTo(DirectoryEntry entry) {
+        if (entry.type == DirectoryEntryType.DIRECTORY) return true;
+        return mode != Mode.REMOVE_DEFAULT && fileSpec.size() > 0;
+    }
+
+    @Override
+    void visit(DirectoryEntry entry, RequestOptions opts) throws IOException {
+        List<AclEntry> spec = (entry.type == DirectoryEntryType.DIRECTORY) ? directorySpec : fileSpec;
+        OperationResponse resp = new OperationResponse();
+        switch (mode) {
+            case MODIFY:
+                Core.modifyAclEntries(entry.fullName, spec, client, opts, resp);
+                break;
+            case SET:
+                Core.setAcl(entry.fullName, spec, client, opts, resp);
+                break;
+            case REMOVE:
+                Core.removeAclEntries(entry.fullName, spec, client, opts, resp);
+                break;
+            case REMOVE_DEFAULT:
+                Core.removeDefaultAcl(entry.fullName, client, opts, resp);
+                break;
+        }
+        if (!resp.successful) {
+            throw client.getExceptionFromResp(resp, "Error changing ACLs for " + entry.fullName);
+        }
+    }
+}
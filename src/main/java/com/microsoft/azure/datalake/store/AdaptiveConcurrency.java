@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.retrypolicies.ExponentialOnThrottlePolicy;
+import com.microsoft.azure.datalake.store.retrypolicies.RetryPolicy;
+
+import java.io.InterruptedIOException;
+
+
+/**
+ * A concurrency limit that adapts to throttling (additive increase, multiplicative decrease): the number of
+ * requests allowed in flight halves when the service throttles, and grows by one after each limit's worth of
+ * successful requests. Used by bulk operations that would otherwise drive an account into sustained throttling.
+ */
+class AdaptiveConcurrency {
+
+    // throttled responses that arrive together are one signal: decrease at most once per interval
+    private static final long DECREASE_INTERVAL_NANOS = 500L * 1000000L;
+
+    private final int max;
+    private int limit;
+    private int inUse = 0;
+    private int successes = 0;
+    private long lastDecrease = 0;
+    private long throttleCount = 0;
+
+    AdaptiveConcurrency(int max) {
+        if (max < 1) throw new IllegalArgumentException("concurrency must be at least 1");
+        this.max = max;
+        this.limit = max;
+    }
+
+    synchronized void acquire() throws InterruptedIOException {
+        try {
+            while (inUse >= limit) wait();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to send a request");
+        }
+        inUse++;
+    }
+
+    synchronized void release(boolean succeeded) {
+        inUse--;
+        if (succeeded && limit < max && ++successes >= limit) {
+            successes = 0;
+            limit++;
+        }
+        notifyAll();
+    }
+
+    synchronized void throttled() {
+        throttleCount++;
+        long now = System.nanoTime();
+        if (lastDecrease == 0 || now - lastDecrease > DECREASE_INTERVAL_NANOS) {
+            limit = Math.max(1, limit / 2);
+            successes = 0;
+            lastDecrease = now;
+        }
+    }
+
+    synchronized int getLimit() {
+        return limit;
+    }
+
+    synchronized long getThrottleCount() {
+        return throttleCount;
+    }
+
+    /*
+     a retry policy for one call: backs off like ExponentialOnThrottlePolicy, and reports throttling here
+     */
+    RetryPolicy newRetryPolicy() {
+        return new RetryPolicy() {
+            private final RetryPolicy backoff = new ExponentialOnThrottlePolicy();
+
+            public boolean shouldRetry(int httpResponseCode, Exception lastException) {
+                if (httpResponseCode == 429 || httpResponseCode == 503) throttled();
+                return backoff.shouldRetry(httpResponseCode, lastException);
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A fixed number of same-sized buffers, allocated as they are first needed and then reused, so the memory a
+ * transfer uses depends on its concurrency and not on how much it moves. Taking a buffer when all are in use
+ * waits for one to be given back.
+ */
+class BufferPool {
+
+    private final int bufferSize;
+    private final int capacity;
+    private final BlockingQueue<byte[]> free;
+    private final AtomicInteger allocated = new AtomicInteger(0);
+
+    BufferPool(int bufferSize, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+        this.free = new ArrayBlockingQueue<byte[]>(capacity);
+    }
+
+    byte[] take() throws InterruptedIOException {
+        byte[] buffer = free.poll();
+        if (buffer != null) return buffer;
+        if (allocated.incrementAndGet() <= capacity) return new byte[bufferSize];
+        allocated.decrementAndGet();
+        try {
+            return free.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a buffer");
+        }
+    }
+
+    void give(byte[] buffer) {
+        free.offer(buffer);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.oauth2.AccessTokenProvider;
+import com.microsoft.azure.datalake.store.protocol.HedgingPolicy;
+import com.microsoft.azure.datalake.store.protocol.MetricsSnapshot;
+import com.microsoft.azure.datalake.store.protocol.OperationMetrics;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The MBeans of one {@link ADLStoreClient}, and their registration with the platform MBean server.
+ * <P>
+ * The beans read the client's {@link com.microsoft.azure.datalake.store.protocol.RequestMetrics metrics}
+ * and {@link StreamStatistics}; they add no cost to requests. Metrics snapshots are cached for a second,
+ * so a JMX console polling many attributes does not make a snapshot per attribute.
+ * </P>
+ */
+class ClientMBeans {
+
+    static final String DOMAIN = "com.microsoft.azure.datalake.store";
+    private static final long SAMPLE_INTERVAL_MILLIS = 1000;
+
+    private final ADLStoreClient client;
+    private final List<ObjectName> names = new ArrayList<ObjectName>(3);
+
+    private Sample previous;
+    private Sample latest;
+
+    ClientMBeans(ADLStoreClient client) {
+        this.client = client;
+        this.latest = new Sample(client.getMetricsSnapshot());
+        this.previous = latest;
+    }
+
+    void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String suffix = ",account=" + ObjectName.quote(client.getAccountName()) + ",clientId=" + client.getClientId();
+        try {
+            register(server, new ObjectName(DOMAIN + ":type=ADLStoreClient" + suffix), new ClientBean());
+            register(server, new ObjectName(DOMAIN + ":type=Transport" + suffix), new TransportBean());
+            register(server, new ObjectName(DOMAIN + ":type=Streams" + suffix), new StreamsBean());
+        } catch (JMException ex) {
+            unregister();
+            throw ex;
+        }
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+        server.registerMBean(bean, name);
+        names.add(name);
+    }
+
+    void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : names) {
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException ex) {
+                // already unregistered by someone else - nothing to do
+            }
+        }
+        names.clear();
+    }
+
+    /*
+     returns a recent snapshot, taking a new one if the latest is older than the sampling interval
+     */
+    private synchronized Sample sample() {
+        if (System.currentTimeMillis() - latest.snapshot.intervalEndTime >= SAMPLE_INTERVAL_MILLIS) {
+            previous = latest;
+            latest = new Sample(client.getMetricsSnapshot());
+        }
+        return latest;
+    }
+
+    /*
+     rate of change of a counter between the previous and the latest sample. Counters go down when the
+     metrics are reset; the rate is reported as zero across a reset.
+     */
+    private synchronized double rate(int counter) {
+        Sample s = sample();
+        double seconds = (s.snapshot.intervalEndTime - previous.snapshot.intervalEndTime) / 1000.0;
+        long delta = s.counters[counter] - previous.counters[counter];
+        if (seconds <= 0 || delta < 0 || s.snapshot.intervalStartTime != previous.snapshot.intervalStartTime) return 0;
+        return delta / seconds;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static final int REQUESTS = 0;
+    private static final int FAILED = 1;
+    private static final int RETRIES = 2;
+    private static final int THROTTLED = 3;
+    private static final int BYTES_SENT = 4;
+    private static final int BYTES_RECEIVED = 5;
+
+    private static class Sample {
+        final MetricsSnapshot snapshot;
+        final long[] counters;
+
+        Sample(MetricsSnapshot snapshot) {
+            this.snapshot = snapshot;
+            OperationMetrics t = snapshot.total;
+            this.counters = new long[] {t.requestCount, t.failedRequestCount, t.retryCount, t.getThrottledCount(),
+                    t.bytesSent, t.bytesReceived};
+        }
+    }
+
+    private class ClientBean implements ADLStoreClientMXBean {
+        public String getAccountName() {
+            return client.getAccountName();
+        }
+
+        public long getClientId() {
+            return client.getClientId();
+        }
+
+        public int getInFlightRequests() {
+            return client.getMetrics().getInFlightRequestCount();
+        }
+
+        public long getRequestCount() {
+            return sample().snapshot.total.requestCount;
+        }
+
+        public long getFailedRequestCount() {
+            return sample().snapshot.total.failedRequestCount;
+        }
+
+        public double getRequestsPerSecond() {
+            return rate(REQUESTS);
+        }
+
+        public double getFailedRequestsPerSecond() {
+            return rate(FAILED);
+        }
+
+        public double getLatencyMeanMillis() {
+            return millis(sample().snapshot.total.latency.getMeanNanos());
+        }
+
+        public double getLatencyP50Millis() {
+            return millis(sample().snapshot.total.latency.getP50Nanos());
+        }
+
+        public double getLatencyP99Millis() {
+            return millis(sample().snapshot.total.latency.getP99Nanos());
+        }
+
+        public double getLatencyP999Millis() {
+            return millis(sample().snapshot.total.latency.getP999Nanos());
+        }
+
+        public double getLatencyMaxMillis() {
+            return millis(sample().snapshot.total.latency.getMaxNanos());
+        }
+
+        public Map<String, Long> getRequestCountByOperation() {
+            Map<String, Long> counts = new LinkedHashMap<String, Long>();
+            for (OperationMetrics m : sample().snapshot.operations.values()) {
+                counts.put(m.operation, m.requestCount);
+            }
+            return counts;
+        }
+
+        public Map<String, Double> getLatencyP99MillisByOperation() {
+            Map<String, Double> latencies = new LinkedHashMap<String, Double>();
+            for (OperationMetrics m : sample().snapshot.operations.values()) {
+                latencies.put(m.operation, millis(m.latency.getP99Nanos()));
+            }
+            return latencies;
+        }
+
+        public Date getMetricsIntervalStartTime() {
+            return new Date(sample().snapshot.intervalStartTime);
+        }
+
+        public Date getLastTokenRefreshTime() {
+            AccessTokenProvider p = client.getTokenProvider();
+            return (p == null) ? null : p.getLastRefreshTime();
+        }
+
+        public long getLastTokenRefreshDurationMillis() {
+            AccessTokenProvider p = client.getTokenProvider();
+            return (p == null) ? -1 : p.getLastRefreshDurationMillis();
+        }
+
+        public long getTokenRefreshCount() {
+            AccessTokenProvider p = client.getTokenProvider();
+            return (p == null) ? 0 : p.getRefreshCount();
+        }
+
+        public long getTokenRefreshFailureCount() {
+            AccessTokenProvider p = client.getTokenProvider();
+            return (p == null) ? 0 : p.getRefreshFailureCount();
+        }
+
+        public Date getTokenExpiry() {
+            AccessTokenProvider p = client.getTokenProvider();
+            return (p == null) ? null : p.getTokenExpiry();
+        }
+
+        public void resetMetrics() {
+            client.resetMetrics();
+        }
+    }
+
+    private class TransportBean implements ADLTransportMXBean {
+        public long getTryCount() {
+            return sample().snapshot.total.tryCount;
+        }
+
+        public long getRetryCount() {
+            return sample().snapshot.total.retryCount;
+        }
+
+        public double getRetriesPerSecond() {
+            return rate(RETRIES);
+        }
+
+        public long getThrottledCount() {
+            return sample().snapshot.total.getThrottledCount();
+        }
+
+        public double getThrottledPerSecond() {
+            return rate(THROTTLED);
+        }
+
+        public long getNoResponseErrorCount() {
+            return sample().snapshot.total.getErrorCount(0);
+        }
+
+        public Map<Integer, Long> getErrorCountByHttpCode() {
+            return sample().snapshot.total.errorCountsByHttpCode;
+        }
+
+        public long getBytesSent() {
+            return sample().snapshot.total.bytesSent;
+        }
+
+        public long getBytesReceived() {
+            return sample().snapshot.total.bytesReceived;
+        }
+
+        public double getBytesSentPerSecond() {
+            return rate(BYTES_SENT);
+        }
+
+        public double getBytesReceivedPerSecond() {
+            return rate(BYTES_RECEIVED);
+        }
+
+        public long getHedgeCount() {
+            HedgingPolicy h = client.getHedgingPolicy();
+            return (h == null) ? 0 : h.getHedgeCount();
+        }
+
+        public long getHedgeWinCount() {
+            HedgingPolicy h = client.getHedgingPolicy();
+            return (h == null) ? 0 : h.getHedgeWinCount();
+        }
+
+        public long getHedgesDeniedByBudgetCount() {
+            HedgingPolicy h = client.getHedgingPolicy();
+            return (h == null) ? 0 : h.getHedgesDeniedByBudgetCount();
+        }
+    }
+
+    private class StreamsBean implements ADLStreamsMXBean {
+        private final StreamStatistics stats = client.getStreamStatistics();
+
+        public long getOpenInputStreams() {
+            return stats.openInputStreams.get();
+        }
+
+        public long getOpenOutputStreams() {
+            return stats.openOutputStreams.get();
+        }
+
+        public long getInputStreamsOpened() {
+            return stats.inputStreamsOpened.get();
+        }
+
+        public long getOutputStreamsOpened() {
+            return stats.outputStreamsOpened.get();
+        }
+
+        public long getInputBufferBytes() {
+            return stats.inputBufferBytes.get();
+        }
+
+        public long getOutputBufferBytes() {
+            return stats.outputBufferBytes.get();
+        }
+
+        public long getOutputPendingBytes() {
+            return stats.outputPendingBytes.get();
+        }
+
+        public long getBytesRead() {
+            return stats.bytesRead.get();
+        }
+
+        public long getBytesWritten() {
+            return stats.bytesWritten.get();
+        }
+    }
+}
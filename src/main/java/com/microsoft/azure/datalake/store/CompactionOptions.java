@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.RequestPriority;
+
+
+/**
+ * options to control {@link ADLStoreClient#compactDirectory(String, CompactionOptions) compactDirectory}
+ */
+public class CompactionOptions {
+    /**
+     * the size to make each merged file. Small files are merged, in name order, into files of up to this size.
+     */
+    public long targetSize = 256L * 1024 * 1024;
+
+    /**
+     * files of this size or bigger are left alone
+     */
+    public long smallFileThreshold = 64L * 1024 * 1024;
+
+    /**
+     * the most files to concatenate in one request. Bigger merges are done in levels: groups of files are
+     * concatenated in parallel into intermediate files, which are then concatenated in turn.
+     */
+    public int maxSourcesPerConcat = 500;
+
+    /**
+     * name of each merged file: this prefix followed by the name of the first file merged into it
+     */
+    public String mergedFilePrefix = "compacted-";
+
+    /**
+     * the most requests to have in flight at once. The compaction halves this when the service throttles, and
+     * grows it back as requests succeed.
+     */
+    public int maxConcurrency = 16;
+
+    /**
+     * priority of the compaction's requests, for a {@link com.microsoft.azure.datalake.store.protocol.RequestScheduler
+     * RequestScheduler} set on the client
+     */
+    public RequestPriority priority = RequestPriority.BACKGROUND;
+
+    /**
+     * selects the files to merge; {@code null} for all files. Files whose names start with {@code .} or
+     * {@code _} are never merged.
+     */
+    public PathFilter filter = null;
+
+    /**
+     * if true, the files are grouped and the merges counted in the report, but not done
+     */
+    public boolean dryRun = false;
+
+    /**
+     * the most failures to list in the {@link CompactionReport}; any more are only counted
+     */
+    public int maxFailuresReported = 1000;
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Outcome of a {@link ADLStoreClient#compactDirectory(String, CompactionOptions) compactDirectory}. A failed
+ * merge does not stop the others; it is recorded here.
+ */
+public class CompactionReport {
+
+    /**
+     * number of merged files created
+     */
+    public final long mergedFileCount;
+
+    /**
+     * number of small files merged into them
+     */
+    public final long sourceFileCount;
+
+    /**
+     * number of bytes in the merged files
+     */
+    public final long byteCount;
+
+    /**
+     * number of small files left as they were: alone in their group, or in a merge that failed
+     */
+    public final long skippedFileCount;
+
+    /**
+     * number of concatenate requests made, including those of intermediate levels
+     */
+    public final long concatCount;
+
+    /**
+     * number of merges that failed, including those not listed in {@link #failures}
+     */
+    public final long failureCount;
+
+    /**
+     * number of throttled responses received
+     */
+    public final long throttleCount;
+
+    /**
+     * time taken, in milliseconds
+     */
+    public final long elapsedMillis;
+
+    /**
+     * the first failures, up to {@link CompactionOptions#maxFailuresReported}. The path is the merged file
+     * that could not be created.
+     */
+    public final List<TreeOperationReport.Failure> failures;
+
+    CompactionReport(long mergedFileCount, long sourceFileCount, long byteCount, long skippedFileCount,
+                     long concatCount, long failureCount, long throttleCount, long elapsedMillis,
+                     List<TreeOperationReport.Failure> failures) {
+        this.mergedFileCount = mergedFileCount;
+        this.sourceFileCount = sourceFileCount;
+        this.byteCount = byteCount;
+        this.skippedFileCount = skippedFileCount;
+        this.concatCount = concatCount;
+        this.failureCount = failureCount;
+        this.throttleCount = throttleCount;
+        this.elapsedMillis = elapsedMillis;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return true if every merge was done
+     */
+    public boolean isSuccessful() {
+        return failureCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files merged into %d (%d bytes), %d left alone, %d failed in %.1f s; "
+                        + "%d concatenate requests, %d throttled",
+                sourceFileCount, mergedFileCount, byteCount, skippedFileCount, failureCount,
+                elapsedMillis / 1000.0, concatCount, throttleCount);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Merges the small files of a directory into bigger ones, for
+ * {@link ADLStoreClient#compactDirectory(String, CompactionOptions) compactDirectory}.
+ * <P>
+ * The small files are taken in name order and packed into groups of up to the target size; each group with
+ * more than one file is concatenated into a new file by a {@link ConcatTree}, the groups concurrently, with
+ * the tree's intermediate files hidden in the directory. If a group's merge cannot be finished, each
+ * intermediate file it made is renamed into the directory as a merged file of its own, so no data is left
+ * hidden.
+ * </P>
+ */
+class Compactor {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store");
+
+    /*
+     the merge of one group of small files
+     */
+    private static final class Merge {
+        final String target;
+        final int sourceCount;
+        final long length;
+
+        Merge(String target, int sourceCount, long length) {
+            this.target = target;
+            this.sourceCount = sourceCount;
+            this.length = length;
+        }
+    }
+
+    private final ADLStoreClient client;
+    private final CompactionOptions options;
+    private final TaskPool tasks;
+    private final String runId = UUID.randomUUID().toString();
+    private String directory;
+    private final Set<String> existingNames = new HashSet<String>();
+    private final ConcatTree tree;
+
+    private final AtomicLong mergedFileCount = new AtomicLong(0);
+    private final AtomicLong sourceFileCount = new AtomicLong(0);
+    private final AtomicLong byteCount = new AtomicLong(0);
+    private final AtomicLong skippedFileCount = new AtomicLong(0);
+    private final AtomicLong plannedConcatCount = new AtomicLong(0);   // for a dry run
+    private final AtomicLong failureCount = new AtomicLong(0);
+    private final List<TreeOperationReport.Failure> failures = new ArrayList<TreeOperationReport.Failure>();
+
+    Compactor(ADLStoreClient client, CompactionOptions options) {
+        if (options == null) options = new CompactionOptions();
+        if (options.targetSize < 1) throw new IllegalArgumentException("targetSize must be positive");
+        if (options.maxSourcesPerConcat < 2) throw new IllegalArgumentException("maxSourcesPerConcat must be at least 2");
+        if (options.mergedFilePrefix == null || options.mergedFilePrefix.equals("")) {
+            throw new IllegalArgumentException("mergedFilePrefix cannot be empty");
+        }
+        this.client = client;
+        this.options = options;
+        this.tasks = new TaskPool("compactor", options.maxConcurrency, options.priority);
+        this.tree = new ConcatTree(client, tasks, options.maxSourcesPerConcat);
+    }
+
+    CompactionReport compact(String path) throws IOException {
+        long start = System.nanoTime();
+        directory = path;
+        while (directory.length() > 1 && directory.endsWith("/")) directory = directory.substring(0, directory.length() - 1);
+
+        try {
+            List<List<DirectoryEntry>> groups = group(PagedListing.listAll(client, tasks, directory));
+            for (int i = 0; i < groups.size(); i++) {
+                List<DirectoryEntry> group = groups.get(i);
+                if (group.size() < 2) {
+                    skippedFileCount.addAndGet(group.size());
+                    continue;
+                }
+                String name = options.mergedFilePrefix + group.get(0).name;
+                List<ConcatTree.Part> parts = new ArrayList<ConcatTree.Part>(group.size());
+                long length = 0;
+                for (DirectoryEntry entry : group) {
+                    parts.add(new ConcatTree.Part(entry.fullName, entry.fullName, entry.length, 1));
+                    length += entry.length;
+                }
+                Merge merge = new Merge(join(name), group.size(), length);
+                if (existingNames.contains(name)) {
+                    skippedFileCount.addAndGet(group.size());
+                    failed(merge.target, 0, "merged file already exists");
+                } else if (options.dryRun) {
+                    succeeded(merge);
+                    plannedConcatCount.addAndGet(ConcatTree.concatsNeeded(group.size(), options.maxSourcesPerConcat));
+                } else {
+                    merge(merge, parts, join(".compacting-" + runId + "-" + i + "-"));
+                }
+            }
+            tasks.await();
+        } finally {
+            tasks.shutdown();
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        synchronized (failures) {
+            return new CompactionReport(mergedFileCount.get(), sourceFileCount.get(), byteCount.get(),
+                    skippedFileCount.get(), plannedConcatCount.get() + tree.getConcatCount(), failureCount.get(),
+                    tasks.getThrottleCount(), elapsed, new ArrayList<TreeOperationReport.Failure>(failures));
+        }
+    }
+
+    /*
+     packs the small files, in name order, into groups of up to the target size
+     */
+    private List<List<DirectoryEntry>> group(List<DirectoryEntry> entries) {
+        List<List<DirectoryEntry>> groups = new ArrayList<List<DirectoryEntry>>();
+        List<DirectoryEntry> current = new ArrayList<DirectoryEntry>();
+        long size = 0;
+        for (DirectoryEntry entry : entries) {
+            existingNames.add(entry.name);
+            if (entry.type != DirectoryEntryType.FILE || entry.length >= options.smallFileThreshold
+                    || entry.name.startsWith(".") || entry.name.startsWith("_")
+                    || (options.filter != null && !options.filter.accept(entry))) {
+                continue;
+            }
+            if (!current.isEmpty() && size + entry.length > options.targetSize) {
+                groups.add(current);
+                current = new ArrayList<DirectoryEntry>();
+                size = 0;
+            }
+            current.add(entry);
+            size += entry.length;
+        }
+        if (!current.isEmpty()) groups.add(current);
+        return groups;
+    }
+
+    /*
+     concatenates the group in a tree of hidden intermediate files, if one request cannot take it all
+     */
+    private void merge(final Merge merge, List<ConcatTree.Part> parts, String intermediatePrefix) {
+        tree.merge(merge.target, intermediatePrefix, parts, new ConcatTree.Outcome() {
+            public void succeeded() {
+                Compactor.this.succeeded(merge);
+            }
+
+            public void failed(List<ConcatTree.Part> parts, OperationResponse resp, String message) {
+                salvage(merge, parts);
+                Compactor.this.failed(merge.target, resp.httpResponseCode, client.getExceptionFromResp(resp, message).getMessage());
+            }
+        });
+    }
+
+    /*
+     the merge cannot be finished: rename the intermediate files into the directory as merged files, so no
+     data is left hidden, and leave the other small files as they are
+     */
+    private void salvage(Merge merge, List<ConcatTree.Part> parts) {
+        int skipped = 0;
+        for (ConcatTree.Part part : parts) {
+            if (!part.isIntermediate()) {
+                skipped += part.sourceCount;
+                continue;
+            }
+            String firstName = part.firstPath.substring(part.firstPath.lastIndexOf('/') + 1);
+            if (tree.rename(part.path, join(options.mergedFilePrefix + firstName))) {
+                mergedFileCount.incrementAndGet();
+                sourceFileCount.addAndGet(part.sourceCount);
+                byteCount.addAndGet(part.length);
+            } else {
+                log.warn("merged data of {} is left in {}", merge.target, part.path);
+                skipped += part.sourceCount;
+            }
+        }
+        skippedFileCount.addAndGet(skipped);
+    }
+
+    private void succeeded(Merge merge) {
+        mergedFileCount.incrementAndGet();
+        sourceFileCount.addAndGet(merge.sourceCount);
+        byteCount.addAndGet(merge.length);
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Reporting                                                                                              */
+
+    private void failed(String path, int httpResponseCode, String message) {
+        failureCount.incrementAndGet();
+        synchronized (failures) {
+            if (failures.size() < options.maxFailuresReported) {
+                failures.add(new TreeOperationReport.Failure(path, httpResponseCode, message));
+            }
+        }
+    }
+
+    private String join(String name) {
+        return directory.endsWith("/") ? directory + name : directory + "/" + name;
+    }
+}
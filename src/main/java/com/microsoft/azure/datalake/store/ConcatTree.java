@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Concatenates more files than one request can take, in a tree of requests: runs of up to the fan-in of the
+ * files are concatenated in parallel into intermediate files, and the intermediates are concatenated in turn,
+ * level by level, until one request can take what is left.
+ * <P>
+ * Concatenating deletes the sources, so a tree that fails part way cannot be undone. A run whose request
+ * failed still has its files, and is carried up to the next level as they are; the tree goes on as long as
+ * each level makes progress. If it cannot finish, the caller gets the parts left - original files, and the
+ * intermediates holding the rest - to deal with.
+ * </P>
+ */
+class ConcatTree {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store");
+
+    /*
+     a run of consecutive sources: one of the files itself, or an intermediate file holding several
+     */
+    static final class Part {
+        final String path;
+        final String firstPath;     // the first file in the run
+        final long length;          // -1 if not known
+        final int sourceCount;
+
+        Part(String path, String firstPath, long length, int sourceCount) {
+            this.path = path;
+            this.firstPath = firstPath;
+            this.length = length;
+            this.sourceCount = sourceCount;
+        }
+
+        boolean isIntermediate() {
+            return sourceCount > 1;
+        }
+    }
+
+    /*
+     told once when a merge is done, on one of the pool's threads
+     */
+    interface Outcome {
+        void succeeded();
+
+        /*
+         the merge cannot go on. The parts left hold all the data, in order; resp is the last failed request,
+         and message says what it was
+         */
+        void failed(List<Part> parts, OperationResponse resp, String message);
+    }
+
+    /*
+     the failure to report if the merge does not finish
+     */
+    private static final class Merge {
+        final String target;
+        final String intermediatePrefix;
+        final Outcome outcome;
+        volatile OperationResponse resp = null;
+        volatile String message = null;
+
+        Merge(String target, String intermediatePrefix, Outcome outcome) {
+            this.target = target;
+            this.intermediatePrefix = intermediatePrefix;
+            this.outcome = outcome;
+        }
+    }
+
+    private final ADLStoreClient client;
+    private final TaskPool tasks;
+    private final int fanIn;
+    private final AtomicLong concatCount = new AtomicLong(0);
+
+    /*
+     the merges run, and send their requests, on the tasks of the operation they are part of
+     */
+    ConcatTree(ADLStoreClient client, TaskPool tasks, int fanIn) {
+        if (fanIn < 2) throw new IllegalArgumentException("maxSourcesPerConcat must be at least 2");
+        this.client = client;
+        this.tasks = tasks;
+        this.fanIn = fanIn;
+    }
+
+    /*
+     concatenates the parts into the target, in the background. Intermediate files are named by the prefix
+     followed by their level and index.
+     */
+    void merge(String target, String intermediatePrefix, List<Part> parts, Outcome outcome) {
+        mergeLevel(new Merge(target, intermediatePrefix, outcome), parts, 0);
+    }
+
+    /*
+     number of concatenate requests made so far
+     */
+    long getConcatCount() {
+        return concatCount.get();
+    }
+
+    /*
+     concatenates the parts into the merge's target if one request can take them; otherwise concatenates runs
+     of them into intermediate files in parallel, and goes on with those when all are done
+     */
+    private void mergeLevel(final Merge merge, final List<Part> parts, final int level) {
+        if (parts.size() <= fanIn) {
+            tasks.submit(new Runnable() {
+                public void run() {
+                    if (concat(merge, merge.target, parts)) {
+                        merge.outcome.succeeded();
+                    } else {
+                        merge.outcome.failed(parts, merge.resp, merge.message);
+                    }
+                }
+            });
+            return;
+        }
+
+        int runs = (parts.size() + fanIn - 1) / fanIn;
+        final AtomicReferenceArray<List<Part>> results = new AtomicReferenceArray<List<Part>>(runs);
+        final AtomicInteger remaining = new AtomicInteger(runs);
+        for (int i = 0; i < runs; i++) {
+            final int index = i;
+            final List<Part> run = new ArrayList<Part>(parts.subList(i * fanIn, Math.min(parts.size(), (i + 1) * fanIn)));
+            tasks.submit(new Runnable() {
+                public void run() {
+                    List<Part> result = run;
+                    try {
+                        if (run.size() > 1) {
+                            String path = merge.intermediatePrefix + level + "-" + index;
+                            if (concat(merge, path, run)) result = Collections.singletonList(merged(path, run));
+                        }
+                    } finally {
+                        results.set(index, result);
+                        if (remaining.decrementAndGet() == 0) {
+                            List<Part> next = new ArrayList<Part>();
+                            for (int j = 0; j < results.length(); j++) next.addAll(results.get(j));
+                            if (next.size() < parts.size()) {
+                                mergeLevel(merge, next, level + 1);
+                            } else {
+                                merge.outcome.failed(next, merge.resp, merge.message);   // not one run could be merged
+                            }
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private static Part merged(String path, List<Part> run) {
+        long length = 0;
+        int sourceCount = 0;
+        for (Part part : run) {
+            length = (length < 0 || part.length < 0) ? -1 : length + part.length;
+            sourceCount += part.sourceCount;
+        }
+        return new Part(path, run.get(0).firstPath, length, sourceCount);
+    }
+
+    /*
+     number of concatenate requests a merge of this many files takes
+     */
+    static int concatsNeeded(int count, int fanIn) {
+        int concats = 0;
+        while (count > fanIn) {
+            int runs = (count + fanIn - 1) / fanIn;
+            concats += (count % fanIn == 1) ? runs - 1 : runs;   // a run of one file needs no request
+            count = runs;
+        }
+        return concats + 1;
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Requests                                                                                               */
+
+    private boolean concat(Merge merge, String path, List<Part> parts) {
+        List<String> sources = new ArrayList<String>(parts.size());
+        long length = 0;
+        for (Part part : parts) {
+            sources.add(part.path);
+            length = (length < 0 || part.length < 0) ? -1 : length + part.length;
+        }
+        concatCount.incrementAndGet();
+        OperationResponse resp = new OperationResponse();
+        try {
+            RequestOptions opts = tasks.acquire();
+            try {
+                Core.concat(path, sources, client, opts, resp);
+            } finally {
+                tasks.release(resp);
+            }
+            if (resp.successful) return true;
+
+            // a retried request whose first attempt went through finds its sources gone
+            DirectoryEntry entry = status(path);
+            if (entry != null && (length >= 0 ? entry.length == length : status(sources.get(0)) == null)) return true;
+        } catch (InterruptedIOException ex) {
+            resp.successful = false;
+            resp.message = ex.getMessage();
+        }
+        if (log.isDebugEnabled()) log.debug("concatenating into {} failed: {}", path, resp.message);
+        merge.resp = resp;
+        merge.message = "Error concatenating files into " + path;
+        return false;
+    }
+
+    boolean rename(String path, String destination) {
+        OperationResponse resp = new OperationResponse();
+        boolean renamed = false;
+        try {
+            RequestOptions opts = tasks.acquire();
+            try {
+                renamed = Core.rename(path, destination, false, client, opts, resp);
+            } finally {
+                tasks.release(resp);
+            }
+        } catch (InterruptedIOException ex) {
+            return false;
+        }
+        return resp.successful && renamed;
+    }
+
+    private DirectoryEntry status(String path) throws InterruptedIOException {
+        RequestOptions opts = tasks.acquire();
+        OperationResponse resp = new OperationResponse();
+        DirectoryEntry entry;
+        try {
+            entry = Core.getFileStatus(path, client, opts, resp);
+        } finally {
+            tasks.release(resp);
+        }
+        return resp.successful ? entry : null;
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Concatenating a list of files                                                                          */
+
+    /*
+     concatenates the files into path, for ADLStoreClient.concatenateFiles: in one request if the list is short
+     enough, and in a tree of hidden intermediate files next to the target otherwise. If the tree fails part way,
+     each intermediate file left is renamed to the first file concatenated into it, so the files that remain in
+     the list hold all the data, in order, and can be concatenated again.
+     */
+    static void concatenate(ADLStoreClient client, String path, List<String> fileList, int maxSourcesPerConcat,
+                            int maxConcurrency) throws IOException {
+        if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        if (fileList == null || fileList.size() <= maxSourcesPerConcat) {
+            client.concatenateFiles(path, fileList);
+            return;
+        }
+
+        // checked up front, since a tree that fails on them would already have concatenated some of the files
+        OperationResponse check = new OperationResponse();
+        Set<String> seen = new HashSet<String>(fileList.size() * 4 / 3 + 1);
+        for (String item : fileList) {
+            if (item.equals(path)) {
+                check.successful = false;
+                check.message = "One of the source files to concatenate is the destination file";
+            } else if (!seen.add(item)) {
+                check.successful = false;
+                check.message = "concat() source list contains a file more than once: " + item;
+            }
+            if (!check.successful) throw client.getExceptionFromResp(check, "Error concatenating files into " + path);
+        }
+
+        int slash = path.lastIndexOf('/');
+        String intermediatePrefix = path.substring(0, slash + 1) + "." + path.substring(slash + 1)
+                + ".concat-" + UUID.randomUUID().toString() + "-";
+        List<Part> parts = new ArrayList<Part>(fileList.size());
+        for (String item : fileList) parts.add(new Part(item, item, -1, 1));
+
+        TaskPool tasks = new TaskPool("concat", maxConcurrency, null);
+        ConcatTree tree = new ConcatTree(client, tasks, maxSourcesPerConcat);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final List<Part> left = new ArrayList<Part>();
+        final OperationResponse[] failure = new OperationResponse[1];
+        final String[] failureMessage = new String[1];
+        try {
+            tree.merge(path, intermediatePrefix, parts, new Outcome() {
+                public void succeeded() {
+                    finished.countDown();
+                }
+
+                public void failed(List<Part> parts, OperationResponse resp, String message) {
+                    synchronized (left) {
+                        left.addAll(parts);
+                        failure[0] = resp;
+                        failureMessage[0] = message;
+                    }
+                    finished.countDown();
+                }
+            });
+            finished.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while concatenating files into " + path);
+        } finally {
+            tasks.shutdown();
+        }
+
+        synchronized (left) {
+            if (failure[0] == null) return;
+            int restored = 0;
+            for (Part part : left) {
+                if (!part.isIntermediate()) continue;
+                if (tree.rename(part.path, part.firstPath)) {
+                    restored++;
+                } else {
+                    log.warn("concatenated data of {} is left in {}", part.firstPath, part.path);
+                }
+            }
+            throw client.getExceptionFromResp(failure[0], failureMessage[0] + "; " + left.size() + " of the "
+                    + fileList.size() + " source files remain, " + restored + " of them holding the contents of "
+                    + "files before them in the list, and can be concatenated again");
+        }
+    }
+}
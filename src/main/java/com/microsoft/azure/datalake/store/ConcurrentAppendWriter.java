@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import com.microsoft.azure.datalake.store.retrypolicies.ExponentialOnThrottlePolicy;
+import com.microsoft.azure.datalake.store.retrypolicies.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * {@code ConcurrentAppendWriter} appends records to a file from many threads at once, batching them into
+ * concurrent appends (group commit). Compared to a {@link Utils#appendBytes(String, byte[]) concurrent append}
+ * per record, this sends far fewer requests, so the account's request rate limit is not reached long before
+ * its bandwidth.
+ * <P>
+ * Records are collected until the batch reaches the {@link #setMaxBatchBytes(int) maximum batch size}, or
+ * the first record in it has waited for the {@link #setLingerMillis(long) linger time}, and then sent as one
+ * {@code CONCURRENTAPPEND}. A record is never split across batches, and since each append is atomic, each
+ * record lands in the file whole. Records from different threads may land in any order; records appended by
+ * one thread, one after the other, land in that order.
+ * </P><P>
+ * {@link #append(byte[], int, int) append} returns a {@link Future} that completes when the record's batch
+ * has been written to the file, or fails with the batch's error. While one batch is being sent, the next one
+ * fills; producers block only if it fills before the send is done.
+ * </P><P>
+ * Get one with {@link ADLStoreClient#getConcurrentAppendWriter(String)}, and share it between all the threads
+ * writing to the file. A file written with concurrent appends can only be appended to with concurrent appends.
+ * </P>
+ */
+public class ConcurrentAppendWriter {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store.ConcurrentAppendWriter");
+
+    private static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+
+    private final String filename;
+    private final ADLStoreClient client;
+
+    private int maxBatchBytes = MAX_BATCH_BYTES;
+    private long lingerNanos = 10L * 1000000L;
+    private boolean autoCreate = true;
+
+    private Batch filling = new Batch();
+    private Batch spare = null;
+    private Batch sending = null;
+    private boolean flushRequested = false;
+    private boolean closed = false;
+    private Thread sender = null;
+
+    private long batchCount = 0;
+    private long recordCount = 0;
+
+    /*
+     records collected for one append, and the futures of their callers
+     */
+    private static class Batch {
+        byte[] data = new byte[0];
+        int size = 0;
+        final List<RecordFuture> futures = new ArrayList<RecordFuture>();
+        long firstRecordTime = 0;
+
+        void add(byte[] b, int off, int len, int capacity, RecordFuture future) {
+            if (size == 0) firstRecordTime = System.nanoTime();
+            if (size + len > data.length) {
+                byte[] grown = new byte[Math.min(capacity, Math.max(size + len, data.length * 2))];
+                System.arraycopy(data, 0, grown, 0, size);
+                data = grown;
+            }
+            System.arraycopy(b, off, data, size, len);
+            size += len;
+            futures.add(future);
+        }
+
+        void reset() {
+            size = 0;
+            futures.clear();
+        }
+    }
+
+    /*
+     the result of one record: done when its batch is done
+     */
+    private static class RecordFuture implements Future<Void> {
+        private boolean done = false;
+        private IOException error = null;
+
+        synchronized void complete(IOException error) {
+            this.error = error;
+            this.done = true;
+            notifyAll();
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;   // a record cannot be taken back once handed over
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public synchronized boolean isDone() {
+            return done;
+        }
+
+        public synchronized Void get() throws InterruptedException, ExecutionException {
+            while (!done) wait();
+            return result();
+        }
+
+        public synchronized Void get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!done) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) throw new TimeoutException();
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return result();
+        }
+
+        private Void result() throws ExecutionException {
+            if (error != null) throw new ExecutionException(error);
+            return null;
+        }
+    }
+
+    // package-private constructor - use Factory Method in ADLStoreClient
+    ConcurrentAppendWriter(String filename, ADLStoreClient client) {
+        this.filename = filename;
+        this.client = client;
+    }
+
+    /**
+     * Sets the largest batch to send in one append. The default, and the largest allowed, is 4MB. No record
+     * can be larger than this.
+     *
+     * @param bytes maximum batch size in bytes
+     */
+    public synchronized void setMaxBatchBytes(int bytes) {
+        if (bytes <= 0 || bytes > MAX_BATCH_BYTES) {
+            throw new IllegalArgumentException("batch size must be between 1 and " + MAX_BATCH_BYTES + " bytes");
+        }
+        this.maxBatchBytes = bytes;
+    }
+
+    /**
+     * Sets how long a record can wait for more records to join its batch before the batch is sent anyway.
+     * Longer linger times make fewer, larger appends; shorter ones lower the latency of each record. The
+     * default is 10 milliseconds.
+     *
+     * @param millis the linger time, in milliseconds
+     */
+    public synchronized void setLingerMillis(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("linger time cannot be negative");
+        this.lingerNanos = millis * 1000000L;
+        notifyAll();
+    }
+
+    /**
+     * Sets whether the first append creates the file if it does not exist. The default is {@code true}.
+     *
+     * @param autoCreate true to create the file if needed
+     */
+    public synchronized void setAutoCreate(boolean autoCreate) {
+        this.autoCreate = autoCreate;
+    }
+
+    /**
+     * @return number of appends sent
+     */
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return number of records written to the file
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Appends a record. The record is copied, so the caller can reuse the array as soon as this returns.
+     *
+     * @param b array containing the record
+     * @param off offset of the record in the array
+     * @param len length of the record; at most the maximum batch size
+     * @return a {@link Future} that completes when the record has been written to the file. If the append
+     *         fails, its {@code get} throws an {@link ExecutionException} wrapping the {@link ADLException}.
+     * @throws IOException thrown if the writer is closed, or the thread is interrupted while waiting for room
+     */
+    public Future<Void> append(byte[] b, int off, int len) throws IOException {
+        if (b == null) throw new NullPointerException();
+        if (off < 0 || len < 0 || off + len > b.length || off + len < 0) throw new IndexOutOfBoundsException();
+        RecordFuture future = new RecordFuture();
+        synchronized (this) {
+            if (len > maxBatchBytes) {
+                throw new IllegalArgumentException("record of " + len + " bytes is larger than the maximum batch size");
+            }
+            if (closed) throw new IOException("attempting to append to a closed writer");
+            if (len == 0) {
+                future.complete(null);
+                return future;
+            }
+            try {
+                // a record does not fit: wait for the sender to take the batch that is filling. Only the first
+                // producer to find it full wakes the sender; waking each other would keep the sender locked out
+                while (filling.size + len > maxBatchBytes) {
+                    if (!flushRequested) {
+                        flushRequested = true;
+                        notifyAll();
+                    }
+                    wait();
+                    if (closed) throw new IOException("attempting to append to a closed writer");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting to append");
+            }
+            filling.add(b, off, len, maxBatchBytes, future);
+            if (sender == null) startSender();
+            if (filling.size >= maxBatchBytes || filling.futures.size() == 1) notifyAll();
+        }
+        return future;
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param b the record
+     * @return a {@link Future} that completes when the record has been written to the file
+     * @throws IOException thrown if the writer is closed
+     * @see #append(byte[], int, int)
+     */
+    public Future<Void> append(byte[] b) throws IOException {
+        if (b == null) throw new NullPointerException();
+        return append(b, 0, b.length);
+    }
+
+    /**
+     * Sends the records collected so far without waiting for the linger time, and waits until every record
+     * appended before this call has been written.
+     *
+     * @throws IOException {@link ADLException} from the first failed batch, if any failed
+     */
+    public void flush() throws IOException {
+        List<RecordFuture> pending;
+        synchronized (this) {
+            pending = pending();
+            flushRequested = true;
+            notifyAll();
+        }
+        awaitAll(pending);
+    }
+
+    /**
+     * Sends the remaining records, waits for them to be written, and stops the writer. Further appends fail.
+     *
+     * @throws IOException {@link ADLException} from the first failed batch among the remaining records
+     */
+    public void close() throws IOException {
+        List<RecordFuture> pending;
+        Thread t;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            pending = pending();
+            t = sender;
+            notifyAll();
+        }
+        try {
+            awaitAll(pending);
+        } finally {
+            if (t != null) {
+                try {
+                    t.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /*
+     the records not yet written: those of the batch being sent, and of the one filling
+     */
+    private List<RecordFuture> pending() {
+        List<RecordFuture> pending = new ArrayList<RecordFuture>(filling.futures);
+        if (sending != null) pending.addAll(sending.futures);
+        return pending;
+    }
+
+    private static void awaitAll(List<RecordFuture> futures) throws IOException {
+        IOException first = null;
+        for (RecordFuture f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for appends");
+            } catch (ExecutionException ex) {
+                if (first == null) first = (IOException) ex.getCause();
+            } catch (CancellationException ex) {
+                // records are never cancelled
+            }
+        }
+        if (first != null) throw first;
+    }
+
+    private void startSender() {
+        sender = new Thread("adls-concurrent-append") {
+            public void run() {
+                sendLoop();
+            }
+        };
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /*
+     takes batches as they become ready, and sends them one at a time
+     */
+    private void sendLoop() {
+        while (true) {
+            Batch batch;
+            synchronized (this) {
+                try {
+                    while (true) {
+                        if (filling.size > 0) {
+                            long wait = filling.firstRecordTime + lingerNanos - System.nanoTime();
+                            if (wait <= 0 || flushRequested || closed || filling.size >= maxBatchBytes) break;
+                            TimeUnit.NANOSECONDS.timedWait(this, wait);
+                        } else {
+                            flushRequested = false;
+                            if (closed) return;
+                            wait();
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    // not expected: the thread is private. Send what there is.
+                }
+                batch = filling;
+                filling = (spare != null) ? spare : new Batch();
+                spare = null;
+                flushRequested = false;
+                sending = batch;
+                notifyAll();    // producers waiting for room
+            }
+
+            IOException error = send(batch);
+
+            synchronized (this) {
+                batchCount++;
+                if (error == null) recordCount += batch.futures.size();
+                sending = null;
+            }
+            for (RecordFuture f : batch.futures) f.complete(error);
+            synchronized (this) {
+                batch.reset();
+                spare = batch;
+            }
+        }
+    }
+
+    private IOException send(Batch batch) {
+        boolean create;
+        synchronized (this) {
+            create = autoCreate;
+        }
+        RequestOptions opts = new RequestOptions();
+        opts.retryPolicy = new ThrottleOnlyRetryPolicy();
+        OperationResponse resp = new OperationResponse();
+        if (log.isTraceEnabled()) {
+            log.trace("concurrent append of {} records, {} bytes for client {} for file {}",
+                    batch.futures.size(), batch.size, client.getClientId(), filename);
+        }
+        Core.concurrentAppend(filename, batch.data, 0, batch.size, create, client, opts, resp);
+        if (!resp.successful) {
+            return client.getExceptionFromResp(resp, "Error appending to file " + filename);
+        }
+        client.getStreamStatistics().bytesWritten.addAndGet(batch.size);
+        return null;
+    }
+
+    /*
+     an append that failed any other way may have been applied, and retrying it could write the batch twice;
+     a throttled one was not applied
+     */
+    private static class ThrottleOnlyRetryPolicy implements RetryPolicy {
+        private final ExponentialOnThrottlePolicy backoff = new ExponentialOnThrottlePolicy();
+
+        public boolean shouldRetry(int httpResponseCode, Exception lastException) {
+            if (httpResponseCode != 429 && httpResponseCode != 503) return false;
+            return backoff.shouldRetry(httpResponseCode, lastException);
+        }
+    }
+}
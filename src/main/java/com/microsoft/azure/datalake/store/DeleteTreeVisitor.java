@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+
+import java.io.IOException;
+import java.util.List;
+
+
+/**
+ * Deletes a tree bottom-up: each file as it is listed, and each directory once it is empty. Small directories
+ * of files are deleted with a single server-side recursive delete instead.
+ */
+class DeleteTreeVisitor extends TreeWalker.Visitor {
+
+    private final ADLStoreClient client;
+    private final int serverSideThreshold;
+
+    DeleteTreeVisitor(ADLStoreClient client, int serverSideThreshold) {
+        this.client = client;
+        this.serverSideThreshold = serverSideThreshold;
+    }
+
+    @Override
+    void visit(DirectoryEntry entry, RequestOptions opts) throws IOException {
+        if (entry.type == DirectoryEntryType.FILE) delete(entry.fullName, false, opts);
+    }
+
+    @Override
+    void leave(DirectoryEntry directory, RequestOptions opts) throws IOException {
+        delete(directory.fullName, false, opts);
+    }
+
+    @Override
+    boolean visitLeafDirectory(DirectoryEntry directory, List<DirectoryEntry> contents, RequestOptions opts)
+            throws IOException {
+        if (contents.size() >= serverSideThreshold) return false;
+        delete(directory.fullName, true, opts);
+        return true;
+    }
+
+    /*
+     a path that is already gone counts as deleted, so a resumed or retried delete does not fail on it. The
+     service answers a delete of a missing path with false rather than an error, and false can also mean the
+     path was not deleted, so false is only taken as deleted once a status check finds the path gone.
+     */
+    private void delete(String path, boolean recursive, RequestOptions opts) throws IOException {
+        OperationResponse resp = new OperationResponse();
+        boolean deleted = Core.delete(path, recursive, client, opts, resp);
+        if (!resp.successful) {
+            if (resp.httpResponseCode == 404) return;
+            throw client.getExceptionFromResp(resp, "Error deleting " + path);
+        }
+        if (!deleted && exists(path, opts)) throw new IOException("Error deleting " + path + ": it was not deleted");
+    }
+
+    private boolean exists(String path, RequestOptions opts) throws IOException {
+        OperationResponse resp = new OperationResponse();
+        Core.getFileStatus(path, client, opts, resp);
+        if (resp.successful) return true;
+        if (resp.httpResponseCode == 404) return false;
+        throw client.getExceptionFromResp(resp, "Error getting info for " + path);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Result of {@link ADLStoreClient#getDirectoryEntries(java.util.Collection) getDirectoryEntries}: the entry for
+ * each path that could be read, and the error for each path that could not. Every requested path is in exactly
+ * one of the two maps, keyed by the path string as it was passed in.
+ */
+public class DirectoryEntryBatch {
+
+    /**
+     * the entries found, by path
+     */
+    public final Map<String, DirectoryEntry> entries;
+
+    /**
+     * the errors, by path. A path that does not exist has an {@link ADLException} with
+     * {@code httpResponseCode} 404.
+     */
+    public final Map<String, IOException> errors;
+
+    /**
+     * number of {@code GETFILESTATUS} calls made
+     */
+    public final int statusCallCount;
+
+    /**
+     * number of {@code LISTSTATUS} calls made
+     */
+    public final int listCallCount;
+
+    DirectoryEntryBatch(Map<String, DirectoryEntry> entries, Map<String, IOException> errors,
+                        int statusCallCount, int listCallCount) {
+        this.entries = Collections.unmodifiableMap(entries);
+        this.errors = Collections.unmodifiableMap(errors);
+        this.statusCallCount = statusCallCount;
+        this.listCallCount = listCallCount;
+    }
+
+    /**
+     * @param path a requested path
+     * @return the entry for the path, as {@link ADLStoreClient#getDirectoryEntry(String) getDirectoryEntry}
+     *         would return it
+     * @throws IOException the error for the path, as {@code getDirectoryEntry} would have thrown it
+     */
+    public DirectoryEntry get(String path) throws IOException {
+        IOException error = errors.get(path);
+        if (error != null) throw error;
+        DirectoryEntry entry = entries.get(path);
+        if (entry == null) throw new IllegalArgumentException("path was not requested: " + path);
+        return entry;
+    }
+
+    /**
+     * @return true if every path was read
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+}
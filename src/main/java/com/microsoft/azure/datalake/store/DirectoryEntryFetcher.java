@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Gets the directory entries of many paths at once, for
+ * {@link ADLStoreClient#getDirectoryEntries(Collection, int, int) getDirectoryEntries}.
+ * <P>
+ * Each distinct path is fetched once, on a bounded pool of threads. When enough of the paths share a parent
+ * directory, they are read from a listing of that directory, bounded to the range of names asked for, instead
+ * of one {@code GETFILESTATUS} each. A listing page holds up to 4000 entries, so the listing is abandoned if it
+ * takes more pages than it saves calls; paths it did not find are then fetched one at a time.
+ * </P>
+ */
+class DirectoryEntryFetcher {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store");
+
+    // a listing page costs about as much as this many status calls
+    private static final int STATUS_CALLS_PER_PAGE = 10;
+
+    private final ADLStoreClient client;
+    private final int maxConcurrency;
+    private final int listThreshold;
+
+    private TaskPool tasks;
+    private final Map<String, DirectoryEntry> entries = new ConcurrentHashMap<String, DirectoryEntry>();
+    private final Map<String, IOException> errors = new ConcurrentHashMap<String, IOException>();
+    private final AtomicInteger statusCalls = new AtomicInteger(0);
+    private final AtomicInteger listCalls = new AtomicInteger(0);
+
+    DirectoryEntryFetcher(ADLStoreClient client, int maxConcurrency, int listThreshold) {
+        if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        this.client = client;
+        this.maxConcurrency = maxConcurrency;
+        this.listThreshold = listThreshold;
+    }
+
+    DirectoryEntryBatch fetch(Collection<String> paths) throws IOException {
+        Set<String> distinct = new LinkedHashSet<String>(paths);
+        if (distinct.contains(null)) throw new IllegalArgumentException("paths cannot contain null");
+
+        // group the paths by parent directory, names in order
+        Map<String, TreeMap<String, String>> byParent = new HashMap<String, TreeMap<String, String>>();
+        List<String> single = new ArrayList<String>();
+        for (String path : distinct) {
+            int slash = path.lastIndexOf('/');
+            if (listThreshold < 2 || slash < 0 || slash == path.length() - 1) {
+                single.add(path);
+                continue;
+            }
+            String parent = (slash == 0) ? "/" : path.substring(0, slash);
+            TreeMap<String, String> names = byParent.get(parent);
+            if (names == null) {
+                names = new TreeMap<String, String>();
+                byParent.put(parent, names);
+            }
+            names.put(path.substring(slash + 1), path);
+        }
+
+        tasks = new TaskPool("entry-fetcher", maxConcurrency, null);
+        try {
+            for (Map.Entry<String, TreeMap<String, String>> group : byParent.entrySet()) {
+                if (group.getValue().size() >= listThreshold) {
+                    submitListing(group.getKey(), group.getValue());
+                } else {
+                    single.addAll(group.getValue().values());
+                }
+            }
+            for (String path : single) submitStatus(path);
+            tasks.await();
+        } finally {
+            tasks.shutdown();
+        }
+        return new DirectoryEntryBatch(new HashMap<String, DirectoryEntry>(entries),
+                new HashMap<String, IOException>(errors), statusCalls.get(), listCalls.get());
+    }
+
+    private void submitStatus(final String path) {
+        tasks.submit(new Runnable() {
+            public void run() {
+                status(path);
+            }
+        });
+    }
+
+    private void status(String path) {
+        RequestOptions opts;
+        try {
+            opts = tasks.acquire();
+        } catch (InterruptedIOException ex) {
+            errors.put(path, ex);
+            return;
+        }
+        OperationResponse resp = new OperationResponse();
+        DirectoryEntry entry;
+        statusCalls.incrementAndGet();
+        try {
+            entry = Core.getFileStatus(path, client, opts, resp);
+        } finally {
+            tasks.release(resp);
+        }
+        if (resp.successful) {
+            entries.put(path, entry);
+        } else {
+            errors.put(path, client.getExceptionFromResp(resp, "Error getting info for file " + path));
+        }
+    }
+
+    /*
+     the first and last names are fetched on their own, since the bounds of a listing are exclusive; the
+     listing covers the names between them
+     */
+    private void submitListing(final String parent, final TreeMap<String, String> names) {
+        submitStatus(names.firstEntry().getValue());
+        submitStatus(names.lastEntry().getValue());
+        tasks.submit(new Runnable() {
+            public void run() {
+                TreeMap<String, String> wanted = new TreeMap<String, String>(names);
+                String last = wanted.lastKey();
+                String after = wanted.firstKey();
+                wanted.remove(after);
+                wanted.remove(last);
+                PagedListing listing = new PagedListing(client, tasks, parent, after, last);
+                int pages = Math.max(1, wanted.size() / STATUS_CALLS_PER_PAGE);
+                while (!wanted.isEmpty() && !listing.isFinished() && pages-- > 0) {
+                    List<DirectoryEntry> page;
+                    listCalls.incrementAndGet();
+                    try {
+                        page = listing.next();
+                    } catch (IOException ex) {
+                        if (log.isDebugEnabled()) log.debug("listing {} failed, getting entries one at a time: {}", parent, ex.getMessage());
+                        break;
+                    }
+                    if (page == null) break;
+                    for (DirectoryEntry entry : page) {
+                        String path = wanted.remove(entry.name);
+                        if (path != null) entries.put(path, entry);
+                    }
+                    // names past the last one wanted are of no use
+                    if (wanted.isEmpty() || page.get(page.size() - 1).name.compareTo(wanted.lastKey()) >= 0) break;
+                }
+                // not listed: missing, or beyond where the listing stopped. Either way ask for each
+                for (String path : wanted.values()) submitStatus(path);
+            }
+        });
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Makes a remote directory tree the same as a local one, for
+ * {@link Utils#syncDirectory(String, String, SyncOptions) syncDirectory}.
+ * <P>
+ * Each directory is compared on its own task: its remote listing is taken (from the snapshot file if the
+ * directory has not changed since), compared with the local directory, and the uploads, deletes and directory
+ * creations it needs are submitted right away, along with the comparison of each subdirectory. All of it runs
+ * on the pool of a {@link DirectoryTransfer}, so listings, uploads and deletes share one concurrency limit.
+ * </P>
+ * <P>
+ * A local file is uploaded unless the remote file has the same length, and was modified no earlier than the
+ * local file. A directory that does not exist remotely is created by uploading the files in it; only empty
+ * directories need creating on their own.
+ * </P>
+ */
+class DirectorySync {
+
+    private final ADLStoreClient client;
+    private final SyncOptions options;
+    private final DirectoryTransfer transfer;
+    private Map<String, SyncSnapshot.Listing> previous = Collections.emptyMap();
+    private final Map<String, SyncSnapshot.Listing> current = new ConcurrentHashMap<String, SyncSnapshot.Listing>();
+    private final Set<String> changedDirectories =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicLong directoryCount = new AtomicLong(0);
+    private final AtomicLong plannedFileCount = new AtomicLong(0);
+    private final AtomicLong plannedByteCount = new AtomicLong(0);
+    private final AtomicLong deleteCount = new AtomicLong(0);
+    private final AtomicLong unchangedCount = new AtomicLong(0);
+    private final AtomicLong listedCount = new AtomicLong(0);
+    private final AtomicLong cachedCount = new AtomicLong(0);
+
+    DirectorySync(ADLStoreClient client, SyncOptions options) {
+        if (options == null) options = new SyncOptions();
+        this.client = client;
+        this.options = options;
+        this.transfer = new DirectoryTransfer(client, options);
+    }
+
+    SyncReport sync(final File localDirectory, String directory) throws IOException {
+        if (!localDirectory.isDirectory()) {
+            throw new FileNotFoundException("local directory not found: " + localDirectory);
+        }
+        String trimmed = DirectoryTransfer.trimSlash(directory);
+        final String root = (trimmed.length() == 0) ? "/" : trimmed;
+        if (options.snapshotFile != null) previous = SyncSnapshot.load(options.snapshotFile, root);
+
+        transfer.start();
+        try {
+            DirectoryEntry entry = status(root);
+            if (entry == null) {
+                missing(localDirectory, root);
+            } else if (entry.type != DirectoryEntryType.DIRECTORY) {
+                throw new IOException("cannot sync a directory to " + root + ": it is a file");
+            } else {
+                submitCompare(localDirectory, root, entry.lastModifiedTime.getTime());
+            }
+            transfer.await();
+            // the directories this sync changed are listed once their changes are made, so the next sync can
+            // use their listings; after a failure they are left for the next sync to list
+            if (options.snapshotFile != null && transfer.report().failureCount == 0) {
+                for (String path : changedDirectories) submitRecord(path);
+                transfer.await();
+            }
+        } finally {
+            transfer.shutdown();
+        }
+        if (options.snapshotFile != null) SyncSnapshot.save(options.snapshotFile, root, current);
+
+        TransferReport uploads = transfer.report();
+        return new SyncReport(directoryCount.get(),
+                options.dryRun ? plannedFileCount.get() : uploads.fileCount,
+                options.dryRun ? plannedByteCount.get() : uploads.byteCount,
+                uploads.failureCount, uploads.throttleCount, uploads.elapsedMillis, uploads.failures,
+                deleteCount.get(), unchangedCount.get(), listedCount.get(), cachedCount.get());
+    }
+
+    private void submitCompare(final File local, final String path, final long modificationTime) {
+        transfer.submit(path, new DirectoryTransfer.Task() {
+            public void run() throws IOException {
+                compare(local, path, modificationTime);
+            }
+        });
+    }
+
+    /*
+     compares a local directory with a remote one. The remote directory's modification time is -1 if it is not
+     known: when the parent's listing came from the snapshot, the time recorded there may be out of date.
+     */
+    private void compare(File local, String path, long modificationTime) throws IOException {
+        if (modificationTime < 0) {
+            DirectoryEntry entry = status(path);
+            if (entry == null) {
+                missing(local, path);
+                return;
+            }
+            if (entry.type != DirectoryEntryType.DIRECTORY) throw new IOException(path + " changed to a file during the sync");
+            modificationTime = entry.lastModifiedTime.getTime();
+        }
+
+        // the time is taken before the listing, so a change in between is picked up next time
+        SyncSnapshot.Listing cached = previous.get(path);
+        Map<String, SyncSnapshot.Entry> remote;
+        boolean fromSnapshot = (cached != null && cached.modificationTime == modificationTime);
+        if (fromSnapshot) {
+            remote = cached.entries;
+            cachedCount.incrementAndGet();
+        } else {
+            remote = list(path);
+        }
+
+        File[] children = local.listFiles();
+        if (children == null) throw new IOException("cannot list local directory " + local);
+        boolean changed = false;
+        Set<String> localNames = new HashSet<String>();
+        for (File child : children) {
+            String name = child.getName();
+            localNames.add(name);
+            String childPath = join(path, name);
+            SyncSnapshot.Entry entry = remote.get(name);
+            if (child.isDirectory()) {
+                if (entry != null && entry.directory) {
+                    submitCompare(child, childPath, fromSnapshot ? -1 : entry.modificationTime);
+                } else {
+                    replace(child, childPath, entry != null);
+                    changed = true;
+                }
+            } else if (entry != null && !entry.directory && entry.length == child.length()
+                    && entry.modificationTime >= child.lastModified()) {
+                unchangedCount.incrementAndGet();
+            } else {
+                replace(child, childPath, entry != null && entry.directory);
+                changed = true;
+            }
+        }
+        if (options.deleteExtra) {
+            for (Map.Entry<String, SyncSnapshot.Entry> entry : remote.entrySet()) {
+                if (!localNames.contains(entry.getKey())) {
+                    delete(join(path, entry.getKey()), entry.getValue().directory);
+                    changed = true;
+                }
+            }
+        }
+
+        if (changed && !options.dryRun) {
+            changedDirectories.add(path);
+        } else {
+            current.put(path, new SyncSnapshot.Listing(modificationTime, remote));
+        }
+    }
+
+    /*
+     records the listing of a directory this sync changed, taking its time before the listing as compare does.
+     A directory that cannot be listed is left out of the snapshot rather than failing a sync that succeeded.
+     */
+    private void submitRecord(final String path) {
+        transfer.getTasks().submit(new Runnable() {
+            public void run() {
+                try {
+                    DirectoryEntry entry = status(path);
+                    if (entry == null || entry.type != DirectoryEntryType.DIRECTORY) return;
+                    current.put(path, new SyncSnapshot.Listing(entry.lastModifiedTime.getTime(), list(path)));
+                } catch (IOException ex) {
+                    // listed again next time
+                }
+            }
+        });
+    }
+
+    /*
+     uploads a local file or directory to a path that does not exist remotely, or that holds the other type,
+     which is deleted first
+     */
+    private void replace(final File local, final String path, boolean deleteFirst) {
+        if (!deleteFirst) {
+            missing(local, path);
+            return;
+        }
+        if (options.dryRun) {
+            deleteCount.incrementAndGet();
+            missing(local, path);
+            return;
+        }
+        transfer.submit(path, new DirectoryTransfer.Task() {
+            public void run() throws IOException {
+                transfer.delete(path, true);
+                deleteCount.incrementAndGet();
+                missing(local, path);
+            }
+        });
+    }
+
+    private void missing(File local, final String path) {
+        if (!local.isDirectory()) {
+            plannedFileCount.incrementAndGet();
+            plannedByteCount.addAndGet(local.length());
+            if (!options.dryRun) transfer.uploadFile(local, path);
+            return;
+        }
+        directoryCount.incrementAndGet();
+        File[] children = local.listFiles();
+        if (children != null && children.length > 0) {
+            // creating the files creates the directory
+            for (File child : children) missing(child, join(path, child.getName()));
+        } else if (!options.dryRun) {
+            transfer.submit(path, new DirectoryTransfer.Task() {
+                public void run() throws IOException {
+                    transfer.mkdirs(path);
+                }
+            });
+        }
+    }
+
+    private void delete(final String path, final boolean directory) {
+        if (options.dryRun) {
+            deleteCount.incrementAndGet();
+            return;
+        }
+        transfer.submit(path, new DirectoryTransfer.Task() {
+            public void run() throws IOException {
+                transfer.delete(path, directory);
+                deleteCount.incrementAndGet();
+            }
+        });
+    }
+
+    /*
+     gets the entry of a remote path; null if it does not exist
+     */
+    private DirectoryEntry status(String path) throws IOException {
+        RequestOptions opts = transfer.acquire();
+        OperationResponse resp = new OperationResponse();
+        DirectoryEntry entry;
+        try {
+            entry = Core.getFileStatus(path, client, opts, resp);
+        } finally {
+            transfer.release(resp);
+        }
+        if (resp.httpResponseCode == 404) return null;
+        transfer.check(resp, "Error getting info for " + path);
+        return entry;
+    }
+
+    private Map<String, SyncSnapshot.Entry> list(String path) throws IOException {
+        Map<String, SyncSnapshot.Entry> entries = new TreeMap<String, SyncSnapshot.Entry>();
+        for (DirectoryEntry entry : PagedListing.listAll(client, transfer.getTasks(), path)) {
+            entries.put(entry.name, new SyncSnapshot.Entry(entry.type == DirectoryEntryType.DIRECTORY,
+                    entry.length, entry.lastModifiedTime.getTime()));
+        }
+        listedCount.incrementAndGet();
+        return entries;
+    }
+
+    private static String join(String directory, String name) {
+        return directory.endsWith("/") ? directory + name : directory + "/" + name;
+    }
+}
@@ -0,0 +1,724 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Transfers a directory tree between the local file system and the store, or within the store, for
+ * {@link Utils#uploadDirectory(String, String, TransferOptions) uploadDirectory},
+ * {@link Utils#downloadDirectory(String, String, TransferOptions) downloadDirectory} and
+ * {@link Utils#copy(String, String, TransferOptions) copy}.
+ * <P>
+ * All the transfer's requests, the listings of a remote tree included, run on one {@link TaskPool}, and are
+ * limited by its {@link AdaptiveConcurrency}, which backs off when the service throttles. Each small file is one
+ * task (for uploads and copies, a single {@code CREATE} carrying the contents); a file bigger than the chunk size
+ * is split into chunks transferred in parallel. Chunks written to the store go to temporary files next to the
+ * destination; when all have been written they are concatenated, and the result is moved over the destination.
+ * Data passing through in blocks uses a pool of one buffer per thread.
+ * </P>
+ */
+class DirectoryTransfer {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store");
+
+    // the most data one request can carry
+    private static final int BLOCK_SIZE = 4 * 1024 * 1024;
+
+    private final ADLStoreClient client;
+    private final TransferOptions options;
+    private final TaskPool tasks;
+    private final long chunkSize;
+    private final boolean overwrite;
+    private final BufferPool buffers;
+    private long start;
+
+    private final AtomicLong directoryCount = new AtomicLong(0);
+    private final AtomicLong fileCount = new AtomicLong(0);
+    private final AtomicLong byteCount = new AtomicLong(0);
+    private final AtomicLong failureCount = new AtomicLong(0);
+    private final List<TreeOperationReport.Failure> failures = new ArrayList<TreeOperationReport.Failure>();
+
+    DirectoryTransfer(ADLStoreClient client, TransferOptions options) {
+        if (options == null) options = new TransferOptions();
+        if (options.chunkSize < 1) throw new IllegalArgumentException("chunkSize must be positive");
+        this.client = client;
+        this.options = options;
+        this.tasks = new TaskPool("transfer", options.maxConcurrency, options.priority);
+        this.chunkSize = options.chunkSize;
+        this.overwrite = (options.mode == IfExists.OVERWRITE);
+        this.buffers = new BufferPool(BLOCK_SIZE, options.maxConcurrency);
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Upload                                                                                                 */
+
+    TransferReport upload(File localDirectory, String directory) throws IOException {
+        if (!localDirectory.isDirectory()) {
+            throw new FileNotFoundException("local directory not found: " + localDirectory);
+        }
+        List<String> leafDirectories = new ArrayList<String>();
+        List<File> files = new ArrayList<File>();
+        List<String> remoteFiles = new ArrayList<String>();
+        scan(localDirectory, trimSlash(directory), leafDirectories, files, remoteFiles);
+
+        start();
+        try {
+            // create the directories first, so files do not race to create shared parents
+            for (final String path : leafDirectories) {
+                submit(path, new Task() {
+                    public void run() throws IOException {
+                        mkdirs(path);
+                    }
+                });
+            }
+            await();
+            for (int i = 0; i < files.size(); i++) uploadFile(files.get(i), remoteFiles.get(i));
+            await();
+        } finally {
+            shutdown();
+        }
+        return report();
+    }
+
+    /*
+     collects the directories with no subdirectories (creating them creates the rest), and the files. Links to
+     directories are not followed, since one can lead back up the tree.
+     */
+    private void scan(File local, String remote, List<String> leafDirectories, List<File> files,
+                      List<String> remoteFiles) throws IOException {
+        File[] children = local.listFiles();
+        if (children == null) throw new IOException("cannot list local directory " + local);
+        directoryCount.incrementAndGet();
+        boolean leaf = true;
+        for (File child : children) {
+            String remoteChild = remote + "/" + child.getName();
+            if (child.isDirectory()) {
+                if (Files.isSymbolicLink(child.toPath())) {
+                    log.debug("not following link to directory {}", child);
+                    continue;
+                }
+                leaf = false;
+                scan(child, remoteChild, leafDirectories, files, remoteFiles);
+            } else {
+                files.add(child);
+                remoteFiles.add(remoteChild);
+            }
+        }
+        if (leaf) leafDirectories.add(remote.length() == 0 ? "/" : remote);
+    }
+
+    void uploadFile(final File file, final String path) {
+        final long length = file.length();
+        if (length <= Math.min(chunkSize, BLOCK_SIZE)) {
+            submit(path, new Task() {
+                public void run() throws IOException {
+                    byte[] buffer = buffers.take();
+                    try {
+                        readFully(file, buffer, (int) length);
+                        create(path, overwrite, buffer, (int) length);
+                    } finally {
+                        buffers.give(buffer);
+                    }
+                    fileCount.incrementAndGet();
+                }
+            });
+        } else if (length <= chunkSize) {
+            submit(path, new Task() {
+                public void run() throws IOException {
+                    uploadRange(file, 0, length, path, overwrite);
+                    fileCount.incrementAndGet();
+                }
+            });
+        } else {
+            chunkedUnlessExists(path, length, new RangeWriter() {
+                public void write(long position, long length, String part) throws IOException {
+                    uploadRange(file, position, length, part, true);
+                }
+            });
+        }
+    }
+
+    /*
+     writes a range of the source of a transfer to a new file
+     */
+    private interface RangeWriter {
+        void write(long position, long length, String path) throws IOException;
+    }
+
+    /*
+     writes each chunk to its own file, then concatenates them into the destination
+     */
+    private void chunked(final String path, long length, final RangeWriter writer) {
+        final String partDirectory = path + ".parts-" + UUID.randomUUID();
+        int count = (int) ((length + chunkSize - 1) / chunkSize);
+        final List<String> parts = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) parts.add(String.format("%s/%05d", partDirectory, i));
+        final AtomicInteger remaining = new AtomicInteger(count);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        for (int i = 0; i < count; i++) {
+            final String part = parts.get(i);
+            final long position = i * chunkSize;
+            final long partLength = Math.min(chunkSize, length - position);
+            submit(path, new Task() {
+                public void run() throws IOException {
+                    boolean ok = false;
+                    try {
+                        writer.write(position, partLength, part);
+                        ok = true;
+                    } catch (IOException ex) {
+                        if (!failed.getAndSet(true)) throw ex;   // report each file once
+                    } finally {
+                        if (!ok) failed.set(true);
+                        if (remaining.decrementAndGet() == 0) {
+                            if (failed.get()) {
+                                deleteQuietly(partDirectory);
+                            } else {
+                                concatenate(path, partDirectory, parts);
+                                deleteQuietly(partDirectory);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /*
+     concatenates the parts into a file in the part directory, then moves it over the destination, so the
+     destination is only replaced once the new contents are whole. If either step fails, the part directory is
+     kept, since it may hold the only complete copy of the data.
+     */
+    private void concatenate(String path, String partDirectory, List<String> parts) throws IOException {
+        String concatenated = partDirectory + "/concatenated";
+        RequestOptions opts = acquire();
+        OperationResponse resp = new OperationResponse();
+        try {
+            Core.concat(concatenated, parts, client, opts, resp);
+        } finally {
+            release(resp);
+        }
+        check(resp, "Error concatenating parts into " + path + "; the parts are kept in " + partDirectory);
+
+        opts = acquire();
+        resp = new OperationResponse();
+        boolean renamed;
+        try {
+            renamed = Core.rename(concatenated, path, overwrite, client, opts, resp);
+        } finally {
+            release(resp);
+        }
+        check(resp, "Error moving " + concatenated + " to " + path);
+        if (!renamed) {
+            throw new IOException("could not move " + concatenated + " to " + path
+                    + (overwrite ? "" : "; the file may already exist"));
+        }
+        fileCount.incrementAndGet();
+    }
+
+    /*
+     with IfExists.FAIL, a file that will be written in chunks is checked first, so none of it is moved for nothing
+     */
+    private void chunkedUnlessExists(final String path, final long length, final RangeWriter writer) {
+        if (overwrite) {
+            chunked(path, length, writer);
+            return;
+        }
+        submit(path, new Task() {
+            public void run() throws IOException {
+                RequestOptions opts = acquire();
+                OperationResponse resp = new OperationResponse();
+                try {
+                    Core.getFileStatus(path, client, opts, resp);
+                } finally {
+                    release(resp);
+                }
+                if (resp.successful) throw new IOException("file " + path + " already exists");
+                if (resp.httpResponseCode != 404) check(resp, "Error checking file " + path);
+                chunked(path, length, writer);
+            }
+        });
+    }
+
+    /*
+     creates a file from a range of a local file, sent from the file channel in appends of up to 4MB
+     */
+    private void uploadRange(File file, long position, long length, String path, boolean overwrite)
+            throws IOException {
+        create(path, overwrite, null, 0);
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long written = 0;
+            while (written < length) {
+                int n = (int) Math.min(BLOCK_SIZE, length - written);
+                RequestOptions opts = acquire();
+                OperationResponse resp = new OperationResponse();
+                try {
+                    Core.append(path, written, channel, position + written, n, null, null, client, opts, resp);
+                } finally {
+                    release(resp);
+                }
+                check(resp, "Error appending to file " + path);
+                written += n;
+                byteCount.addAndGet(n);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    void mkdirs(String path) throws IOException {
+        RequestOptions opts = acquire();
+        OperationResponse resp = new OperationResponse();
+        try {
+            Core.mkdirs(path, null, client, opts, resp);
+        } finally {
+            release(resp);
+        }
+        check(resp, "Error creating directory " + path);
+    }
+
+    void delete(String path, boolean recursive) throws IOException {
+        RequestOptions opts = acquire();
+        OperationResponse resp = new OperationResponse();
+        try {
+            Core.delete(path, recursive, client, opts, resp);
+        } finally {
+            release(resp);
+        }
+        check(resp, "Error deleting " + path);
+    }
+
+    private void deleteQuietly(String path) {
+        try {
+            RequestOptions opts = acquire();
+            OperationResponse resp = new OperationResponse();
+            try {
+                Core.delete(path, true, client, opts, resp);
+            } finally {
+                release(resp);
+            }
+            if (!resp.successful) log.warn("could not delete temporary parts {}: {}", path, resp.message);
+        } catch (InterruptedIOException ex) {
+            log.warn("could not delete temporary parts {}: interrupted", path);
+        }
+    }
+
+    private static void readFully(File file, byte[] buffer, int length) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < length) {
+                int n = in.read(buffer, read, length - read);
+                if (n < 0) throw new IOException("file " + file + " changed while it was being uploaded");
+                read += n;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     creates a file with the given contents in one request
+     */
+    private void create(String path, boolean overwrite, byte[] contents, int length) throws IOException {
+        RequestOptions opts = acquire();
+        OperationResponse resp = new OperationResponse();
+        try {
+            Core.create(path, overwrite, null, contents, 0, length, null, null, true, client, opts, resp);
+        } finally {
+            release(resp);
+        }
+        check(resp, "Error creating file " + path);
+        byteCount.addAndGet(length);
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Download                                                                                               */
+
+    TransferReport download(String directory, final File localDirectory) throws IOException {
+        final String root = trimSlash(directory);
+        if (!localDirectory.isDirectory() && !localDirectory.mkdirs()) {
+            throw new IOException("cannot create local directory " + localDirectory);
+        }
+        start();
+        try {
+            walk(directory, "DOWNLOAD", new TreeWalker.Visitor() {
+                void visit(DirectoryEntry entry, RequestOptions opts) throws IOException {
+                    String relative = entry.fullName.substring(Math.min(root.length(), entry.fullName.length()));
+                    if (entry.type == DirectoryEntryType.DIRECTORY) {
+                        File local = (relative.length() == 0) ? localDirectory : new File(localDirectory, relative);
+                        if (!local.isDirectory() && !local.mkdirs()) {
+                            throw new IOException("cannot create local directory " + local);
+                        }
+                        directoryCount.incrementAndGet();
+                    } else {
+                        // a file given as the root is downloaded into the local directory
+                        downloadFile(entry, new File(localDirectory, relative.length() == 0 ? entry.name : relative));
+                    }
+                }
+            });
+            await();
+        } finally {
+            shutdown();
+        }
+        return report();
+    }
+
+    private void downloadFile(final DirectoryEntry entry, final File local) throws IOException {
+        if (local.exists() && !overwrite) throw new IOException("local file already exists: " + local);
+        final long length = entry.length;
+        if (length <= chunkSize) {
+            submit(entry.fullName, new Task() {
+                public void run() throws IOException {
+                    FileOutputStream out = new FileOutputStream(local);
+                    try {
+                        if (length > 0) downloadRange(entry.fullName, 0, length, out.getChannel());
+                    } finally {
+                        out.close();
+                    }
+                    fileCount.incrementAndGet();
+                }
+            });
+            return;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(local, "rw");
+        try {
+            file.setLength(length);
+        } finally {
+            file.close();
+        }
+        int count = (int) ((length + chunkSize - 1) / chunkSize);
+        final AtomicInteger remaining = new AtomicInteger(count);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        for (int i = 0; i < count; i++) {
+            final long position = i * chunkSize;
+            final long partLength = Math.min(chunkSize, length - position);
+            submit(entry.fullName, new Task() {
+                public void run() throws IOException {
+                    boolean ok = false;
+                    try {
+                        RandomAccessFile file = new RandomAccessFile(local, "rw");
+                        try {
+                            downloadRange(entry.fullName, position, partLength, file.getChannel());
+                        } finally {
+                            file.close();
+                        }
+                        ok = true;
+                    } catch (IOException ex) {
+                        if (!failed.getAndSet(true)) throw ex;   // report each file once
+                    } finally {
+                        if (!ok) failed.set(true);
+                        if (remaining.decrementAndGet() == 0 && !failed.get()) fileCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    /*
+     reads a range of a file in one request, writing it at the same position in the local file through one
+     pooled buffer
+     */
+    private void downloadRange(String path, long position, long length, FileChannel out) throws IOException {
+        byte[] buffer = buffers.take();
+        long read = 0;
+        OperationResponse resp = new OperationResponse();
+        try {
+            RequestOptions opts = acquire();
+            try {
+                InputStream in = Core.open(path, position, length, null, client, opts, resp);
+                if (resp.successful) {
+                    try {
+                        int n;
+                        while (read < length
+                                && (n = in.read(buffer, 0, (int) Math.min(buffer.length, length - read))) >= 0) {
+                            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+                            while (bb.hasRemaining()) out.write(bb, position + read + bb.position());
+                            read += n;
+                            byteCount.addAndGet(n);
+                        }
+                    } finally {
+                        in.close();
+                    }
+                }
+            } finally {
+                release(resp);
+            }
+        } finally {
+            buffers.give(buffer);
+        }
+        check(resp, "Error reading file " + path);
+        if (read < length) throw new IOException("unexpected end of file reading " + path + " at " + (position + read));
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Copy                                                                                                   */
+
+    TransferReport copy(String source, String destination) throws IOException {
+        final String root = trimSlash(source);
+        final String target = trimSlash(destination);
+        start();
+        try {
+            walk(source, "COPY", new TreeWalker.Visitor() {
+                void visit(DirectoryEntry entry, RequestOptions opts) throws IOException {
+                    if (entry.type == DirectoryEntryType.DIRECTORY) {
+                        directoryCount.incrementAndGet();
+                    } else {
+                        copyFile(entry, destinationOf(entry));
+                    }
+                }
+
+                // creating the files in a directory creates it, so only empty directories are created here
+                boolean visitLeafDirectory(DirectoryEntry directory, List<DirectoryEntry> contents,
+                                           RequestOptions opts) {
+                    if (contents.isEmpty()) {
+                        final String path = destinationOf(directory);
+                        submit(path, new Task() {
+                            public void run() throws IOException {
+                                mkdirs(path);
+                            }
+                        });
+                    }
+                    return false;
+                }
+
+                private String destinationOf(DirectoryEntry entry) {
+                    String relative = entry.fullName.substring(Math.min(root.length(), entry.fullName.length()));
+                    String path = target + (relative.equals("/") ? "" : relative);
+                    return (path.length() == 0) ? "/" : path;
+                }
+            });
+            await();
+        } finally {
+            shutdown();
+        }
+        return report();
+    }
+
+    private void copyFile(final DirectoryEntry entry, final String path) {
+        final long length = entry.length;
+        if (length <= Math.min(chunkSize, BLOCK_SIZE)) {
+            submit(path, new Task() {
+                public void run() throws IOException {
+                    byte[] buffer = buffers.take();
+                    try {
+                        if (length > 0) readRange(entry.fullName, 0, buffer, (int) length);
+                        create(path, overwrite, buffer, (int) length);
+                    } finally {
+                        buffers.give(buffer);
+                    }
+                    fileCount.incrementAndGet();
+                }
+            });
+        } else if (length <= chunkSize) {
+            submit(path, new Task() {
+                public void run() throws IOException {
+                    copyRange(entry.fullName, 0, length, path, overwrite);
+                    fileCount.incrementAndGet();
+                }
+            });
+        } else {
+            chunkedUnlessExists(path, length, new RangeWriter() {
+                public void write(long position, long length, String part) throws IOException {
+                    copyRange(entry.fullName, position, length, part, true);
+                }
+            });
+        }
+    }
+
+    /*
+     creates a file from a range of another, a block at a time through one pooled buffer
+     */
+    private void copyRange(String source, long position, long length, String path, boolean overwrite)
+            throws IOException {
+        create(path, overwrite, null, 0);
+        byte[] buffer = buffers.take();
+        try {
+            long written = 0;
+            while (written < length) {
+                int n = (int) Math.min(buffer.length, length - written);
+                readRange(source, position + written, buffer, n);
+                RequestOptions opts = acquire();
+                OperationResponse resp = new OperationResponse();
+                try {
+                    Core.append(path, written, buffer, 0, n, null, null, client, opts, resp);
+                } finally {
+                    release(resp);
+                }
+                check(resp, "Error appending to file " + path);
+                written += n;
+                byteCount.addAndGet(n);
+            }
+        } finally {
+            buffers.give(buffer);
+        }
+    }
+
+    /*
+     reads a range of a file into the start of a buffer, in one request
+     */
+    private void readRange(String path, long position, byte[] buffer, int length) throws IOException {
+        RequestOptions opts = acquire();
+        OperationResponse resp = new OperationResponse();
+        int read = 0;
+        try {
+            InputStream in = Core.open(path, position, length, null, client, opts, resp);
+            if (resp.successful) {
+                try {
+                    int n;
+                    while (read < length && (n = in.read(buffer, read, length - read)) >= 0) read += n;
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            release(resp);
+        }
+        check(resp, "Error reading file " + path);
+        if (read < length) throw new IOException("unexpected end of file reading " + path + " at " + (position + read));
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Tasks, requests and reporting                                                                          */
+
+    /*
+     walks a remote tree on this transfer's tasks, so listings and transfers share one limit on requests; the
+     visitor hands files to the tasks as they are found
+     */
+    private void walk(String directory, String operation, TreeWalker.Visitor visitor) throws IOException {
+        TreeOperationOptions walkOptions = new TreeOperationOptions();
+        walkOptions.maxFailuresReported = options.maxFailuresReported;
+        walkOptions.progressIntervalMillis = options.progressIntervalMillis;
+        if (options.progressListener != null) {
+            walkOptions.progressListener = new TreeProgressListener() {
+                public void progress(TreeOperationReport listing) {
+                    options.progressListener.progress(report());
+                }
+            };
+        }
+        TreeOperationReport listing = new TreeWalker(client, operation, walkOptions, tasks).walk(directory, visitor);
+        synchronized (failures) {
+            failureCount.addAndGet(listing.failureCount);
+            for (TreeOperationReport.Failure failure : listing.failures) {
+                if (failures.size() < options.maxFailuresReported) failures.add(failure);
+            }
+        }
+    }
+
+    interface Task {
+        void run() throws IOException;
+    }
+
+    void start() {
+        start = System.nanoTime();
+    }
+
+    void shutdown() {
+        tasks.shutdown();
+    }
+
+    void submit(final String path, final Task task) {
+        tasks.submit(new Runnable() {
+            public void run() {
+                try {
+                    task.run();
+                } catch (IOException ex) {
+                    failed(path, ex);
+                } catch (RuntimeException ex) {
+                    log.error("transfer of " + path + " failed", ex);
+                    failed(path, new IOException(ex.toString()));
+                }
+            }
+        });
+    }
+
+    /*
+     waits for the submitted tasks to finish, reporting progress from this thread meanwhile
+     */
+    void await() throws InterruptedIOException {
+        TransferProgressListener listener = options.progressListener;
+        if (listener == null) {
+            tasks.await();
+            return;
+        }
+        long interval = Math.max(1, options.progressIntervalMillis);
+        while (!tasks.await(interval)) {
+            try {
+                listener.progress(report());
+            } catch (RuntimeException ex) {
+                log.error("transfer progress listener threw an exception", ex);
+            }
+        }
+    }
+
+    RequestOptions acquire() throws InterruptedIOException {
+        return tasks.acquire();
+    }
+
+    void release(OperationResponse resp) {
+        tasks.release(resp);
+    }
+
+    TaskPool getTasks() {
+        return tasks;
+    }
+
+    void check(OperationResponse resp, String message) throws IOException {
+        if (!resp.successful) throw client.getExceptionFromResp(resp, message);
+    }
+
+    private void failed(String path, IOException ex) {
+        failureCount.incrementAndGet();
+        int code = (ex instanceof ADLException) ? ((ADLException) ex).httpResponseCode : 0;
+        if (log.isDebugEnabled()) log.debug("transfer failed on {}: {}", path, ex.getMessage());
+        synchronized (failures) {
+            if (failures.size() < options.maxFailuresReported) {
+                failures.add(new TreeOperationReport.Failure(path, code, ex.getMessage()));
+            }
+        }
+    }
+
+    TransferReport report() {
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        synchronized (failures) {
+            return new TransferReport(directoryCount.get(), fileCount.get(), byteCount.get(), failureCount.get(),
+                    tasks.getThrottleCount(), elapsed, new ArrayList<TreeOperationReport.Failure>(failures));
+        }
+    }
+
+    static String trimSlash(String path) {
+        while (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+        return path;
+    }
+}
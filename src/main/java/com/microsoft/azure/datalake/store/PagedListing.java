@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Lists a directory, or the names in a range of it, a page at a time. The requests are limited by the
+ * {@link TaskPool} of the operation doing the listing.
+ * <P>
+ * The service can return fewer entries than asked for before the end of the directory (see
+ * {@link ADLStoreClient#enumerateDirectory(String, int)}), so a short page is not taken as the end: the listing
+ * goes on until a page comes back empty. Nothing in a response tells a last page from a short one, so every
+ * listing costs one request more than it has pages; a directory that fits in one page takes two.
+ * </P>
+ */
+class PagedListing {
+
+    // the most entries the service returns in one listing
+    static final int PAGE_SIZE = 4000;
+
+    private final ADLStoreClient client;
+    private final TaskPool tasks;
+    private final String path;
+    private final String before;
+    private String after;
+    private boolean finished = false;
+
+    /*
+     lists the names in (after, before), either bound null for none
+     */
+    PagedListing(ADLStoreClient client, TaskPool tasks, String path, String after, String before) {
+        this.client = client;
+        this.tasks = tasks;
+        this.path = path;
+        this.after = after;
+        this.before = before;
+    }
+
+    /*
+     the next page of entries, or null when there are no more
+     */
+    List<DirectoryEntry> next() throws IOException {
+        if (finished) return null;
+        RequestOptions opts = tasks.acquire();
+        OperationResponse resp = new OperationResponse();
+        List<DirectoryEntry> page;
+        try {
+            page = Core.listStatus(path, after, before, PAGE_SIZE, client, opts, resp);
+        } finally {
+            tasks.release(resp);
+        }
+        if (!resp.successful) throw client.getExceptionFromResp(resp, "Error listing directory " + path);
+        if (page.isEmpty()) {
+            finished = true;
+            return null;
+        }
+        after = page.get(page.size() - 1).name;
+        return page;
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+
+    /*
+     all the entries of a directory
+     */
+    static List<DirectoryEntry> listAll(ADLStoreClient client, TaskPool tasks, String path) throws IOException {
+        List<DirectoryEntry> entries = new ArrayList<DirectoryEntry>();
+        PagedListing listing = new PagedListing(client, tasks, path, null, null);
+        for (List<DirectoryEntry> page = listing.next(); page != null; page = listing.next()) entries.addAll(page);
+        return entries;
+    }
+}
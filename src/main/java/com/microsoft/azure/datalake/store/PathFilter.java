@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+
+/**
+ * Selects the paths a recursive operation changes; set it in {@link TreeOperationOptions#filter}.
+ * <P>
+ * The filter only decides whether an entry itself is changed: the contents of a rejected directory are still
+ * walked, and each checked against the filter. It is called concurrently from the operation's threads.
+ * </P>
+ */
+public interface PathFilter {
+
+    /**
+     * @param entry the file or directory, as returned by the directory listing
+     * @return true to change the entry, false to leave it alone
+     */
+    boolean accept(DirectoryEntry entry);
+}
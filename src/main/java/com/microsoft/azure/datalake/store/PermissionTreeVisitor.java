@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+
+import java.io.IOException;
+
+
+/**
+ * Sets the permission, or the owner and group, of every file and directory in a tree.
+ */
+class PermissionTreeVisitor extends TreeWalker.Visitor {
+
+    private final ADLStoreClient client;
+    private final String directoryPermission;
+    private final String filePermission;
+    private final String owner;
+    private final String group;
+
+    private PermissionTreeVisitor(ADLStoreClient client, String directoryPermission, String filePermission,
+                                  String owner, String group) {
+        this.client = client;
+        this.directoryPermission = directoryPermission;
+        this.filePermission = filePermission;
+        this.owner = owner;
+        this.group = group;
+    }
+
+    /*
+     sets directories and files to separate permissions; a null permission leaves that kind of entry alone
+     */
+    static PermissionTreeVisitor permission(ADLStoreClient client, String directoryPermission,
+                                            String filePermission) {
+        return new PermissionTreeVisitor(client, directoryPermission, filePermission, null, null);
+    }
+
+    /*
+     sets the owner and group; either may be null to leave it unchanged
+     */
+    static PermissionTreeVisitor owner(ADLStoreClient client, String owner, String group) {
+        return new PermissionTreeVisitor(client, null, null, owner, group);
+    }
+
+    /*
+     describes the change, to tie a checkpoint file to it
+     */
+    String getOperation() {
+        if (owner != null || group != null) return "SETOWNER " + owner + ":" + group;
+        return "SETPERMISSION " + directoryPermission + " " + filePermission;
+    }
+
+    @Override
+    boolean appliesTo(DirectoryEntry entry) {
+        if (owner != null || group != null) return true;
+        return ((entry.type == DirectoryEntryType.DIRECTORY) ? directoryPermission : filePermission) != null;
+    }
+
+    @Override
+    void visit(DirectoryEntry entry, RequestOptions opts) throws IOException {
+        OperationResponse resp = new OperationResponse();
+        if (owner != null || group != null) {
+            Core.setOwner(entry.fullName, owner, group, client, opts, resp);
+        } else {
+            String permission = (entry.type == DirectoryEntryType.DIRECTORY) ? directoryPermission : filePermission;
+            Core.setPermission(entry.fullName, permission, client, opts, resp);
+        }
+        if (!resp.successful) {
+            throw client.getExceptionFromResp(resp, "Error setting " + (owner != null || group != null ?
+                    "owner" : "permission") + " for " + entry.fullName);
+        }
+    }
+}
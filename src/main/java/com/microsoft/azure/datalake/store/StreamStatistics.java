@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Gauges and counters for the {@link ADLFileInputStream}s and {@link ADLFileOutputStream}s of one
+ * {@link ADLStoreClient}. The streams update these as they are opened, buffer data and close.
+ * <P>
+ * Streams that are never closed are counted as open forever, so a steadily growing open-stream count
+ * usually means a stream leak in the application.
+ * </P>
+ */
+class StreamStatistics {
+
+    final AtomicLong openInputStreams = new AtomicLong(0);
+    final AtomicLong openOutputStreams = new AtomicLong(0);
+    final AtomicLong inputStreamsOpened = new AtomicLong(0);
+    final AtomicLong outputStreamsOpened = new AtomicLong(0);
+
+    final AtomicLong inputBufferBytes = new AtomicLong(0);    // memory held by read buffers of open streams
+    final AtomicLong outputBufferBytes = new AtomicLong(0);   // memory held by write buffers of open streams
+    final AtomicLong outputPendingBytes = new AtomicLong(0);  // data written to streams but not yet sent
+
+    final AtomicLong bytesRead = new AtomicLong(0);           // data read from service by streams
+    final AtomicLong bytesWritten = new AtomicLong(0);        // data sent to service by streams
+
+    void inputStreamOpened(int bufferSize) {
+        openInputStreams.incrementAndGet();
+        inputStreamsOpened.incrementAndGet();
+        inputBufferBytes.addAndGet(bufferSize);
+    }
+
+    void inputStreamClosed(int bufferSize) {
+        openInputStreams.decrementAndGet();
+        inputBufferBytes.addAndGet(-bufferSize);
+    }
+
+    void outputStreamOpened(int bufferSize) {
+        openOutputStreams.incrementAndGet();
+        outputStreamsOpened.incrementAndGet();
+        outputBufferBytes.addAndGet(bufferSize);
+    }
+
+    void outputStreamClosed(int bufferSize) {
+        openOutputStreams.decrementAndGet();
+        outputBufferBytes.addAndGet(-bufferSize);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+
+/**
+ * options to control {@link Utils#syncDirectory(String, String, SyncOptions) syncDirectory}. The
+ * {@link TransferOptions} apply to the uploads; with {@link IfExists#FAIL}, changed files are reported as
+ * failures instead of replaced.
+ */
+public class SyncOptions extends TransferOptions {
+    /**
+     * whether to delete remote files and directories that do not exist locally
+     */
+    public boolean deleteExtra = true;
+
+    /**
+     * path of a local file to keep the remote listings in between syncs, so a sync only lists the remote
+     * directories that changed since the last one; {@code null} to list every directory each time. The file
+     * is created if it does not exist, and must not be shared between syncs of different directories.
+     */
+    public String snapshotFile = null;
+
+    /**
+     * if true, the remote tree is compared with the local tree and the changes are counted in the report, but
+     * not made
+     */
+    public boolean dryRun = false;
+}
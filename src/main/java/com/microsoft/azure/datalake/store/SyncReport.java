@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.util.List;
+
+
+/**
+ * Outcome of a {@link Utils#syncDirectory(String, String, SyncOptions) syncDirectory}. The
+ * {@link TransferReport} counts are of the files uploaded and the directories created; for a
+ * {@link SyncOptions#dryRun dry run}, of those that would have been.
+ */
+public class SyncReport extends TransferReport {
+
+    /**
+     * number of remote files and directories deleted, counting a deleted directory once
+     */
+    public final long deleteCount;
+
+    /**
+     * number of files already up to date
+     */
+    public final long unchangedCount;
+
+    /**
+     * number of remote directories listed
+     */
+    public final long listedCount;
+
+    /**
+     * number of remote directories whose listing was taken from the snapshot file
+     */
+    public final long cachedCount;
+
+    SyncReport(long directoryCount, long fileCount, long byteCount, long failureCount, long throttleCount,
+               long elapsedMillis, List<TreeOperationReport.Failure> failures, long deleteCount,
+               long unchangedCount, long listedCount, long cachedCount) {
+        super(directoryCount, fileCount, byteCount, failureCount, throttleCount, elapsedMillis, failures);
+        this.deleteCount = deleteCount;
+        this.unchangedCount = unchangedCount;
+        this.listedCount = listedCount;
+        this.cachedCount = cachedCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d uploaded, %d deleted, %d directories created, %d unchanged, %d failed in %.1f s "
+                        + "(%d bytes, %.1f MB/s); %d directories listed, %d from snapshot, %d throttled",
+                fileCount, deleteCount, directoryCount, unchangedCount, failureCount, elapsedMillis / 1000.0,
+                byteCount, getBytesPerSecond() / (1024 * 1024), listedCount, cachedCount, throttleCount);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Listings of the remote directories as they were at the end of a sync, kept in a local file so the next sync
+ * only lists the directories that changed since.
+ * <P>
+ * A directory's modification time changes when entries are added to or removed from it, so a listing is
+ * reused as long as the directory's modification time is the one recorded with it. The directories a sync
+ * changed itself are listed once more at its end, after the changes are made.
+ * </P>
+ * <P>
+ * The file starts with a line identifying the remote root. Then each directory is a line with its modification
+ * time and path, followed by a line for each of its entries. The fields of a line are separated by tabs; a tab,
+ * line break or backslash in a name is written as a backslash escape.
+ * </P>
+ */
+class SyncSnapshot {
+
+    private static final String HEADER = "#adls-sync-snapshot\t";
+
+    static class Entry {
+        final boolean directory;
+        final long length;
+        final long modificationTime;
+
+        Entry(boolean directory, long length, long modificationTime) {
+            this.directory = directory;
+            this.length = length;
+            this.modificationTime = modificationTime;
+        }
+    }
+
+    static class Listing {
+        final long modificationTime;
+        final Map<String, Entry> entries;
+
+        Listing(long modificationTime, Map<String, Entry> entries) {
+            this.modificationTime = modificationTime;
+            this.entries = Collections.unmodifiableMap(entries);
+        }
+    }
+
+    /*
+     loads the listings from a snapshot file; an empty map if the file does not exist
+     */
+    static Map<String, Listing> load(String filename, String root) throws IOException {
+        Map<String, Listing> listings = new HashMap<String, Listing>();
+        File file = new File(filename);
+        if (!file.exists() || file.length() == 0) return listings;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line = reader.readLine();
+            if (!(HEADER + escape(root)).equals(line)) {
+                throw new IOException("snapshot file " + filename + " is for a different directory: " + line);
+            }
+            String path = null;
+            long modificationTime = 0;
+            Map<String, Entry> entries = null;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields[0].equals("dir") && fields.length == 3) {
+                    if (path != null) listings.put(path, new Listing(modificationTime, entries));
+                    modificationTime = Long.parseLong(fields[1]);
+                    path = unescape(fields[2]);
+                    entries = new TreeMap<String, Entry>();
+                } else if (fields.length == 4 && entries != null) {
+                    entries.put(unescape(fields[3]), new Entry(fields[0].equals("d"), Long.parseLong(fields[1]),
+                            Long.parseLong(fields[2])));
+                } else {
+                    throw new IOException("snapshot file " + filename + " is corrupt at line: " + line);
+                }
+            }
+            if (path != null) listings.put(path, new Listing(modificationTime, entries));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("snapshot file " + filename + " is corrupt: " + ex.getMessage());
+        } finally {
+            reader.close();
+        }
+        return listings;
+    }
+
+    /*
+     writes the listings to a new file that then replaces the snapshot file, so a failed write leaves the
+     previous snapshot in place
+     */
+    static void save(String filename, String root, Map<String, Listing> listings) throws IOException {
+        File file = new File(filename);
+        File temp = new File(filename + ".tmp");
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+        try {
+            out.write(HEADER + escape(root) + "\n");
+            for (Map.Entry<String, Listing> listing : new TreeMap<String, Listing>(listings).entrySet()) {
+                out.write("dir\t" + listing.getValue().modificationTime + "\t" + escape(listing.getKey()) + "\n");
+                for (Map.Entry<String, Entry> e : listing.getValue().entries.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.write((entry.directory ? "d" : "f") + "\t" + entry.length + "\t" + entry.modificationTime
+                            + "\t" + escape(e.getKey()) + "\n");
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (file.exists() && !file.delete()) throw new IOException("cannot replace snapshot file " + filename);
+        if (!temp.renameTo(file)) throw new IOException("cannot write snapshot file " + filename);
+    }
+
+    /*
+     escapes the characters that would end a field or a line
+     */
+    static String escape(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     undoes escape; throws IllegalArgumentException for an escape it does not write
+     */
+    static String unescape(String field) {
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = (++i < field.length()) ? field.charAt(i) : ' ';
+            switch (escaped) {
+                case '\\': sb.append('\\'); break;
+                case 't': sb.append('\t'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                default: throw new IllegalArgumentException("bad escape in " + field);
+            }
+        }
+        return sb.toString();
+    }
+}
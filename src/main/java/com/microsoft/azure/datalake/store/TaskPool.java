@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import com.microsoft.azure.datalake.store.protocol.RequestPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * The threads of one bulk operation, and the {@link AdaptiveConcurrency} that limits their requests. Tasks may
+ * submit more tasks; {@link #await} waits until all of them are done.
+ */
+class TaskPool {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store");
+
+    private final String name;
+    private final AdaptiveConcurrency concurrency;
+    private final RequestPriority priority;
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicInteger outstanding = new AtomicInteger(0);
+    private final Object done = new Object();
+
+    /*
+     the threads are named adls-<name>-<n>. Requests are sent with the priority, which may be null.
+     */
+    TaskPool(String name, int maxConcurrency, RequestPriority priority) {
+        this(name, maxConcurrency, priority, 0);
+    }
+
+    /*
+     with maxQueued > 0, a task submitted while that many are waiting is run by the submitting thread, which
+     keeps a task that submits many more from queueing without bound. Only for tasks that do not submit work
+     while holding a request slot, since running it could need another slot.
+     */
+    TaskPool(String name, int maxConcurrency, RequestPriority priority, int maxQueued) {
+        this.name = name;
+        this.concurrency = new AdaptiveConcurrency(maxConcurrency);
+        this.priority = priority;
+        BlockingQueue<Runnable> queue = (maxQueued > 0) ? new ArrayBlockingQueue<Runnable>(maxQueued)
+                : new LinkedBlockingQueue<Runnable>();
+        this.pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS, queue,
+                new DaemonThreadFactory("adls-" + name + "-"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    void submit(final Runnable task) {
+        outstanding.incrementAndGet();
+        pool.execute(new Runnable() {
+            public void run() {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    log.error(name + " task failed", ex);
+                } finally {
+                    if (outstanding.decrementAndGet() == 0) {
+                        synchronized (done) {
+                            done.notifyAll();
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /*
+     waits for all the tasks to finish
+     */
+    void await() throws InterruptedIOException {
+        await(0);
+    }
+
+    /*
+     waits for all the tasks to finish, or for the timeout to pass (0 for none); returns false on timeout
+     */
+    boolean await(long timeoutMillis) throws InterruptedIOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (done) {
+            try {
+                while (outstanding.get() > 0) {
+                    if (timeoutMillis <= 0) {
+                        done.wait();
+                    } else {
+                        long wait = deadline - System.currentTimeMillis();
+                        if (wait <= 0) return false;
+                        done.wait(wait);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for " + name + " tasks");
+            }
+        }
+        return true;
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /*
+     waits for a request slot, and returns the options to send the request with; the caller must release it
+     */
+    RequestOptions acquire() throws InterruptedIOException {
+        concurrency.acquire();
+        RequestOptions opts = new RequestOptions();
+        opts.retryPolicy = concurrency.newRetryPolicy();
+        opts.priority = priority;
+        return opts;
+    }
+
+    void release(OperationResponse resp) {
+        release(resp.successful);
+    }
+
+    /*
+     releases a slot taken for work that was not a single request
+     */
+    void release(boolean succeeded) {
+        concurrency.release(succeeded);
+    }
+
+    long getThrottleCount() {
+        return concurrency.getThrottleCount();
+    }
+
+    int getLimit() {
+        return concurrency.getLimit();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
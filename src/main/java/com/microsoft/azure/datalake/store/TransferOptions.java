@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.RequestPriority;
+
+
+/**
+ * options to control directory transfers, such as
+ * {@link Utils#uploadDirectory(String, String, TransferOptions) uploadDirectory} and
+ * {@link Utils#downloadDirectory(String, String, TransferOptions) downloadDirectory}
+ */
+public class TransferOptions {
+    /**
+     * the most requests to have in flight at once, across all files. The transfer halves this when the service
+     * throttles, and grows it back as requests succeed.
+     */
+    public int maxConcurrency = 16;
+
+    /**
+     * files bigger than this are transferred in chunks of this size, in parallel. For uploads, the chunks are
+     * written to temporary files that are then concatenated into the destination.
+     */
+    public long chunkSize = 256L * 1024 * 1024;
+
+    /**
+     * what to do when a destination file already exists. With {@link IfExists#FAIL}, the file is reported as
+     * a failure and the rest of the transfer goes on.
+     */
+    public IfExists mode = IfExists.OVERWRITE;
+
+    /**
+     * priority of the transfer's requests, for a {@link com.microsoft.azure.datalake.store.protocol.RequestScheduler
+     * RequestScheduler} or {@link com.microsoft.azure.datalake.store.protocol.BandwidthLimiter BandwidthLimiter}
+     * set on the client
+     */
+    public RequestPriority priority = RequestPriority.BACKGROUND;
+
+    /**
+     * receives progress while the transfer runs; {@code null} for none
+     */
+    public TransferProgressListener progressListener = null;
+
+    /**
+     * how often, in milliseconds, to call the {@link #progressListener}
+     */
+    public long progressIntervalMillis = 5000;
+
+    /**
+     * the most failures to list in the {@link TransferReport}; any more are only counted
+     */
+    public int maxFailuresReported = 1000;
+}
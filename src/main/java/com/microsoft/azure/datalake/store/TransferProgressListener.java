@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+
+/**
+ * Receives periodic progress of a directory transfer; set it in {@link TransferOptions#progressListener}.
+ * <P>
+ * Calls are made on the thread that started the transfer, every
+ * {@link TransferOptions#progressIntervalMillis progressIntervalMillis} while it runs. Exceptions thrown by
+ * the listener are logged and otherwise ignored.
+ * </P>
+ */
+public interface TransferProgressListener {
+
+    /**
+     * @param progress counts so far, with the time elapsed so far
+     */
+    void progress(TransferReport progress);
+}
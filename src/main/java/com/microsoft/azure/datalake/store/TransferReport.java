@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Outcome of a directory transfer. A failure on one file does not stop the transfer; it is recorded here, and
+ * the other files are still transferred.
+ */
+public class TransferReport {
+
+    /**
+     * number of directories created
+     */
+    public final long directoryCount;
+
+    /**
+     * number of files transferred
+     */
+    public final long fileCount;
+
+    /**
+     * number of bytes transferred, including those of files that later failed
+     */
+    public final long byteCount;
+
+    /**
+     * number of paths the transfer failed on, including those not listed in {@link #failures}
+     */
+    public final long failureCount;
+
+    /**
+     * number of throttled responses received
+     */
+    public final long throttleCount;
+
+    /**
+     * time taken, in milliseconds
+     */
+    public final long elapsedMillis;
+
+    /**
+     * the first failures, up to {@link TransferOptions#maxFailuresReported}
+     */
+    public final List<TreeOperationReport.Failure> failures;
+
+    TransferReport(long directoryCount, long fileCount, long byteCount, long failureCount, long throttleCount,
+                   long elapsedMillis, List<TreeOperationReport.Failure> failures) {
+        this.directoryCount = directoryCount;
+        this.fileCount = fileCount;
+        this.byteCount = byteCount;
+        this.failureCount = failureCount;
+        this.throttleCount = throttleCount;
+        this.elapsedMillis = elapsedMillis;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return true if every file was transferred
+     */
+    public boolean isSuccessful() {
+        return failureCount == 0;
+    }
+
+    /**
+     * @return throughput, in bytes per second
+     */
+    public double getBytesPerSecond() {
+        return (elapsedMillis == 0) ? 0 : byteCount * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * @return files transferred per second
+     */
+    public double getFilesPerSecond() {
+        return (elapsedMillis == 0) ? 0 : fileCount * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files, %d directories, %d bytes, %d failed in %.1f s (%.1f MB/s, %.0f files/s); "
+                        + "%d throttled",
+                fileCount, directoryCount, byteCount, failureCount, elapsedMillis / 1000.0,
+                getBytesPerSecond() / (1024 * 1024), getFilesPerSecond(), throttleCount);
+    }
+}
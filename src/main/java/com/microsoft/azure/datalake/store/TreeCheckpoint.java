@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * Journal of the directories whose whole subtree a tree operation has finished, kept in a local file so an
+ * interrupted operation can be resumed: a resumed run skips those subtrees, and redoes everything else.
+ * <P>
+ * The file starts with a line identifying the operation and the root, so a checkpoint is not resumed by a
+ * different operation. Then each line is one finished directory. Lines are flushed about once a second; if
+ * the process dies, the last few are lost and those subtrees are redone.
+ * </P>
+ */
+class TreeCheckpoint {
+
+    private static final String HEADER = "#adls-tree-checkpoint\t";
+    private static final long FLUSH_INTERVAL_NANOS = 1000L * 1000000L;
+
+    private final Set<String> completed = new HashSet<String>();
+    private final Writer out;
+    private long lastFlush = System.nanoTime();
+
+    private TreeCheckpoint(Writer out) {
+        this.out = out;
+    }
+
+    /*
+     opens a checkpoint file, loading what an earlier run finished. The file is created if it does not exist.
+     */
+    static TreeCheckpoint open(String filename, String operation, String root) throws IOException {
+        String header = HEADER + operation.replace('\n', ' ') + "\t" + root;
+        File file = new File(filename);
+        Set<String> completed = new HashSet<String>();
+        boolean exists = file.exists() && file.length() > 0;
+        if (exists) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line = reader.readLine();
+                if (!header.equals(line)) {
+                    throw new IOException("checkpoint file " + filename + " was written by a different operation: " + line);
+                }
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() > 0) completed.add(line);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+        TreeCheckpoint checkpoint = new TreeCheckpoint(out);
+        checkpoint.completed.addAll(completed);
+        if (!exists) {
+            out.write(header);
+            out.write('\n');
+            out.flush();
+        }
+        return checkpoint;
+    }
+
+    synchronized boolean isCompleted(String path) {
+        return completed.contains(path);
+    }
+
+    synchronized int getCompletedCount() {
+        return completed.size();
+    }
+
+    synchronized void completed(String path) throws IOException {
+        if (!completed.add(path)) return;
+        out.write(path);
+        out.write('\n');
+        long now = System.nanoTime();
+        if (now - lastFlush > FLUSH_INTERVAL_NANOS) {
+            out.flush();
+            lastFlush = now;
+        }
+    }
+
+    synchronized void close() throws IOException {
+        out.close();
+    }
+}
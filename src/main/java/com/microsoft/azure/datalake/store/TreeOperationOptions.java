@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.RequestPriority;
+
+
+/**
+ * options to control recursive operations on a directory tree, such as
+ * {@link ADLStoreClient#modifyAclEntriesRecursive(String, java.util.List, TreeOperationOptions) modifyAclEntriesRecursive}
+ */
+public class TreeOperationOptions {
+    /**
+     * the most requests to have in flight at once. The operation starts at this limit, halves it when the
+     * service throttles, and grows it back by one at a time as requests succeed.
+     */
+    public int maxConcurrency = 16;
+
+    /**
+     * path of a local file to record progress in, so that an interrupted operation can be resumed by running
+     * it again with the same file. Subtrees the earlier run finished are skipped. {@code null} for no checkpoint.
+     */
+    public String checkpointFile = null;
+
+    /**
+     * priority of the operation's requests, for a {@link com.microsoft.azure.datalake.store.protocol.RequestScheduler
+     * RequestScheduler} or {@link com.microsoft.azure.datalake.store.protocol.BandwidthLimiter BandwidthLimiter}
+     * set on the client. Bulk operations default to {@link RequestPriority#BACKGROUND}.
+     */
+    public RequestPriority priority = RequestPriority.BACKGROUND;
+
+    /**
+     * the most failures to list in the {@link TreeOperationReport}; any more are only counted
+     */
+    public int maxFailuresReported = 1000;
+
+    /**
+     * selects the files and directories to change; {@code null} to change everything in the tree. Rejected
+     * paths are counted in {@link TreeOperationReport#excludedCount}.
+     */
+    public PathFilter filter = null;
+
+    /**
+     * if true, the tree is walked and the paths that would be changed are counted, but nothing is changed
+     */
+    public boolean dryRun = false;
+
+    /**
+     * receives progress while the operation runs; {@code null} for none
+     */
+    public TreeProgressListener progressListener = null;
+
+    /**
+     * how often, in milliseconds, to call the {@link #progressListener}
+     */
+    public long progressIntervalMillis = 5000;
+
+    /**
+     * for {@link ADLStoreClient#deleteRecursive(String, TreeOperationOptions) deleteRecursive}: a directory
+     * holding only files, fewer than this many, is deleted with one server-side recursive delete rather than
+     * file by file. 0 to always delete file by file.
+     */
+    public int serverSideDeleteThreshold = 1000;
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Outcome of a recursive operation on a directory tree. A failure on one path does not stop the operation;
+ * it is recorded here, and the rest of the tree is still processed.
+ */
+public class TreeOperationReport {
+
+    /**
+     * A path the operation failed on.
+     */
+    public static class Failure {
+        /**
+         * the path
+         */
+        public final String path;
+
+        /**
+         * the HTTP response code of the failed request, or 0 if there was no response
+         */
+        public final int httpResponseCode;
+
+        /**
+         * the error message
+         */
+        public final String message;
+
+        Failure(String path, int httpResponseCode, String message) {
+            this.path = path;
+            this.httpResponseCode = httpResponseCode;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return path + ": " + (httpResponseCode > 0 ? "HTTP " + httpResponseCode + " " : "") + message;
+        }
+    }
+
+    /**
+     * number of directories processed (for a dry run, that would have been changed)
+     */
+    public final long directoryCount;
+
+    /**
+     * number of files processed (for a dry run, that would have been changed)
+     */
+    public final long fileCount;
+
+    /**
+     * number of paths the operation failed on, including those not listed in {@link #failures}
+     */
+    public final long failureCount;
+
+    /**
+     * number of files and directories left alone because the {@link TreeOperationOptions#filter filter}
+     * rejected them
+     */
+    public final long excludedCount;
+
+    /**
+     * number of directories skipped because a checkpoint showed their subtree was already done
+     */
+    public final long skippedDirectoryCount;
+
+    /**
+     * number of throttled responses received
+     */
+    public final long throttleCount;
+
+    /**
+     * the concurrency limit when the operation finished
+     */
+    public final int finalConcurrency;
+
+    /**
+     * time taken, in milliseconds
+     */
+    public final long elapsedMillis;
+
+    /**
+     * the first failures, up to {@link TreeOperationOptions#maxFailuresReported}
+     */
+    public final List<Failure> failures;
+
+    TreeOperationReport(long directoryCount, long fileCount, long failureCount, long excludedCount,
+                        long skippedDirectoryCount, long throttleCount, int finalConcurrency, long elapsedMillis,
+                        List<Failure> failures) {
+        this.directoryCount = directoryCount;
+        this.fileCount = fileCount;
+        this.failureCount = failureCount;
+        this.excludedCount = excludedCount;
+        this.skippedDirectoryCount = skippedDirectoryCount;
+        this.throttleCount = throttleCount;
+        this.finalConcurrency = finalConcurrency;
+        this.elapsedMillis = elapsedMillis;
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return true if the operation did not fail on any path
+     */
+    public boolean isSuccessful() {
+        return failureCount == 0;
+    }
+
+    /**
+     * @return paths (files and directories) processed per second
+     */
+    public double getPathsPerSecond() {
+        return (elapsedMillis == 0) ? 0 : (directoryCount + fileCount) * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d directories, %d files, %d failed, %d excluded, %d skipped "
+                        + "in %.1f s (%.0f paths/s); %d throttled, final concurrency %d",
+                directoryCount, fileCount, failureCount, excludedCount, skippedDirectoryCount,
+                elapsedMillis / 1000.0, getPathsPerSecond(), throttleCount, finalConcurrency);
+    }
+}
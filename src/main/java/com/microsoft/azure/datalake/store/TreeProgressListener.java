@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+
+/**
+ * Receives periodic progress of a recursive operation; set it in {@link TreeOperationOptions#progressListener}.
+ * <P>
+ * Calls are made on the thread that started the operation, every
+ * {@link TreeOperationOptions#progressIntervalMillis progressIntervalMillis} while it runs. Exceptions thrown
+ * by the listener are logged and otherwise ignored.
+ * </P>
+ */
+public interface TreeProgressListener {
+
+    /**
+     * @param progress counts so far, with the time elapsed so far; {@link TreeOperationReport#getPathsPerSecond()}
+     *                 gives the throughput
+     */
+    void progress(TreeOperationReport progress);
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store;
+
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Walks a directory tree in parallel, calling a {@link Visitor} for every file and directory in it. This is
+ * the engine of the recursive operations on {@link ADLStoreClient}.
+ * <P>
+ * Directories are listed, and entries visited, on a {@link TaskPool}, whose {@link AdaptiveConcurrency} limits
+ * the requests (listings, and the visitor's own requests) and backs off when the service throttles.
+ * A directory is visited before anything under it, and {@link Visitor#leave left} after everything under it
+ * has been visited, so the visitor can work top-down or bottom-up.
+ * </P><P>
+ * A directory with more than a page of entries is split into name ranges (listings bounded by
+ * {@code listAfter} and {@code listBefore}) that are listed in parallel, and ranges that are still big are
+ * split again, so a directory of millions of entries is not listed one page at a time.
+ * </P><P>
+ * A failure on one path is recorded in the report and does not stop the walk. A directory whose subtree had
+ * no failures is recorded in the checkpoint, if there is one, and is skipped when the walk is resumed.
+ * </P><P>
+ * The walker applies the options' filter (rejected entries are not visited, but rejected directories are
+ * still walked) and dry run (entries are counted instead of visited), so visitors need not handle either.
+ * </P>
+ */
+class TreeWalker {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store");
+
+    /**
+     * what to do for each path. Methods are called concurrently, from the walker's threads.
+     */
+    abstract static class Visitor {
+        /*
+         called for each file and directory, a directory before anything under it
+         */
+        abstract void visit(DirectoryEntry entry, RequestOptions opts) throws IOException;
+
+        /*
+         called for a directory after everything under it has been visited and left without failure
+         */
+        void leave(DirectoryEntry directory, RequestOptions opts) throws IOException {
+        }
+
+        /*
+         whether the change applies to an entry at all; entries it does not apply to are neither visited
+         nor counted
+         */
+        boolean appliesTo(DirectoryEntry entry) {
+            return true;
+        }
+
+        /*
+         whether to list a directory and walk its contents
+         */
+        boolean descend(DirectoryEntry directory) {
+            return true;
+        }
+
+        /*
+         offered a directory whose contents (all files) fit in one listing, after visiting the directory. Returns
+         true if the visitor has dealt with the directory and its contents itself, so they are not visited and the
+         directory is not left. Not called for dry runs, or when there is a filter.
+         */
+        boolean visitLeafDirectory(DirectoryEntry directory, List<DirectoryEntry> contents, RequestOptions opts)
+                throws IOException {
+            return false;
+        }
+    }
+
+    /*
+     a directory being walked: done when its listing and all its children are done
+     */
+    private static final class Node {
+        final DirectoryEntry entry;
+        final Node parent;
+        final AtomicInteger pending = new AtomicInteger(1);   // the listing itself, and then each child
+        volatile boolean failed = false;
+        boolean accepted = false;
+        volatile boolean handled = false;                      // the visitor dealt with the whole directory
+
+        Node(DirectoryEntry entry, Node parent) {
+            this.entry = entry;
+            this.parent = parent;
+        }
+    }
+
+    private final ADLStoreClient client;
+    private final TreeOperationOptions options;
+    private final String operation;
+    private final TaskPool tasks;
+    private final boolean ownsTasks;
+    private Visitor visitor;
+    private TreeCheckpoint checkpoint;
+
+    private final AtomicLong directoryCount = new AtomicLong(0);
+    private final AtomicLong fileCount = new AtomicLong(0);
+    private final AtomicLong failureCount = new AtomicLong(0);
+    private final AtomicLong excludedCount = new AtomicLong(0);
+    private final AtomicLong skippedCount = new AtomicLong(0);
+    private final List<TreeOperationReport.Failure> failures = new ArrayList<TreeOperationReport.Failure>();
+
+    /*
+     operation describes the walk for the checkpoint file; a checkpoint is only resumed by the same operation
+     */
+    TreeWalker(ADLStoreClient client, String operation, TreeOperationOptions options) {
+        this(client, operation, options, null);
+    }
+
+    /*
+     walks on the tasks of a bigger operation, sharing its limit on requests; the walk then ends when all those
+     tasks are done. With null tasks the walker has its own, limited by the options' maxConcurrency.
+     */
+    TreeWalker(ADLStoreClient client, String operation, TreeOperationOptions options, TaskPool tasks) {
+        if (options == null) options = new TreeOperationOptions();
+        this.client = client;
+        this.options = options;
+        this.operation = operation;
+        this.ownsTasks = (tasks == null);
+        // a full queue makes listers visit entries themselves
+        this.tasks = ownsTasks ? new TaskPool("tree-walker", options.maxConcurrency, options.priority,
+                options.maxConcurrency * 100) : tasks;
+    }
+
+    /*
+     walks the tree under root (or just root, if it is a file)
+     */
+    TreeOperationReport walk(String root, Visitor visitor) throws IOException {
+        this.visitor = visitor;
+        long start = System.nanoTime();
+
+        RequestOptions opts = tasks.acquire();
+        OperationResponse resp = new OperationResponse();
+        DirectoryEntry rootEntry;
+        try {
+            rootEntry = Core.getFileStatus(root, client, opts, resp);
+        } finally {
+            tasks.release(resp);
+        }
+        if (!resp.successful) throw client.getExceptionFromResp(resp, "Error getting info for " + root);
+
+        if (options.checkpointFile != null) {
+            checkpoint = TreeCheckpoint.open(options.checkpointFile, operation, rootEntry.fullName);
+        }
+        try {
+            if (rootEntry.type == DirectoryEntryType.FILE) {
+                if (accept(rootEntry)) visit(rootEntry);
+            } else if (checkpoint != null && checkpoint.isCompleted(rootEntry.fullName)) {
+                skippedCount.incrementAndGet();
+            } else {
+                final Node node = new Node(rootEntry, null);
+                tasks.submit(new Runnable() {
+                    public void run() {
+                        walkDirectory(node);
+                    }
+                });
+                awaitCompletion(start);
+            }
+        } finally {
+            if (ownsTasks) tasks.shutdown();
+            if (checkpoint != null) checkpoint.close();
+        }
+        return report(start);
+    }
+
+    private TreeOperationReport report(long start) {
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        synchronized (failures) {
+            return new TreeOperationReport(directoryCount.get(), fileCount.get(), failureCount.get(),
+                    excludedCount.get(), skippedCount.get(), tasks.getThrottleCount(), tasks.getLimit(),
+                    elapsed, new ArrayList<TreeOperationReport.Failure>(failures));
+        }
+    }
+
+    /*
+     waits for the walk to finish, reporting progress from this thread meanwhile
+     */
+    private void awaitCompletion(long start) throws InterruptedIOException {
+        TreeProgressListener listener = options.progressListener;
+        if (listener == null) {
+            tasks.await();
+            return;
+        }
+        long interval = Math.max(1, options.progressIntervalMillis);
+        while (!tasks.await(interval)) {
+            try {
+                listener.progress(report(start));
+            } catch (RuntimeException ex) {
+                log.error("tree progress listener threw an exception", ex);
+            }
+        }
+    }
+
+    private void walkDirectory(Node node) {
+        try {
+            node.accepted = accept(node.entry);
+            if (node.accepted && !visit(node.entry)) node.failed = true;
+            if (visitor.descend(node.entry)) listChildren(node);
+        } finally {
+            finished(node);
+        }
+    }
+
+    /*
+     lists a directory a page at a time, handing each entry to the pool as it is listed
+     */
+    private void listChildren(Node node) {
+        listRange(node, null, null);
+    }
+
+    /*
+     lists the names in (after, before), either bound null for none. A range with more than a page of names
+     is split into smaller ranges listed in parallel, so a huge directory is not listed one page at a time.
+     The service can return a short page before the end, so only an empty page ends the listing; that costs
+     one more LISTSTATUS per range, so even a directory that fits in one page takes two.
+     */
+    private void listRange(Node node, String after, String before) {
+        String path = node.entry.fullName;
+        PagedListing listing = new PagedListing(client, tasks, path, after, before);
+        try {
+            boolean first = (after == null && before == null);
+            List<DirectoryEntry> page = listing.next();
+            if (first && page == null && visitLeafDirectory(node, Collections.<DirectoryEntry>emptyList())) return;
+            while (page != null) {
+                String last = page.get(page.size() - 1).name;
+                boolean full = page.size() >= PagedListing.PAGE_SIZE;
+                List<DirectoryEntry> next = null;
+                if (!full) {
+                    // a short page is usually the whole rest of the range; the next page says whether it is
+                    next = listing.next();
+                    if (first && next == null && visitLeafDirectory(node, page)) return;
+                }
+                first = false;
+                submitEntries(node, page);
+                if (full) {
+                    if (split(node, page.get(0).name, last, before)) return;
+                    next = listing.next();
+                }
+                page = next;
+            }
+        } catch (IOException ex) {
+            failed(path, ex);
+            node.failed = true;
+        }
+    }
+
+    /*
+     splits the rest of a range, (after, before), at the names one character longer than the prefix the last
+     page's names share. Both bounds of a listing are exclusive, so names equal to a split point are looked up
+     separately, each on its own task. Returns false if the range cannot be split.
+     */
+    private boolean split(final Node node, String firstName, String after, final String before) {
+        String prefix = commonPrefix(firstName, after);
+        final List<String> points = new ArrayList<String>();
+        for (int i = 0; i < SPLIT_CHARACTERS.length(); i++) {
+            String point = prefix + SPLIT_CHARACTERS.charAt(i);
+            if (point.compareTo(after) > 0 && (before == null || point.compareTo(before) < 0)) points.add(point);
+        }
+        if (points.isEmpty()) return false;
+
+        String lower = after;
+        for (int i = 0; i <= points.size(); i++) {
+            final String from = lower;
+            final String to = (i < points.size()) ? points.get(i) : before;
+            submitPart(node, new Runnable() {
+                public void run() {
+                    listRange(node, from, to);
+                }
+            });
+            lower = to;
+        }
+        String directory = node.entry.fullName;
+        if (!directory.endsWith("/")) directory = directory + "/";
+        for (String point : points) {
+            final String pointPath = directory + point;
+            submitPart(node, new Runnable() {
+                public void run() {
+                    DirectoryEntry entry = status(pointPath);
+                    if (entry != null) submitEntries(node, Collections.singletonList(entry));
+                }
+            });
+        }
+        return true;
+    }
+
+    // characters names are split on, in string order
+    private static final String SPLIT_CHARACTERS = "-.0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    private static String commonPrefix(String a, String b) {
+        int i = 0;
+        while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) i++;
+        return a.substring(0, i);
+    }
+
+    /*
+     runs part of the work on a directory in the pool; the directory is not done until the part is
+     */
+    private void submitPart(final Node node, final Runnable part) {
+        node.pending.incrementAndGet();
+        tasks.submit(new Runnable() {
+            public void run() {
+                try {
+                    part.run();
+                } finally {
+                    finished(node);
+                }
+            }
+        });
+    }
+
+    private void submitEntries(final Node node, List<DirectoryEntry> entries) {
+        for (final DirectoryEntry entry : entries) {
+            if (entry.type == DirectoryEntryType.DIRECTORY) {
+                if (checkpoint != null && checkpoint.isCompleted(entry.fullName)) {
+                    skippedCount.incrementAndGet();
+                    continue;
+                }
+                final Node child = new Node(entry, node);
+                node.pending.incrementAndGet();
+                tasks.submit(new Runnable() {
+                    public void run() {
+                        walkDirectory(child);
+                    }
+                });
+            } else {
+                submitPart(node, new Runnable() {
+                    public void run() {
+                        if (accept(entry) && !visit(entry)) node.failed = true;
+                    }
+                });
+            }
+        }
+    }
+
+    /*
+     offers a directory with only files, all in one page, to the visitor to handle whole. If the visitor
+     fails, the directory is walked as usual.
+     */
+    private boolean visitLeafDirectory(Node node, List<DirectoryEntry> contents) {
+        if (!node.accepted || node.failed || options.filter != null || options.dryRun) return false;
+        for (DirectoryEntry entry : contents) {
+            if (entry.type == DirectoryEntryType.DIRECTORY) return false;
+        }
+        RequestOptions opts;
+        try {
+            opts = tasks.acquire();
+        } catch (InterruptedIOException ex) {
+            return false;
+        }
+        boolean ok = false;
+        try {
+            ok = visitor.visitLeafDirectory(node.entry, contents, opts);
+        } catch (IOException ex) {
+            if (log.isDebugEnabled()) {
+                log.debug("walking {} after it could not be handled whole: {}", node.entry.fullName, ex.getMessage());
+            }
+        } finally {
+            tasks.release(ok);
+        }
+        if (ok) {
+            for (DirectoryEntry entry : contents) {
+                if (visitor.appliesTo(entry)) fileCount.incrementAndGet();
+            }
+            node.handled = true;
+        }
+        return ok;
+    }
+
+    /*
+     one more part of a directory is done; when all are, leave it and tell its parent
+     */
+    private void finished(Node node) {
+        while (node != null && node.pending.decrementAndGet() == 0) {
+            if (!node.failed && node.accepted && !node.handled && !leave(node.entry)) node.failed = true;
+            if (!node.failed && checkpoint != null) {
+                try {
+                    checkpoint.completed(node.entry.fullName);
+                } catch (IOException ex) {
+                    failed(node.entry.fullName, ex);
+                }
+            }
+            if (node.failed && node.parent != null) node.parent.failed = true;
+            node = node.parent;
+        }
+    }
+
+    /*
+     whether the entry is to be changed; counts it if the filter excluded it
+     */
+    private boolean accept(DirectoryEntry entry) {
+        if (!visitor.appliesTo(entry)) return false;
+        if (options.filter == null || options.filter.accept(entry)) return true;
+        excludedCount.incrementAndGet();
+        return false;
+    }
+
+    /*
+     visits an entry, and counts it if that succeeded; a dry run only counts it
+     */
+    private boolean visit(DirectoryEntry entry) {
+        AtomicLong count = (entry.type == DirectoryEntryType.DIRECTORY) ? directoryCount : fileCount;
+        if (options.dryRun) {
+            count.incrementAndGet();
+            return true;
+        }
+        RequestOptions opts;
+        try {
+            opts = tasks.acquire();
+        } catch (InterruptedIOException ex) {
+            failed(entry.fullName, ex);
+            return false;
+        }
+        boolean ok = false;
+        try {
+            visitor.visit(entry, opts);
+            count.incrementAndGet();
+            ok = true;
+        } catch (IOException ex) {
+            failed(entry.fullName, ex);
+        } finally {
+            tasks.release(ok);
+        }
+        return ok;
+    }
+
+    private boolean leave(DirectoryEntry entry) {
+        if (options.dryRun) return true;
+        RequestOptions opts;
+        try {
+            opts = tasks.acquire();
+        } catch (InterruptedIOException ex) {
+            failed(entry.fullName, ex);
+            return false;
+        }
+        boolean ok = false;
+        try {
+            visitor.leave(entry, opts);
+            ok = true;
+        } catch (IOException ex) {
+            failed(entry.fullName, ex);
+        } finally {
+            tasks.release(ok);
+        }
+        return ok;
+    }
+
+    /*
+     the entry for a path, or null if it does not exist or cannot be read (which is recorded as a failure)
+     */
+    private DirectoryEntry status(String path) {
+        OperationResponse resp = new OperationResponse();
+        DirectoryEntry entry;
+        try {
+            RequestOptions opts = tasks.acquire();
+            try {
+                entry = Core.getFileStatus(path, client, opts, resp);
+            } finally {
+                tasks.release(resp.successful || resp.httpResponseCode == 404);
+            }
+        } catch (InterruptedIOException ex) {
+            failed(path, ex);
+            return null;
+        }
+        if (resp.successful) return entry;
+        if (resp.httpResponseCode != 404) {
+            failed(path, client.getExceptionFromResp(resp, "Error getting info for " + path));
+        }
+        return null;
+    }
+
+    void failed(String path, IOException ex) {
+        failureCount.incrementAndGet();
+        int code = (ex instanceof ADLException) ? ((ADLException) ex).httpResponseCode : 0;
+        if (log.isDebugEnabled()) log.debug("tree operation failed on {}: {}", path, ex.getMessage());
+        synchronized (failures) {
+            if (failures.size() < options.maxFailuresReported) {
+                failures.add(new TreeOperationReport.Failure(path, code, ex.getMessage()));
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.microsoft.azure.datalake.store.protocol.RequestOptions;
 import com.microsoft.azure.datalake.store.retrypolicies.NoRetryPolicy;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 
 /**
  * Utility methods to enable one-liners for simple functionality.
@@ -63,6 +64,10 @@ public class Utils {
 
     /**
      * Uploads the contents of a local file to an Azure Data Lake file.
+     * <P>
+     * The file is sent straight from its file channel to the network, in 4MB appends, without being copied
+     * into buffers in memory on the way.
+     * </P>
      *
      * @param filename path of file to upload to
      * @param localFilename path to local file
@@ -74,11 +79,123 @@ public class Utils {
         if (localFilename == null || localFilename.trim().equals(""))
             throw new IllegalArgumentException("localFilename cannot be null");
 
-        try (FileInputStream in = new FileInputStream(localFilename)){
-            upload(filename, in, mode);
+        if (filename == null || filename.trim().equals(""))
+            throw new IllegalArgumentException("filename cannot be null");
+
+        try (FileInputStream in = new FileInputStream(localFilename);
+             ADLFileOutputStream out = client.createOutputStream(filename, mode)) {
+            out.setBufferSize(4 * 1000 * 1000);
+            FileChannel channel = in.getChannel();
+            out.transferFrom(channel, 0, channel.size());
         }
     }
 
+    /**
+     * Uploads a local directory tree to an Azure Data Lake directory, many files at a time.
+     * <P>
+     * The remote directories are created first. Then small files are uploaded with a single request each, and
+     * files bigger than {@link TransferOptions#chunkSize} in chunks uploaded in parallel and then concatenated.
+     * A failure on one file does not stop the upload; failures are listed in the returned report. Symbolic
+     * links to files are uploaded as the files they point to; links to directories are skipped.
+     * </P>
+     *
+     * @param directory path of the directory to upload to; it is created if it does not exist
+     * @param localDirectory path of the local directory to upload
+     * @param options options for the transfer, or {@code null} for the defaults
+     * @return {@link TransferReport} with the counts, throughput and failures
+     * @throws IOException thrown if the local directory cannot be read
+     */
+    public TransferReport uploadDirectory(String directory, String localDirectory, TransferOptions options)
+            throws IOException {
+        if (localDirectory == null || localDirectory.trim().equals(""))
+            throw new IllegalArgumentException("localDirectory cannot be null");
+        if (directory == null || directory.trim().equals(""))
+            throw new IllegalArgumentException("directory cannot be null");
+
+        return new DirectoryTransfer(client, options).upload(new File(localDirectory), directory);
+    }
+
+    /**
+     * Downloads an Azure Data Lake directory tree to a local directory, many files at a time.
+     * <P>
+     * The tree is listed in parallel, and files are downloaded as they are found: small files with a single
+     * request each, and files bigger than {@link TransferOptions#chunkSize} in chunks read in parallel. A
+     * failure on one file does not stop the download; failures are listed in the returned report.
+     * </P>
+     *
+     * @param directory path of the directory to download
+     * @param localDirectory path of the local directory to download to; it is created if it does not exist
+     * @param options options for the transfer, or {@code null} for the defaults
+     * @return {@link TransferReport} with the counts, throughput and failures
+     * @throws IOException {@link ADLException} is thrown if the directory cannot be read
+     */
+    public TransferReport downloadDirectory(String directory, String localDirectory, TransferOptions options)
+            throws IOException {
+        if (localDirectory == null || localDirectory.trim().equals(""))
+            throw new IllegalArgumentException("localDirectory cannot be null");
+        if (directory == null || directory.trim().equals(""))
+            throw new IllegalArgumentException("directory cannot be null");
+
+        return new DirectoryTransfer(client, options).download(directory, new File(localDirectory));
+    }
+
+    /**
+     * Makes an Azure Data Lake directory tree the same as a local directory tree, uploading only what changed.
+     * <P>
+     * The remote tree is listed in parallel and compared with the local tree. A local file is uploaded unless
+     * the remote file has the same length and was modified no earlier than the local file; remote files and
+     * directories that do not exist locally are deleted, unless {@link SyncOptions#deleteExtra} is false.
+     * The changes are made concurrently while the comparison goes on. With a {@link SyncOptions#snapshotFile},
+     * the remote listings are kept locally, and a later sync lists only the remote directories whose
+     * modification time has changed since; a file changed in place by someone else, without a change to its
+     * directory, is then not noticed.
+     * </P>
+     *
+     * @param directory path of the directory to sync to; it is created if it does not exist
+     * @param localDirectory path of the local directory to sync from
+     * @param options options for the sync, or {@code null} for the defaults
+     * @return {@link SyncReport} with the counts of changes made, and the failures
+     * @throws IOException thrown if the local directory or the snapshot file cannot be read, or the remote
+     *                     directory cannot be checked
+     */
+    public SyncReport syncDirectory(String directory, String localDirectory, SyncOptions options)
+            throws IOException {
+        if (localDirectory == null || localDirectory.trim().equals(""))
+            throw new IllegalArgumentException("localDirectory cannot be null");
+        if (directory == null || directory.trim().equals(""))
+            throw new IllegalArgumentException("directory cannot be null");
+
+        return new DirectorySync(client, options).sync(new File(localDirectory), directory);
+    }
+
+    /**
+     * Copies a file or directory tree to another path in the same account, many files at a time.
+     * <P>
+     * The data passes through the client: small files are read and written with one request each, and files
+     * bigger than {@link TransferOptions#chunkSize} are copied in chunks, read and written in parallel and then
+     * concatenated into the destination. Directories are listed in parallel, and files are copied as they are
+     * found. A failure on one file does not stop the copy; failures are listed in the returned report.
+     * </P>
+     *
+     * @param source path of the file or directory to copy
+     * @param destination path to copy it to. The contents of a directory are copied into the destination
+     *                    directory, which is created if it does not exist.
+     * @param options options for the copy, or {@code null} for the defaults
+     * @return {@link TransferReport} with the counts, throughput and failures
+     * @throws IOException {@link ADLException} is thrown if the source cannot be read
+     */
+    public TransferReport copy(String source, String destination, TransferOptions options) throws IOException {
+        if (source == null || source.trim().equals(""))
+            throw new IllegalArgumentException("source cannot be null");
+        if (destination == null || destination.trim().equals(""))
+            throw new IllegalArgumentException("destination cannot be null");
+        String from = source.endsWith("/") ? source : source + "/";
+        String to = destination.endsWith("/") ? destination : destination + "/";
+        if (to.startsWith(from)) throw new IllegalArgumentException("cannot copy " + source + " into itself");
+
+        return new DirectoryTransfer(client, options).copy(source, destination);
+    }
+
     /**
      * Uploads an {@link InputStream} to an Azure Data Lake file.
      *
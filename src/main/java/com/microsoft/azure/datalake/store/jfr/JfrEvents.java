@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.jfr;
+
+
+/**
+ * Java Flight Recorder events emitted by the SDK. Internal to the SDK.
+ * <P>
+ * This is the Java 7 version of the class, which does nothing. The SDK jar is a multi-release jar: on
+ * JDK 11 and later, the version of this class under {@code META-INF/versions/11} is loaded instead, and emits
+ * these events (all in the "Azure Data Lake Store" category):
+ * </P>
+ * <UL>
+ *     <LI>{@code com.microsoft.azure.datalake.store.HttpRequest} - a REST call, including retries</LI>
+ *     <LI>{@code com.microsoft.azure.datalake.store.StreamRefill} - an {@code ADLFileInputStream} buffer refill</LI>
+ *     <LI>{@code com.microsoft.azure.datalake.store.StreamFlush} - an {@code ADLFileOutputStream} flush</LI>
+ *     <LI>{@code com.microsoft.azure.datalake.store.TokenRefresh} - an Azure AD token refresh</LI>
+ * </UL>
+ * <P>
+ * Each {@code begin} method returns an event handle, or {@code null} if the event is not enabled in any
+ * running recording. The matching {@code end} method does nothing for a {@code null} handle, so when
+ * recording is off the cost is a null check.
+ * </P>
+ */
+public final class JfrEvents {
+
+    private JfrEvents() {
+    }
+
+    /**
+     * @return event handle for an HTTP request, or {@code null} if the event is disabled
+     */
+    public static Object beginHttpRequest() {
+        return null;
+    }
+
+    /**
+     * commits an HTTP request event
+     *
+     * @param event handle returned by {@link #beginHttpRequest()}
+     * @param operation the WebHDFS operation
+     * @param path the path operated on
+     * @param clientRequestId client request ID of the last try
+     * @param bytesSent request body size
+     * @param bytesReceived response body size, from the Content-Length header
+     * @param retries number of retries
+     * @param httpResponseCode HTTP response code of the last try, 0 if there was no response
+     * @param succeeded whether the call succeeded
+     */
+    public static void endHttpRequest(Object event, String operation, String path, String clientRequestId,
+                                      long bytesSent, long bytesReceived, int retries, int httpResponseCode,
+                                      boolean succeeded) {
+    }
+
+    /**
+     * @return event handle for an input stream buffer refill, or {@code null} if the event is disabled
+     */
+    public static Object beginStreamRefill() {
+        return null;
+    }
+
+    /**
+     * commits an input stream buffer refill event
+     *
+     * @param event handle returned by {@link #beginStreamRefill()}
+     * @param path the file read
+     * @param offset offset in the file the read started at
+     * @param bytesRead number of bytes read
+     * @param bufferSize size of the stream's buffer
+     */
+    public static void endStreamRefill(Object event, String path, long offset, long bytesRead, int bufferSize) {
+    }
+
+    /**
+     * @return event handle for an output stream flush, or {@code null} if the event is disabled
+     */
+    public static Object beginStreamFlush() {
+        return null;
+    }
+
+    /**
+     * commits an output stream flush event
+     *
+     * @param event handle returned by {@link #beginStreamFlush()}
+     * @param path the file written
+     * @param offset offset in the file the data was written at, or -1 for appends to the end of file
+     * @param bytes number of bytes written
+     */
+    public static void endStreamFlush(Object event, String path, long offset, long bytes) {
+    }
+
+    /**
+     * @return event handle for a token refresh, or {@code null} if the event is disabled
+     */
+    public static Object beginTokenRefresh() {
+        return null;
+    }
+
+    /**
+     * commits a token refresh event
+     *
+     * @param event handle returned by {@link #beginTokenRefresh()}
+     * @param provider class name of the token provider
+     * @param succeeded whether the refresh succeeded
+     */
+    public static void endTokenRefresh(Object event, String provider, boolean succeeded) {
+    }
+}
@@ -0,0 +1,11 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+/**
+ * The {@code jfr} package emits Java Flight Recorder events for SDK I/O. It is used internally by the SDK;
+ * applications only need to enable the events in their JFR recording settings.
+ */
+package com.microsoft.azure.datalake.store.jfr;
@@ -6,6 +6,7 @@
 
 package com.microsoft.azure.datalake.store.oauth2;
 
+import com.microsoft.azure.datalake.store.jfr.JfrEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,7 +22,13 @@ import java.util.Date;
  */
 public abstract class AccessTokenProvider {
 
-    protected AzureADToken token;
+    protected volatile AzureADToken token;
+
+    // written only under the lock in getToken; volatile so the getters can read them without waiting on a refresh
+    private volatile long lastRefreshTime = 0;
+    private volatile long lastRefreshDurationMillis = 0;
+    private volatile long refreshCount = 0;
+    private volatile long refreshFailureCount = 0;
     private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store.oauth2.AccessTokenProvider");
 
     /**
@@ -33,11 +40,68 @@ public abstract class AccessTokenProvider {
     public synchronized AzureADToken getToken() throws IOException {
         if (isTokenAboutToExpire()) {
             log.debug("AAD Token is missing or expired: Calling refresh-token from abstract base class");
-            token = refreshToken();
+            long start = System.nanoTime();
+            lastRefreshTime = System.currentTimeMillis();
+            boolean succeeded = false;
+            Object jfrEvent = JfrEvents.beginTokenRefresh();
+            try {
+                token = refreshToken();
+                succeeded = true;
+            } finally {
+                lastRefreshDurationMillis = (System.nanoTime() - start) / 1000000;
+                if (succeeded) refreshCount++; else refreshFailureCount++;
+                JfrEvents.endTokenRefresh(jfrEvent, getClass().getName(), succeeded);
+            }
         }
         return token;
     }
 
+    /**
+     * gets the time the token was last refreshed (or the last refresh was attempted)
+     *
+     * @return the time of the last refresh, or {@code null} if the token has never been refreshed
+     */
+    public Date getLastRefreshTime() {
+        return (lastRefreshTime == 0) ? null : new Date(lastRefreshTime);
+    }
+
+    /**
+     * gets how long the last token refresh took, including the call to Azure Active Directory
+     *
+     * @return duration of last refresh in milliseconds, or -1 if the token has never been refreshed
+     */
+    public long getLastRefreshDurationMillis() {
+        return (lastRefreshTime == 0) ? -1 : lastRefreshDurationMillis;
+    }
+
+    /**
+     * gets the number of times the token was refreshed successfully
+     *
+     * @return number of successful refreshes
+     */
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * gets the number of times a token refresh failed with an exception
+     *
+     * @return number of failed refreshes
+     */
+    public long getRefreshFailureCount() {
+        return refreshFailureCount;
+    }
+
+    /**
+     * gets the expiry time of the cached token
+     *
+     * @return the expiry time, or {@code null} if there is no cached token
+     */
+    public Date getTokenExpiry() {
+        AzureADToken token = this.token;
+        return (token == null || token.expiry == null) ? null : new Date(token.expiry.getTime());
+    }
+
     /**
      * the method to fetch the access token. Derived classes should override this method to
      * actually get the token from Azure Active Directory.
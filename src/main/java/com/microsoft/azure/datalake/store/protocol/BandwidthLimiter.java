@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Token-bucket limit on the rate at which data is transferred, shared by all the threads that use it.
+ * <P>
+ * A limiter can be set on an {@link com.microsoft.azure.datalake.store.ADLStoreClient ADLStoreClient}, where it
+ * limits all request bodies sent and all data read by the client's input streams, and on individual streams.
+ * One limiter can also be shared by several clients, to limit a whole process.
+ * </P><P>
+ * Threads waiting for bandwidth are served in order of {@link RequestPriority}, and first-come-first-served
+ * within a priority, so one busy thread cannot starve others. A waiter that has waited longer than the
+ * {@link #setStarvationThresholdMillis(long) starvation threshold} is served next regardless of priority, so
+ * continuous interactive traffic slows background transfers down but never stops them.
+ * </P><P>
+ * Large transfers are admitted in pieces no larger than the burst size, so waiters of equal priority
+ * interleave instead of each waiting for the whole of a large transfer ahead of it.
+ * </P>
+ */
+public class BandwidthLimiter {
+
+    private static final long MIN_BURST = 64 * 1024;
+
+    private final List<ArrayDeque<Waiter>> queues;
+    private double bytesPerNano;
+    private long bytesPerSecond;
+    private final long burst;
+    private double tokens;
+    private long lastRefill;
+    private long starvationThresholdNanos = 1000L * 1000000L;
+    private long totalWaitNanos = 0;
+
+    private static class Waiter {
+        final long since = System.nanoTime();
+    }
+
+    /**
+     * creates a limiter with a burst size of a tenth of a second's worth of data (at least 64KB)
+     *
+     * @param bytesPerSecond the sustained rate limit
+     */
+    public BandwidthLimiter(long bytesPerSecond) {
+        this(bytesPerSecond, Math.max(bytesPerSecond / 10, MIN_BURST));
+    }
+
+    /**
+     * creates a limiter
+     *
+     * @param bytesPerSecond the sustained rate limit
+     * @param burstBytes the most data that can go through at once after the limiter has been idle; also the
+     *                   largest piece a transfer is admitted in
+     */
+    public BandwidthLimiter(long bytesPerSecond, long burstBytes) {
+        if (bytesPerSecond <= 0) throw new IllegalArgumentException("bytesPerSecond must be positive");
+        if (burstBytes <= 0) throw new IllegalArgumentException("burstBytes must be positive");
+        this.bytesPerSecond = bytesPerSecond;
+        this.bytesPerNano = bytesPerSecond / 1e9;
+        this.burst = burstBytes;
+        this.tokens = burstBytes;
+        this.lastRefill = System.nanoTime();
+        RequestPriority[] priorities = RequestPriority.values();
+        this.queues = new ArrayList<ArrayDeque<Waiter>>(priorities.length);
+        for (int i = 0; i < priorities.length; i++) queues.add(new ArrayDeque<Waiter>());
+    }
+
+    /**
+     * changes the rate limit. Threads already waiting are re-evaluated at the new rate.
+     *
+     * @param bytesPerSecond the new sustained rate limit
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) throw new IllegalArgumentException("bytesPerSecond must be positive");
+        refill();
+        this.bytesPerSecond = bytesPerSecond;
+        this.bytesPerNano = bytesPerSecond / 1e9;
+        notifyAll();
+    }
+
+    /**
+     * @return the sustained rate limit, in bytes per second
+     */
+    public synchronized long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * sets how long a lower-priority waiter can be passed over by higher-priority ones before it is served
+     * anyway. The default is one second.
+     *
+     * @param millis the starvation threshold, in milliseconds
+     */
+    public synchronized void setStarvationThresholdMillis(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("threshold cannot be negative");
+        this.starvationThresholdNanos = millis * 1000000L;
+        notifyAll();
+    }
+
+    /**
+     * @return total time threads have spent waiting in this limiter, in nanoseconds
+     */
+    public synchronized long getWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    /**
+     * waits until {@code bytes} bytes may be transferred
+     *
+     * @param bytes number of bytes about to be transferred
+     * @param priority priority of the transfer; {@code null} means {@link RequestPriority#NORMAL}
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public void acquire(long bytes, RequestPriority priority) throws InterruptedIOException {
+        int p = (priority == null ? RequestPriority.NORMAL : priority).ordinal();
+        while (bytes > 0) {
+            long n = Math.min(bytes, burst);
+            acquirePiece(n, p);
+            bytes -= n;
+        }
+    }
+
+    private synchronized void acquirePiece(long n, int p) throws InterruptedIOException {
+        Waiter self = new Waiter();
+        queues.get(p).addLast(self);
+        try {
+            while (true) {
+                refill();
+                if (next() == self) {
+                    if (tokens >= n) {
+                        tokens -= n;
+                        return;
+                    }
+                    waitNanos((long) ((n - tokens) / bytesPerNano) + 1);
+                } else {
+                    waitNanos(starvationThresholdNanos > 0 ? starvationThresholdNanos : 1000000L);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for bandwidth");
+        } finally {
+            queues.get(p).remove(self);
+            totalWaitNanos += System.nanoTime() - self.since;
+            notifyAll();
+        }
+    }
+
+    /*
+     the waiter to serve next: the one waiting longest past the starvation threshold if there is one,
+     otherwise the first waiter of the highest priority
+     */
+    private Waiter next() {
+        long now = System.nanoTime();
+        Waiter starved = null;
+        Waiter first = null;
+        for (ArrayDeque<Waiter> queue : queues) {
+            Waiter head = queue.peekFirst();
+            if (head == null) continue;
+            if (first == null) first = head;
+            if (now - head.since > starvationThresholdNanos && (starved == null || head.since < starved.since)) {
+                starved = head;
+            }
+        }
+        return (starved != null) ? starved : first;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * bytesPerNano);
+        lastRefill = now;
+    }
+
+    private void waitNanos(long nanos) throws InterruptedException {
+        long millis = nanos / 1000000L;
+        int remainder = (int) (nanos % 1000000L);
+        if (millis == 0 && remainder == 0) remainder = 1;
+        wait(millis, remainder);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * In-process registry of request metrics for an {@link com.microsoft.azure.datalake.store.ADLStoreClient ADLStoreClient}.
+ * <P>
+ * For every REST operation, the registry keeps a latency histogram of individual tries, request/retry/error
+ * counts (errors are broken down by HTTP response code), and the number of bytes sent and received. Each try's
+ * latency is also broken down into phases (DNS, connect, send, time to first byte and body), each with its own
+ * histogram, to show where the time goes. The
+ * counters for an operation are created the first time the operation is called; after that recording is
+ * lock-free and does not allocate.
+ * </P><P>
+ * Use {@link #snapshot(boolean)} to get a consistent copy of the counters. Snapshots are also available
+ * through {@link com.microsoft.azure.datalake.store.ADLStoreClient#getMetricsSnapshot() ADLStoreClient}.
+ * </P><P>
+ * The registry also holds the client's {@link RequestListener}s, so that the transport, which records the
+ * metrics, dispatches the events too. The client hands out only the read-only {@link RequestMetrics} view.
+ * </P>
+ */
+public class ClientMetrics implements RequestMetrics {
+
+    private static final Operation[] operations = Operation.values();
+    private static final int MAX_HTTP_CODE = 599;
+
+    static final int PHASE_DNS = 0;
+    static final int PHASE_CONNECT = 1;
+    static final int PHASE_SEND = 2;
+    static final int PHASE_TTFB = 3;
+    static final int PHASE_BODY = 4;
+    static final int PHASES = 5;
+
+    private final AtomicReferenceArray<OperationCounters> counters = new AtomicReferenceArray<OperationCounters>(operations.length);
+    private final AtomicLong intervalStartTime = new AtomicLong(System.currentTimeMillis());
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final CopyOnWriteArrayList<RequestListener> listeners = new CopyOnWriteArrayList<RequestListener>();
+    private final List<RequestListener> listenersView = Collections.unmodifiableList(listeners);
+
+    /**
+     * creates an empty metrics registry
+     */
+    public ClientMetrics() {
+    }
+
+    private OperationCounters getCounters(Operation op) {
+        OperationCounters c = counters.get(op.ordinal());
+        if (c == null) {
+            counters.compareAndSet(op.ordinal(), null, new OperationCounters());
+            c = counters.get(op.ordinal());
+        }
+        return c;
+    }
+
+    /*
+     records the outcome of one try (i.e., one HTTP request) of a call
+     */
+    void recordTry(Operation op, long latencyNanos, boolean succeeded, int httpResponseCode, long bytesSent, long bytesReceived) {
+        OperationCounters c = getCounters(op);
+        c.tries.incrementAndGet();
+        c.latency.record(latencyNanos);
+        if (bytesSent > 0) c.bytesSent.addAndGet(bytesSent);
+        if (succeeded) {
+            if (bytesReceived > 0) c.bytesReceived.addAndGet(bytesReceived);
+        } else {
+            int code = (httpResponseCode > 0 && httpResponseCode <= MAX_HTTP_CODE) ? httpResponseCode : 0;
+            c.errors.incrementAndGet(code);
+        }
+    }
+
+    /*
+     records the time spent in each phase of one try. Phases the try did not get to are -1, and not recorded.
+     The body phase of responses returned to the caller as a stream is recorded later, by recordBody.
+     */
+    void recordPhases(Operation op, OperationResponse resp) {
+        LatencyHistogram[] phases = getCounters(op).phases;
+        if (resp.dnsNanos >= 0) phases[PHASE_DNS].record(resp.dnsNanos);
+        if (resp.connectNanos >= 0) phases[PHASE_CONNECT].record(resp.connectNanos);
+        if (resp.sendNanos >= 0) phases[PHASE_SEND].record(resp.sendNanos);
+        if (resp.timeToFirstByteNanos >= 0) phases[PHASE_TTFB].record(resp.timeToFirstByteNanos);
+        if (resp.bodyNanos >= 0) phases[PHASE_BODY].record(resp.bodyNanos);
+    }
+
+    void recordBody(Operation op, long bodyNanos) {
+        getCounters(op).phases[PHASE_BODY].record(bodyNanos);
+    }
+
+    /*
+     records the outcome of a call, after all retries
+     */
+    void recordCall(Operation op, int retries, boolean succeeded) {
+        OperationCounters c = getCounters(op);
+        c.requests.incrementAndGet();
+        if (retries > 0) c.retries.addAndGet(retries);
+        if (!succeeded) c.failedRequests.incrementAndGet();
+    }
+
+    /**
+     * adds a listener to be called for every request recorded here, if it is not already added
+     *
+     * @param listener the listener to add
+     */
+    public void addRequestListener(RequestListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * removes a listener added with {@link #addRequestListener(RequestListener)}
+     *
+     * @param listener the listener to remove
+     */
+    public void removeRequestListener(RequestListener listener) {
+        listeners.remove(listener);
+    }
+
+    /*
+     the listeners to dispatch request events to, read-only
+     */
+    List<RequestListener> getRequestListeners() {
+        return listenersView;
+    }
+
+    /*
+     brackets each HTTP request, to keep count of requests currently on the wire
+     */
+    void tryStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    void tryFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * gets the number of HTTP requests currently in progress. A request is in progress from the time it is
+     * sent until its response headers (and, for calls other than {@code OPEN}, the response body) are read.
+     * This is a gauge, and is not affected by {@link #reset()}.
+     *
+     * @return number of requests in progress
+     */
+    @Override
+    public int getInFlightRequestCount() {
+        return inFlight.get();
+    }
+
+    @Override
+    public MetricsSnapshot snapshot() {
+        return snapshot(false);
+    }
+
+    /**
+     * gets a copy of the current metrics.
+     *
+     * @param reset if {@code true}, then the counters are reset to zero as they are copied. Counts recorded
+     *              concurrently with the snapshot are never lost; they show up either in this snapshot or in
+     *              the next one.
+     * @return {@link MetricsSnapshot} containing the metrics
+     */
+    public MetricsSnapshot snapshot(boolean reset) {
+        long now = System.currentTimeMillis();
+        long start = reset ? intervalStartTime.getAndSet(now) : intervalStartTime.get();
+
+        Map<String, OperationMetrics> ops = new LinkedHashMap<String, OperationMetrics>();
+        LatencyHistogram totalLatency = new LatencyHistogram();
+        LatencyHistogram[] totalPhases = newHistograms();
+        Map<Integer, Long> totalErrors = new HashMap<Integer, Long>();
+        long[] totals = new long[6];
+
+        for (Operation op : operations) {
+            OperationCounters c = counters.get(op.ordinal());
+            if (c == null) continue;
+            OperationMetrics m = c.snapshot(op.name, reset);
+            if (m.requestCount == 0 && m.tryCount == 0) continue;
+            ops.put(op.name, m);
+
+            totals[0] += m.requestCount;
+            totals[1] += m.failedRequestCount;
+            totals[2] += m.tryCount;
+            totals[3] += m.retryCount;
+            totals[4] += m.bytesSent;
+            totals[5] += m.bytesReceived;
+            totalLatency.add(m.latency);
+            totalPhases[PHASE_DNS].add(m.dnsLatency);
+            totalPhases[PHASE_CONNECT].add(m.connectLatency);
+            totalPhases[PHASE_SEND].add(m.sendLatency);
+            totalPhases[PHASE_TTFB].add(m.timeToFirstByteLatency);
+            totalPhases[PHASE_BODY].add(m.bodyLatency);
+            for (Map.Entry<Integer, Long> e : m.errorCountsByHttpCode.entrySet()) {
+                Long n = totalErrors.get(e.getKey());
+                totalErrors.put(e.getKey(), (n == null) ? e.getValue() : n + e.getValue());
+            }
+        }
+        OperationMetrics total = new OperationMetrics("ALL", totals[0], totals[1], totals[2], totals[3],
+                totals[4], totals[5], totalLatency, totalErrors, totalPhases);
+        return new MetricsSnapshot(start, now, ops, total);
+    }
+
+    /**
+     * resets all counters to zero
+     */
+    public void reset() {
+        snapshot(true);
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] h = new LatencyHistogram[PHASES];
+        for (int i = 0; i < PHASES; i++) h[i] = new LatencyHistogram();
+        return h;
+    }
+
+    private static class OperationCounters {
+        final AtomicLong requests = new AtomicLong(0);
+        final AtomicLong failedRequests = new AtomicLong(0);
+        final AtomicLong tries = new AtomicLong(0);
+        final AtomicLong retries = new AtomicLong(0);
+        final AtomicLong bytesSent = new AtomicLong(0);
+        final AtomicLong bytesReceived = new AtomicLong(0);
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLongArray errors = new AtomicLongArray(MAX_HTTP_CODE + 1);
+        final LatencyHistogram[] phases = newHistograms();
+
+        OperationMetrics snapshot(String name, boolean reset) {
+            Map<Integer, Long> errorCounts = new HashMap<Integer, Long>();
+            for (int i = 0; i <= MAX_HTTP_CODE; i++) {
+                long n = reset ? errors.getAndSet(i, 0) : errors.get(i);
+                if (n != 0) errorCounts.put(i, n);
+            }
+            return new OperationMetrics(name,
+                    read(requests, reset),
+                    read(failedRequests, reset),
+                    read(tries, reset),
+                    read(retries, reset),
+                    read(bytesSent, reset),
+                    read(bytesReceived, reset),
+                    latency.copy(reset),
+                    errorCounts,
+                    copy(phases, reset));
+        }
+
+        private static LatencyHistogram[] copy(LatencyHistogram[] histograms, boolean reset) {
+            LatencyHistogram[] h = new LatencyHistogram[histograms.length];
+            for (int i = 0; i < histograms.length; i++) h[i] = histograms[i].copy(reset);
+            return h;
+        }
+
+        private static long read(AtomicLong counter, boolean reset) {
+            return reset ? counter.getAndSet(0) : counter.get();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+
+/**
+ * The body of a concatenate request: {@code sources=} followed by the source paths, separated by commas, in
+ * UTF-8. The paths are encoded as the body is written, a chunk of whole paths at a time, so a list of many
+ * thousands of sources is never held as one string or one array. The length is counted the same way up front.
+ * <P>
+ * The bytes are the same as {@code String.getBytes("UTF-8")} of the joined list would give, including the
+ * {@code ?} that stands in for an unpaired surrogate.
+ * </P>
+ */
+class ConcatBody extends RequestBody {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte[] HEAD = {'s', 'o', 'u', 'r', 'c', 'e', 's', '='};
+
+    private final String prefix;          // filesystem prefix prepended to each path, or null
+    private final int prefixLength;
+    private final List<String> sources;
+    private final int length;
+
+    // the encoded chunk last written, so a body written in several calls is encoded only once
+    private byte[] chunk = null;
+    private int chunkStart = 0;           // offset within the body of chunk[0]
+    private int chunkLength = 0;
+    private int next = -1;                // next source to encode; -1 before the head
+
+    ConcatBody(String prefix, List<String> sources) {
+        this.prefix = prefix;
+        this.prefixLength = (prefix == null) ? 0 : encodedLength(prefix);
+        this.sources = sources;
+        long total = HEAD.length;
+        for (int i = 0; i < sources.size(); i++) total += sourceLength(i, sources.get(i));
+        if (total > Integer.MAX_VALUE) throw new IllegalArgumentException("source list is too long for one request");
+        this.length = (int) total;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public synchronized void writeTo(OutputStream out, int offset, int count) throws IOException {
+        if (offset < chunkStart) {       // written again from the start, for a retry
+            next = -1;
+            chunkStart = 0;
+            chunkLength = 0;
+        }
+        while (count > 0) {
+            if (offset >= chunkStart + chunkLength) {
+                fill();
+                continue;
+            }
+            int from = offset - chunkStart;
+            int n = Math.min(count, chunkLength - from);
+            out.write(chunk, from, n);
+            offset += n;
+            count -= n;
+        }
+    }
+
+    /*
+     encodes the chunk after the current one: as many whole sources as fit
+     */
+    private void fill() throws IOException {
+        if (chunk == null) chunk = new byte[Math.min(CHUNK_SIZE, length)];
+        chunkStart += chunkLength;
+        chunkLength = 0;
+        if (next < 0) {
+            System.arraycopy(HEAD, 0, chunk, 0, HEAD.length);
+            chunkLength = HEAD.length;
+            next = 0;
+        }
+        while (next < sources.size()) {
+            String source = sources.get(next);
+            int n = sourceLength(next, source);
+            if (chunkLength + n > chunk.length) {
+                if (chunkLength > 0) break;
+                chunk = new byte[n];      // one path longer than a chunk
+            }
+            if (next > 0) chunk[chunkLength++] = ',';
+            if (prefix != null) {
+                chunkLength = encode(prefix, chunk, chunkLength);
+                if (source.charAt(0) != '/') chunk[chunkLength++] = '/';
+            }
+            chunkLength = encode(source, chunk, chunkLength);
+            next++;
+        }
+        if (chunkLength == 0) throw new EOFException("concatenate body ended at " + chunkStart + " of " + length + " bytes");
+    }
+
+    private int sourceLength(int index, String source) {
+        int n = (index > 0) ? 1 : 0;
+        if (prefix != null) n += prefixLength + (source.charAt(0) == '/' ? 0 : 1);
+        return n + encodedLength(source);
+    }
+
+    private static int encodedLength(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                n += 1;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                n += 1;                   // unpaired, encoded as '?'
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+
+    private static int encode(String s, byte[] b, int pos) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[pos++] = (byte) (0xF0 | (cp >> 18));
+                b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                b[pos++] = '?';
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
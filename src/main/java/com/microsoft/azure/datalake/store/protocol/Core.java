@@ -15,7 +15,7 @@ import com.microsoft.azure.datalake.store.acl.AclStatus;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
@@ -142,6 +142,90 @@ public class Core {
         HttpTransport.makeCall(client, Operation.APPEND, path, qp, contents, offsetWithinContentsArray, length, opts, resp);
     }
 
+    /**
+     * append a region of a local file to an existing file. Same as
+     * {@link #append(String, long, byte[], int, int, String, String, ADLStoreClient, RequestOptions, OperationResponse) append},
+     * except that the bytes are sent straight from the file channel to the connection, without being copied into
+     * a buffer in memory first. Retries send the region again from the file.
+     * <P>
+     * The channel's position is neither used nor changed, so several appends can read from the same channel at once.
+     * </P>
+     *
+     * @param path the full path of the file to append to. The file must already exist.
+     * @param offsetToAppendTo offset at which to append to to file. To let the server choose offset, pass {@code -1}.
+     * @param contents channel of the local file to send from
+     * @param position offset within the local file of the first byte to send
+     * @param length number of bytes to send
+     * @param leaseId a String containing the lease ID (generated by client). Can be null.
+     * @param sessionId a String containing the session ID (generated by client). Can be null.
+     * @param client the {@link ADLStoreClient}
+     * @param opts options to change the behavior of the call
+     * @param resp response from the call, and any error info generated by the call
+     */
+    public static void append(String path,
+                              long offsetToAppendTo,
+                              FileChannel contents,
+                              long position,
+                              int length,
+                              String leaseId,
+                              String sessionId,
+                              ADLStoreClient client,
+                              RequestOptions opts,
+                              OperationResponse resp) {
+        if (contents == null) {
+            resp.successful = false;
+            resp.message = "file channel is null";
+            return;
+        }
+        append(path, offsetToAppendTo, RequestBody.fromFileRegion(contents, position, length), leaseId, sessionId,
+                client, opts, resp);
+    }
+
+    /**
+     * append a {@link RequestBody} to an existing file. The body is streamed to the server as it is read, so the
+     * caller does not need the whole of it in memory, and the upload starts before the body's producer is done.
+     * <P>
+     * If the body is not {@link RequestBody#isRepeatable() repeatable}, the append is not retried once any of the
+     * body has been sent, whatever the retry policy in {@code opts}.
+     * </P>
+     *
+     * @param path the full path of the file to append to. The file must already exist.
+     * @param offsetToAppendTo offset at which to append to to file. To let the server choose offset, pass {@code -1}.
+     * @param body the data to append
+     * @param leaseId a String containing the lease ID (generated by client). Can be null.
+     * @param sessionId a String containing the session ID (generated by client). Can be null.
+     * @param client the {@link ADLStoreClient}
+     * @param opts options to change the behavior of the call
+     * @param resp response from the call, and any error info generated by the call
+     */
+    public static void append(String path,
+                              long offsetToAppendTo,
+                              RequestBody body,
+                              String leaseId,
+                              String sessionId,
+                              ADLStoreClient client,
+                              RequestOptions opts,
+                              OperationResponse resp) {
+        if (body == null) {
+            resp.successful = false;
+            resp.message = "request body is null";
+            return;
+        }
+        QueryParams qp = new QueryParams();
+        qp.add("append", "true");
+        if (leaseId != null && !leaseId.equals("")) {
+            qp.add("leaseid", leaseId);
+        }
+        if (sessionId != null && !sessionId.equals("")) {
+            qp.add("filesessionid", sessionId);
+        }
+        if (offsetToAppendTo >= 0) {
+            qp.add("offset", Long.toString(offsetToAppendTo));
+        }
+
+        HttpTransport.makeCall(client, Operation.APPEND, path, qp, body, opts, resp);
+    }
+
     /**
      * append bytes to a file. The offset is determined by the server. This enables multiple writers to
      * append concurrently to the same file. A file created with {@code concurrentAppend} can only be appended
@@ -433,10 +517,7 @@ public class Core {
             resp.message = "No source files specified to concatenate";
             return;
         }
-        byte[] body = null;
-        StringBuilder sb = new StringBuilder("sources=");
-        boolean firstelem = true;
-        HashSet<String> pathSet = new HashSet<String>(4096);  // 4096: reasonably large-enough number for "most" cases
+        HashSet<String> pathSet = new HashSet<String>(Math.max(16, sources.size() * 4 / 3 + 1));
         for (String item : sources) {
             if (item.equals(path)) {
                 resp.successful = false;
@@ -445,36 +526,24 @@ public class Core {
             }
 
             // check that each source path occurs only once
-            if (pathSet.contains(item)) {
+            if (!pathSet.add(item)) {
                 resp.successful = false;
                 resp.message = "concat() source list contains a file more than once: " + item;
                 return;
-            } else {
-                pathSet.add(item);
             }
-
-            // prepend Filesystem prefix if needed to each of the paths
-            String prefix = client.getFilePathPrefix();
-            if (prefix!=null) {
-                if (item.charAt(0) == '/') {
-                    item = prefix + item;
-                } else {
-                    item = prefix + "/" + item;
-                }
-            }
-
-            if (!firstelem) sb.append(',');
-                       else firstelem = false;
-            sb.append(item);
         }
+
+        // the body is encoded as it is sent, with the filesystem prefix prepended to each path if needed
+        RequestBody body;
         try {
-            body = sb.toString().getBytes("UTF-8");
-        } catch (UnsupportedEncodingException ex) {
-            //This should't happen.
-            assert false : "UTF-8 encoding is not supported";
+            body = new ConcatBody(client.getFilePathPrefix(), sources);
+        } catch (IllegalArgumentException ex) {
+            resp.successful = false;
+            resp.message = ex.getMessage();
+            return;
         }
 
-        HttpTransport.makeCall(client, Operation.MSCONCAT, path, null, body, 0, body.length, opts, resp);
+        HttpTransport.makeCall(client, Operation.MSCONCAT, path, null, body, opts, resp);
     }
 
 
@@ -587,48 +656,8 @@ public class Core {
         HttpTransport.makeCall(client, Operation.LISTSTATUS, path, qp, null, 0, 0, opts, resp);
 
         if (resp.successful) {
-            ArrayList<DirectoryEntry> list = new ArrayList<DirectoryEntry>();
             try {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(resp.responseStream);
-
-                JsonNode array = rootNode.path("FileStatuses").path("FileStatus");
-                for (JsonNode fsNode : array) {
-                    String name = fsNode.path("pathSuffix").asText();
-                    String fullName;
-                    if (!name.equals("")) {
-                        if (path.endsWith("/")) {
-                            fullName = path + name;
-                        } else {
-                            fullName = path + "/" + name;
-                        }
-                    } else {
-                        fullName = path;
-                        name = path.substring(path.lastIndexOf("/")+1);
-                    }
-
-                    long length = fsNode.path("length").asLong(0);
-                    String user = fsNode.path("owner").asText();
-                    String group = fsNode.path("group").asText();
-                    Date lastAccessTime = new Date(fsNode.path("accessTime").asLong());
-                    Date lastModifiedTime = new Date(fsNode.path("modificationTime").asLong());
-                    DirectoryEntryType type = fsNode.path("type").asText().equals("FILE") ?
-                            DirectoryEntryType.FILE :
-                            DirectoryEntryType.DIRECTORY;
-                    String permission = fsNode.path("permission").asText();
-
-                    DirectoryEntry entry = new DirectoryEntry(name,
-                            fullName,
-                            length,
-                            group,
-                            user,
-                            lastAccessTime,
-                            lastModifiedTime,
-                            type,
-                            permission);
-                    list.add(entry);
-                }
-                return list;
+                return parseListStatus(path, resp.responseStream);
             } catch (IOException ex) {
                 resp.successful = false;
                 resp.message = "Unexpected error happened reading response stream or parsing JSon from listFiles()";
@@ -643,6 +672,53 @@ public class Core {
         return null;
     }
 
+    /*
+     parses the JSON response of LISTSTATUS into DirectoryEntry objects. path is the directory that was listed.
+     */
+    static List<DirectoryEntry> parseListStatus(String path, InputStream stream) throws IOException {
+        ArrayList<DirectoryEntry> list = new ArrayList<DirectoryEntry>();
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode rootNode = mapper.readTree(stream);
+
+        JsonNode array = rootNode.path("FileStatuses").path("FileStatus");
+        for (JsonNode fsNode : array) {
+            String name = fsNode.path("pathSuffix").asText();
+            String fullName;
+            if (!name.equals("")) {
+                if (path.endsWith("/")) {
+                    fullName = path + name;
+                } else {
+                    fullName = path + "/" + name;
+                }
+            } else {
+                fullName = path;
+                name = path.substring(path.lastIndexOf("/")+1);
+            }
+
+            long length = fsNode.path("length").asLong(0);
+            String user = fsNode.path("owner").asText();
+            String group = fsNode.path("group").asText();
+            Date lastAccessTime = new Date(fsNode.path("accessTime").asLong());
+            Date lastModifiedTime = new Date(fsNode.path("modificationTime").asLong());
+            DirectoryEntryType type = fsNode.path("type").asText().equals("FILE") ?
+                    DirectoryEntryType.FILE :
+                    DirectoryEntryType.DIRECTORY;
+            String permission = fsNode.path("permission").asText();
+
+            DirectoryEntry entry = new DirectoryEntry(name,
+                    fullName,
+                    length,
+                    group,
+                    user,
+                    lastAccessTime,
+                    lastModifiedTime,
+                    type,
+                    permission);
+            list.add(entry);
+        }
+        return list;
+    }
+
     /**
      * sets one or both of the times (Modified and Access time) of the file or directory
      *
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Executes a single try of an idempotent read request with hedging, as dictated by a {@link HedgingPolicy}.
+ * <P>
+ * The primary request runs on the calling thread. If it has not returned by the time the hedge delay expires,
+ * a duplicate (the hedge) is issued from a background thread. The primary wins with any response from the
+ * server; the hedge wins only with a successful one, so an error from the hedge (a throttling response, for
+ * instance) never cuts short a primary that may still succeed. The connection of the loser is disconnected.
+ * If the hedge wins, its results are copied into the caller's {@link OperationResponse}.
+ * </P><P>
+ * A hedge holds a slot of the client's {@link RequestScheduler} while it is in flight, like any other request.
+ * It is only sent if a slot is free and no request is waiting for one, so hedging never goes past the
+ * scheduler's limit nor delays queued requests. Bandwidth limits need nothing extra: hedged operations send no
+ * body, and the caller reads the body of only the winner, through the limiters.
+ * </P>
+ */
+class HedgedCall implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store"); // package-default logging policy
+
+    private static final int PENDING = 0;
+    private static final int PRIMARY_WON = 1;
+    private static final int HEDGE_WON = 2;
+
+    private static final int HEDGE_NOT_STARTED = 0;
+    private static final int HEDGE_STARTED = 1;
+    private static final int HEDGE_CANCELLED = 2;
+
+    private static final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("adls-hedge-timer"));
+    static {
+        timer.setRemoveOnCancelPolicy(true);   // most hedges never fire, dont let them pile up in the timer queue
+    }
+    // Hedges run on at most this many threads. When all are busy (a latency spike makes many requests slow at
+    // once), further hedges are skipped rather than queued or given new threads; their primaries carry on alone.
+    private static final int MAX_HEDGE_THREADS = 64;
+    private static final ThreadPoolExecutor hedgePool = new ThreadPoolExecutor(0, MAX_HEDGE_THREADS, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new DaemonThreadFactory("adls-hedge"));
+
+    private final HedgingPolicy policy;
+    private final ADLStoreClient client;
+    private final Operation op;
+    private final String path;
+    private final QueryParams queryParams;
+    private final RequestOptions hedgeOpts;
+    private final OperationResponse primaryResp;
+    private final OperationResponse hedgeResp = new OperationResponse();
+
+    private final AtomicInteger winner = new AtomicInteger(PENDING);
+    private final AtomicInteger hedgeState = new AtomicInteger(HEDGE_NOT_STARTED);
+    private final CountDownLatch hedgeFinished = new CountDownLatch(1);
+    private ScheduledFuture<?> hedgeTimer = null;
+
+    private HedgedCall(HedgingPolicy policy,
+                       ADLStoreClient client,
+                       Operation op,
+                       String path,
+                       QueryParams queryParams,
+                       RequestOptions opts,
+                       OperationResponse resp) {
+        this.policy = policy;
+        this.client = client;
+        this.op = op;
+        this.path = path;
+        this.queryParams = queryParams;
+        this.primaryResp = resp;
+        this.hedgeOpts = new RequestOptions();
+        this.hedgeOpts.timeout = opts.timeout;
+        this.hedgeOpts.retryPolicy = opts.retryPolicy;
+        this.hedgeOpts.requestid = opts.requestid + ".h";
+        this.hedgeOpts.priority = opts.priority;
+    }
+
+    /**
+     * makes one try of the request, hedging it if the policy calls for it. Only for operations that do not
+     * send a request body.
+     */
+    static void makeSingleCall(HedgingPolicy policy,
+                               ADLStoreClient client,
+                               Operation op,
+                               String path,
+                               QueryParams queryParams,
+                               RequestOptions opts,
+                               OperationResponse resp) {
+        long delay = policy.getHedgeDelayNanos(op);
+        if (delay < 0) {  // not enough latency history yet to decide when to hedge
+            HttpTransport.makeSingleCall(client, op, path, queryParams, null, 0, 0, opts, resp);
+            return;
+        }
+
+        queryParams.serialize(); // caches the serialized string, so the two requests do not serialize concurrently
+        HedgedCall call = new HedgedCall(policy, client, op, path, queryParams, opts, resp);
+        call.hedgeTimer = timer.schedule(call, delay, TimeUnit.NANOSECONDS);
+        call.runPrimary(opts);
+    }
+
+    private void runPrimary(RequestOptions opts) {
+        HttpTransport.makeSingleCall(client, op, path, queryParams, null, 0, 0, opts, primaryResp);
+
+        if (primaryResp.ex == null) {
+            if (winner.compareAndSet(PENDING, PRIMARY_WON)) {
+                if (hedgeState.compareAndSet(HEDGE_NOT_STARTED, HEDGE_CANCELLED)) {
+                    hedgeTimer.cancel(false);
+                } else {
+                    abort(hedgeResp); // the hedge thread cleans up the rest when its request returns
+                }
+                primaryResp.connection = null;
+                return;
+            }
+        } else {
+            // Primary failed without a server response. If a hedge is in flight, give it a chance to succeed.
+            if (hedgeState.compareAndSet(HEDGE_NOT_STARTED, HEDGE_CANCELLED)) {
+                hedgeTimer.cancel(false);
+                winner.compareAndSet(PENDING, PRIMARY_WON);
+                primaryResp.connection = null;
+                return;
+            }
+            awaitHedge();
+            if (winner.compareAndSet(PENDING, PRIMARY_WON)) {
+                primaryResp.connection = null;
+                return;
+            }
+        }
+
+        // the hedge won
+        awaitHedge();
+        discard(primaryResp);
+        copyResponse(hedgeResp, primaryResp);
+        policy.recordHedgeWin();
+        if (log.isDebugEnabled()) {
+            log.debug("HTTPRequest,HedgeWon,cReqId:{},path:{}", hedgeOpts.requestid, path);
+        }
+    }
+
+    /**
+     * runs the hedge request. Called on the timer thread when the hedge delay expires.
+     */
+    public void run() {
+        if (winner.get() != PENDING) return;
+        try {
+            hedgePool.execute(new Runnable() {
+                public void run() {
+                    runHedge();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // every hedge thread is busy: skip this hedge
+            hedgeState.compareAndSet(HEDGE_NOT_STARTED, HEDGE_CANCELLED);
+            hedgeFinished.countDown();
+        }
+    }
+
+    private void runHedge() {
+        RequestScheduler scheduler = client.getRequestScheduler();
+        RequestScheduler.Permit permit = null;
+        try {
+            if (!hedgeState.compareAndSet(HEDGE_NOT_STARTED, HEDGE_STARTED)) return;
+            if (scheduler != null) {
+                permit = scheduler.tryAcquire(hedgeOpts.priority);
+                if (permit == null) return;   // no free slot: the primary carries on alone
+            }
+            if (!policy.tryAcquireHedge()) return;
+            if (log.isDebugEnabled()) {
+                log.debug("HTTPRequest,Hedged,cReqId:{},path:{}", hedgeOpts.requestid, path);
+            }
+
+            HttpTransport.makeSingleCall(client, op, path, queryParams, null, 0, 0, hedgeOpts, hedgeResp);
+            if (permit != null) scheduler.responseReceived(permit, hedgeResp.httpResponseCode);
+
+            // an error response is dropped, and the primary left to finish
+            if (HttpTransport.isSuccessfulResponse(hedgeResp, op) && winner.compareAndSet(PENDING, HEDGE_WON)) {
+                abort(primaryResp);  // unblocks the primary, if it is still waiting on the server
+                hedgeResp.connection = null;
+            } else {
+                discard(hedgeResp);
+            }
+        } finally {
+            // if the hedge won, the primary's slot now covers the body the caller reads
+            if (permit != null) permit.release();
+            hedgeFinished.countDown();
+        }
+    }
+
+    private void awaitHedge() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                hedgeFinished.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static void abort(OperationResponse resp) {
+        HttpURLConnection conn = resp.connection;
+        if (conn != null) conn.disconnect();
+    }
+
+    private static void discard(OperationResponse resp) {
+        abort(resp);
+        resp.connection = null;
+        if (resp.responseStream != null) {
+            try {
+                resp.responseStream.close();
+            } catch (IOException ex) {
+                //swallow since it is only the closing of the stream
+            }
+            resp.responseStream = null;
+        }
+    }
+
+    private static void copyResponse(OperationResponse from, OperationResponse to) {
+        to.successful = from.successful;
+        to.httpResponseCode = from.httpResponseCode;
+        to.httpResponseMessage = from.httpResponseMessage;
+        to.responseStream = from.responseStream;
+        to.requestId = from.requestId;
+        to.responseContentLength = from.responseContentLength;
+        to.responseHeadersTime = from.responseHeadersTime;
+        to.dnsNanos = from.dnsNanos;
+        to.connectNanos = from.connectNanos;
+        to.sendNanos = from.sendNanos;
+        to.timeToFirstByteNanos = from.timeToFirstByteNanos;
+        to.bodyNanos = from.bodyNanos;
+        to.responseChunked = from.responseChunked;
+        to.remoteExceptionName = from.remoteExceptionName;
+        to.remoteExceptionMessage = from.remoteExceptionMessage;
+        to.remoteExceptionJavaClassName = from.remoteExceptionJavaClassName;
+        to.ex = from.ex;
+        to.message = from.message;
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, namePrefix + "-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * {@code HedgingPolicy} controls speculative (hedged) execution of idempotent read requests
+ * ({@code OPEN}, {@code GETFILESTATUS} and {@code LISTSTATUS}).
+ * <P>
+ * When a hedging policy is set on an {@link com.microsoft.azure.datalake.store.ADLStoreClient ADLStoreClient},
+ * a request that has not received a response within a percentile of the recently observed latencies for
+ * that operation is duplicated. Whichever of the two requests gets a response first is used, and the other
+ * one is cancelled; an error response from the duplicate is ignored, and the original request left to finish.
+ * To cap the extra load on the server, hedges are only issued as long as the number of hedges stays within a
+ * percentage (the hedge budget) of the number of eligible requests. If the client has a
+ * {@link RequestScheduler}, a hedge also needs a free slot of it, and is not sent while requests are waiting
+ * for one.
+ * </P><P>
+ * The counters on this object report how many requests were eligible, how many were hedged, and how many
+ * times the hedge won.
+ * </P><P>
+ * <B>Thread Safety: </B> this class is thread-safe. A single instance can be shared across clients, in which
+ * case the latency history and the budget are shared as well.
+ * </P>
+ */
+public class HedgingPolicy {
+
+    private static final int RECOMPUTE_INTERVAL = 16;  // recompute the percentile once every this many samples
+    private static final int BUDGET_BURST = 10;        // hedges allowed before the budget percentage kicks in
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double budgetPercent;
+    private final int minSamples;
+    private final EnumMap<Operation, LatencyWindow> windows = new EnumMap<Operation, LatencyWindow>(Operation.class);
+
+    private final AtomicLong eligibleRequests = new AtomicLong(0);
+    private final AtomicLong hedgesIssued = new AtomicLong(0);
+    private final AtomicLong hedgeWins = new AtomicLong(0);
+    private final AtomicLong hedgesDeniedByBudget = new AtomicLong(0);
+
+    /**
+     * creates a hedging policy that hedges requests slower than the 95th percentile of the last 256 requests,
+     * with a minimum hedge delay of 50 milliseconds and a hedge budget of 5%.
+     */
+    public HedgingPolicy() {
+        this(95.0, 50, 5.0, 256);
+    }
+
+    /**
+     * creates a hedging policy.
+     *
+     * @param percentile the percentile (between 0 and 100, exclusive) of recent latencies after which a hedge
+     *                   is issued
+     * @param minDelayMillis the minimum time to wait before issuing a hedge, regardless of observed latencies
+     * @param budgetPercent the maximum number of hedges, as a percentage of the number of eligible requests
+     * @param windowSize the number of recent latencies (per operation) to compute the percentile from
+     */
+    public HedgingPolicy(double percentile, long minDelayMillis, double budgetPercent, int windowSize) {
+        if (percentile <= 0 || percentile >= 100) throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+        if (minDelayMillis < 0) throw new IllegalArgumentException("minimum hedge delay cannot be negative: " + minDelayMillis);
+        if (budgetPercent < 0 || budgetPercent > 100) throw new IllegalArgumentException("hedge budget must be between 0 and 100: " + budgetPercent);
+        if (windowSize < RECOMPUTE_INTERVAL) throw new IllegalArgumentException("window size must be at least " + RECOMPUTE_INTERVAL);
+
+        this.percentile = percentile;
+        this.minDelayNanos = minDelayMillis * 1000000L;
+        this.budgetPercent = budgetPercent;
+        this.minSamples = Math.min(windowSize, 4 * RECOMPUTE_INTERVAL);
+        windows.put(Operation.OPEN, new LatencyWindow(windowSize));
+        windows.put(Operation.GETFILESTATUS, new LatencyWindow(windowSize));
+        windows.put(Operation.LISTSTATUS, new LatencyWindow(windowSize));
+    }
+
+    /**
+     * gets the number of requests that were eligible for hedging (i.e., enough latency history was available)
+     *
+     * @return the number of eligible requests
+     */
+    public long getEligibleRequestCount() {
+        return eligibleRequests.get();
+    }
+
+    /**
+     * gets the number of hedge requests issued
+     *
+     * @return the number of hedges issued
+     */
+    public long getHedgeCount() {
+        return hedgesIssued.get();
+    }
+
+    /**
+     * gets the number of times the hedge request returned a successful response before the original request
+     *
+     * @return the number of hedges that won
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * gets the number of hedges that were not issued because the hedge budget was exhausted
+     *
+     * @return the number of hedges denied by the budget
+     */
+    public long getHedgesDeniedByBudgetCount() {
+        return hedgesDeniedByBudget.get();
+    }
+
+    /**
+     * gets the fraction of eligible requests that were hedged
+     *
+     * @return the hedge rate, between 0 and 1
+     */
+    public double getHedgeRate() {
+        long eligible = eligibleRequests.get();
+        return (eligible == 0) ? 0 : ((double) hedgesIssued.get()) / eligible;
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingPolicy[eligible=" + eligibleRequests.get() +
+                ",hedged=" + hedgesIssued.get() +
+                ",won=" + hedgeWins.get() +
+                ",deniedByBudget=" + hedgesDeniedByBudget.get() + "]";
+    }
+
+    boolean isHedgeable(Operation op) {
+        return windows.containsKey(op);
+    }
+
+    /*
+     * returns the time to wait before hedging a request for this operation, or -1 if the request should not
+     * be hedged (not enough history yet).
+     */
+    long getHedgeDelayNanos(Operation op) {
+        LatencyWindow window = windows.get(op);
+        if (window == null) return -1;
+        long threshold = window.threshold;
+        if (threshold < 0) return -1;
+        eligibleRequests.incrementAndGet();
+        return Math.max(threshold, minDelayNanos);
+    }
+
+    void recordLatency(Operation op, long latencyNanos) {
+        LatencyWindow window = windows.get(op);
+        if (window != null) window.record(latencyNanos);
+    }
+
+    boolean tryAcquireHedge() {
+        long allowed = (long) (eligibleRequests.get() * budgetPercent / 100) + BUDGET_BURST;
+        long issued;
+        do {
+            issued = hedgesIssued.get();
+            if (issued >= allowed) {
+                hedgesDeniedByBudget.incrementAndGet();
+                return false;
+            }
+        } while (!hedgesIssued.compareAndSet(issued, issued + 1));
+        return true;
+    }
+
+    void recordHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    /*
+     Ring of the most recent latencies for an operation. Writers claim a slot with a single atomic increment,
+     so recording is lock-free. The percentile is recomputed (by sorting a copy of the ring) only once every
+     RECOMPUTE_INTERVAL samples, by the thread that recorded the sample that hit the interval.
+     */
+    private class LatencyWindow {
+        private final AtomicLongArray samples;
+        private final AtomicLong count = new AtomicLong(0);
+        volatile long threshold = -1;
+
+        LatencyWindow(int size) {
+            samples = new AtomicLongArray(size);
+        }
+
+        void record(long latencyNanos) {
+            long n = count.getAndIncrement();
+            samples.set((int) (n % samples.length()), latencyNanos);
+            n++;
+            if (n >= minSamples && n % RECOMPUTE_INTERVAL == 0) {
+                int size = (int) Math.min(n, samples.length());
+                long[] sorted = new long[size];
+                for (int i = 0; i < size; i++) sorted[i] = samples.get(i);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile / 100 * size) - 1;
+                threshold = sorted[Math.max(0, Math.min(index, size - 1))];
+            }
+        }
+    }
+}
@@ -10,12 +10,15 @@ package com.microsoft.azure.datalake.store.protocol;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.jfr.JfrEvents;
 import com.microsoft.azure.datalake.store.retrypolicies.NoRetryPolicy;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.*;
+import java.util.List;
 import java.util.UUID;
 
 import org.slf4j.Logger;
@@ -63,6 +66,30 @@ class HttpTransport {
                                        OperationResponse resp
                                        )
     {
+        makeCall(client, op, path, queryParams, toBody(requestBody, offsetWithinContentsArray, length), opts, resp);
+    }
+
+    /**
+     * calls {@link #makeSingleCall(ADLStoreClient, Operation, String, QueryParams, RequestBody, RequestOptions, OperationResponse) makeSingleCall}
+     * in a retry loop, with the body given as a {@link RequestBody}. Each try writes the body afresh; a body
+     * that is not repeatable stops the retries once any of it has been sent.
+     *
+     * @param client the the {@link ADLStoreClient}
+     * @param op the WebHDFS operation tp perform
+     * @param path the path to operate on
+     * @param queryParams query parameter names and values to include on the URL of the request
+     * @param body the body of the request, if applicable. can be {@code null}
+     * @param opts options to change the behavior of the call
+     * @param resp response from the call, and any error info generated by the call
+     */
+    static void makeCall (ADLStoreClient client,
+                          Operation op,
+                          String path,
+                          QueryParams queryParams,
+                          RequestBody body,
+                          RequestOptions opts,
+                          OperationResponse resp) {
+        int length = (body == null) ? 0 : body.length();
         if (opts.retryPolicy == null) {
             opts.retryPolicy = new NoRetryPolicy();
         }
@@ -78,16 +105,74 @@ class HttpTransport {
         queryParams.setOp(op);
         queryParams.setApiVersion(API_VERSION);
 
+        ClientMetrics metrics = (ClientMetrics) client.getMetrics();   // the client only hands out the read-only view
+        RequestScheduler scheduler = client.getRequestScheduler();
+        HedgingPolicy hedgingPolicy = client.getHedgingPolicy();
+        if (hedgingPolicy != null && !hedgingPolicy.isHedgeable(op)) hedgingPolicy = null;
+
+        List<RequestListener> listeners = metrics.getRequestListeners();
+        RequestEvent event = null;
+        if (!listeners.isEmpty()) {
+            event = new RequestEvent(listeners, client.getClientId(), op.name, path, clientRequestId + ".0", length);
+            event.started();
+        }
+        Object jfrEvent = JfrEvents.beginHttpRequest();
+
         int retryCount = 0;
         do {
             opts.requestid = clientRequestId + "." + Integer.toString(retryCount);
+            if (retryCount > 0) {
+                if (event != null) event.retrying(retryCount, opts.requestid);
+                resetForRetry(resp);
+            }
+            RequestScheduler.Permit permit = null;
+            if (scheduler != null) {
+                try {
+                    permit = scheduler.acquire(opts.priority);
+                } catch (InterruptedIOException ex) {
+                    // interrupted while queued (the flag is still set): give up at once rather than retry
+                    resp.successful = false;
+                    resp.ex = ex;
+                    resp.numRetries = retryCount;
+                    metrics.recordCall(op, retryCount, false);
+                    if (event != null) event.failed(resp);
+                    JfrEvents.endHttpRequest(jfrEvent, op.name, path, opts.requestid, length, 0,
+                            retryCount, resp.httpResponseCode, false);
+                    return;
+                }
+            }
             long start = System.nanoTime();
-            makeSingleCall(client, op, path, queryParams, requestBody, offsetWithinContentsArray, length, opts, resp);
-            resp.lastCallLatency = System.nanoTime() - start;
-            resp.lastCallLatency = resp.lastCallLatency / 1000000;   // convert from nanoseconds to milliseconds
+            metrics.tryStarted();
+            try {
+                if (hedgingPolicy != null) {
+                    HedgedCall.makeSingleCall(hedgingPolicy, client, op, path, queryParams, opts, resp);
+                } else {
+                    makeSingleCall(client, op, path, queryParams, body, opts, resp);
+                }
+            } finally {
+                metrics.tryFinished();
+            }
+            if (permit != null) scheduler.responseReceived(permit, resp.httpResponseCode);
+            long latencyNanos = System.nanoTime() - start;
+            resp.lastCallLatency = latencyNanos / 1000000;   // convert from nanoseconds to milliseconds
             resp.numRetries = retryCount;
+            if (event != null) event.tryCompleted(resp);
+            metrics.recordPhases(op, resp);
             if (isSuccessfulResponse(resp, op)) {
                 resp.successful = true;
+                if (resp.responseStream != null) {
+                    resp.responseStream = new ResponseBodyInputStream(resp.responseStream, resp, metrics, op, event,
+                            permit);
+                } else {
+                    if (permit != null) permit.release();
+                    if (event != null) {
+                        event.bytesRead(resp.responseContentLength);
+                        event.bodyCompleted();
+                    }
+                }
+                if (hedgingPolicy != null) hedgingPolicy.recordLatency(op, latencyNanos);
+                metrics.recordTry(op, latencyNanos, true, resp.httpResponseCode, length, resp.responseContentLength);
+                metrics.recordCall(op, retryCount, true);
                 LatencyTracker.addLatency(opts.requestid, retryCount, resp.lastCallLatency, op.name,
                         length + resp.responseContentLength, client.getClientId());
                 if (log.isDebugEnabled()) {
@@ -101,18 +186,22 @@ class HttpTransport {
                             queryParams.serialize();
                     log.debug(logline);
                 }
+                JfrEvents.endHttpRequest(jfrEvent, op.name, path, opts.requestid, length, resp.responseContentLength,
+                        retryCount, resp.httpResponseCode, true);
                 return;
             } else {
                 resp.successful = false;
-                String error;
-                if (resp.ex!=null) {
-                    error = resp.ex.getClass().getName();
-                } else {
-                    error = "HTTP" + resp.httpResponseCode;
-                }
-                LatencyTracker.addError(opts.requestid, retryCount, resp.lastCallLatency, error, op.name,
-                        length, client.getClientId());
+                if (permit != null) permit.release();
+                LatencyTracker.addError(opts.requestid, retryCount, resp.lastCallLatency, resp.httpResponseCode,
+                        resp.ex, op.name, length, client.getClientId());
+                metrics.recordTry(op, latencyNanos, false, resp.httpResponseCode, length, 0);
                 if (log.isDebugEnabled()) {
+                    String error;
+                    if (resp.ex!=null) {
+                        error = resp.ex.getClass().getName();
+                    } else {
+                        error = "HTTP" + resp.httpResponseCode;
+                    }
                     String logline = "HTTPRequest,Failed,cReqId:" +
                             opts.requestid + ",lat:" +
                             Long.toString(resp.lastCallLatency) + ",err:" +
@@ -125,10 +214,60 @@ class HttpTransport {
                 }
                 retryCount++;
             }
-        } while (opts.retryPolicy.shouldRetry(resp.httpResponseCode, resp.ex));
+        } while (canResend(body) && opts.retryPolicy.shouldRetry(resp.httpResponseCode, resp.ex));
+        metrics.recordCall(op, retryCount - 1, false);
+        if (event != null) event.failed(resp);
+        JfrEvents.endHttpRequest(jfrEvent, op.name, path, opts.requestid, length, 0,
+                retryCount - 1, resp.httpResponseCode, false);
+    }
+
+    // whether requests to the url go through a proxy, in which case the DNS lookup is the proxy's, not ours
+    private static boolean usesProxy(URL url) {
+        ProxySelector selector = ProxySelector.getDefault();
+        if (selector == null) return false;
+        try {
+            for (Proxy proxy : selector.select(url.toURI())) {
+                if (proxy.type() != Proxy.Type.DIRECT) return true;
+            }
+        } catch (URISyntaxException ex) {
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     a one-shot body cannot be sent again once any of it has been sent
+     */
+    private static boolean canResend(RequestBody body) {
+        return body == null || body.isRepeatable() || !body.started;
     }
 
-    private static boolean isSuccessfulResponse(OperationResponse resp, Operation op) {
+    /*
+     clears the outcome of the previous try, so it does not leak into the result of the next one
+     */
+    private static void resetForRetry(OperationResponse resp) {
+        resp.successful = true;
+        resp.httpResponseCode = 0;
+        resp.httpResponseMessage = null;
+        resp.ex = null;
+        resp.message = null;
+        resp.requestId = null;
+        resp.responseStream = null;
+        resp.responseContentLength = 0;
+        resp.responseChunked = false;
+        resp.remoteExceptionName = null;
+        resp.remoteExceptionMessage = null;
+        resp.remoteExceptionJavaClassName = null;
+        resp.connection = null;
+        resp.responseHeadersTime = 0;
+        resp.dnsNanos = -1;
+        resp.connectNanos = -1;
+        resp.sendNanos = -1;
+        resp.timeToFirstByteNanos = -1;
+        resp.bodyNanos = -1;
+    }
+
+    static boolean isSuccessfulResponse(OperationResponse resp, Operation op) {
         if (resp.ex != null) return false;
         if (!resp.successful) return false;
         if (resp.httpResponseCode >=100 && resp.httpResponseCode < 300) return true; // 1xx and 2xx return codes
@@ -157,15 +296,50 @@ class HttpTransport {
      * @param opts options to change the behavior of the call
      * @param resp response from the call, and any error info generated by the call
      */
-    private static void makeSingleCall(ADLStoreClient client,
-                                            Operation op,
-                                            String path,
-                                            QueryParams queryParams,
-                                            byte[] requestBody,
-                                            int offsetWithinContentsArray,
-                                            int length,
-                                            RequestOptions opts,
-                                            OperationResponse resp) {
+    static void makeSingleCall(ADLStoreClient client,
+                               Operation op,
+                               String path,
+                               QueryParams queryParams,
+                               byte[] requestBody,
+                               int offsetWithinContentsArray,
+                               int length,
+                               RequestOptions opts,
+                               OperationResponse resp) {
+        makeSingleCall(client, op, path, queryParams, toBody(requestBody, offsetWithinContentsArray, length), opts, resp);
+    }
+
+    private static RequestBody toBody(byte[] requestBody, int offsetWithinContentsArray, int length) {
+        if (requestBody == null) {
+            if (offsetWithinContentsArray != 0 || length != 0) {
+                throw new IndexOutOfBoundsException();
+            }
+            return null;
+        }
+        return RequestBody.fromArray(requestBody, offsetWithinContentsArray, length);
+    }
+
+    /**
+     * Does the actual HTTP call to server, with the body given as a {@link RequestBody}.
+     * <P>
+     * The body is streamed to the connection as it is written, rather than collected in memory first,
+     * so a body can be as large as the service accepts without the SDK holding a copy of it.
+     * </P>
+     *
+     * @param client the the {@link ADLStoreClient}
+     * @param op the WebHDFS operation tp perform
+     * @param path the path to operate on
+     * @param queryParams query parameter names and values to include on the URL of the request
+     * @param body the body of the request, if applicable. can be {@code null}
+     * @param opts options to change the behavior of the call
+     * @param resp response from the call, and any error info generated by the call
+     */
+    static void makeSingleCall(ADLStoreClient client,
+                               Operation op,
+                               String path,
+                               QueryParams queryParams,
+                               RequestBody body,
+                               RequestOptions opts,
+                               OperationResponse resp) {
         try {
         if (client == null || client.getAccountName().equals("") || client.getAccessToken().equals("") ) {
             resp.successful = false;
@@ -190,60 +364,44 @@ class HttpTransport {
             return;
         }
 
-        if (    requestBody != null ) {
-            if (    offsetWithinContentsArray < 0 ||
-                    length < 0 ||
-                    offsetWithinContentsArray + length < 0 || // integer overflow
-                    offsetWithinContentsArray >= requestBody.length ||
-                    offsetWithinContentsArray + length > requestBody.length) {
-                throw new IndexOutOfBoundsException();
-            }
-        } else {
-            if (offsetWithinContentsArray != 0 || length != 0) {
-                throw new IndexOutOfBoundsException();
-            }
-        }
-
-
-
         // Build URL
-        StringBuilder urlString = new StringBuilder();
-        urlString.append(client.getHttpPrefix());    // http or https
-        urlString.append("://");
-        urlString.append(client.getAccountName());
-        if (op.isExt) {
-            urlString.append("/WebHdfsExt");
-        } else {
-            urlString.append("/webhdfs/v1");
-        }
-
-        String prefix = client.getFilePathPrefix();
-        if (prefix!=null) urlString.append(prefix);
-
-        if (path.charAt(0) != '/') urlString.append('/');
+        String urlString;
         try {
-            urlString.append((new URI(null, null, path, null)).toASCIIString());   // use URI to encode path
+            urlString = buildUrl(client, op, path, queryParams);
         } catch (URISyntaxException ex) {
             resp.successful = false;
             resp.message = "Invalid path " + path;
             return;
         }
-        urlString.append('?');
-        urlString.append(queryParams.serialize());
 
         URL url;
         try {
-            url = new URL(urlString.toString());
+            url = new URL(urlString);
         } catch (MalformedURLException ex) {
             resp.ex = ex;
             resp.successful = false;
             return;
         }
 
+        // If asked to, resolve the host first, just to time it. The JVM caches the result, so the connection
+        // does not resolve it again. Failures are left for the connection to report. Through a proxy the
+        // client does not resolve the name at all, so there is nothing to time.
+        long phaseStart;
+        if (client.isDnsTimingEnabled() && !usesProxy(url)) {
+            phaseStart = System.nanoTime();
+            try {
+                InetAddress.getByName(url.getHost());
+                resp.dnsNanos = System.nanoTime() - phaseStart;
+            } catch (UnknownHostException ex) {
+                // connect will fail
+            }
+        }
+
         HttpURLConnection conn=null;
         try {
             // Setup Http Request (method and headers)
             conn = (HttpURLConnection) url.openConnection();
+            resp.connection = conn;
             conn.setRequestProperty("Authorization", client.getAccessToken());
             conn.setRequestProperty("User-Agent", client.getUserAgent());
             conn.setRequestProperty("x-ms-client-request-id", opts.requestid);
@@ -254,14 +412,31 @@ class HttpTransport {
             conn.setUseCaches(false);
             conn.setRequestMethod(op.method);
             conn.setDoInput(true);
+            if (!op.method.equals("GET")) conn.setDoOutput(true);
+            boolean sendBody = op.requiresBody && body != null;
+            // stream the body instead of letting the connection buffer all of it to work out its length
+            if (sendBody) conn.setFixedLengthStreamingMode(body.length());
+            int expectThreshold = client.getExpectContinueThreshold();
+            boolean expectContinue = sendBody && expectThreshold >= 0 && body.length() >= expectThreshold;
+            if (expectContinue) conn.setRequestProperty("Expect", "100-continue");
+
+            phaseStart = System.nanoTime();
+            conn.connect();
+            long sendStart = System.nanoTime();
+            resp.connectNanos = sendStart - phaseStart;
 
             // populate request body if applicable
              if (!op.method.equals("GET")) {
-                conn.setDoOutput(true);
-                conn.setRequestMethod(op.method);
-                OutputStream outStr = conn.getOutputStream();
-                if (op.requiresBody && requestBody != null) {
-                    outStr.write(requestBody, offsetWithinContentsArray, length);
+                OutputStream outStr;
+                try {
+                    outStr = conn.getOutputStream();
+                } catch (ProtocolException ex) {
+                    if (!expectContinue) throw ex;
+                    rejectedBeforeBody(conn, resp, sendStart);
+                    return;
+                }
+                if (sendBody) {
+                    writeBody(outStr, body, client.getBandwidthLimiter(), opts);
                     outStr.close();
                 } else {
                     // server *requires* a Content-Length header, and doesnt take absence of header as 0 (bad behavior)
@@ -273,8 +448,13 @@ class HttpTransport {
                 }
             }
 
+            phaseStart = System.nanoTime();
+            resp.sendNanos = phaseStart - sendStart;
+
             // get Response Stream if applicable
             resp.httpResponseCode = conn.getResponseCode();
+            resp.responseHeadersTime = System.nanoTime();
+            resp.timeToFirstByteNanos = resp.responseHeadersTime - phaseStart;
             resp.httpResponseMessage = conn.getResponseMessage();
             resp.requestId = conn.getHeaderField("x-ms-request-id");
             resp.responseContentLength = conn.getHeaderFieldLong("Content-Length", 0);
@@ -285,6 +465,7 @@ class HttpTransport {
             if (resp.httpResponseCode >= 400) {
                 if (resp.responseContentLength > 0 && conn.getErrorStream() != null) {
                     getCodesFromJSon(conn.getErrorStream(), resp);
+                    resp.bodyNanos = System.nanoTime() - resp.responseHeadersTime;
                     return;
                 }
             } else {
@@ -296,6 +477,7 @@ class HttpTransport {
                 resp.responseStream = conn.getInputStream();
             } else {    // read and discard response stream so it is consumed and connection can be reused
                 consumeInputStream(conn.getInputStream());
+                resp.bodyNanos = System.nanoTime() - resp.responseHeadersTime;
             }
         }  catch (IOException ex) {
             resp.ex = ex;
@@ -312,6 +494,71 @@ class HttpTransport {
         }
     }
 
+    /*
+     the server answered Expect: 100-continue with a final status, so the body was never sent. The connection
+     only keeps the status code: asking it for anything else (headers, the error stream) sends the request
+     again. So the response is left unread, and the connection is dropped.
+     */
+    private static void rejectedBeforeBody(HttpURLConnection conn, OperationResponse resp, long sendStart)
+            throws IOException {
+        long now = System.nanoTime();
+        resp.sendNanos = 0;
+        resp.timeToFirstByteNanos = now - sendStart;
+        resp.responseHeadersTime = now;
+        resp.httpResponseCode = conn.getResponseCode();
+        resp.message = "Request rejected before its body was sent";
+        conn.disconnect();
+    }
+
+    private static final int BODY_CHUNK_SIZE = 64 * 1024;
+
+    /*
+     writes the request body, in pieces paced by the client's and the request's bandwidth limiters, if any
+     */
+    private static void writeBody(OutputStream out,
+                                  RequestBody body,
+                                  BandwidthLimiter clientLimiter,
+                                  RequestOptions opts) throws IOException {
+        int length = body.length();
+        body.started = true;
+        if (clientLimiter == null && opts.bandwidthLimiter == null) {
+            body.writeTo(out, 0, length);
+            return;
+        }
+        for (int written = 0; written < length; ) {
+            int n = Math.min(BODY_CHUNK_SIZE, length - written);
+            if (clientLimiter != null) clientLimiter.acquire(n, opts.priority);
+            if (opts.bandwidthLimiter != null) opts.bandwidthLimiter.acquire(n, opts.priority);
+            body.writeTo(out, written, n);
+            written += n;
+        }
+    }
+
+    /*
+     builds the URL string for a request: scheme, account, WebHDFS endpoint, path prefix, encoded path and query
+     */
+    static String buildUrl(ADLStoreClient client, Operation op, String path, QueryParams queryParams)
+            throws URISyntaxException {
+        StringBuilder urlString = new StringBuilder();
+        urlString.append(client.getHttpPrefix());    // http or https
+        urlString.append("://");
+        urlString.append(client.getAccountName());
+        if (op.isExt) {
+            urlString.append("/WebHdfsExt");
+        } else {
+            urlString.append("/webhdfs/v1");
+        }
+
+        String prefix = client.getFilePathPrefix();
+        if (prefix!=null) urlString.append(prefix);
+
+        if (path.charAt(0) != '/') urlString.append('/');
+        urlString.append((new URI(null, null, path, null)).toASCIIString());   // use URI to encode path
+        urlString.append('?');
+        urlString.append(queryParams.serialize());
+        return urlString.toString();
+    }
+
     static void consumeInputStream(InputStream istr) throws IOException {
         if (istr != null) {
             try {
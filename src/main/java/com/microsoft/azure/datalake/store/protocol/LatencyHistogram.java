@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A log-linear histogram of latencies, in nanoseconds.
+ * <P>
+ * Every power-of-two range of values is split into 16 linear sub-buckets, so the value reported for any
+ * percentile is within 6.25% of the actual value. Values above about 4.8 hours are recorded in the
+ * highest bucket.
+ * </P><P>
+ * Recording a value is lock-free and does not allocate. Histograms returned from a
+ * {@link MetricsSnapshot} are detached copies, and do not change after they are returned.
+ * </P>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 43;     // 2^44 nanoseconds is about 4.8 hours
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+
+    LatencyHistogram() {
+    }
+
+    /*
+     values below SUB_BUCKETS get a bucket each. Above that, the bucket is determined by the position of the
+     highest bit (the exponent) and the next SUB_BUCKET_BITS bits below it (the linear sub-bucket).
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) Math.max(value, 0);
+        if (value > MAX_VALUE) value = MAX_VALUE;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return bucketLowerBound(index) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    void record(long valueNanos) {
+        if (valueNanos < 0) valueNanos = 0;
+        buckets.incrementAndGet(bucketIndex(valueNanos));
+        count.incrementAndGet();
+        sum.addAndGet(valueNanos);
+        long currentMax;
+        while (valueNanos > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, valueNanos)) break;
+        }
+    }
+
+    /*
+     copies the contents into another histogram. If reset is true, then the counts are moved rather than
+     copied, so that values recorded concurrently are neither lost nor counted twice.
+     */
+    LatencyHistogram copy(boolean reset) {
+        LatencyHistogram copy = new LatencyHistogram();
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long n = reset ? buckets.getAndSet(i, 0) : buckets.get(i);
+            if (n != 0) {
+                copy.buckets.set(i, n);
+                total += n;
+            }
+        }
+        copy.count.set(total);   // consistent with the buckets, even if count moved on concurrently
+        copy.sum.set(reset ? sum.getAndSet(0) : sum.get());
+        copy.max.set(reset ? max.getAndSet(0) : max.get());
+        if (reset) count.set(0);
+        return copy;
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long n = other.buckets.get(i);
+            if (n != 0) buckets.addAndGet(i, n);
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        long otherMax = other.max.get();
+        long currentMax;
+        while (otherMax > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, otherMax)) break;
+        }
+    }
+
+    /**
+     * gets the number of values recorded
+     *
+     * @return number of values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * gets the mean of the recorded values, in nanoseconds
+     *
+     * @return the mean, or zero if no values were recorded
+     */
+    public long getMeanNanos() {
+        long n = count.get();
+        return (n == 0) ? 0 : sum.get() / n;
+    }
+
+    /**
+     * gets the largest recorded value, in nanoseconds
+     *
+     * @return the max value
+     */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * gets the value at the given percentile, in nanoseconds. The returned value is the upper bound of the bucket
+     * the percentile falls in, capped at the largest recorded value.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return value at the percentile, or zero if no values were recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+        long n = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) n += buckets.get(i);
+        if (n == 0) return 0;
+
+        long rank = (long) Math.ceil(percentile / 100 * n);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min(bucketUpperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * gets the median, in nanoseconds
+     *
+     * @return the 50th percentile value
+     */
+    public long getP50Nanos() {
+        return getValueAtPercentile(50);
+    }
+
+    /**
+     * gets the 99th percentile, in nanoseconds
+     *
+     * @return the 99th percentile value
+     */
+    public long getP99Nanos() {
+        return getValueAtPercentile(99);
+    }
+
+    /**
+     * gets the 99.9th percentile, in nanoseconds
+     *
+     * @return the 99.9th percentile value
+     */
+    public long getP999Nanos() {
+        return getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() +
+                ",mean=" + getMeanNanos() +
+                ",p50=" + getP50Nanos() +
+                ",p99=" + getP99Nanos() +
+                ",p999=" + getP999Nanos() +
+                ",max=" + getMaxNanos();
+    }
+}
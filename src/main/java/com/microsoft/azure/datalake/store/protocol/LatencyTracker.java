@@ -6,7 +6,8 @@
 
 package com.microsoft.azure.datalake.store.protocol;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 
 /**
@@ -43,10 +44,39 @@ public class LatencyTracker {
      Limit max entries on a single request to three, to limit increase in HTTP request size.
     */
 
-    private static final ArrayBlockingQueue<String> Q = new ArrayBlockingQueue<String>(256);
+    /*
+     Entries are kept in a fixed-size, lock-free ring (a bounded multi-producer/multi-consumer queue, with a
+     sequence number per slot). Each slot holds the raw fields of an entry in parallel arrays; the entry is only
+     formatted into a string when it is taken off the ring to be sent on a request. Adding an entry therefore
+     does not allocate or take any locks.
+
+     Slot protocol: a slot whose sequence equals the tail position is free for the producer that claims that
+     position; the producer publishes the entry by setting the sequence to position+1. A consumer that claims
+     the head position reads the entry once sequence == position+1, and frees the slot by setting its sequence
+     to position+capacity.
+    */
+    private static final int CAPACITY = 256;  // must be a power of two
+    private static final int MASK = CAPACITY - 1;
     private static final int MAXPERLINE = 3;
     private static volatile boolean disabled = false;
 
+    private static final AtomicLongArray sequence = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong head = new AtomicLong(0);
+    private static final AtomicLong tail = new AtomicLong(0);
+    private static final String[] requestIds = new String[CAPACITY];
+    private static final int[] retryNums = new int[CAPACITY];
+    private static final long[] latencies = new long[CAPACITY];
+    private static final boolean[] errors = new boolean[CAPACITY];
+    private static final int[] httpResponseCodes = new int[CAPACITY];
+    private static final String[] exceptionNames = new String[CAPACITY];
+    private static final String[] operations = new String[CAPACITY];
+    private static final long[] sizes = new long[CAPACITY];
+    private static final long[] clientIds = new long[CAPACITY];
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) sequence.set(i, i);
+    }
+
     private LatencyTracker() {} // Prevent instantiation - static methods only
 
     /**
@@ -58,43 +88,109 @@ public class LatencyTracker {
      */
     public static synchronized void disable() {
         // using synchronized causes update to disabled to be published, so other threads will see updated value.
-        // Deadlocks:
-        //    Since this is the only method that acquires lock on the class object, deadlock with Q's lock is not an
-        //        issue (i.e., lock order is same throughout the class: LatencyTracker.class, then Q)
         disabled = true;
-        Q.clear();
-        // The clear does not guarantee that Q will be empty afterwards - e.g., if another thread was in the middle
-        // of add. However, the clear is not critical. Also, disable is one-way, so a little bit of crud leftover
-        // doesnt matter. If in the future we offer re-enable, then the enable would have to clear the Q, to prevent
-        // very old entries from being sent.
+        while (poll(null)) ;
+        // The drain does not guarantee that the ring will be empty afterwards - e.g., if another thread was in the
+        // middle of add. However, the drain is not critical. Also, disable is one-way, so a little bit of crud
+        // leftover doesnt matter. If in the future we offer re-enable, then the enable would have to drain the
+        // ring, to prevent very old entries from being sent.
     }
 
     static void addLatency(String clientRequestId, int retryNum, long latency, String operation, long size, long clientId) {
         if (disabled) return;
-        String line = String.format("%s.%d,%d,,%s,%d,%d", clientRequestId, retryNum, latency, operation, size, clientId);
-        Q.offer(line); // non-blocking append. If queue is full then silently discard
+        offer(clientRequestId, retryNum, latency, false, 0, null, operation, size, clientId);
     }
 
-    static void addError(String clientRequestId, int retryNum, long latency, String error, String operation, long size, long clientId) {
+    /*
+     the error is reported as the exception's class name if there was an exception, or as HTTP<code> otherwise
+     */
+    static void addError(String clientRequestId, int retryNum, long latency, int httpResponseCode, Exception ex,
+                         String operation, long size, long clientId) {
         if (disabled) return;
-        String line = String.format("%s.%d,%d,%s,%s,%d,%d", clientRequestId, retryNum, latency, error, operation, size, clientId);
-        Q.offer(line); // non-blocking append. If queue is full then silently discard
+        String exceptionName = (ex == null) ? null : ex.getClass().getName();
+        offer(clientRequestId, retryNum, latency, true, httpResponseCode, exceptionName, operation, size, clientId);
     }
 
     static String get() {
         if (disabled) return null;
+        if (head.get() == tail.get()) return null;   // nothing to report - avoid allocating the StringBuilder
+        StringBuilder line = new StringBuilder(MAXPERLINE * 96);
         int count = 0;
-        String separator = "";
-        StringBuilder line = new StringBuilder(MAXPERLINE * 2);
-        String entry = Q.poll();
-        if (entry == null) return null;
-        while (entry != null && count < MAXPERLINE) {
-            line.append(separator);
-            line.append(entry);
-            separator = ";";
+        while (count < MAXPERLINE && poll(line)) {
             count++;
-            entry = Q.poll();
         }
-        return line.toString();
+        return (count == 0) ? null : line.toString();
+    }
+
+    /*
+     non-blocking append. If the ring is full then the entry is silently discarded
+     */
+    private static void offer(String clientRequestId, int retryNum, long latency, boolean error,
+                              int httpResponseCode, String exceptionName, String operation, long size, long clientId) {
+        long pos = tail.get();
+        int slot;
+        while (true) {
+            slot = (int) (pos & MASK);
+            long diff = sequence.get(slot) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+                pos = tail.get();
+            } else if (diff < 0) {
+                return;        // full
+            } else {
+                pos = tail.get();  // another producer claimed this position
+            }
+        }
+        requestIds[slot] = clientRequestId;
+        retryNums[slot] = retryNum;
+        latencies[slot] = latency;
+        errors[slot] = error;
+        httpResponseCodes[slot] = httpResponseCode;
+        exceptionNames[slot] = exceptionName;
+        operations[slot] = operation;
+        sizes[slot] = size;
+        clientIds[slot] = clientId;
+        sequence.set(slot, pos + 1);   // volatile write publishes the fields above
+    }
+
+    /*
+     takes one entry off the ring and appends it to the line (or discards it, if line is null).
+     Returns false if the ring was empty.
+     */
+    private static boolean poll(StringBuilder line) {
+        long pos = head.get();
+        int slot;
+        while (true) {
+            slot = (int) (pos & MASK);
+            long diff = sequence.get(slot) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) break;
+                pos = head.get();
+            } else if (diff < 0) {
+                return false;  // empty, or the producer of this slot has not published it yet
+            } else {
+                pos = head.get();  // another consumer took this position
+            }
+        }
+        if (line != null) {
+            if (line.length() > 0) line.append(';');
+            // Format: clientRequestId.retryNum,latency,error,operation,size,clientId
+            line.append(requestIds[slot]).append('.').append(retryNums[slot]).append(',');
+            line.append(latencies[slot]).append(',');
+            if (errors[slot]) {
+                if (exceptionNames[slot] != null) {
+                    line.append(exceptionNames[slot]);
+                } else {
+                    line.append("HTTP").append(httpResponseCodes[slot]);   // HTTP0 if no response was received
+                }
+            }
+            line.append(',').append(operations[slot]);
+            line.append(',').append(sizes[slot]);
+            line.append(',').append(clientIds[slot]);
+        }
+        requestIds[slot] = null;  // dont hold on to strings longer than needed
+        exceptionNames[slot] = null;
+        sequence.set(slot, pos + CAPACITY);
+        return true;
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * point-in-time copy of the metrics collected by an
+ * {@link com.microsoft.azure.datalake.store.ADLStoreClient ADLStoreClient}. Obtain using
+ * {@link com.microsoft.azure.datalake.store.ADLStoreClient#getMetricsSnapshot() getMetricsSnapshot}.
+ * <P>
+ * A snapshot is immutable, and can be freely passed between threads.
+ * </P>
+ */
+public class MetricsSnapshot {
+
+    /**
+     * start of the interval covered by this snapshot (client creation or last reset), as
+     * milliseconds since the epoch
+     */
+    public final long intervalStartTime;
+
+    /**
+     * end of the interval covered by this snapshot (time the snapshot was taken), as milliseconds since the epoch
+     */
+    public final long intervalEndTime;
+
+    /**
+     * metrics for each operation that was called at least once in the interval, keyed by operation name
+     */
+    public final Map<String, OperationMetrics> operations;
+
+    /**
+     * metrics summed across all operations. The {@code operation} name of the total is {@code "ALL"}.
+     */
+    public final OperationMetrics total;
+
+    MetricsSnapshot(long intervalStartTime,
+                    long intervalEndTime,
+                    Map<String, OperationMetrics> operations,
+                    OperationMetrics total) {
+        this.intervalStartTime = intervalStartTime;
+        this.intervalEndTime = intervalEndTime;
+        this.operations = Collections.unmodifiableMap(operations);
+        this.total = total;
+    }
+
+    /**
+     * gets the metrics for an operation
+     *
+     * @param operation the operation name (for example, {@code "OPEN"})
+     * @return the metrics, or {@code null} if the operation was not called in the interval
+     */
+    public OperationMetrics getOperation(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * gets the length of the interval covered by this snapshot, in seconds
+     *
+     * @return interval length in seconds
+     */
+    public double getIntervalSeconds() {
+        return Math.max(intervalEndTime - intervalStartTime, 1) / 1000.0;
+    }
+
+    /**
+     * gets the average number of calls per second over the interval, across all operations
+     *
+     * @return calls per second
+     */
+    public double getRequestsPerSecond() {
+        return total.requestCount / getIntervalSeconds();
+    }
+
+    /**
+     * gets the average throughput over the interval (bytes sent plus bytes received), in bytes per second
+     *
+     * @return bytes per second
+     */
+    public double getBytesPerSecond() {
+        return (total.bytesSent + total.bytesReceived) / getIntervalSeconds();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("MetricsSnapshot[interval=").append(getIntervalSeconds()).append("s,").append(total);
+        for (OperationMetrics m : operations.values()) {
+            sb.append(',').append(m);
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * metrics for one REST operation (for example, {@code OPEN} or {@code APPEND}), as of the time the
+ * enclosing {@link MetricsSnapshot} was taken.
+ */
+public class OperationMetrics {
+
+    /**
+     * the name of the operation, as it appears on the wire (for example, {@code GETFILESTATUS})
+     */
+    public final String operation;
+
+    /**
+     * number of calls made. A call that was retried is counted once.
+     */
+    public final long requestCount;
+
+    /**
+     * number of calls that eventually failed, after all retries
+     */
+    public final long failedRequestCount;
+
+    /**
+     * number of HTTP requests sent to the server, including retries
+     */
+    public final long tryCount;
+
+    /**
+     * number of retries (i.e., tries beyond the first try of each call)
+     */
+    public final long retryCount;
+
+    /**
+     * number of request body bytes sent to the server, including bytes sent on tries that failed
+     */
+    public final long bytesSent;
+
+    /**
+     * number of response body bytes returned by successful tries, as reported by the response Content-Length
+     */
+    public final long bytesReceived;
+
+    /**
+     * latencies of individual tries
+     */
+    public final LatencyHistogram latency;
+
+    /**
+     * number of failed tries, by HTTP response code. Tries that failed without getting an HTTP response
+     * (for example, because of a network error) are counted under response code 0.
+     */
+    public final Map<Integer, Long> errorCountsByHttpCode;
+
+    /**
+     * time to resolve the host name, per try. See {@link OperationResponse#dnsNanos}.
+     */
+    public final LatencyHistogram dnsLatency;
+
+    /**
+     * time to connect (including TLS handshake), per try. See {@link OperationResponse#connectNanos}.
+     */
+    public final LatencyHistogram connectLatency;
+
+    /**
+     * time to send the request body, per try. See {@link OperationResponse#sendNanos}.
+     */
+    public final LatencyHistogram sendLatency;
+
+    /**
+     * time from end of request to response headers, per try. See {@link OperationResponse#timeToFirstByteNanos}.
+     */
+    public final LatencyHistogram timeToFirstByteLatency;
+
+    /**
+     * time to read the response body, per try that got a response. See {@link OperationResponse#bodyNanos}.
+     */
+    public final LatencyHistogram bodyLatency;
+
+    OperationMetrics(String operation,
+                     long requestCount,
+                     long failedRequestCount,
+                     long tryCount,
+                     long retryCount,
+                     long bytesSent,
+                     long bytesReceived,
+                     LatencyHistogram latency,
+                     Map<Integer, Long> errorCountsByHttpCode,
+                     LatencyHistogram[] phaseLatencies) {
+        this.operation = operation;
+        this.requestCount = requestCount;
+        this.failedRequestCount = failedRequestCount;
+        this.tryCount = tryCount;
+        this.retryCount = retryCount;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.latency = latency;
+        this.errorCountsByHttpCode = Collections.unmodifiableMap(errorCountsByHttpCode);
+        this.dnsLatency = phaseLatencies[ClientMetrics.PHASE_DNS];
+        this.connectLatency = phaseLatencies[ClientMetrics.PHASE_CONNECT];
+        this.sendLatency = phaseLatencies[ClientMetrics.PHASE_SEND];
+        this.timeToFirstByteLatency = phaseLatencies[ClientMetrics.PHASE_TTFB];
+        this.bodyLatency = phaseLatencies[ClientMetrics.PHASE_BODY];
+    }
+
+    /**
+     * gets the number of failed tries that were throttled by the server (HTTP 429 or 503)
+     *
+     * @return number of throttled tries
+     */
+    public long getThrottledCount() {
+        return getErrorCount(429) + getErrorCount(503);
+    }
+
+    /**
+     * gets the number of failed tries with the specified HTTP response code
+     *
+     * @param httpResponseCode the HTTP response code, or 0 for tries that got no response
+     * @return number of failed tries with that response code
+     */
+    public long getErrorCount(int httpResponseCode) {
+        Long n = errorCountsByHttpCode.get(httpResponseCode);
+        return (n == null) ? 0 : n;
+    }
+
+    @Override
+    public String toString() {
+        return operation +
+                "[requests=" + requestCount +
+                ",failed=" + failedRequestCount +
+                ",tries=" + tryCount +
+                ",retries=" + retryCount +
+                ",bytesSent=" + bytesSent +
+                ",bytesReceived=" + bytesReceived +
+                ",latency(" + latency + ")" +
+                ",errors=" + errorCountsByHttpCode + "]";
+    }
+}
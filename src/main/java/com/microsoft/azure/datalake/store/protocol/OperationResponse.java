@@ -7,6 +7,7 @@
 package com.microsoft.azure.datalake.store.protocol;
 
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 
 /**
  * information about a response from a server call.
@@ -92,5 +93,50 @@ public class OperationResponse {
      * error message, used for errors that originate within the SDK
      */
     public String message;
+
+    /**
+     * time taken to resolve the account's host name, in nanoseconds. Usually near zero, since resolved names
+     * are cached by the JVM. -1 if not measured, which is the default; see
+     * {@link com.microsoft.azure.datalake.store.ADLStoreClient#setDnsTimingEnabled(boolean) setDnsTimingEnabled}.
+     */
+    public long dnsNanos = -1;
+
+    /**
+     * time taken to connect, including the TLS handshake for HTTPS, in nanoseconds. Near zero if a pooled
+     * (keep-alive) connection was reused. -1 if not measured.
+     */
+    public long connectNanos = -1;
+
+    /**
+     * time taken to send the request body, in nanoseconds. -1 if not measured.
+     * <P>
+     * Bodies are streamed to the connection, so this is the upload time, less whatever the socket's send
+     * buffer absorbs at the end.
+     * </P>
+     */
+    public long sendNanos = -1;
+
+    /**
+     * time from the end of sending the request to receiving the response headers, in nanoseconds. This is mostly
+     * server processing time (but see {@link #sendNanos}). -1 if not measured.
+     */
+    public long timeToFirstByteNanos = -1;
+
+    /**
+     * time taken to read the response body, in nanoseconds. For calls that return a stream to the caller (like
+     * {@code OPEN}), this is set when the caller finishes reading or closes the stream, and includes any time the
+     * caller spent between reads. -1 if not measured.
+     */
+    public volatile long bodyNanos = -1;
+
+    /**
+     * the connection the request was made on. Used within the SDK to abort the losing request of a hedged pair.
+     */
+    volatile HttpURLConnection connection = null;
+
+    /**
+     * the time ({@link System#nanoTime()}) the response headers were received. Zero if there was no response.
+     */
+    long responseHeadersTime = 0;
 }
 
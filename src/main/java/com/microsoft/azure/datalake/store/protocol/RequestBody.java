@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+
+/**
+ * The body of a request: a length declared up front, and a way to write the body to the connection.
+ * <P>
+ * Bodies are streamed: the SDK writes each part of the body to the connection as it gets it, and does not
+ * collect the whole body in memory first. So a body can come from a stream that a producer is still filling,
+ * and the upload starts as soon as the first bytes are available.
+ * </P><P>
+ * Bodies made from arrays, buffers and file regions are <I>repeatable</I>: they can be written again, so a
+ * request that fails can be retried. Bodies made from streams and channels can be written only once; a
+ * request with such a body is not retried once any of the body has been sent, whatever its retry policy.
+ * </P><P>
+ * Applications can also subclass {@code RequestBody} to supply bodies from other sources.
+ * </P>
+ */
+public abstract class RequestBody {
+
+    private static final int TRANSFER_SIZE = 64 * 1024;
+
+    // set by the transport once writing has started; one-shot bodies cannot be retried after that
+    volatile boolean started = false;
+
+    /**
+     * @return length of the body in bytes. Exactly this many bytes must be written.
+     */
+    public abstract int length();
+
+    /**
+     * Writes part of the body. The transport writes the body in order, in one or more calls; for a
+     * repeatable body, it may do so again from the start for a retry.
+     *
+     * @param out the stream to write to
+     * @param offset offset within the body of the first byte to write
+     * @param count number of bytes to write
+     * @throws IOException thrown if the body cannot be read or written
+     */
+    public abstract void writeTo(OutputStream out, int offset, int count) throws IOException;
+
+    /**
+     * @return true if the body can be written more than once, so the request can be retried. The default
+     * is {@code true}.
+     */
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * a body from part of a byte array. The array is not copied, and must not change until the request is done.
+     *
+     * @param contents the array
+     * @param offset offset within the array of the first byte of the body
+     * @param length length of the body
+     * @return the body
+     */
+    public static RequestBody fromArray(byte[] contents, int offset, int length) {
+        if (    offset < 0 ||
+                length < 0 ||
+                offset + length < 0 || // integer overflow
+                offset >= contents.length ||
+                offset + length > contents.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new ArrayBody(contents, offset, length);
+    }
+
+    /**
+     * a body made of the remaining bytes of a sequence of buffers, in order. The buffers' positions and limits
+     * are not changed, and the buffers must not change until the request is done.
+     *
+     * @param buffers the buffers
+     * @return the body
+     */
+    public static RequestBody fromBuffers(ByteBuffer... buffers) {
+        return new BufferBody(buffers);
+    }
+
+    /**
+     * a body from a region of a local file, sent straight from the file channel. The channel's position is
+     * neither used nor changed, so several bodies can read from one channel at once.
+     *
+     * @param channel the file channel
+     * @param position offset within the file of the first byte of the body
+     * @param length length of the body
+     * @return the body
+     */
+    public static RequestBody fromFileRegion(FileChannel channel, long position, int length) {
+        if (position < 0 || length < 0) throw new IndexOutOfBoundsException();
+        return new FileRegionBody(channel, position, length);
+    }
+
+    /**
+     * a one-shot body read from a stream as it is sent. The stream can be fed by another thread while the
+     * request is being sent (through a {@link java.io.PipedInputStream}, for example). The stream is not closed.
+     *
+     * @param in the stream
+     * @param length number of bytes to read from the stream and send
+     * @return the body
+     */
+    public static RequestBody fromInputStream(InputStream in, int length) {
+        if (in == null) throw new NullPointerException();
+        if (length < 0) throw new IndexOutOfBoundsException();
+        return new StreamBody(in, null, length);
+    }
+
+    /**
+     * a one-shot body read from a channel as it is sent. The channel should be in blocking mode, and is not closed.
+     *
+     * @param channel the channel
+     * @param length number of bytes to read from the channel and send
+     * @return the body
+     */
+    public static RequestBody fromChannel(ReadableByteChannel channel, int length) {
+        if (channel == null) throw new NullPointerException();
+        if (length < 0) throw new IndexOutOfBoundsException();
+        return new StreamBody(null, channel, length);
+    }
+
+    private static class ArrayBody extends RequestBody {
+        private final byte[] contents;
+        private final int offset;
+        private final int length;
+
+        ArrayBody(byte[] contents, int offset, int length) {
+            this.contents = contents;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public void writeTo(OutputStream out, int offset, int count) throws IOException {
+            out.write(contents, this.offset + offset, count);
+        }
+    }
+
+    private static class BufferBody extends RequestBody {
+        private final ByteBuffer[] buffers;
+        private final int length;
+
+        BufferBody(ByteBuffer[] buffers) {
+            this.buffers = new ByteBuffer[buffers.length];
+            long total = 0;
+            for (int i = 0; i < buffers.length; i++) {
+                this.buffers[i] = buffers[i].duplicate();   // own position and limit
+                total += buffers[i].remaining();
+            }
+            if (total > Integer.MAX_VALUE) throw new IllegalArgumentException("body is too large: " + total);
+            this.length = (int) total;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public void writeTo(OutputStream out, int offset, int count) throws IOException {
+            WritableByteChannel target = null;
+            for (ByteBuffer b : buffers) {
+                if (count == 0) return;
+                int remaining = b.remaining();
+                if (offset >= remaining) {
+                    offset -= remaining;
+                    continue;
+                }
+                int n = Math.min(remaining - offset, count);
+                if (b.hasArray()) {
+                    out.write(b.array(), b.arrayOffset() + b.position() + offset, n);
+                } else {
+                    if (target == null) target = Channels.newChannel(out);   // not closed: that would close out
+                    ByteBuffer piece = b.duplicate();
+                    piece.position(b.position() + offset);
+                    piece.limit(b.position() + offset + n);
+                    while (piece.hasRemaining()) target.write(piece);
+                }
+                offset = 0;
+                count -= n;
+            }
+            if (count > 0) throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /*
+     a region of a local file, read straight from the file channel into the connection
+     */
+    private static class FileRegionBody extends RequestBody {
+        private final FileChannel channel;
+        private final long position;
+        private final int length;
+
+        FileRegionBody(FileChannel channel, long position, int length) {
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public void writeTo(OutputStream out, int offset, int count) throws IOException {
+            WritableByteChannel target = Channels.newChannel(out);   // not closed: that would close out
+            long pos = position + offset;
+            long end = pos + count;
+            while (pos < end) {
+                long n = channel.transferTo(pos, end - pos, target);
+                if (n <= 0) throw new EOFException("local file ended at " + pos + ", before the end of the region being sent");
+                pos += n;
+            }
+        }
+    }
+
+    /*
+     a one-shot body from a stream or a channel, copied to the connection through a small buffer
+     */
+    private static class StreamBody extends RequestBody {
+        private final InputStream in;
+        private final ReadableByteChannel channel;
+        private final int length;
+        private int position = 0;
+        private byte[] buffer = null;
+
+        StreamBody(InputStream in, ReadableByteChannel channel, int length) {
+            this.in = in;
+            this.channel = channel;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        public void writeTo(OutputStream out, int offset, int count) throws IOException {
+            if (offset != position) throw new IOException("a stream body can only be sent once, in order");
+            if (buffer == null) buffer = new byte[Math.min(TRANSFER_SIZE, Math.max(length, 1))];
+            while (count > 0) {
+                int n = read(Math.min(buffer.length, count));
+                if (n < 0) throw new EOFException("body stream ended after " + position + " of " + length + " bytes");
+                out.write(buffer, 0, n);
+                position += n;
+                count -= n;
+            }
+        }
+
+        private int read(int len) throws IOException {
+            if (in != null) return in.read(buffer, 0, len);
+            ByteBuffer b = ByteBuffer.wrap(buffer, 0, len);
+            int n;
+            do {
+                n = channel.read(b);    // only a channel in non-blocking mode returns 0
+            } while (n == 0);
+            return n;
+        }
+    }
+}
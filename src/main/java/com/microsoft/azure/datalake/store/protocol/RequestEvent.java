@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+
+/**
+ * The state of a REST call, as seen by a {@link RequestListener}. One instance is created per call (only if
+ * listeners are registered), and is updated as the call progresses.
+ * <P>
+ * Times are from {@link System#nanoTime()}, so they can only be compared to each other, not to the wall clock.
+ * </P>
+ */
+public class RequestEvent {
+
+    private static final Logger log = LoggerFactory.getLogger("com.microsoft.azure.datalake.store");
+
+    private static final int START = 0;
+    private static final int RETRY = 1;
+    private static final int HEADERS = 2;
+    private static final int BODY = 3;
+    private static final int FAILURE = 4;
+
+    private final List<RequestListener> listeners;
+    private final long clientId;
+    private final String operation;
+    private final String path;
+    private final long callStartTime;
+
+    private volatile String clientRequestId;
+    private volatile int retryNumber = 0;
+    private volatile long tryStartTime;
+    private volatile long bytesSent;
+    private volatile int httpResponseCode = 0;
+    private volatile String serverRequestId;
+    private volatile long timeToHeadersNanos = -1;
+    private volatile long bytesReceived = 0;
+    private volatile Exception exception;
+    private volatile String message;
+    private volatile long elapsedNanos = -1;
+    private volatile Object attachment;
+
+    RequestEvent(List<RequestListener> listeners, long clientId, String operation, String path,
+                 String clientRequestId, long bytesSent) {
+        this.listeners = listeners;
+        this.clientId = clientId;
+        this.operation = operation;
+        this.path = path;
+        this.clientRequestId = clientRequestId;
+        this.bytesSent = bytesSent;
+        this.callStartTime = System.nanoTime();
+        this.tryStartTime = callStartTime;
+    }
+
+    /**
+     * @return the ID of the client making the call
+     */
+    public long getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @return the WebHDFS operation, e.g., {@code OPEN}, {@code GETFILESTATUS}
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the path the call operates on
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the client request ID of the current try, as sent in the {@code x-ms-client-request-id} header
+     */
+    public String getClientRequestId() {
+        return clientRequestId;
+    }
+
+    /**
+     * @return the number of the current try; 0 for the first try, 1 for the first retry, etc.
+     */
+    public int getRetryNumber() {
+        return retryNumber;
+    }
+
+    /**
+     * @return the time the call started
+     */
+    public long getCallStartNanos() {
+        return callStartTime;
+    }
+
+    /**
+     * @return the time the current try started
+     */
+    public long getTryStartNanos() {
+        return tryStartTime;
+    }
+
+    /**
+     * @return the number of bytes in the request body of each try
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return the HTTP response code of the last try, or 0 if it did not get a response
+     */
+    public int getHttpResponseCode() {
+        return httpResponseCode;
+    }
+
+    /**
+     * @return the server request ID of the last try ({@code x-ms-request-id} header), if there was one
+     */
+    public String getServerRequestId() {
+        return serverRequestId;
+    }
+
+    /**
+     * @return time from the start of the current try to receiving its response headers, or -1 if the headers
+     *         have not been received
+     */
+    public long getTimeToHeadersNanos() {
+        return timeToHeadersNanos;
+    }
+
+    /**
+     * @return the number of bytes of response body read. Final when {@code onBodyCompleted} is called.
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return the exception from the last try, if it failed with an exception
+     */
+    public Exception getException() {
+        return exception;
+    }
+
+    /**
+     * @return the error message of the call, if the SDK produced one
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return time from the start of the call to its completion or failure, or -1 if the call is in progress
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * gets the object attached to this call by a listener
+     *
+     * @return the attachment, or {@code null}
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * attaches an object to this call, for example the tracing span started in {@code onRequestStart}. There is
+     * one attachment per call, shared by all listeners.
+     *
+     * @param attachment the object to attach
+     */
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    void started() {
+        fire(START);
+    }
+
+    void retrying(int retryNumber, String clientRequestId) {
+        this.retryNumber = retryNumber;
+        this.clientRequestId = clientRequestId;
+        fire(RETRY);
+        this.tryStartTime = System.nanoTime();
+        this.httpResponseCode = 0;
+        this.serverRequestId = null;
+        this.timeToHeadersNanos = -1;
+        this.exception = null;
+    }
+
+    void tryCompleted(OperationResponse resp) {
+        exception = resp.ex;
+        if (resp.responseHeadersTime != 0) {
+            httpResponseCode = resp.httpResponseCode;
+            serverRequestId = resp.requestId;
+            timeToHeadersNanos = resp.responseHeadersTime - tryStartTime;
+            fire(HEADERS);
+        }
+    }
+
+    void bytesRead(long n) {
+        bytesReceived += n;
+    }
+
+    void bodyCompleted() {
+        elapsedNanos = System.nanoTime() - callStartTime;
+        fire(BODY);
+    }
+
+    void failed(OperationResponse resp) {
+        exception = resp.ex;
+        message = resp.message;
+        elapsedNanos = System.nanoTime() - callStartTime;
+        fire(FAILURE);
+    }
+
+    private void fire(int callback) {
+        for (RequestListener listener : listeners) {
+            try {
+                switch (callback) {
+                    case START:   listener.onRequestStart(this);    break;
+                    case RETRY:   listener.onRetry(this);           break;
+                    case HEADERS: listener.onResponseHeaders(this); break;
+                    case BODY:    listener.onBodyCompleted(this);   break;
+                    case FAILURE: listener.onFailure(this);         break;
+                }
+            } catch (RuntimeException ex) {
+                log.debug("RequestListener " + listener.getClass().getName() + " threw exception", ex);
+            }
+        }
+    }
+}
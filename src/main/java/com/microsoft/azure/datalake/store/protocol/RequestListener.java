@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+
+/**
+ * Receives lifecycle events for the REST calls made by an
+ * {@link com.microsoft.azure.datalake.store.ADLStoreClient ADLStoreClient}, for example to feed them into a
+ * tracing system. Register listeners with
+ * {@link com.microsoft.azure.datalake.store.ADLStoreClient#addRequestListener(RequestListener) addRequestListener}.
+ * <P>
+ * For each call, the listener sees {@link #onRequestStart(RequestEvent) onRequestStart}, then for each try
+ * that got an HTTP response {@link #onResponseHeaders(RequestEvent) onResponseHeaders}, with
+ * {@link #onRetry(RequestEvent) onRetry} before every retry. The call then ends with either
+ * {@link #onBodyCompleted(RequestEvent) onBodyCompleted} or {@link #onFailure(RequestEvent) onFailure}.
+ * </P><P>
+ * Callbacks are made synchronously on the thread making the call (for {@code onBodyCompleted}, on the thread
+ * that finishes reading the response), so they should be quick. Exceptions thrown by listeners are logged and
+ * otherwise ignored. The same {@link RequestEvent} instance is passed to every callback of a call, updated
+ * as the call progresses.
+ * </P><P>
+ * Extend {@link RequestListenerAdapter} to implement only some of the callbacks.
+ * </P>
+ */
+public interface RequestListener {
+
+    /**
+     * called once per call, before the first try is sent
+     *
+     * @param event the call
+     */
+    void onRequestStart(RequestEvent event);
+
+    /**
+     * called before each retry. The HTTP response code and exception in the event are still those of the
+     * try that failed; the retry number and client request ID are those of the retry.
+     *
+     * @param event the call
+     */
+    void onRetry(RequestEvent event);
+
+    /**
+     * called when a try gets an HTTP response, whether success or error
+     *
+     * @param event the call
+     */
+    void onResponseHeaders(RequestEvent event);
+
+    /**
+     * called when a call succeeds and its response body has been read. For calls that return data (like
+     * {@code OPEN}), this is when the caller reaches the end of the response stream or closes it.
+     *
+     * @param event the call
+     */
+    void onBodyCompleted(RequestEvent event);
+
+    /**
+     * called when a call fails after all retries
+     *
+     * @param event the call
+     */
+    void onFailure(RequestEvent event);
+}
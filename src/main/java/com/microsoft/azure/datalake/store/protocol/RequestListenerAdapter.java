@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+
+/**
+ * A {@link RequestListener} that ignores all events. Extend this class and override the callbacks of interest.
+ */
+public abstract class RequestListenerAdapter implements RequestListener {
+
+    public void onRequestStart(RequestEvent event) {
+    }
+
+    public void onRetry(RequestEvent event) {
+    }
+
+    public void onResponseHeaders(RequestEvent event) {
+    }
+
+    public void onBodyCompleted(RequestEvent event) {
+    }
+
+    public void onFailure(RequestEvent event) {
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+
+/**
+ * Read-only view of the request metrics of an {@link com.microsoft.azure.datalake.store.ADLStoreClient
+ * ADLStoreClient}. To reset the metrics, use
+ * {@link com.microsoft.azure.datalake.store.ADLStoreClient#getMetricsSnapshotAndReset() getMetricsSnapshotAndReset}
+ * or {@link com.microsoft.azure.datalake.store.ADLStoreClient#resetMetrics() resetMetrics} on the client.
+ */
+public interface RequestMetrics {
+
+    /**
+     * gets the number of HTTP requests currently in progress. A request is in progress from the time it is
+     * sent until its response headers (and, for calls other than {@code OPEN}, the response body) are read.
+     * This is a gauge, and is not affected by resetting the metrics.
+     *
+     * @return number of requests in progress
+     */
+    int getInFlightRequestCount();
+
+    /**
+     * gets a copy of the current metrics, without resetting them
+     *
+     * @return {@link MetricsSnapshot} containing the metrics
+     */
+    MetricsSnapshot snapshot();
+}
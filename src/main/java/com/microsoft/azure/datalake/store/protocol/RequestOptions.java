@@ -29,4 +29,16 @@ public class RequestOptions {
      * the {@link RetryPolicy} to use for the request
      */
     public RetryPolicy retryPolicy = null;
+
+    /**
+     * priority of the request, for shared resources such as {@link BandwidthLimiter}s. {@code null} means
+     * {@link RequestPriority#NORMAL}.
+     */
+    public RequestPriority priority = null;
+
+    /**
+     * limiter for the request body, in addition to the client's limiter. Set by streams that have their
+     * own limit. Can be {@code null}.
+     */
+    public BandwidthLimiter bandwidthLimiter = null;
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+
+/**
+ * Priority class of a request, set through {@link RequestOptions#priority}. Shared resources such as a
+ * {@link BandwidthLimiter} serve higher-priority requests first, while making sure lower-priority requests
+ * are not starved.
+ */
+public enum RequestPriority {
+    /**
+     * latency-sensitive work that a user or a query is waiting on, such as foreground reads
+     */
+    INTERACTIVE,
+
+    /**
+     * the default
+     */
+    NORMAL,
+
+    /**
+     * bulk work that can go slower when there is contention, such as bulk uploads, prefetch and
+     * recursive ACL changes
+     */
+    BACKGROUND
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Limits how many requests a client has in flight, and decides which waiting request goes next by its
+ * {@link RequestPriority}. Set one on a client with
+ * {@link com.microsoft.azure.datalake.store.ADLStoreClient#setRequestScheduler(RequestScheduler)}; without a
+ * scheduler, requests are not queued at all.
+ * <P>
+ * A request holds its slot from when it is sent until its response body has been read (or its stream
+ * closed). Retries give up the slot during the back-off, and queue again.
+ * </P><P>
+ * <B>Weighted fair queuing.</B> When requests of several priorities are waiting, slots are shared out in
+ * proportion to the priorities' weights (by default 16 for {@code INTERACTIVE}, 4 for {@code NORMAL} and 1 for
+ * {@code BACKGROUND}), so interactive requests get most of the slots but bulk work still makes progress.
+ * Within a priority, requests go in arrival order.
+ * </P><P>
+ * <B>Starvation protection.</B> A request that has waited longer than the
+ * {@link #setStarvationThresholdMillis(long) starvation threshold} goes next, whatever its priority.
+ * </P><P>
+ * <B>Throttle demotion.</B> Background requests are also limited to a share of the slots, which starts at all
+ * of them. Each throttled response (429 or 503) halves the background share, down to one slot; after a
+ * throttle-free second, it grows back by one slot for each share's worth of successful background requests.
+ * So when the service pushes back, bulk work backs off first and interactive latency holds.
+ * </P>
+ */
+public class RequestScheduler {
+
+    private static final long STRIDE_BASE = 1L << 20;
+    private static final long RECOVERY_NANOS = 1000L * 1000000L;
+
+    private final int maxConcurrentRequests;
+    private final int background = RequestPriority.BACKGROUND.ordinal();
+    private final List<ArrayDeque<Waiter>> queues;
+    private final long[] stride;
+    private final long[] pass;
+    private long virtualTime = 0;
+    private long starvationThresholdNanos = 2000L * 1000000L;
+
+    private int inFlight = 0;
+    private final int[] inFlightByPriority;
+    private int backgroundLimit;
+    private int backgroundSuccesses = 0;
+    private long lastThrottleTime = 0;
+    private boolean throttledRecently = false;
+
+    private final long[] admitted;
+    private final long[] queueWaitNanos;
+    private long demotions = 0;
+
+    private static class Waiter {
+        final int priority;
+        final long since = System.nanoTime();
+        boolean admitted = false;
+
+        Waiter(int priority) {
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * A slot held by one request. Released once: when the response has been consumed, or the try failed.
+     */
+    static class Permit {
+        private final RequestScheduler scheduler;
+        final int priority;
+        private boolean released = false;
+
+        Permit(RequestScheduler scheduler, int priority) {
+            this.scheduler = scheduler;
+            this.priority = priority;
+        }
+
+        void release() {
+            synchronized (scheduler) {
+                if (released) return;
+                released = true;
+                scheduler.released(this);
+            }
+        }
+    }
+
+    /**
+     * creates a scheduler
+     *
+     * @param maxConcurrentRequests most requests in flight at once
+     */
+    public RequestScheduler(int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.backgroundLimit = maxConcurrentRequests;
+        int n = RequestPriority.values().length;
+        queues = new ArrayList<ArrayDeque<Waiter>>(n);
+        for (int i = 0; i < n; i++) queues.add(new ArrayDeque<Waiter>());
+        stride = new long[n];
+        pass = new long[n];
+        inFlightByPriority = new int[n];
+        admitted = new long[n];
+        queueWaitNanos = new long[n];
+        setWeight(RequestPriority.INTERACTIVE, 16);
+        setWeight(RequestPriority.NORMAL, 4);
+        setWeight(RequestPriority.BACKGROUND, 1);
+    }
+
+    /**
+     * sets the share of slots a priority gets when requests of several priorities are waiting
+     *
+     * @param priority the priority
+     * @param weight the weight, at least 1
+     */
+    public synchronized void setWeight(RequestPriority priority, int weight) {
+        if (weight < 1) throw new IllegalArgumentException("weight must be at least 1");
+        stride[priority.ordinal()] = STRIDE_BASE / weight;
+    }
+
+    /**
+     * sets how long a request can wait before it goes next regardless of priority. The default is two seconds.
+     *
+     * @param millis the starvation threshold, in milliseconds
+     */
+    public synchronized void setStarvationThresholdMillis(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("threshold cannot be negative");
+        starvationThresholdNanos = millis * 1000000L;
+    }
+
+    /**
+     * @return the most requests in flight at once
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * @param priority the priority
+     * @return number of requests of a priority in flight
+     */
+    public synchronized int getInFlightCount(RequestPriority priority) {
+        return inFlightByPriority[priority.ordinal()];
+    }
+
+    /**
+     * @param priority the priority
+     * @return number of requests of a priority waiting for a slot
+     */
+    public synchronized int getQueuedCount(RequestPriority priority) {
+        return queues.get(priority.ordinal()).size();
+    }
+
+    /**
+     * @param priority the priority
+     * @return number of requests of a priority that have been given a slot
+     */
+    public synchronized long getAdmittedCount(RequestPriority priority) {
+        return admitted[priority.ordinal()];
+    }
+
+    /**
+     * @param priority the priority
+     * @return total time requests of a priority have spent waiting for a slot, in nanoseconds
+     */
+    public synchronized long getQueueWaitNanos(RequestPriority priority) {
+        return queueWaitNanos[priority.ordinal()];
+    }
+
+    /**
+     * @return the number of slots background requests may use at present
+     */
+    public synchronized int getBackgroundLimit() {
+        return backgroundLimit;
+    }
+
+    /**
+     * @return number of times throttling has shrunk the background share
+     */
+    public synchronized long getDemotionCount() {
+        return demotions;
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+
+    /*
+     waits for a slot
+     */
+    synchronized Permit acquire(RequestPriority priority) throws InterruptedIOException {
+        int p = (priority == null ? RequestPriority.NORMAL : priority).ordinal();
+        Waiter self = new Waiter(p);
+        if (queues.get(p).isEmpty()) pass[p] = Math.max(pass[p], virtualTime);   // no credit for time spent idle
+        queues.get(p).addLast(self);
+        dispatch();
+        try {
+            while (!self.admitted) {
+                // re-check now and then: a waiter can become eligible by age alone
+                long wait = Math.max(starvationThresholdNanos / 1000000L / 2, 10);
+                wait(wait);
+                if (!self.admitted) dispatch();
+            }
+        } catch (InterruptedException ex) {
+            if (self.admitted) {
+                released(new Permit(this, p));
+            } else {
+                queues.get(p).remove(self);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a request slot");
+        }
+        return new Permit(this, p);
+    }
+
+    /*
+     takes a slot only if one is free and no request is waiting for it; returns null otherwise
+     */
+    synchronized Permit tryAcquire(RequestPriority priority) {
+        int p = (priority == null ? RequestPriority.NORMAL : priority).ordinal();
+        if (inFlight >= maxConcurrentRequests) return null;
+        if (p == background && inFlightByPriority[p] >= backgroundLimit) return null;
+        for (ArrayDeque<Waiter> queue : queues) {
+            if (!queue.isEmpty()) return null;
+        }
+        inFlight++;
+        inFlightByPriority[p]++;
+        admitted[p]++;
+        return new Permit(this, p);
+    }
+
+    /*
+     feedback from a response: throttling shrinks the background share, and successful background
+     requests grow it back once throttling has stopped
+     */
+    synchronized void responseReceived(Permit permit, int httpResponseCode) {
+        long now = System.nanoTime();
+        if (httpResponseCode == 429 || httpResponseCode == 503) {
+            lastThrottleTime = now;
+            throttledRecently = true;
+            backgroundSuccesses = 0;
+            if (backgroundLimit > 1) {
+                backgroundLimit = Math.max(1, backgroundLimit / 2);
+                demotions++;
+            }
+        } else if (permit.priority == background && httpResponseCode >= 200 && httpResponseCode < 300
+                && backgroundLimit < maxConcurrentRequests
+                && (!throttledRecently || now - lastThrottleTime > RECOVERY_NANOS)) {
+            throttledRecently = false;
+            if (++backgroundSuccesses >= backgroundLimit) {
+                backgroundSuccesses = 0;
+                backgroundLimit++;
+                dispatch();
+            }
+        }
+    }
+
+    private void released(Permit permit) {
+        inFlight--;
+        inFlightByPriority[permit.priority]--;
+        dispatch();
+    }
+
+    /*
+     gives free slots to waiters: the longest-waiting starved waiter first, otherwise by weighted fair
+     queuing (the eligible priority with the smallest pass goes next, and its pass advances by its stride)
+     */
+    private void dispatch() {
+        boolean any = false;
+        while (inFlight < maxConcurrentRequests) {
+            long now = System.nanoTime();
+            int next = -1;
+            Waiter starved = null;
+            for (int p = 0; p < queues.size(); p++) {
+                Waiter head = queues.get(p).peekFirst();
+                if (head == null) continue;
+                if (p == background && inFlightByPriority[p] >= backgroundLimit) continue;
+                if (now - head.since > starvationThresholdNanos) {
+                    if (starved == null || head.since < starved.since) starved = head;
+                }
+                if (next == -1 || pass[p] < pass[next]) next = p;
+            }
+            if (starved != null) next = starved.priority;
+            if (next == -1) break;
+
+            Waiter w = queues.get(next).pollFirst();
+            virtualTime = pass[next];
+            pass[next] += stride[next];
+            w.admitted = true;
+            inFlight++;
+            inFlightByPriority[next]++;
+            admitted[next]++;
+            queueWaitNanos[next] += now - w.since;
+            any = true;
+        }
+        if (any) notifyAll();
+    }
+}
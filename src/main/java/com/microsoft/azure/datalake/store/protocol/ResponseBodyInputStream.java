@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.protocol;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Wraps a response stream that is returned to the caller, to time the reading of the body (recorded in the
+ * {@link OperationResponse} and in the client's metrics), and to tell the {@link RequestEvent} (if there are
+ * listeners) how many bytes were read and when the body is done. The body is done at end-of-stream or close,
+ * whichever comes first; that is also when the request gives its {@link RequestScheduler} slot back.
+ */
+class ResponseBodyInputStream extends FilterInputStream {
+
+    private final OperationResponse resp;
+    private final ClientMetrics metrics;
+    private final Operation op;
+    private final RequestEvent event;
+    private final RequestScheduler.Permit permit;
+    private boolean completed = false;
+
+    ResponseBodyInputStream(InputStream in, OperationResponse resp, ClientMetrics metrics, Operation op,
+                            RequestEvent event, RequestScheduler.Permit permit) {
+        super(in);
+        this.resp = resp;
+        this.metrics = metrics;
+        this.op = op;
+        this.event = event;
+        this.permit = permit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            if (event != null) event.bytesRead(1);
+        } else {
+            complete();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            if (event != null) event.bytesRead(n);
+        } else if (n < 0) {
+            complete();
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0 && event != null) event.bytesRead(skipped);
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            complete();
+        }
+    }
+
+    private void complete() {
+        if (completed) return;
+        completed = true;
+        long bodyNanos = System.nanoTime() - resp.responseHeadersTime;
+        resp.bodyNanos = bodyNanos;
+        metrics.recordBody(op, bodyNanos);
+        if (permit != null) permit.release();
+        if (event != null) event.bodyCompleted();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.datalake.store.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Java Flight Recorder events emitted by the SDK. Internal to the SDK.
+ * <P>
+ * This is the JDK 11 version of the class, packaged under {@code META-INF/versions/11} of the multi-release jar.
+ * See the base version for the list of events.
+ * </P>
+ */
+public final class JfrEvents {
+
+    private static final String CATEGORY = "Azure Data Lake Store";
+
+    private static final EventType httpRequestType = EventType.getEventType(HttpRequestEvent.class);
+    private static final EventType streamRefillType = EventType.getEventType(StreamRefillEvent.class);
+    private static final EventType streamFlushType = EventType.getEventType(StreamFlushEvent.class);
+    private static final EventType tokenRefreshType = EventType.getEventType(TokenRefreshEvent.class);
+
+    private JfrEvents() {
+    }
+
+    public static Object beginHttpRequest() {
+        if (!httpRequestType.isEnabled()) return null;
+        HttpRequestEvent e = new HttpRequestEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endHttpRequest(Object event, String operation, String path, String clientRequestId,
+                                      long bytesSent, long bytesReceived, int retries, int httpResponseCode,
+                                      boolean succeeded) {
+        if (event == null) return;
+        HttpRequestEvent e = (HttpRequestEvent) event;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.operation = operation;
+        e.path = path;
+        e.clientRequestId = clientRequestId;
+        e.bytesSent = bytesSent;
+        e.bytesReceived = bytesReceived;
+        e.retries = retries;
+        e.httpResponseCode = httpResponseCode;
+        e.succeeded = succeeded;
+        e.commit();
+    }
+
+    public static Object beginStreamRefill() {
+        if (!streamRefillType.isEnabled()) return null;
+        StreamRefillEvent e = new StreamRefillEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endStreamRefill(Object event, String path, long offset, long bytesRead, int bufferSize) {
+        if (event == null) return;
+        StreamRefillEvent e = (StreamRefillEvent) event;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.path = path;
+        e.offset = offset;
+        e.bytesRead = bytesRead;
+        e.bufferSize = bufferSize;
+        e.commit();
+    }
+
+    public static Object beginStreamFlush() {
+        if (!streamFlushType.isEnabled()) return null;
+        StreamFlushEvent e = new StreamFlushEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endStreamFlush(Object event, String path, long offset, long bytes) {
+        if (event == null) return;
+        StreamFlushEvent e = (StreamFlushEvent) event;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.path = path;
+        e.offset = offset;
+        e.bytes = bytes;
+        e.commit();
+    }
+
+    public static Object beginTokenRefresh() {
+        if (!tokenRefreshType.isEnabled()) return null;
+        TokenRefreshEvent e = new TokenRefreshEvent();
+        e.begin();
+        return e;
+    }
+
+    public static void endTokenRefresh(Object event, String provider, boolean succeeded) {
+        if (event == null) return;
+        TokenRefreshEvent e = (TokenRefreshEvent) event;
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.provider = provider;
+        e.succeeded = succeeded;
+        e.commit();
+    }
+
+    @Name("com.microsoft.azure.datalake.store.HttpRequest")
+    @Label("ADLS HTTP Request")
+    @Category(CATEGORY)
+    static final class HttpRequestEvent extends Event {
+        @Label("Operation") String operation;
+        @Label("Path") String path;
+        @Label("Client Request ID") String clientRequestId;
+        @Label("Bytes Sent") @DataAmount long bytesSent;
+        @Label("Bytes Received") @DataAmount long bytesReceived;
+        @Label("Retries") int retries;
+        @Label("HTTP Response Code") int httpResponseCode;
+        @Label("Succeeded") boolean succeeded;
+    }
+
+    @Name("com.microsoft.azure.datalake.store.StreamRefill")
+    @Label("ADLS Input Stream Refill")
+    @Category(CATEGORY)
+    static final class StreamRefillEvent extends Event {
+        @Label("Path") String path;
+        @Label("Offset") long offset;
+        @Label("Bytes Read") @DataAmount long bytesRead;
+        @Label("Buffer Size") @DataAmount int bufferSize;
+    }
+
+    @Name("com.microsoft.azure.datalake.store.StreamFlush")
+    @Label("ADLS Output Stream Flush")
+    @Category(CATEGORY)
+    static final class StreamFlushEvent extends Event {
+        @Label("Path") String path;
+        @Label("Offset") long offset;
+        @Label("Bytes") @DataAmount long bytes;
+    }
+
+    @Name("com.microsoft.azure.datalake.store.TokenRefresh")
+    @Label("ADLS Token Refresh")
+    @Category(CATEGORY)
+    static final class TokenRefreshEvent extends Event {
+        @Label("Provider") String provider;
+        @Label("Succeeded") boolean succeeded;
+    }
+}
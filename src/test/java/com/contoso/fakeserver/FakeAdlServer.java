@@ -0,0 +1,716 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.fakeserver;
+
+import com.contoso.fakeserver.FakeFileSystem.AclInfo;
+import com.contoso.fakeserver.FakeFileSystem.FileInfo;
+import com.contoso.fakeserver.FakeFileSystem.FsException;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.acl.AclEntry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * In-process stand-in for the Azure Data Lake Store WebHDFS endpoint, for throughput, stress and fault-handling
+ * tests of the SDK without a live account.
+ * <P>
+ * Serves the operations the SDK uses (create, append, concurrent append, open with offset and length, paged
+ * list, file status, concat, rename, delete, content summary, owner/permission/times and ACLs) over a
+ * {@link FakeFileSystem}. Errors are returned as {@code RemoteException} JSON, like the service does.
+ * </P><P>
+ * To look like a real service under load, it can add:
+ * </P>
+ * <UL>
+ *     <LI>latency, from a {@link LatencyModel}, globally or per operation</LI>
+ *     <LI>a bandwidth cap shared by all request and response bodies</LI>
+ *     <LI>a request-rate limit, above which requests get 429</LI>
+ *     <LI>random {@link Fault faults}, each with its own probability</LI>
+ *     <LI>scripted faults for the next requests of an operation, for deterministic tests</LI>
+ * </UL>
+ * <P>
+ * Typical use:
+ * </P>
+ * <pre>
+ *     FakeAdlServer server = new FakeAdlServer().start();
+ *     server.setLatency(LatencyModel.logNormal(5, 0.5));
+ *     ADLStoreClient client = server.createClient();
+ *     ...
+ *     server.stop();
+ * </pre>
+ * <P>
+ * The server speaks plain HTTP, so clients must use {@link ADLStoreClient#setInsecureTransport()};
+ * {@link #createClient()} does that.
+ * </P>
+ */
+public class FakeAdlServer {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final FakeFileSystem fs;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private volatile LatencyModel latency = LatencyModel.none();
+    private final ConcurrentHashMap<String, LatencyModel> operationLatency = new ConcurrentHashMap<String, LatencyModel>();
+    private volatile TokenBucket bandwidth = null;
+    private volatile TokenBucket requestRate = null;
+    private volatile double[] faultProbabilities = new double[Fault.values().length];
+    private final Map<String, Deque<Fault>> scriptedFaults = new HashMap<String, Deque<Fault>>();
+    private volatile long stallMillis = 120000;
+    private volatile int maxListSize = 4000;
+
+    private final AtomicLong requestCount = new AtomicLong(0);
+    private final AtomicLong throttledCount = new AtomicLong(0);
+    private final AtomicLong faultCount = new AtomicLong(0);
+    private final AtomicLong bytesReceived = new AtomicLong(0);
+    private final AtomicLong bytesSent = new AtomicLong(0);
+    private final ConcurrentHashMap<String, AtomicLong> requestCountByOperation = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * creates a server over a new, empty {@link FakeFileSystem}
+     */
+    public FakeAdlServer() {
+        this(new FakeFileSystem());
+    }
+
+    /**
+     * creates a server over the given file system
+     *
+     * @param fs the file system to serve
+     */
+    public FakeAdlServer(FakeFileSystem fs) {
+        this.fs = fs;
+    }
+
+    /**
+     * starts the server on an ephemeral loopback port
+     *
+     * @return this server
+     * @throws IOException if the server cannot be started
+     */
+    public FakeAdlServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                FakeAdlServer.this.handle(exchange);
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        return this;
+    }
+
+    /**
+     * stops the server; requests in progress are abandoned
+     */
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+        server = null;
+        executor = null;
+    }
+
+    /**
+     * @return the account name to pass to {@link ADLStoreClient#createClient(String, String)}: the server's
+     *         host and port
+     */
+    public String getAccount() {
+        InetSocketAddress address = server.getAddress();
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    /**
+     * @return a new client for this server, with insecure (HTTP) transport
+     */
+    public ADLStoreClient createClient() {
+        ADLStoreClient client = ADLStoreClient.createClient(getAccount(), "token");
+        client.setInsecureTransport();
+        return client;
+    }
+
+    /**
+     * @return the file system this server serves
+     */
+    public FakeFileSystem getFileSystem() {
+        return fs;
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Configuration                                                                                          */
+
+    /**
+     * sets the latency added to every operation that does not have its own model
+     *
+     * @param model the latency model
+     */
+    public void setLatency(LatencyModel model) {
+        this.latency = (model == null) ? LatencyModel.none() : model;
+    }
+
+    /**
+     * sets the latency added to one operation, overriding the server-wide model
+     *
+     * @param operation the operation name, e.g. {@code "APPEND"}
+     * @param model the latency model, or null to use the server-wide model
+     */
+    public void setLatency(String operation, LatencyModel model) {
+        if (model == null) {
+            operationLatency.remove(operation);
+        } else {
+            operationLatency.put(operation, model);
+        }
+    }
+
+    /**
+     * caps the combined transfer rate of request and response bodies, across all connections
+     *
+     * @param bytesPerSecond the cap; 0 or less removes it
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        this.bandwidth = (bytesPerSecond <= 0) ? null : new TokenBucket(bytesPerSecond, Math.max(bytesPerSecond / 10, CHUNK_SIZE));
+    }
+
+    /**
+     * limits the request rate; requests above the limit get 429, as when the service throttles an account
+     *
+     * @param requestsPerSecond the limit; 0 or less removes it
+     */
+    public void setRequestRateLimit(double requestsPerSecond) {
+        this.requestRate = (requestsPerSecond <= 0) ? null : new TokenBucket(requestsPerSecond, Math.max(requestsPerSecond, 1));
+    }
+
+    /**
+     * sets the probability of a fault on each request
+     *
+     * @param fault the fault
+     * @param probability probability between 0 and 1
+     */
+    public synchronized void setFaultProbability(Fault fault, double probability) {
+        double[] p = Arrays.copyOf(faultProbabilities, faultProbabilities.length);
+        p[fault.ordinal()] = probability;
+        faultProbabilities = p;
+    }
+
+    /**
+     * makes the next {@code count} requests for an operation fail with a fault, ahead of any random faults
+     *
+     * @param operation the operation name, e.g. {@code "OPEN"}
+     * @param fault the fault
+     * @param count number of requests to fail
+     */
+    public void injectFault(String operation, Fault fault, int count) {
+        synchronized (scriptedFaults) {
+            Deque<Fault> queue = scriptedFaults.get(operation);
+            if (queue == null) {
+                queue = new ArrayDeque<Fault>();
+                scriptedFaults.put(operation, queue);
+            }
+            for (int i = 0; i < count; i++) queue.add(fault);
+        }
+    }
+
+    /**
+     * removes all latency, bandwidth, rate-limit and fault settings
+     */
+    public synchronized void clearFaults() {
+        latency = LatencyModel.none();
+        operationLatency.clear();
+        bandwidth = null;
+        requestRate = null;
+        faultProbabilities = new double[Fault.values().length];
+        synchronized (scriptedFaults) {
+            scriptedFaults.clear();
+        }
+    }
+
+    /**
+     * @param stallMillis how long a {@link Fault#STALL stalled} request waits before it is served
+     */
+    public void setStallMillis(long stallMillis) {
+        this.stallMillis = stallMillis;
+    }
+
+    /**
+     * @param maxListSize the most entries one {@code LISTSTATUS} response returns, whatever the client asks for
+     */
+    public void setMaxListSize(int maxListSize) {
+        this.maxListSize = maxListSize;
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Statistics                                                                                             */
+
+    /**
+     * @return number of requests received, including ones that were throttled or faulted
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @param operation the operation name
+     * @return number of requests received for an operation
+     */
+    public long getRequestCount(String operation) {
+        AtomicLong count = requestCountByOperation.get(operation);
+        return (count == null) ? 0 : count.get();
+    }
+
+    /**
+     * @return number of requests answered with 429 or 503, by the rate limit or by fault injection
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * @return number of requests that had a fault injected, including throttles
+     */
+    public long getFaultCount() {
+        return faultCount.get();
+    }
+
+    /**
+     * @return bytes of request bodies received
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * @return bytes of response bodies sent
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * resets all statistics to zero
+     */
+    public void resetStatistics() {
+        requestCount.set(0);
+        throttledCount.set(0);
+        faultCount.set(0);
+        bytesReceived.set(0);
+        bytesSent.set(0);
+        requestCountByOperation.clear();
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Request handling                                                                                       */
+
+    private static class Response {
+        final int code;
+        final byte[] body;
+
+        Response(int code, byte[] body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith("/webhdfs/v1")) {
+                path = path.substring("/webhdfs/v1".length());
+            } else if (path.startsWith("/WebHdfsExt")) {
+                path = path.substring("/WebHdfsExt".length());
+            } else {
+                sendError(exchange, 404, "IllegalArgumentException", "java.lang.IllegalArgumentException",
+                        "Unknown endpoint " + path);
+                return;
+            }
+            if (path.equals("")) path = "/";
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            String op = params.containsKey("op") ? params.get("op").toUpperCase() : "";
+
+            requestCount.incrementAndGet();
+            countOperation(op);
+            delay(op);
+
+            Fault fault = nextFault(op);
+            TokenBucket rate = requestRate;
+            if (fault == null && rate != null && !rate.tryAcquire(1)) fault = Fault.THROTTLE_429;
+            if (fault != null) {
+                faultCount.incrementAndGet();
+                switch (fault) {
+                    case THROTTLE_429:
+                        throttledCount.incrementAndGet();
+                        sendError(exchange, 429, "ThrottledException", "", "Request rate exceeded (injected)");
+                        return;
+                    case UNAVAILABLE_503:
+                        throttledCount.incrementAndGet();
+                        sendError(exchange, 503, "ServiceUnavailableException", "", "Service unavailable (injected)");
+                        return;
+                    case INTERNAL_ERROR_500:
+                        sendError(exchange, 500, "RuntimeException", "java.lang.RuntimeException",
+                                "Internal server error (injected)");
+                        return;
+                    case CONNECTION_DROP:
+                        return;   // closing the exchange without sending headers closes the connection
+                    case STALL:
+                        sleepNanos(TimeUnit.MILLISECONDS.toNanos(stallMillis));
+                        fault = null;
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            byte[] body = readBody(exchange);
+            Response response = dispatch(exchange.getRequestMethod(), op, path, params, body);
+            if (fault == Fault.TRUNCATED_RESPONSE) {
+                if (response.body == null || response.body.length < 2) return;   // operation done, but no response
+                sendTruncated(exchange, response);
+                return;
+            }
+            send(exchange, response.code, response.body);
+        } catch (FsException ex) {
+            sendError(exchange, ex.httpCode, ex.exceptionName, ex.javaClassName, ex.getMessage());
+        } catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, "IllegalArgumentException", "java.lang.IllegalArgumentException", ex.getMessage());
+        } catch (InterruptedIOException ex) {
+            // server is being stopped
+        } catch (RuntimeException ex) {
+            sendError(exchange, 500, "RuntimeException", "java.lang.RuntimeException", ex.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response dispatch(String method, String op, String path, Map<String, String> params, byte[] body)
+            throws IOException {
+        if (op.equals("CREATE")) {
+            fs.create(path, bool(params, "overwrite", false), bool(params, "CreateParent", true), params.get("permission"));
+            if (body.length > 0) fs.append(path, body, 0, body.length, -1);
+            return new Response(201, null);
+        } else if (op.equals("APPEND")) {
+            fs.append(path, body, 0, body.length, number(params, "offset", -1));
+            return new Response(200, null);
+        } else if (op.equals("CONCURRENTAPPEND")) {
+            fs.concurrentAppend(path, body, 0, body.length, "autocreate".equals(params.get("appendMode")));
+            return new Response(200, null);
+        } else if (op.equals("OPEN")) {
+            long offset = number(params, "offset", 0);
+            long length = number(params, "length", Long.MAX_VALUE);
+            if (offset > fs.getStatus(path).length) {
+                throw new FsException(416, "InvalidRangeException", "", "Offset " + offset + " is past end of file");
+            }
+            return new Response(200, fs.read(path, offset, length));
+        } else if (op.equals("GETFILESTATUS")) {
+            StringBuilder sb = new StringBuilder("{\"FileStatus\":");
+            appendFileStatus(sb, fs.getStatus(path), "");
+            return json(sb.append('}'));
+        } else if (op.equals("LISTSTATUS")) {
+            int listSize = (int) Math.min(number(params, "listSize", maxListSize), maxListSize);
+            boolean listingFile = !fs.getStatus(path).isDirectory;   // listing a file returns the file itself
+            List<FileInfo> list = fs.list(path, params.get("listAfter"), params.get("listBefore"), listSize);
+            StringBuilder sb = new StringBuilder("{\"FileStatuses\":{\"FileStatus\":[");
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) sb.append(',');
+                FileInfo info = list.get(i);
+                appendFileStatus(sb, info, listingFile ? "" : info.name);
+            }
+            return json(sb.append("]}}"));
+        } else if (op.equals("MKDIRS")) {
+            return bool(fs.mkdirs(path, params.get("permission")));
+        } else if (op.equals("RENAME")) {
+            return bool(fs.rename(path, params.get("destination"), bool(params, "overwrite", false)));
+        } else if (op.equals("DELETE")) {
+            return bool(fs.delete(path, bool(params, "recursive", false)));
+        } else if (op.equals("MSCONCAT") || op.equals("CONCAT")) {
+            String sources = op.equals("CONCAT") ? params.get("sources") : new String(body, "UTF-8");
+            if (sources == null) throw new IllegalArgumentException("no sources");
+            if (sources.startsWith("sources=")) sources = sources.substring("sources=".length());
+            fs.concat(path, Arrays.asList(sources.split(",")));
+            return new Response(200, null);
+        } else if (op.equals("GETCONTENTSUMMARY")) {
+            long[] totals = fs.contentSummary(path);
+            return json(new StringBuilder("{\"ContentSummary\":{\"directoryCount\":").append(totals[0])
+                    .append(",\"fileCount\":").append(totals[1])
+                    .append(",\"length\":").append(totals[2])
+                    .append(",\"spaceConsumed\":").append(totals[2]).append("}}"));
+        } else if (op.equals("SETOWNER")) {
+            fs.setOwner(path, params.get("owner"), params.get("group"));
+            return new Response(200, null);
+        } else if (op.equals("SETPERMISSION")) {
+            fs.setPermission(path, params.get("permission"));
+            return new Response(200, null);
+        } else if (op.equals("SETTIMES")) {
+            fs.setTimes(path, number(params, "modificationtime", -1), number(params, "accesstime", -1));
+            return new Response(200, null);
+        } else if (op.equals("CHECKACCESS") || op.equals("SETEXPIRY")) {
+            fs.getStatus(path);
+            return new Response(200, null);
+        } else if (op.equals("MODIFYACLENTRIES")) {
+            fs.modifyAclEntries(path, AclEntry.parseAclSpec(params.get("aclspec")));
+            return new Response(200, null);
+        } else if (op.equals("REMOVEACLENTRIES")) {
+            List<AclEntry> entries = new ArrayList<AclEntry>();
+            for (String s : params.get("aclspec").split(",")) entries.add(AclEntry.parseAclEntry(s, true));
+            fs.removeAclEntries(path, entries);
+            return new Response(200, null);
+        } else if (op.equals("REMOVEDEFAULTACL")) {
+            fs.removeDefaultAcl(path);
+            return new Response(200, null);
+        } else if (op.equals("REMOVEACL")) {
+            fs.removeAcl(path);
+            return new Response(200, null);
+        } else if (op.equals("SETACL")) {
+            fs.setAcl(path, AclEntry.parseAclSpec(params.get("aclspec")));
+            return new Response(200, null);
+        } else if (op.equals("GETACLSTATUS")) {
+            AclInfo acl = fs.getAcl(path);
+            StringBuilder sb = new StringBuilder("{\"AclStatus\":{\"entries\":[");
+            for (int i = 0; i < acl.entries.size(); i++) {
+                if (i > 0) sb.append(',');
+                quote(sb, acl.entries.get(i));
+            }
+            sb.append("],\"group\":");
+            quote(sb, acl.group);
+            sb.append(",\"owner\":");
+            quote(sb, acl.owner);
+            sb.append(",\"permission\":");
+            quote(sb, acl.permission);
+            return json(sb.append(",\"stickyBit\":false}}"));
+        }
+        throw new IllegalArgumentException("Unsupported operation " + method + " " + op);
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+
+    private void countOperation(String op) {
+        AtomicLong count = requestCountByOperation.get(op);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong(0);
+            count = requestCountByOperation.putIfAbsent(op, newCount);
+            if (count == null) count = newCount;
+        }
+        count.incrementAndGet();
+    }
+
+    private void delay(String op) throws InterruptedIOException {
+        LatencyModel model = operationLatency.get(op);
+        if (model == null) model = latency;
+        sleepNanos(model.nextNanos());
+    }
+
+    private Fault nextFault(String op) {
+        synchronized (scriptedFaults) {
+            Deque<Fault> queue = scriptedFaults.get(op);
+            if (queue != null && !queue.isEmpty()) return queue.poll();
+        }
+        double[] p = faultProbabilities;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (Fault fault : Fault.values()) {
+            if (p[fault.ordinal()] > 0 && random.nextDouble() < p[fault.ordinal()]) return fault;
+        }
+        return null;
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            throttle(n);
+            out.write(buffer, 0, n);
+        }
+        bytesReceived.addAndGet(out.size());
+        return out.toByteArray();
+    }
+
+    private void send(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("x-ms-request-id", UUID.randomUUID().toString());
+        if (body != null && body.length > 0 && body[0] == '{') {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        }
+        if (body == null || body.length == 0) {
+            exchange.sendResponseHeaders(code, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(code, body.length);
+        write(exchange.getResponseBody(), body, body.length);
+    }
+
+    /*
+     declares the full length, sends half of it and returns; closing the exchange with bytes missing
+     closes the connection
+     */
+    private void sendTruncated(HttpExchange exchange, Response response) throws IOException {
+        exchange.getResponseHeaders().set("x-ms-request-id", UUID.randomUUID().toString());
+        exchange.sendResponseHeaders(response.code, response.body.length);
+        write(exchange.getResponseBody(), response.body, response.body.length / 2);
+    }
+
+    private void write(OutputStream out, byte[] body, int length) throws IOException {
+        for (int off = 0; off < length; off += CHUNK_SIZE) {
+            int n = Math.min(CHUNK_SIZE, length - off);
+            throttle(n);
+            out.write(body, off, n);
+            bytesSent.addAndGet(n);
+        }
+        out.flush();
+    }
+
+    private void sendError(HttpExchange exchange, int code, String exception, String javaClassName, String message)
+            throws IOException {
+        StringBuilder sb = new StringBuilder("{\"RemoteException\":{\"exception\":");
+        quote(sb, exception);
+        sb.append(",\"message\":");
+        quote(sb, message);
+        sb.append(",\"javaClassName\":");
+        quote(sb, javaClassName);
+        sb.append("}}");
+        send(exchange, code, sb.toString().getBytes("UTF-8"));
+    }
+
+    private void throttle(int bytes) throws InterruptedIOException {
+        TokenBucket b = bandwidth;
+        if (b != null) sleepNanos(b.reserve(bytes));
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) return;
+        try {
+            Thread.sleep(nanos / 1000000, (int) (nanos % 1000000));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted");
+        }
+    }
+
+    private static Response json(StringBuilder sb) throws IOException {
+        return new Response(200, sb.toString().getBytes("UTF-8"));
+    }
+
+    private static Response bool(boolean b) throws IOException {
+        return json(new StringBuilder("{\"boolean\":").append(b).append('}'));
+    }
+
+    private static void appendFileStatus(StringBuilder sb, FileInfo info, String pathSuffix) {
+        sb.append("{\"length\":").append(info.length).append(",\"pathSuffix\":");
+        quote(sb, pathSuffix);
+        sb.append(",\"type\":\"").append(info.isDirectory ? "DIRECTORY" : "FILE").append('"')
+          .append(",\"blockSize\":").append(info.isDirectory ? 0 : 268435456)
+          .append(",\"accessTime\":").append(info.accessTime)
+          .append(",\"modificationTime\":").append(info.modificationTime)
+          .append(",\"replication\":").append(info.isDirectory ? 0 : 1)
+          .append(",\"permission\":");
+        quote(sb, info.permission);
+        sb.append(",\"owner\":");
+        quote(sb, info.owner);
+        sb.append(",\"group\":");
+        quote(sb, info.group);
+        sb.append('}');
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> params = new HashMap<String, String>();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            if (pair.equals("")) continue;
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static boolean bool(Map<String, String> params, String name, boolean defaultValue) {
+        String value = params.get(name);
+        return (value == null) ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static long number(Map<String, String> params, String name, long defaultValue) {
+        String value = params.get(name);
+        return (value == null) ? defaultValue : Long.parseLong(value);
+    }
+
+    /*
+     token bucket. reserve() takes tokens even if that leaves the bucket in debt, and returns how long the
+     caller must wait for the debt to be repaid, so concurrent callers queue behind each other fairly.
+     */
+    private static class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double tokensPerSecond, double capacity) {
+            this.tokensPerNano = tokensPerSecond / 1e9;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+
+        synchronized boolean tryAcquire(double n) {
+            refill();
+            if (tokens < n) return false;
+            tokens -= n;
+            return true;
+        }
+
+        synchronized long reserve(double n) {
+            refill();
+            tokens -= n;
+            return (tokens >= 0) ? 0 : (long) (-tokens / tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.fakeserver;
+
+import com.microsoft.azure.datalake.store.acl.AclEntry;
+import com.microsoft.azure.datalake.store.acl.AclScope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * In-memory file system behind {@link FakeAdlServer}, with the semantics of the Azure Data Lake Store WebHDFS
+ * operations the SDK uses.
+ * <P>
+ * The tree structure is guarded by the file system's lock; file contents are guarded by each file's own lock,
+ * so reads and appends to different files run in parallel.
+ * </P><P>
+ * For load tests with large files, construct with {@code storeData = false}: files then keep only their length,
+ * and reads return a fixed pattern (the byte at offset {@code i} is {@code (byte) i}).
+ * </P>
+ */
+public class FakeFileSystem {
+
+    private final boolean storeData;
+    private final Node root;
+
+    /**
+     * creates an empty file system that keeps file contents
+     */
+    public FakeFileSystem() {
+        this(true);
+    }
+
+    /**
+     * creates an empty file system
+     *
+     * @param storeData if false, file contents are discarded and reads return a fixed pattern
+     */
+    public FakeFileSystem(boolean storeData) {
+        this.storeData = storeData;
+        this.root = new Node("", true, "owner", "group", "770");
+    }
+
+    /**
+     * error returned by a file system operation, with the HTTP code and remote exception the service would return
+     */
+    public static class FsException extends RuntimeException {
+        public final int httpCode;
+        public final String exceptionName;
+        public final String javaClassName;
+
+        public FsException(int httpCode, String exceptionName, String javaClassName, String message) {
+            super(message);
+            this.httpCode = httpCode;
+            this.exceptionName = exceptionName;
+            this.javaClassName = javaClassName;
+        }
+
+        static FsException notFound(String path) {
+            return new FsException(404, "FileNotFoundException", "java.io.FileNotFoundException",
+                    "File/Folder does not exist: " + path);
+        }
+
+        static FsException alreadyExists(String path) {
+            return new FsException(403, "FileAlreadyExistsException", "org.apache.hadoop.fs.FileAlreadyExistsException",
+                    "File already exists: " + path);
+        }
+
+        static FsException badRequest(String message) {
+            return new FsException(400, "IllegalArgumentException", "java.lang.IllegalArgumentException", message);
+        }
+
+        static FsException badOffset(String message) {
+            return new FsException(400, "BadOffsetException", "org.apache.hadoop.fs.adl.BadOffsetException", message);
+        }
+    }
+
+    /**
+     * status of a file or directory, as returned by {@code GETFILESTATUS} and {@code LISTSTATUS}
+     */
+    public static class FileInfo {
+        public final String name;
+        public final boolean isDirectory;
+        public final long length;
+        public final String owner;
+        public final String group;
+        public final String permission;
+        public final long accessTime;
+        public final long modificationTime;
+
+        FileInfo(Node node) {
+            this.name = node.name;
+            this.isDirectory = node.isDirectory;
+            this.length = node.isDirectory ? 0 : node.length();
+            this.owner = node.owner;
+            this.group = node.group;
+            this.permission = node.permission;
+            this.accessTime = node.accessTime;
+            this.modificationTime = node.modificationTime;
+        }
+    }
+
+    /**
+     * ACL of a file or directory, as returned by {@code GETACLSTATUS}
+     */
+    public static class AclInfo {
+        public final List<String> entries;
+        public final String owner;
+        public final String group;
+        public final String permission;
+
+        AclInfo(List<String> entries, String owner, String group, String permission) {
+            this.entries = entries;
+            this.owner = owner;
+            this.group = group;
+            this.permission = permission;
+        }
+    }
+
+    private final class Node {
+        String name;
+        final boolean isDirectory;
+        final TreeMap<String, Node> children;
+        String owner;
+        String group;
+        String permission;
+        long accessTime;
+        long modificationTime;
+        List<AclEntry> acl = new ArrayList<AclEntry>();
+
+        private byte[] data;     // null if !storeData
+        private long length = 0;
+
+        Node(String name, boolean isDirectory, String owner, String group, String permission) {
+            this.name = name;
+            this.isDirectory = isDirectory;
+            this.children = isDirectory ? new TreeMap<String, Node>() : null;
+            this.owner = owner;
+            this.group = group;
+            this.permission = permission;
+            this.accessTime = this.modificationTime = System.currentTimeMillis();
+            if (!isDirectory && storeData) data = new byte[0];
+        }
+
+        synchronized long length() {
+            return length;
+        }
+
+        synchronized void append(byte[] b, int off, int len, long offset) {
+            if (offset >= 0 && offset != length) {
+                throw FsException.badOffset("Append at offset " + offset + " but file length is " + length);
+            }
+            if (storeData) {
+                if (length + len > Integer.MAX_VALUE - 8) throw FsException.badRequest("file too large for fake server");
+                if (length + len > data.length) {
+                    data = Arrays.copyOf(data, (int) Math.max(length + len, Math.min(2L * data.length, Integer.MAX_VALUE - 8)));
+                }
+                System.arraycopy(b, off, data, (int) length, len);
+            }
+            length += len;
+            modificationTime = System.currentTimeMillis();
+        }
+
+        synchronized void truncate() {
+            if (storeData) data = new byte[0];
+            length = 0;
+            modificationTime = System.currentTimeMillis();
+        }
+
+        synchronized byte[] read(long offset, long len) {
+            if (offset > length) throw FsException.badOffset("Read at offset " + offset + " past end of file " + length);
+            int n = (int) Math.min(len, length - offset);
+            byte[] b = new byte[n];
+            if (storeData) {
+                System.arraycopy(data, (int) offset, b, 0, n);
+            } else {
+                for (int i = 0; i < n; i++) b[i] = (byte) (offset + i);
+            }
+            accessTime = System.currentTimeMillis();
+            return b;
+        }
+
+        /* contents, for concat. Only called with storeData */
+        synchronized byte[] contents() {
+            return storeData ? Arrays.copyOf(data, (int) length) : null;
+        }
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+
+    static String normalize(String path) {
+        if (path == null || path.equals("")) throw FsException.badRequest("empty path");
+        StringBuilder sb = new StringBuilder();
+        for (String part : path.split("/")) {
+            if (part.equals("") || part.equals(".")) continue;
+            if (part.equals("..")) throw FsException.badRequest("relative paths not supported: " + path);
+            sb.append('/').append(part);
+        }
+        return (sb.length() == 0) ? "/" : sb.toString();
+    }
+
+    private static String[] components(String path) {
+        String p = normalize(path);
+        return p.equals("/") ? new String[0] : p.substring(1).split("/");
+    }
+
+    private static String parentOf(String path) {
+        String p = normalize(path);
+        int i = p.lastIndexOf('/');
+        return (i <= 0) ? "/" : p.substring(0, i);
+    }
+
+    private static String nameOf(String path) {
+        String p = normalize(path);
+        return p.substring(p.lastIndexOf('/') + 1);
+    }
+
+    /* must be called with lock held */
+    private Node find(String path) {
+        Node node = root;
+        for (String c : components(path)) {
+            if (!node.isDirectory) return null;
+            node = node.children.get(c);
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    private Node get(String path) {
+        Node node = find(path);
+        if (node == null) throw FsException.notFound(path);
+        return node;
+    }
+
+    private Node getFile(String path) {
+        Node node = get(path);
+        if (node.isDirectory) throw FsException.badRequest("Path is a directory: " + path);
+        return node;
+    }
+
+    /* creates missing directories along path. must be called with lock held */
+    private Node mkdirsInternal(String path, String permission) {
+        Node node = root;
+        for (String c : components(path)) {
+            if (!node.isDirectory) throw FsException.alreadyExists(c + " is a file");
+            Node child = node.children.get(c);
+            if (child == null) {
+                child = new Node(c, true, "owner", "group", permission == null ? "770" : permission);
+                node.children.put(c, child);
+                node.modificationTime = System.currentTimeMillis();
+            }
+            node = child;
+        }
+        if (!node.isDirectory) throw FsException.alreadyExists(path);
+        return node;
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+
+    /**
+     * {@code CREATE}: creates (or truncates, if {@code overwrite}) a file
+     */
+    public synchronized void create(String path, boolean overwrite, boolean createParent, String permission) {
+        Node parent = createParent ? mkdirsInternal(parentOf(path), null) : get(parentOf(path));
+        if (!parent.isDirectory) throw FsException.badRequest("Parent is a file: " + path);
+        String name = nameOf(path);
+        Node existing = parent.children.get(name);
+        if (existing != null) {
+            if (!overwrite || existing.isDirectory) throw FsException.alreadyExists(path);
+            existing.truncate();
+            if (permission != null) existing.permission = permission;
+            return;
+        }
+        parent.children.put(name, new Node(name, false, "owner", "group", permission == null ? "770" : permission));
+        parent.modificationTime = System.currentTimeMillis();
+    }
+
+    /**
+     * {@code APPEND}: appends to an existing file
+     *
+     * @param offset offset the data is expected to go at, or -1 to append at end of file
+     */
+    public void append(String path, byte[] b, int off, int len, long offset) {
+        Node file;
+        synchronized (this) {
+            file = getFile(path);
+        }
+        file.append(b, off, len, offset);
+    }
+
+    /**
+     * {@code CONCURRENTAPPEND}: appends at end of file, optionally creating the file
+     */
+    public void concurrentAppend(String path, byte[] b, int off, int len, boolean autoCreate) {
+        Node file;
+        synchronized (this) {
+            file = find(path);
+            if (file == null && autoCreate) {
+                create(path, false, true, null);
+                file = find(path);
+            }
+            if (file == null) throw FsException.notFound(path);
+            if (file.isDirectory) throw FsException.badRequest("Path is a directory: " + path);
+        }
+        file.append(b, off, len, -1);
+    }
+
+    /**
+     * {@code OPEN}: reads from a file
+     */
+    public byte[] read(String path, long offset, long length) {
+        Node file;
+        synchronized (this) {
+            file = getFile(path);
+        }
+        return file.read(offset, length);
+    }
+
+    /**
+     * {@code GETFILESTATUS}
+     */
+    public synchronized FileInfo getStatus(String path) {
+        return new FileInfo(get(path));
+    }
+
+    /**
+     * {@code LISTSTATUS}: lists a directory in name order. Listing a file returns the file itself.
+     *
+     * @param listAfter return only entries after this name; can be null
+     * @param listBefore return only entries before this name; can be null
+     * @param max maximum number of entries to return
+     */
+    public synchronized List<FileInfo> list(String path, String listAfter, String listBefore, int max) {
+        Node node = get(path);
+        List<FileInfo> list = new ArrayList<FileInfo>();
+        if (!node.isDirectory) {
+            list.add(new FileInfo(node));
+            return list;
+        }
+        Map<String, Node> range = node.children;
+        if (listAfter != null && !listAfter.equals("")) range = node.children.tailMap(listAfter, false);
+        for (Node child : range.values()) {
+            if (list.size() >= max) break;
+            if (listBefore != null && !listBefore.equals("") && child.name.compareTo(listBefore) >= 0) break;
+            list.add(new FileInfo(child));
+        }
+        return list;
+    }
+
+    /**
+     * {@code MKDIRS}
+     */
+    public synchronized boolean mkdirs(String path, String permission) {
+        mkdirsInternal(path, permission);
+        return true;
+    }
+
+    /**
+     * {@code RENAME}, with HDFS semantics: renaming onto an existing directory moves the source into it.
+     *
+     * @return false if the source does not exist, the destination's parent does not exist, or the destination
+     *         exists and cannot be overwritten
+     */
+    public synchronized boolean rename(String source, String destination, boolean overwrite) {
+        String src = normalize(source);
+        String dst = normalize(destination);
+        if (src.equals("/")) return false;
+        Node node = find(src);
+        if (node == null) return false;
+        if (dst.equals(src)) return true;
+        if (dst.startsWith(src + "/")) return false;   // cannot move a directory into itself
+
+        Node target = find(dst);
+        if (target != null && target.isDirectory) {
+            dst = dst.equals("/") ? "/" + node.name : dst + "/" + node.name;
+            target = find(dst);
+        }
+        Node dstParent = find(parentOf(dst));
+        if (dstParent == null || !dstParent.isDirectory) return false;
+        if (target != null) {
+            if (!overwrite || target.isDirectory || node.isDirectory) return false;
+        }
+
+        Node srcParent = find(parentOf(src));
+        srcParent.children.remove(node.name);
+        srcParent.modificationTime = System.currentTimeMillis();
+        node.name = nameOf(dst);
+        dstParent.children.put(node.name, node);
+        dstParent.modificationTime = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * {@code DELETE}
+     *
+     * @return false if the path does not exist
+     */
+    public synchronized boolean delete(String path, boolean recursive) {
+        String p = normalize(path);
+        Node node = find(p);
+        if (node == null) return false;
+        if (node.isDirectory && !recursive && !node.children.isEmpty()) {
+            throw new FsException(403, "PathIsNotEmptyDirectoryException",
+                    "org.apache.hadoop.fs.PathIsNotEmptyDirectoryException", "Directory is not empty: " + path);
+        }
+        if (p.equals("/")) {
+            root.children.clear();
+        } else {
+            Node parent = find(parentOf(p));
+            parent.children.remove(node.name);
+            parent.modificationTime = System.currentTimeMillis();
+        }
+        return true;
+    }
+
+    /**
+     * {@code MSCONCAT}/{@code CONCAT}: creates the target (and its parent directories) from the sources, in
+     * order, and deletes the sources. If the target exists, it is the first source.
+     */
+    public synchronized void concat(String target, List<String> sources) {
+        if (sources.isEmpty()) throw FsException.badRequest("No sources to concatenate");
+        List<Node> nodes = new ArrayList<Node>();
+        for (String s : sources) {
+            Node n = getFile(s);
+            if (nodes.contains(n)) throw FsException.badRequest("Source listed more than once: " + s);
+            nodes.add(n);
+        }
+        Node existing = find(target);
+        if (existing != null && existing.isDirectory) throw FsException.alreadyExists(target);
+        if (existing == null) create(target, false, true, null);
+        Node t = getFile(target);
+        for (Node n : nodes) {
+            if (n == t) continue;
+            if (storeData) {
+                byte[] b = n.contents();
+                t.append(b, 0, b.length, -1);
+            } else {
+                t.append(null, 0, (int) n.length(), -1);
+            }
+        }
+        for (String s : sources) {
+            if (find(s) != t) delete(s, false);
+        }
+    }
+
+    /**
+     * {@code GETCONTENTSUMMARY}
+     *
+     * @return {directoryCount, fileCount, length}. The directory itself is included in the directory count.
+     */
+    public synchronized long[] contentSummary(String path) {
+        long[] totals = new long[3];
+        summarize(get(path), totals);
+        return totals;
+    }
+
+    private void summarize(Node node, long[] totals) {
+        if (node.isDirectory) {
+            totals[0]++;
+            for (Node child : node.children.values()) summarize(child, totals);
+        } else {
+            totals[1]++;
+            totals[2] += node.length();
+        }
+    }
+
+    public synchronized void setOwner(String path, String owner, String group) {
+        Node node = get(path);
+        if (owner != null) node.owner = owner;
+        if (group != null) node.group = group;
+    }
+
+    public synchronized void setPermission(String path, String permission) {
+        get(path).permission = permission;
+    }
+
+    public synchronized void setTimes(String path, long modificationTime, long accessTime) {
+        Node node = get(path);
+        if (modificationTime >= 0) node.modificationTime = modificationTime;
+        if (accessTime >= 0) node.accessTime = accessTime;
+    }
+
+    /**
+     * {@code MODIFYACLENTRIES}: adds entries, replacing existing entries for the same scope, type and name
+     */
+    public synchronized void modifyAclEntries(String path, List<AclEntry> entries) {
+        Node node = get(path);
+        for (AclEntry e : entries) {
+            removeMatching(node.acl, e);
+            node.acl.add(e);
+        }
+    }
+
+    /**
+     * {@code REMOVEACLENTRIES}: removes entries matching the scope, type and name of the given entries
+     */
+    public synchronized void removeAclEntries(String path, List<AclEntry> entries) {
+        Node node = get(path);
+        for (AclEntry e : entries) removeMatching(node.acl, e);
+    }
+
+    public synchronized void removeDefaultAcl(String path) {
+        Node node = get(path);
+        for (Iterator<AclEntry> it = node.acl.iterator(); it.hasNext(); ) {
+            if (it.next().scope == AclScope.DEFAULT) it.remove();
+        }
+    }
+
+    public synchronized void removeAcl(String path) {
+        get(path).acl.clear();
+    }
+
+    public synchronized void setAcl(String path, List<AclEntry> entries) {
+        get(path).acl = new ArrayList<AclEntry>(entries);
+    }
+
+    public synchronized AclInfo getAcl(String path) {
+        Node node = get(path);
+        List<String> entries = new ArrayList<String>();
+        for (AclEntry e : node.acl) entries.add(e.toString());
+        return new AclInfo(entries, node.owner, node.group, node.permission);
+    }
+
+    private static void removeMatching(List<AclEntry> acl, AclEntry e) {
+        for (Iterator<AclEntry> it = acl.iterator(); it.hasNext(); ) {
+            AclEntry x = it.next();
+            if (x.scope == e.scope && x.type == e.type && x.name.equals(e.name)) it.remove();
+        }
+    }
+
+    /* ------------------------------------------------------------------------------------------------------ */
+    /* Helpers for tests                                                                                      */
+
+    /**
+     * creates (or overwrites) a file with the given contents, creating parent directories
+     */
+    public void writeFile(String path, byte[] contents) {
+        synchronized (this) {
+            create(path, true, true, null);
+        }
+        append(path, contents, 0, contents.length, -1);
+    }
+
+    /**
+     * @return the contents of a file
+     */
+    public byte[] readFile(String path) {
+        return read(path, 0, getStatus(path).length);
+    }
+
+    /**
+     * @return whether a file or directory exists
+     */
+    public synchronized boolean exists(String path) {
+        return find(path) != null;
+    }
+}
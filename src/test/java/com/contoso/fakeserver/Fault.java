@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.fakeserver;
+
+
+/**
+ * Failures {@link FakeAdlServer} can inject instead of (or in the middle of) serving a request.
+ */
+public enum Fault {
+    /**
+     * 429 Too Many Requests, as the service returns when an account's request rate is throttled
+     */
+    THROTTLE_429,
+
+    /**
+     * 503 Service Unavailable, as returned while the service sheds load
+     */
+    UNAVAILABLE_503,
+
+    /**
+     * 500 Internal Server Error
+     */
+    INTERNAL_ERROR_500,
+
+    /**
+     * connection closed before any response is sent. The operation is not performed.
+     */
+    CONNECTION_DROP,
+
+    /**
+     * for {@code OPEN}, the response declares the full length but the connection is closed halfway through
+     * the body. Other operations are performed, then the connection is closed without a response (so the client
+     * cannot tell whether the operation happened, as with a real network failure).
+     */
+    TRUNCATED_RESPONSE,
+
+    /**
+     * the server waits for {@link FakeAdlServer#setStallMillis(long) the stall time} before serving the request,
+     * to trigger client timeouts
+     */
+    STALL
+}
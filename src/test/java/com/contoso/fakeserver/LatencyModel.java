@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.fakeserver;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Distribution of the service-side latency {@link FakeAdlServer} adds to each request, before it does any work.
+ * Use the static factories to create one.
+ */
+public abstract class LatencyModel {
+
+    /**
+     * @return the delay for the next request, in nanoseconds
+     */
+    public abstract long nextNanos();
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * @return a model that adds no latency
+     */
+    public static LatencyModel none() {
+        return fixed(0);
+    }
+
+    /**
+     * @param millis the delay of every request
+     * @return a model that adds the same latency to every request
+     */
+    public static LatencyModel fixed(final double millis) {
+        final long nanos = (long) (millis * NANOS_PER_MILLI);
+        return new LatencyModel() {
+            public long nextNanos() {
+                return nanos;
+            }
+        };
+    }
+
+    /**
+     * @param minMillis smallest delay
+     * @param maxMillis largest delay
+     * @return a model with latency uniformly distributed between the bounds
+     */
+    public static LatencyModel uniform(final double minMillis, final double maxMillis) {
+        if (maxMillis < minMillis) throw new IllegalArgumentException("maxMillis is less than minMillis");
+        return new LatencyModel() {
+            public long nextNanos() {
+                double ms = minMillis + ThreadLocalRandom.current().nextDouble() * (maxMillis - minMillis);
+                return (long) (ms * NANOS_PER_MILLI);
+            }
+        };
+    }
+
+    /**
+     * Log-normal latency, the usual shape of real service latency: most requests near the median and a long
+     * right tail. With {@code sigma} of 0.5, p99 is about 3.2 times the median; with 1.0, about 10 times.
+     *
+     * @param medianMillis the median delay
+     * @param sigma standard deviation of the underlying normal distribution
+     * @return a log-normal latency model
+     */
+    public static LatencyModel logNormal(final double medianMillis, final double sigma) {
+        if (medianMillis < 0 || sigma < 0) throw new IllegalArgumentException("median and sigma must be non-negative");
+        return new LatencyModel() {
+            public long nextNanos() {
+                double ms = medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+                return (long) (ms * NANOS_PER_MILLI);
+            }
+        };
+    }
+
+    /**
+     * Adds occasional stalls to another model, e.g. to exercise request hedging or timeouts.
+     *
+     * @param base the model for normal requests
+     * @param probability fraction of requests that stall
+     * @param stallMillis the extra delay of a stalled request
+     * @return a model that adds {@code stallMillis} to a fraction of requests
+     */
+    public static LatencyModel withStalls(final LatencyModel base, final double probability, final double stallMillis) {
+        final long stallNanos = (long) (stallMillis * NANOS_PER_MILLI);
+        return new LatencyModel() {
+            public long nextNanos() {
+                long nanos = base.nextNanos();
+                if (ThreadLocalRandom.current().nextDouble() < probability) nanos += stallNanos;
+                return nanos;
+            }
+        };
+    }
+}
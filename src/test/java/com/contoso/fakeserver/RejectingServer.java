@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.fakeserver;
+
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Stand-in server that rejects every request, for measuring what a rejection costs the client.
+ * <P>
+ * It is written on raw sockets because {@link com.sun.net.httpserver.HttpServer} answers
+ * {@code Expect: 100-continue} itself, before a handler can look at the request. This server answers such a
+ * request with the rejection straight away, so the client never sends the body, as a real service does when
+ * it can reject a request from its headers. A request without the header has its whole body read first, as
+ * when the client streams the body before the server has decided.
+ * </P><P>
+ * Every response closes the connection.
+ * </P>
+ */
+public class RejectingServer {
+
+    private final int code;
+    private final String exceptionName;
+    private ServerSocket socket;
+    private ExecutorService executor;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong expectContinueCount = new AtomicLong();
+    private final AtomicLong bodyBytesReceived = new AtomicLong();
+
+    /**
+     * @param code HTTP status to reject requests with (401 or 429, for example)
+     * @param exceptionName name of the exception in the {@code RemoteException} body
+     */
+    public RejectingServer(int code, String exceptionName) {
+        this.code = code;
+        this.exceptionName = exceptionName;
+    }
+
+    /**
+     * starts the server on an ephemeral loopback port
+     *
+     * @return this server
+     * @throws IOException if the server socket cannot be opened
+     */
+    public RejectingServer start() throws IOException {
+        socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool();
+        executor.execute(new Runnable() {
+            public void run() {
+                while (!socket.isClosed()) {
+                    try {
+                        final Socket s = socket.accept();
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                serve(s);
+                            }
+                        });
+                    } catch (IOException ex) {
+                        // socket closed by stop()
+                    }
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * stops the server
+     */
+    public void stop() {
+        try {
+            if (socket != null) socket.close();
+        } catch (IOException ex) {
+            // ignore
+        }
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * @return a new client for this server, with insecure (HTTP) transport
+     */
+    public ADLStoreClient createClient() {
+        InetSocketAddress address = (InetSocketAddress) socket.getLocalSocketAddress();
+        ADLStoreClient client = ADLStoreClient.createClient(address.getHostString() + ":" + address.getPort(), "token");
+        client.setInsecureTransport();
+        return client;
+    }
+
+    /**
+     * @return number of requests received
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return number of requests that carried {@code Expect: 100-continue}
+     */
+    public long getExpectContinueCount() {
+        return expectContinueCount.get();
+    }
+
+    /**
+     * @return number of request body bytes received
+     */
+    public long getBodyBytesReceived() {
+        return bodyBytesReceived.get();
+    }
+
+    private void serve(Socket s) {
+        try {
+            InputStream in = new BufferedInputStream(s.getInputStream());
+            long contentLength = 0;
+            boolean expectContinue = false;
+            String line = readLine(in);   // request line
+            if (line == null) return;
+            while ((line = readLine(in)) != null && line.length() > 0) {
+                int colon = line.indexOf(':');
+                if (colon < 0) continue;
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                if (name.equals("content-length")) contentLength = Long.parseLong(value);
+                if (name.equals("expect") && value.equalsIgnoreCase("100-continue")) expectContinue = true;
+            }
+            requestCount.incrementAndGet();
+            if (expectContinue) {
+                expectContinueCount.incrementAndGet();
+            } else {
+                byte[] buf = new byte[64 * 1024];
+                long remaining = contentLength;
+                while (remaining > 0) {
+                    int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+                    if (n < 0) break;
+                    bodyBytesReceived.addAndGet(n);
+                    remaining -= n;
+                }
+            }
+
+            byte[] body = ("{\"RemoteException\":{\"exception\":\"" + exceptionName
+                    + "\",\"message\":\"rejected\",\"javaClassName\":\"\"}}").getBytes("UTF-8");
+            String headers = "HTTP/1.1 " + code + " Rejected\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + "Connection: close\r\n\r\n";
+            OutputStream out = s.getOutputStream();
+            out.write(headers.getBytes("US-ASCII"));
+            out.write(body);
+            out.flush();
+        } catch (IOException ex) {
+            // client went away
+        } finally {
+            try {
+                s.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') return sb.toString();
+            if (c != '\r') sb.append((char) c);
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import java.io.IOException;
+
+
+/**
+ * Responses for tests that script a {@link MockWebServer} call by call, rather than run a
+ * {@link FakeAdlServer}.
+ * <P>
+ * Typical use:
+ * </P>
+ * <pre>
+ *     MockWebServer server = new MockWebServer();
+ *     ADLStoreClient client = CannedResponses.startClient(server);
+ *     server.enqueue(CannedResponses.fileStatus());
+ *     ...
+ *     server.shutdown();
+ * </pre>
+ */
+final class CannedResponses {
+
+    /**
+     * {@code GETFILESTATUS} body for a 10 byte file
+     */
+    static final String FILE_STATUS = "{\"FileStatus\":{\"length\":10,\"pathSuffix\":\"\",\"type\":\"FILE\"," +
+            "\"blockSize\":268435456,\"accessTime\":1452103827023,\"modificationTime\":1452103827023," +
+            "\"replication\":0,\"permission\":\"770\",\"owner\":\"owner\",\"group\":\"group\"}}";
+
+    /**
+     * error body the service sends with a 404
+     */
+    static final String NOT_FOUND = "{\"RemoteException\":{\"exception\":\"FileNotFoundException\"," +
+            "\"message\":\"File/Folder does not exist\",\"javaClassName\":\"java.io.FileNotFoundException\"}}";
+
+    /**
+     * error body the service sends with a 500
+     */
+    static final String SERVER_ERROR = "{\"RemoteException\":{\"exception\":\"RuntimeException\"," +
+            "\"message\":\"Internal error\",\"javaClassName\":\"java.lang.RuntimeException\"}}";
+
+    private CannedResponses() {
+    }
+
+    /**
+     * @return 200 with {@link #FILE_STATUS}
+     */
+    static MockResponse fileStatus() {
+        return new MockResponse().setResponseCode(200).setBody(FILE_STATUS);
+    }
+
+    /**
+     * @return 404 with {@link #NOT_FOUND}
+     */
+    static MockResponse notFound() {
+        return new MockResponse().setResponseCode(404).setBody(NOT_FOUND);
+    }
+
+    /**
+     * @return 500 with {@link #SERVER_ERROR}
+     */
+    static MockResponse serverError() {
+        return new MockResponse().setResponseCode(500).setBody(SERVER_ERROR);
+    }
+
+    /**
+     * Starts the server, and creates a client for it. The server speaks plain HTTP, so the client is set to
+     * {@link ADLStoreClient#setInsecureTransport() insecure transport}. Set a dispatcher, if any, before this.
+     *
+     * @param server the server, not yet started
+     * @return a client whose requests go to the server
+     * @throws IOException if the server cannot start
+     */
+    static ADLStoreClient startClient(MockWebServer server) throws IOException {
+        server.start();
+        ADLStoreClient client = ADLStoreClient.createClient(server.getHostName() + ":" + server.getPort(), "token");
+        client.setInsecureTransport();
+        return client;
+    }
+}
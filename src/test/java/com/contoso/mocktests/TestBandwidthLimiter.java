@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.microsoft.azure.datalake.store.ADLFileInputStream;
+import com.microsoft.azure.datalake.store.ADLFileOutputStream;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.IfExists;
+import com.microsoft.azure.datalake.store.protocol.BandwidthLimiter;
+import com.microsoft.azure.datalake.store.protocol.RequestPriority;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+
+public class TestBandwidthLimiter {
+
+    private static final long MILLIS = 1000000L;
+
+    @Test
+    public void limitsRate() throws IOException {
+        BandwidthLimiter limiter = new BandwidthLimiter(1024 * 1024, 64 * 1024);
+        long start = System.nanoTime();
+        limiter.acquire(64 * 1024 + 512 * 1024, null);   // burst, then half a second at 1MB/s
+        long elapsed = System.nanoTime() - start;
+        assertTrue("took " + elapsed / MILLIS + " ms", elapsed >= 450 * MILLIS);
+        assertTrue("took " + elapsed / MILLIS + " ms", elapsed < 2000 * MILLIS);
+    }
+
+    private Thread acquirer(final BandwidthLimiter limiter, final RequestPriority priority, final List<String> order) {
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    limiter.acquire(10 * 1024, priority);
+                    order.add(priority.name());
+                } catch (IOException ex) {
+                    order.add(ex.toString());
+                }
+            }
+        };
+        t.start();
+        return t;
+    }
+
+    @Test
+    public void interactiveGoesFirst() throws Exception {
+        BandwidthLimiter limiter = new BandwidthLimiter(50 * 1024, 10 * 1024);
+        limiter.acquire(10 * 1024, null);    // empty the bucket: the next piece waits 200 ms
+
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        Thread background = acquirer(limiter, RequestPriority.BACKGROUND, order);
+        Thread.sleep(30);
+        Thread interactive = acquirer(limiter, RequestPriority.INTERACTIVE, order);
+        background.join();
+        interactive.join();
+        assertEquals("INTERACTIVE", order.get(0));
+        assertEquals("BACKGROUND", order.get(1));
+    }
+
+    @Test
+    public void backgroundIsNotStarved() throws Exception {
+        final BandwidthLimiter limiter = new BandwidthLimiter(100 * 1024, 10 * 1024);
+        limiter.setStarvationThresholdMillis(200);
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        Thread[] interactive = new Thread[4];
+        for (int i = 0; i < interactive.length; i++) {
+            interactive[i] = new Thread() {
+                public void run() {
+                    try {
+                        while (!stop.get()) limiter.acquire(10 * 1024, RequestPriority.INTERACTIVE);
+                    } catch (IOException ex) {
+                        // test ends
+                    }
+                }
+            };
+            interactive[i].start();
+        }
+        Thread.sleep(50);
+
+        long start = System.nanoTime();
+        limiter.acquire(10 * 1024, RequestPriority.BACKGROUND);
+        long waited = System.nanoTime() - start;
+        stop.set(true);
+        for (Thread t : interactive) t.join();
+        assertTrue("background waited " + waited / MILLIS + " ms", waited < 1000 * MILLIS);
+    }
+
+    @Test
+    public void clientLimitAppliesToUploadsAndReads() throws IOException {
+        FakeAdlServer server = new FakeAdlServer().start();
+        try {
+            ADLStoreClient client = server.createClient();
+            client.setBandwidthLimiter(new BandwidthLimiter(512 * 1024, 64 * 1024));
+            byte[] data = new byte[256 * 1024];
+
+            long start = System.nanoTime();
+            ADLFileOutputStream out = client.createOutputStream("/a.bin", IfExists.OVERWRITE);
+            out.write(data);
+            out.close();
+            long uploadNanos = System.nanoTime() - start;
+            assertTrue("upload took " + uploadNanos / MILLIS + " ms", uploadNanos >= 300 * MILLIS);
+
+            start = System.nanoTime();
+            ADLFileInputStream in = client.getReadStream("/a.bin");
+            in.setPriority(RequestPriority.INTERACTIVE);
+            assertEquals(data.length, in.read(0, new byte[data.length], 0, data.length));
+            in.close();
+            long readNanos = System.nanoTime() - start;
+            assertTrue("read took " + readNanos / MILLIS + " ms", readNanos >= 300 * MILLIS);
+        } finally {
+            server.stop();
+        }
+    }
+}
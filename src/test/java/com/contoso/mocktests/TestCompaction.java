@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.Fault;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.CompactionOptions;
+import com.microsoft.azure.datalake.store.CompactionReport;
+import com.microsoft.azure.datalake.store.protocol.RequestEvent;
+import com.microsoft.azure.datalake.store.protocol.RequestListenerAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+
+public class TestCompaction {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+    private final Random random = new Random(49);
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    /*
+     writes count small files to /d, returning their contents joined in name order
+     */
+    private byte[] writeSmallFiles(int count, int length) throws IOException {
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            byte[] b = new byte[length];
+            random.nextBytes(b);
+            fs.writeFile(String.format("/d/f%03d", i), b);
+            all.write(b);
+        }
+        return all.toByteArray();
+    }
+
+    private int countNames(String prefix) {
+        int count = 0;
+        for (FakeFileSystem.FileInfo info : fs.list("/d", null, null, 10000)) {
+            if (info.name.startsWith(prefix)) count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void smallFilesAreMergedInOrder() throws IOException {
+        byte[] contents = writeSmallFiles(30, 100);
+        fs.writeFile("/d/g-big", new byte[2000]);
+        fs.writeFile("/d/_SUCCESS", new byte[0]);
+        fs.mkdirs("/d/sub", null);
+        CompactionOptions options = new CompactionOptions();
+        options.targetSize = 1000;
+        options.smallFileThreshold = 1000;
+
+        CompactionReport report = client.compactDirectory("/d", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(3, report.mergedFileCount);
+        assertEquals(30, report.sourceFileCount);
+        assertEquals(3000, report.byteCount);
+        assertEquals(3, report.concatCount);
+        assertEquals(3, server.getRequestCount("MSCONCAT"));
+        assertArrayEquals(Arrays.copyOfRange(contents, 1000, 2000), fs.readFile("/d/compacted-f010"));
+        assertEquals(0, countNames("f"));
+        assertEquals(3, countNames("compacted-"));
+        assertTrue(fs.exists("/d/g-big"));
+        assertTrue(fs.exists("/d/_SUCCESS"));
+        assertTrue(fs.exists("/d/sub"));
+    }
+
+    @Test
+    public void shortPagesAreNotTheEndOfTheListing() throws IOException {
+        byte[] contents = writeSmallFiles(30, 100);
+        server.setMaxListSize(7);
+        CompactionOptions options = new CompactionOptions();
+        options.targetSize = 3000;
+
+        CompactionReport report = client.compactDirectory("/d", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(1, report.mergedFileCount);
+        assertEquals(30, report.sourceFileCount);
+        assertArrayEquals(contents, fs.readFile("/d/compacted-f000"));
+    }
+
+    @Test
+    public void bigGroupsAreMergedInLevels() throws IOException {
+        byte[] contents = writeSmallFiles(25, 10);
+        CompactionOptions options = new CompactionOptions();
+        options.maxSourcesPerConcat = 4;
+
+        CompactionOptions dryRun = new CompactionOptions();
+        dryRun.maxSourcesPerConcat = 4;
+        dryRun.dryRun = true;
+        CompactionReport planned = client.compactDirectory("/d", dryRun);
+        assertEquals(0, server.getRequestCount("MSCONCAT"));
+
+        CompactionReport report = client.compactDirectory("/d", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(1, report.mergedFileCount);
+        assertEquals(25, report.sourceFileCount);
+        // 25 files make 7 runs, the last of one file; 7 intermediates make 2 runs; then the final request
+        assertEquals(6 + 2 + 1, report.concatCount);
+        assertEquals(report.concatCount, planned.concatCount);
+        assertEquals(report.sourceFileCount, planned.sourceFileCount);
+        assertArrayEquals(contents, fs.readFile("/d/compacted-f000"));
+        assertEquals(1, fs.list("/d", null, null, 100).size());
+    }
+
+    @Test
+    public void failedRunIsCarriedUpAsItsFiles() throws IOException {
+        byte[] contents = writeSmallFiles(25, 10);
+        server.injectFault("MSCONCAT", Fault.INTERNAL_ERROR_500, 3);   // more than the retries
+        CompactionOptions options = new CompactionOptions();
+        options.maxSourcesPerConcat = 4;
+        options.maxConcurrency = 1;
+
+        CompactionReport report = client.compactDirectory("/d", options);
+
+        // the first run failed, so the next level has its 4 files, 5 intermediates and the last file
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(6 + 3 + 1, report.concatCount);
+        assertArrayEquals(contents, fs.readFile("/d/compacted-f000"));
+        assertEquals(1, fs.list("/d", null, null, 100).size());
+    }
+
+    @Test
+    public void concatThatWentThroughIsNotRepeated() throws IOException {
+        byte[] contents = writeSmallFiles(5, 10);
+        server.injectFault("MSCONCAT", Fault.TRUNCATED_RESPONSE, 1);   // done, but the response is lost
+
+        CompactionReport report = client.compactDirectory("/d", null);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(1, report.mergedFileCount);
+        assertArrayEquals(contents, fs.readFile("/d/compacted-f000"));
+    }
+
+    @Test
+    public void failedMergeLeavesNothingHidden() throws IOException {
+        byte[] contents = writeSmallFiles(9, 10);
+        final AtomicBoolean injected = new AtomicBoolean(false);
+        client.addRequestListener(new RequestListenerAdapter() {
+            public void onRequestStart(RequestEvent event) {
+                // fail the final request, after the intermediates are made
+                if (event.getOperation().equals("MSCONCAT") && !event.getPath().contains(".compacting")
+                        && !injected.getAndSet(true)) {
+                    server.injectFault("MSCONCAT", Fault.INTERNAL_ERROR_500, 3);
+                }
+            }
+        });
+        CompactionOptions options = new CompactionOptions();
+        options.maxSourcesPerConcat = 4;
+        options.maxConcurrency = 1;
+
+        CompactionReport report = client.compactDirectory("/d", options);
+
+        assertFalse(report.isSuccessful());
+        assertEquals(1, report.failureCount);
+        assertEquals(500, report.failures.get(0).httpResponseCode);
+        assertEquals("/d/compacted-f000", report.failures.get(0).path);
+        assertEquals(2, report.mergedFileCount);
+        assertEquals(8, report.sourceFileCount);
+        assertEquals(1, report.skippedFileCount);
+        assertEquals(0, countNames(".compacting"));
+        List<FakeFileSystem.FileInfo> left = fs.list("/d", null, null, 100);
+        assertEquals(3, left.size());
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        all.write(fs.readFile("/d/compacted-f000"));
+        all.write(fs.readFile("/d/compacted-f004"));
+        all.write(fs.readFile("/d/f008"));
+        assertArrayEquals(contents, all.toByteArray());
+    }
+}
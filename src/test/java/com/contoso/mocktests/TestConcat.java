@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.Fault;
+import com.microsoft.azure.datalake.store.ADLException;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.protocol.RequestEvent;
+import com.microsoft.azure.datalake.store.protocol.RequestListenerAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+
+public class TestConcat {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+    private final Random random = new Random(50);
+    private final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    /*
+     writes count small files to /d, named from the pattern, returning their paths
+     */
+    private List<String> writeFiles(String pattern, int count) throws IOException {
+        List<String> paths = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] b = new byte[1 + random.nextInt(20)];
+            random.nextBytes(b);
+            String path = "/d/" + String.format(pattern, i);
+            fs.writeFile(path, b);
+            contents.write(b);
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    @Test
+    public void longSourceListIsStreamed() throws IOException {
+        // more than one 64K chunk of body, with 2, 3 and 4 byte characters
+        List<String> sources = writeFiles("fé-日本-😀-%05d", 3000);
+
+        client.concatenateFiles("/d/all", sources);
+
+        assertEquals(1, server.getRequestCount("MSCONCAT"));
+        assertArrayEquals(contents.toByteArray(), fs.readFile("/d/all"));
+        assertEquals(1, fs.list("/d", null, null, 10000).size());
+    }
+
+    @Test
+    public void longListIsConcatenatedInTree() throws IOException {
+        List<String> sources = writeFiles("f%03d", 50);
+
+        client.concatenateFiles("/d/all", sources, 4, 4);
+
+        // 50 files make 13 runs; 13 intermediates make 4 runs, the last of one; then the final request
+        assertEquals(13 + 3 + 1, server.getRequestCount("MSCONCAT"));
+        assertArrayEquals(contents.toByteArray(), fs.readFile("/d/all"));
+        assertEquals(1, fs.list("/d", null, null, 100).size());
+    }
+
+    @Test
+    public void shortListIsOneRequest() throws IOException {
+        List<String> sources = writeFiles("f%03d", 4);
+
+        client.concatenateFiles("/d/all", sources, 4, 4);
+
+        assertEquals(1, server.getRequestCount("MSCONCAT"));
+        assertArrayEquals(contents.toByteArray(), fs.readFile("/d/all"));
+    }
+
+    @Test
+    public void failedTreeLeavesSourcesToConcatenateAgain() throws IOException {
+        List<String> sources = writeFiles("f%03d", 10);
+        final AtomicBoolean injected = new AtomicBoolean(false);
+        client.addRequestListener(new RequestListenerAdapter() {
+            public void onRequestStart(RequestEvent event) {
+                // fail the final request, after the intermediates are made
+                if (event.getOperation().equals("MSCONCAT") && event.getPath().equals("/d/all")
+                        && !injected.getAndSet(true)) {
+                    server.injectFault("MSCONCAT", Fault.INTERNAL_ERROR_500, 3);   // more than the retries
+                }
+            }
+        });
+
+        try {
+            client.concatenateFiles("/d/all", sources, 4, 1);
+            fail("concatenate should fail");
+        } catch (ADLException ex) {
+            assertEquals(500, ex.httpResponseCode);
+        }
+
+        // the intermediates are back at the paths of their first files
+        assertFalse(fs.exists("/d/all"));
+        List<String> left = new ArrayList<String>();
+        for (String source : sources) {
+            if (fs.exists(source)) left.add(source);
+        }
+        assertEquals(3, left.size());
+        assertEquals(3, fs.list("/d", null, null, 100).size());
+        assertEquals("/d/f000", left.get(0));
+        assertEquals("/d/f004", left.get(1));
+        assertEquals("/d/f008", left.get(2));
+
+        client.concatenateFiles("/d/all", left, 4, 1);
+        assertArrayEquals(contents.toByteArray(), fs.readFile("/d/all"));
+    }
+
+    @Test
+    public void badListIsRejectedBeforeAnyRequest() throws IOException {
+        List<String> sources = writeFiles("f%03d", 10);
+        sources.add("/d/f003");
+
+        try {
+            client.concatenateFiles("/d/all", sources, 4, 4);
+            fail("duplicate source should be rejected");
+        } catch (ADLException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("more than once"));
+        }
+        assertEquals(0, server.getRequestCount("MSCONCAT"));
+        assertEquals(10, fs.list("/d", null, null, 100).size());
+    }
+}
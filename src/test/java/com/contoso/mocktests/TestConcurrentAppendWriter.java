@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.Fault;
+import com.contoso.fakeserver.LatencyModel;
+import com.microsoft.azure.datalake.store.ADLException;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.ConcurrentAppendWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+public class TestConcurrentAppendWriter {
+
+    private FakeAdlServer server = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        server.setLatency("CONCURRENTAPPEND", LatencyModel.fixed(20));
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    private static String record(int thread, int i) {
+        StringBuilder sb = new StringBuilder("t" + thread + "-r" + i + "-");
+        for (int k = 0; k < (thread * 31 + i * 7) % 200; k++) sb.append('x');   // records of varying size
+        return sb.append('\n').toString();
+    }
+
+    @Test
+    public void batchesRecordsFromManyThreads() throws Exception {
+        final ConcurrentAppendWriter writer = client.getConcurrentAppendWriter("/log.txt");
+        writer.setMaxBatchBytes(64 * 1024);
+        final int threads = 32;
+        final int records = 100;
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        Thread[] t = new Thread[threads];
+        for (int n = 0; n < threads; n++) {
+            final int thread = n;
+            t[n] = new Thread() {
+                public void run() {
+                    try {
+                        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+                        for (int i = 0; i < records; i++) futures.add(writer.append(record(thread, i).getBytes("UTF-8")));
+                        for (Future<Void> f : futures) f.get();
+                    } catch (Throwable ex) {
+                        synchronized (errors) {
+                            errors.add(ex);
+                        }
+                    }
+                }
+            };
+            t[n].start();
+        }
+        for (Thread thread : t) thread.join();
+        writer.close();
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        // every record is in the file, whole, and each thread's records are in order
+        String contents = new String(server.getFileSystem().readFile("/log.txt"), "UTF-8");
+        String[] lines = contents.split("\n");
+        assertEquals(threads * records, lines.length);
+        Set<String> seen = new HashSet<String>();
+        int[] next = new int[threads];
+        for (String line : lines) {
+            assertTrue(seen.add(line));
+            int thread = Integer.parseInt(line.substring(1, line.indexOf('-')));
+            assertEquals(record(thread, next[thread]++), line + "\n");
+        }
+
+        long appends = server.getRequestCount("CONCURRENTAPPEND");
+        assertEquals(writer.getBatchCount(), appends);
+        assertEquals(threads * records, writer.getRecordCount());
+        assertTrue("appends: " + appends, appends < threads * records / 10);
+    }
+
+    @Test
+    public void lingerBoundsLatency() throws Exception {
+        ConcurrentAppendWriter writer = client.getConcurrentAppendWriter("/log.txt");
+        writer.setLingerMillis(50);
+        long start = System.nanoTime();
+        writer.append("one\n".getBytes("UTF-8")).get(5, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        assertTrue("took " + elapsed / 1000000 + " ms", elapsed >= 50 * 1000000L);
+
+        writer.append("two\n".getBytes("UTF-8"));
+        writer.flush();     // does not wait for the linger time
+        assertEquals("one\ntwo\n", new String(server.getFileSystem().readFile("/log.txt"), "UTF-8"));
+        writer.close();
+        assertEquals(2, writer.getBatchCount());
+    }
+
+    @Test
+    public void failedBatchFailsItsRecords() throws Exception {
+        ConcurrentAppendWriter writer = client.getConcurrentAppendWriter("/log.txt");
+        server.injectFault("CONCURRENTAPPEND", Fault.INTERNAL_ERROR_500, 1);
+        Future<Void> failed = writer.append("lost\n".getBytes("UTF-8"));
+        try {
+            failed.get();
+            fail("append should have failed");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof ADLException);
+            assertEquals(500, ((ADLException) ex.getCause()).httpResponseCode);
+        }
+        assertEquals(1, server.getRequestCount("CONCURRENTAPPEND"));   // not retried: it may have been applied
+
+        writer.append("kept\n".getBytes("UTF-8")).get();
+        writer.close();
+        assertEquals("kept\n", new String(server.getFileSystem().readFile("/log.txt"), "UTF-8"));
+
+        try {
+            writer.append(new byte[1]);
+            fail("append after close should fail");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void recordLargerThanBatchIsRejected() throws IOException {
+        ConcurrentAppendWriter writer = client.getConcurrentAppendWriter("/log.txt");
+        writer.setMaxBatchBytes(1000);
+        writer.append(new byte[1001]);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.Fault;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.TransferOptions;
+import com.microsoft.azure.datalake.store.TransferReport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class TestCopy {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+    private final Random random = new Random(48);
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] b = new byte[length];
+        random.nextBytes(b);
+        return b;
+    }
+
+    @Test
+    public void copiesTreeInParallelChunks() throws IOException {
+        for (int i = 0; i < 12; i++) fs.writeFile("/src/d" + (i % 3) + "/f" + i, randomBytes(100 * i));
+        fs.writeFile("/src/medium", randomBytes(700 * 1024));
+        fs.writeFile("/src/d1/big", randomBytes(3 * 1024 * 1024 + 512 * 1024));
+        fs.mkdirs("/src/d2/empty", null);
+        TransferOptions options = new TransferOptions();
+        options.chunkSize = 1024 * 1024;
+
+        TransferReport report = client.utils.copy("/src", "/dst", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(14, report.fileCount);
+        assertEquals(5, report.directoryCount);
+        assertEquals(100 * 66 + 700 * 1024 + 3 * 1024 * 1024 + 512 * 1024, report.byteCount);
+        assertEquals(1, server.getRequestCount("MSCONCAT"));
+        assertEquals(1, server.getRequestCount("MKDIRS"));   // only the empty directory
+        assertArrayEquals(fs.readFile("/src/d1/big"), fs.readFile("/dst/d1/big"));
+        assertArrayEquals(fs.readFile("/src/medium"), fs.readFile("/dst/medium"));
+        for (int i = 0; i < 12; i++) {
+            String name = "/d" + (i % 3) + "/f" + i;
+            assertArrayEquals(name, fs.readFile("/src" + name), fs.readFile("/dst" + name));
+        }
+        assertTrue(fs.exists("/dst/d2/empty"));
+        assertEquals(5, fs.list("/dst/d1", null, null, 100).size());   // no parts left behind
+    }
+
+    @Test
+    public void copiesFileInBlocks() throws IOException {
+        byte[] contents = randomBytes(10 * 1024 * 1024 + 3);
+        fs.writeFile("/a/big", contents);
+        fs.writeFile("/b/big", new byte[7]);
+        TransferOptions options = new TransferOptions();
+        options.chunkSize = 6 * 1024 * 1024;
+
+        TransferReport report = client.utils.copy("/a/big", "/b/big", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(1, report.fileCount);
+        assertEquals(contents.length, report.byteCount);
+        assertEquals(4, server.getRequestCount("OPEN"));   // 4MB blocks: two in each chunk
+        assertEquals(4, server.getRequestCount("APPEND"));
+        assertArrayEquals(contents, fs.readFile("/b/big"));
+    }
+
+    @Test
+    public void failedFileDoesNotStopTheCopy() throws IOException {
+        for (int i = 0; i < 3; i++) fs.writeFile("/src/f" + i, randomBytes(10));
+        server.injectFault("OPEN", Fault.INTERNAL_ERROR_500, 3);   // more than the retries
+        TransferOptions options = new TransferOptions();
+        options.maxConcurrency = 1;
+
+        TransferReport report = client.utils.copy("/src", "/dst", options);
+
+        assertEquals(1, report.failureCount);
+        assertEquals(500, report.failures.get(0).httpResponseCode);
+        assertEquals(2, report.fileCount);
+        assertEquals(2, fs.list("/dst", null, null, 100).size());
+    }
+
+    @Test
+    public void copyIntoItselfIsRejected() throws IOException {
+        fs.writeFile("/src/f", new byte[1]);
+        try {
+            client.utils.copy("/src", "/src/sub", null);
+            fail("copying a directory into itself should fail");
+        } catch (IllegalArgumentException ex) {
+            assertFalse(fs.exists("/src/sub"));
+        }
+        assertTrue(client.utils.copy("/src", "/src2", null).isSuccessful());
+        assertEquals(1, fs.readFile("/src2/f").length);
+    }
+}
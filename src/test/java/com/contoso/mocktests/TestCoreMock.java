@@ -6,6 +6,280 @@
 
 package com.contoso.mocktests;
 
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.Fault;
+import com.contoso.fakeserver.LatencyModel;
+import com.microsoft.azure.datalake.store.ADLException;
+import com.microsoft.azure.datalake.store.ADLFileInputStream;
+import com.microsoft.azure.datalake.store.ADLFileOutputStream;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.ContentSummary;
+import com.microsoft.azure.datalake.store.DirectoryEntry;
+import com.microsoft.azure.datalake.store.DirectoryEntryType;
+import com.microsoft.azure.datalake.store.IfExists;
+import com.microsoft.azure.datalake.store.acl.AclEntry;
+import com.microsoft.azure.datalake.store.acl.AclStatus;
+import com.microsoft.azure.datalake.store.protocol.RequestEvent;
+import com.microsoft.azure.datalake.store.protocol.RequestListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * End-to-end tests of the SDK against {@link FakeAdlServer}: the client's requests and the server's responses
+ * both go over real HTTP, so these cover request encoding, response parsing and retries together.
+ */
 public class TestCoreMock {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] b = new byte[length];
+        new Random(length).nextBytes(b);
+        return b;
+    }
+
+    @Test
+    public void writeAndReadBack() throws IOException {
+        byte[] contents = randomBytes(9 * 1024 * 1024 + 17);   // more than two output stream buffers
+        ADLFileOutputStream out = client.createOutputStream("/dir/a.bin", IfExists.OVERWRITE);
+        out.write(contents);
+        out.close();
+        assertArrayEquals(contents, fs.readFile("/dir/a.bin"));
+
+        ADLFileInputStream in = client.getReadStream("/dir/a.bin");
+        byte[] read = new byte[contents.length];
+        int total = 0;
+        int n;
+        while (total < read.length && (n = in.read(read, total, read.length - total)) != -1) total += n;
+        assertEquals(-1, in.read());
+        in.close();
+        assertEquals(contents.length, total);
+        assertArrayEquals(contents, read);
+    }
+
+    @Test
+    public void uploadFromLocalFile() throws IOException {
+        byte[] contents = randomBytes(9 * 1000 * 1000 + 17);
+        File local = File.createTempFile("upload", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(local);
+            out.write(contents);
+            out.close();
+
+            final List<Long> appendSizes = Collections.synchronizedList(new ArrayList<Long>());
+            client.addRequestListener(new RequestListener() {
+                public void onRequestStart(RequestEvent event) { }
+                public void onRetry(RequestEvent event) { }
+                public void onResponseHeaders(RequestEvent event) {
+                    if (event.getOperation().equals("APPEND")) appendSizes.add(event.getBytesSent());
+                }
+                public void onBodyCompleted(RequestEvent event) { }
+                public void onFailure(RequestEvent event) { }
+            });
+            client.utils.upload("/up/a.bin", local.getPath(), IfExists.OVERWRITE);
+
+            assertArrayEquals(contents, fs.readFile("/up/a.bin"));
+            // same append boundaries as uploading through the stream's buffer; closing the stream adds an empty one
+            assertEquals(Arrays.asList(4000000L, 4000000L, 1000017L, 0L), appendSizes);
+        } finally {
+            local.delete();
+        }
+    }
+
+    @Test
+    public void positionedRead() throws IOException {
+        byte[] contents = randomBytes(100000);
+        fs.writeFile("/a.bin", contents);
+
+        ADLFileInputStream in = client.getReadStream("/a.bin");
+        byte[] b = new byte[1000];
+        assertEquals(1000, in.read(50000, b, 0, 1000));
+        assertArrayEquals(Arrays.copyOfRange(contents, 50000, 51000), b);
+        assertEquals(500, in.read(99500, b, 0, 1000));
+        in.close();
+    }
+
+    @Test
+    public void appendAndConcurrentAppend() throws IOException {
+        fs.writeFile("/a.txt", "abc".getBytes("UTF-8"));
+        ADLFileOutputStream out = client.getAppendStream("/a.txt");
+        out.write("def".getBytes("UTF-8"));
+        out.close();
+        assertEquals("abcdef", new String(fs.readFile("/a.txt"), "UTF-8"));
+
+        try {
+            fs.append("/a.txt", new byte[1], 0, 1, 3);
+            fail("append at wrong offset should fail");
+        } catch (FakeFileSystem.FsException ex) {
+            assertEquals(400, ex.httpCode);
+        }
+    }
+
+    @Test
+    public void enumerateInPages() throws IOException {
+        for (int i = 0; i < 25; i++) fs.writeFile(String.format("/d/f%02d", i), new byte[i]);
+        fs.mkdirs("/d/sub", null);
+        server.setMaxListSize(7);
+
+        List<DirectoryEntry> all = new ArrayList<DirectoryEntry>();
+        String after = null;
+        List<DirectoryEntry> page;
+        do {
+            page = client.enumerateDirectory("/d", 100, after);
+            assertTrue(page.size() <= 7);
+            all.addAll(page);
+            if (!page.isEmpty()) after = page.get(page.size() - 1).name;
+        } while (!page.isEmpty());
+
+        assertEquals(26, all.size());
+        assertEquals("f00", all.get(0).name);
+        assertEquals("/d/f24", all.get(24).fullName);
+        assertEquals(24, all.get(24).length);
+        assertEquals(DirectoryEntryType.DIRECTORY, all.get(25).type);
+        assertEquals(2, client.enumerateDirectory("/d", 100, "f22", "f25").size());
+    }
+
+    @Test
+    public void namespaceOperations() throws IOException {
+        fs.writeFile("/a/1", "one".getBytes("UTF-8"));
+        fs.writeFile("/a/2", "two".getBytes("UTF-8"));
+        fs.writeFile("/a/3", "three".getBytes("UTF-8"));
+
+        assertTrue(client.concatenateFiles("/b/all", Arrays.asList("/a/1", "/a/2", "/a/3")));
+        assertEquals("onetwothree", new String(fs.readFile("/b/all"), "UTF-8"));
+        assertFalse(fs.exists("/a/1"));
+
+        assertTrue(client.rename("/b/all", "/a/renamed"));
+        assertFalse(client.rename("/b/missing", "/a/x"));
+        assertEquals(11, client.getDirectoryEntry("/a/renamed").length);
+
+        client.setPermission("/a/renamed", "750");
+        client.setOwner("/a/renamed", "alice", "staff");
+        DirectoryEntry entry = client.getDirectoryEntry("/a/renamed");
+        assertEquals("750", entry.permission);
+        assertEquals("alice", entry.user);
+        assertEquals("staff", entry.group);
+
+        ContentSummary summary = client.getContentSummary("/");
+        assertEquals(11, summary.length);
+        assertEquals(1, summary.fileCount);
+
+        assertTrue(client.deleteRecursive("/a"));
+        assertFalse(fs.exists("/a/renamed"));
+    }
+
+    @Test
+    public void acls() throws IOException {
+        fs.mkdirs("/d", null);
+        client.modifyAclEntries("/d", AclEntry.parseAclSpec("user:bob:rwx,default:user:bob:r-x,group:eng:r--"));
+        AclStatus status = client.getAclStatus("/d");
+        assertEquals(3, status.aclSpec.size());
+
+        client.removeAclEntries("/d", AclEntry.parseAclSpec("group:eng:r--"));
+        client.removeDefaultAcls("/d");
+        status = client.getAclStatus("/d");
+        assertEquals(1, status.aclSpec.size());
+        assertEquals("user:bob:rwx", status.aclSpec.get(0).toString());
+    }
+
+    @Test
+    public void errorsCarryRemoteException() throws IOException {
+        try {
+            client.getDirectoryEntry("/missing");
+            fail("missing file should fail");
+        } catch (ADLException ex) {
+            assertEquals(404, ex.httpResponseCode);
+            assertEquals("FileNotFoundException", ex.remoteExceptionName);
+        }
+    }
+
+    @Test
+    public void throttlingIsRetried() throws IOException {
+        fs.writeFile("/a.txt", new byte[10]);
+        server.injectFault("GETFILESTATUS", Fault.THROTTLE_429, 1);
+        assertEquals(10, client.getDirectoryEntry("/a.txt").length);
+        assertEquals(2, server.getRequestCount("GETFILESTATUS"));
+        assertEquals(1, server.getThrottledCount());
+        assertEquals(1, client.getMetricsSnapshot().total.retryCount);
+    }
+
+    @Test
+    public void droppedConnectionIsRetried() throws IOException {
+        fs.writeFile("/a.txt", new byte[10]);
+        server.injectFault("GETFILESTATUS", Fault.CONNECTION_DROP, 1);
+        assertEquals(10, client.getDirectoryEntry("/a.txt").length);
+        assertEquals(2, server.getRequestCount("GETFILESTATUS"));
+    }
+
+    @Test
+    public void rateLimitThrottles() throws IOException {
+        fs.writeFile("/a.txt", new byte[10]);
+        server.setRequestRateLimit(1);
+        client.getDirectoryEntry("/a.txt");    // takes the only token; the retry waits for the next one
+        assertEquals(10, client.getDirectoryEntry("/a.txt").length);
+        assertTrue(server.getThrottledCount() >= 1);
+    }
+
+    @Test
+    public void latencyAndBandwidth() throws IOException {
+        fs.writeFile("/a.bin", new byte[256 * 1024]);
+        server.setLatency("GETFILESTATUS", LatencyModel.fixed(100));
+        long start = System.nanoTime();
+        client.getDirectoryEntry("/a.bin");
+        assertTrue(System.nanoTime() - start >= 100 * 1000000L);
+
+        server.setBandwidth(512 * 1024);     // 256K over the 64K burst takes at least 0.375 s
+        start = System.nanoTime();
+        ADLFileInputStream in = client.getReadStream("/a.bin");
+        byte[] b = new byte[256 * 1024];
+        assertEquals(b.length, in.read(0, b, 0, b.length));
+        in.close();
+        assertTrue(System.nanoTime() - start >= 300 * 1000000L);
+    }
+
+    @Test
+    public void patternFileSystemForLoadTests() throws IOException {
+        server.stop();
+        server = new FakeAdlServer(new FakeFileSystem(false)).start();
+        client = server.createClient();
+        ADLFileOutputStream out = client.createOutputStream("/big", IfExists.OVERWRITE);
+        out.write(new byte[5 * 1024 * 1024]);
+        out.close();
+        assertEquals(5 * 1024 * 1024, client.getDirectoryEntry("/big").length);
+
+        ADLFileInputStream in = client.getReadStream("/big");
+        byte[] b = new byte[16];
+        assertEquals(16, in.read(1000, b, 0, 16));
+        assertEquals((byte) 1000, b[0]);
+        assertEquals((byte) 1015, b[15]);
+        in.close();
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.LatencyModel;
+import com.microsoft.azure.datalake.store.ADLException;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.DirectoryEntry;
+import com.microsoft.azure.datalake.store.DirectoryEntryBatch;
+import com.microsoft.azure.datalake.store.DirectoryEntryType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class TestDirectoryEntryBatch {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+        for (int i = 0; i < 500; i++) fs.writeFile(String.format("/d/f%03d", i), new byte[i]);
+        fs.writeFile("/e/one", new byte[1]);
+        fs.mkdirs("/e/sub", null);
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void repeatedPathsAreFetchedOnce() throws IOException {
+        List<String> paths = Arrays.asList("/e/one", "/e/sub", "/d/f007", "/e/one", "/missing", "/d/f007");
+
+        DirectoryEntryBatch batch = client.getDirectoryEntries(paths);
+
+        assertEquals(4, batch.statusCallCount);
+        assertEquals(0, batch.listCallCount);
+        assertEquals(3, batch.entries.size());
+        assertEquals(DirectoryEntryType.DIRECTORY, batch.get("/e/sub").type);
+        assertEquals(7, batch.get("/d/f007").length);
+        assertFalse(batch.isSuccessful());
+        assertEquals(404, ((ADLException) batch.errors.get("/missing")).httpResponseCode);
+        try {
+            batch.get("/missing");
+            fail("get should throw the path's error");
+        } catch (ADLException ex) {
+            assertEquals(404, ex.httpResponseCode);
+        }
+    }
+
+    @Test
+    public void siblingsAreReadFromOneListing() throws IOException {
+        List<String> paths = new ArrayList<String>();
+        for (int i = 100; i < 400; i += 5) paths.add(String.format("/d/f%03d", i));
+        paths.add("/d/f250x");   // missing, but inside the listed range
+
+        DirectoryEntryBatch batch = client.getDirectoryEntries(paths);
+
+        assertEquals(1, batch.listCallCount);
+        assertEquals(3, batch.statusCallCount);   // the two ends of the range, and the missing path
+        assertEquals(60, batch.entries.size());
+        assertEquals(1, batch.errors.size());
+        for (int i = 100; i < 400; i += 5) {
+            String path = String.format("/d/f%03d", i);
+            DirectoryEntry expected = client.getDirectoryEntry(path);
+            DirectoryEntry entry = batch.get(path);
+            assertEquals(expected.fullName, entry.fullName);
+            assertEquals(expected.name, entry.name);
+            assertEquals(expected.length, entry.length);
+            assertEquals(expected.type, entry.type);
+        }
+
+        batch = client.getDirectoryEntries(paths, 16, 0);
+        assertEquals(0, batch.listCallCount);
+        assertEquals(61, batch.statusCallCount);
+        assertEquals(60, batch.entries.size());
+    }
+
+    @Test
+    public void callsRunConcurrently() throws IOException {
+        server.setLatency("GETFILESTATUS", LatencyModel.fixed(50));
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < 32; i++) paths.add(String.format("/d/f%03d", i * 10));
+
+        long start = System.nanoTime();
+        DirectoryEntryBatch batch = client.getDirectoryEntries(paths, 16, 0);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        assertTrue(batch.isSuccessful());
+        assertEquals(32, batch.statusCallCount);
+        assertTrue("took " + elapsed + " ms", elapsed < 32 * 50 / 2);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.SyncOptions;
+import com.microsoft.azure.datalake.store.SyncReport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+
+public class TestDirectorySync {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+    private File local = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+
+        // 5 directories: the root, a, b, b/c and the empty e
+        local = folder.newFolder("local");
+        for (int i = 0; i < 5; i++) write(new File(local, "a/f" + i), new byte[10 + i]);
+        write(new File(local, "b/c/x"), new byte[100]);
+        write(new File(local, "top"), new byte[1]);
+        new File(local, "e").mkdirs();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    private static void write(File file, byte[] contents) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void onlyChangesAreMade() throws IOException {
+        fs.writeFile("/dst/stale", new byte[3]);
+        fs.writeFile("/dst/a/f3/inside", new byte[3]);   // a directory where the local tree has a file
+
+        SyncReport report = client.utils.syncDirectory("/dst", local.getPath(), null);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(7, report.fileCount);
+        assertEquals(3, report.directoryCount);   // b, b/c and e
+        assertEquals(2, report.deleteCount);
+        assertEquals(0, report.unchangedCount);
+        assertEquals(2, report.listedCount);
+        assertFalse(fs.exists("/dst/stale"));
+        assertEquals(13, fs.readFile("/dst/a/f3").length);
+        assertTrue(fs.exists("/dst/e"));
+
+        server.resetStatistics();
+        report = client.utils.syncDirectory("/dst", local.getPath(), null);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(0, report.fileCount);
+        assertEquals(0, report.deleteCount);
+        assertEquals(7, report.unchangedCount);
+        assertEquals(0, server.getRequestCount("CREATE"));
+
+        write(new File(local, "a/f1"), new byte[50]);   // new length
+        assertTrue(new File(local, "a/f2").setLastModified(System.currentTimeMillis() + 60 * 1000));
+        write(new File(local, "a/new"), new byte[5]);
+        assertTrue(new File(local, "b/c/x").delete());
+        report = client.utils.syncDirectory("/dst", local.getPath(), null);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(3, report.fileCount);
+        assertEquals(1, report.deleteCount);
+        assertEquals(4, report.unchangedCount);
+        assertEquals(50, fs.readFile("/dst/a/f1").length);
+        assertTrue(fs.exists("/dst/a/new"));
+        assertFalse(fs.exists("/dst/b/c/x"));
+        assertTrue(fs.exists("/dst/b/c"));
+    }
+
+    @Test
+    public void snapshotSkipsListingUnchangedDirectories() throws Exception {
+        SyncOptions options = new SyncOptions();
+        options.snapshotFile = new File(folder.getRoot(), "snapshot").getPath();
+        client.utils.syncDirectory("/dst", local.getPath(), options);
+
+        // the first sync created everything, so this one lists everything
+        SyncReport report = client.utils.syncDirectory("/dst", local.getPath(), options);
+        assertEquals(5, report.listedCount);
+        assertEquals(0, report.cachedCount);
+
+        server.resetStatistics();
+        report = client.utils.syncDirectory("/dst", local.getPath(), options);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(0, report.listedCount);
+        assertEquals(5, report.cachedCount);
+        assertEquals(7, report.unchangedCount);
+        assertEquals(0, server.getRequestCount("LISTSTATUS"));
+
+        // a change by someone else shows in the directory's modification time, so only that directory is listed
+        Thread.sleep(5);
+        fs.writeFile("/dst/b/extra", new byte[2]);
+        report = client.utils.syncDirectory("/dst", local.getPath(), options);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(2, report.listedCount);   // once to compare, and once more after the delete
+        assertEquals(4, report.cachedCount);
+        assertEquals(1, report.deleteCount);
+        assertFalse(fs.exists("/dst/b/extra"));
+
+        // so the directory the sync changed is not listed next time
+        server.resetStatistics();
+        report = client.utils.syncDirectory("/dst", local.getPath(), options);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(0, report.listedCount);
+        assertEquals(5, report.cachedCount);
+        assertEquals(0, report.deleteCount);
+        assertEquals(0, server.getRequestCount("LISTSTATUS"));
+    }
+
+    @Test
+    public void snapshotKeepsNamesWithTabsAndLineBreaks() throws Exception {
+        for (String name : new String[] {"tab\tname", "line\nbreak", "carriage\rreturn", "back\\slash\\t"}) {
+            write(new File(local, "b/" + name), new byte[4]);
+        }
+        SyncOptions options = new SyncOptions();
+        options.snapshotFile = new File(folder.getRoot(), "snapshot").getPath();
+        client.utils.syncDirectory("/dst", local.getPath(), options);
+        client.utils.syncDirectory("/dst", local.getPath(), options);
+
+        server.resetStatistics();
+        SyncReport report = client.utils.syncDirectory("/dst", local.getPath(), options);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(0, report.listedCount);
+        assertEquals(5, report.cachedCount);
+        assertEquals(11, report.unchangedCount);
+        assertEquals(0, report.fileCount);
+        assertEquals(0, server.getRequestCount("LISTSTATUS"));
+    }
+
+    @Test
+    public void snapshotForAnotherDirectoryIsRejected() throws IOException {
+        SyncOptions options = new SyncOptions();
+        options.snapshotFile = new File(folder.getRoot(), "snapshot").getPath();
+        client.utils.syncDirectory("/dst", local.getPath(), options);
+        try {
+            client.utils.syncDirectory("/other", local.getPath(), options);
+            fail("a snapshot of another directory should not be used");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("different directory"));
+        }
+        assertFalse(fs.exists("/other"));
+    }
+
+    @Test
+    public void dryRunChangesNothing() throws IOException {
+        fs.writeFile("/dst/stale", new byte[3]);
+        fs.writeFile("/dst/a/f0", new byte[10]);
+        SyncOptions options = new SyncOptions();
+        options.dryRun = true;
+
+        SyncReport report = client.utils.syncDirectory("/dst", local.getPath(), options);
+
+        assertEquals(6, report.fileCount);
+        assertEquals(1, report.deleteCount);
+        assertEquals(1, report.unchangedCount);
+        assertEquals(10 + 11 + 12 + 13 + 14 + 100 + 1 - 10, report.byteCount);
+        assertEquals(0, server.getRequestCount("CREATE"));
+        assertEquals(0, server.getRequestCount("DELETE"));
+        assertTrue(fs.exists("/dst/stale"));
+
+        options.deleteExtra = false;
+        report = client.utils.syncDirectory("/dst", local.getPath(), options);
+        assertEquals(0, report.deleteCount);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.Fault;
+import com.contoso.fakeserver.LatencyModel;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.IfExists;
+import com.microsoft.azure.datalake.store.TransferOptions;
+import com.microsoft.azure.datalake.store.TransferProgressListener;
+import com.microsoft.azure.datalake.store.TransferReport;
+import com.microsoft.azure.datalake.store.protocol.RequestEvent;
+import com.microsoft.azure.datalake.store.protocol.RequestListenerAdapter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+public class TestDirectoryTransfer {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+    private final Random random = new Random(46);
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] b = new byte[length];
+        random.nextBytes(b);
+        return b;
+    }
+
+    private static void write(File file, byte[] contents) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] contents = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < contents.length) read += in.read(contents, read, contents.length - read);
+        } finally {
+            in.close();
+        }
+        return contents;
+    }
+
+    /*
+     30 small files in 3 directories, an empty directory, a 1.5MB file and a 5.5MB file
+     */
+    private File createLocalTree() throws IOException {
+        File root = folder.newFolder("local");
+        for (int i = 0; i < 30; i++) {
+            write(new File(root, "d" + (i % 3) + "/s" + i + ".txt"), randomBytes(100 + i));
+        }
+        new File(root, "d1/empty").mkdirs();
+        write(new File(root, "medium.bin"), randomBytes(1500 * 1000));
+        write(new File(root, "d2/big.bin"), randomBytes(5500 * 1000));
+        return root;
+    }
+
+    @Test
+    public void uploadsTreeWithChunkedLargeFiles() throws IOException {
+        File local = createLocalTree();
+        TransferOptions options = new TransferOptions();
+        options.chunkSize = 2 * 1000 * 1000;
+
+        TransferReport report = client.utils.uploadDirectory("/up", local.getPath(), options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(32, report.fileCount);
+        assertEquals(5, report.directoryCount);
+        assertEquals(3 * 100 * 10 + 435 + 1500 * 1000 + 5500 * 1000, report.byteCount);
+        assertEquals(3, server.getRequestCount("MKDIRS"));   // only the directories with no subdirectories
+        assertEquals(31 + 3, server.getRequestCount("CREATE"));   // one per small file, and one per chunk
+        assertEquals(1, server.getRequestCount("MSCONCAT"));
+        assertArrayEquals(read(new File(local, "d2/big.bin")), fs.readFile("/up/d2/big.bin"));
+        assertArrayEquals(read(new File(local, "medium.bin")), fs.readFile("/up/medium.bin"));
+        assertArrayEquals(read(new File(local, "d0/s27.txt")), fs.readFile("/up/d0/s27.txt"));
+        assertTrue(fs.exists("/up/d1/empty"));
+        assertEquals(11, fs.list("/up/d2", null, null, 100).size());   // no parts left behind
+    }
+
+    @Test
+    public void linksToDirectoriesAreNotFollowed() throws IOException {
+        File local = folder.newFolder("local");
+        write(new File(local, "a/f.txt"), randomBytes(10));
+        write(new File(local, "g.txt"), randomBytes(20));
+        Files.createSymbolicLink(new File(local, "a/up").toPath(), local.toPath());   // a cycle
+        Files.createSymbolicLink(new File(local, "link.txt").toPath(), new File(local, "g.txt").toPath());
+
+        TransferReport report = client.utils.uploadDirectory("/up", local.getPath(), null);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(3, report.fileCount);
+        assertEquals(2, report.directoryCount);
+        assertFalse(fs.exists("/up/a/up"));
+        assertArrayEquals(read(new File(local, "g.txt")), fs.readFile("/up/link.txt"));
+    }
+
+    @Test
+    public void existingFilesFailWithoutStoppingTheUpload() throws IOException {
+        File local = createLocalTree();
+        fs.writeFile("/up/d0/s3.txt", new byte[1]);
+        fs.writeFile("/up/d2/big.bin", new byte[1]);
+        TransferOptions options = new TransferOptions();
+        options.chunkSize = 2 * 1000 * 1000;
+        options.mode = IfExists.FAIL;
+
+        TransferReport report = client.utils.uploadDirectory("/up", local.getPath(), options);
+
+        assertEquals(2, report.failureCount);
+        assertEquals(30, report.fileCount);
+        assertEquals(30 + 1, server.getRequestCount("CREATE"));   // none for the chunks of the existing big file
+        assertEquals(0, server.getRequestCount("MSCONCAT"));
+        assertEquals(1, fs.readFile("/up/d0/s3.txt").length);
+        assertEquals(1, fs.readFile("/up/d2/big.bin").length);
+        assertArrayEquals(read(new File(local, "d0/s0.txt")), fs.readFile("/up/d0/s0.txt"));
+    }
+
+    @Test
+    public void failedConcatKeepsTheOriginalAndTheParts() throws IOException {
+        File local = folder.newFolder("local");
+        write(new File(local, "big.bin"), randomBytes(5500 * 1000));
+        fs.writeFile("/up/big.bin", new byte[1]);
+        server.injectFault("MSCONCAT", Fault.INTERNAL_ERROR_500, 3);   // more than the retries
+        TransferOptions options = new TransferOptions();
+        options.chunkSize = 2 * 1000 * 1000;
+
+        TransferReport report = client.utils.uploadDirectory("/up", local.getPath(), options);
+
+        assertEquals(1, report.failureCount);
+        assertEquals("/up/big.bin", report.failures.get(0).path);
+        assertEquals(1, fs.readFile("/up/big.bin").length);
+        List<FakeFileSystem.FileInfo> left = fs.list("/up", null, null, 100);
+        assertEquals(2, left.size());
+        String parts = left.get(0).name.startsWith("big.bin.parts-") ? left.get(0).name : left.get(1).name;
+        assertTrue(report.failures.get(0).message, report.failures.get(0).message.contains(parts));
+        assertEquals(3, fs.list("/up/" + parts, null, null, 100).size());
+    }
+
+    @Test
+    public void downloadsTreeWithRangedReads() throws IOException {
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            String path = "/src/" + (i % 2 == 0 ? "x/" : "x/y/") + "f" + i;
+            fs.writeFile(path, randomBytes(i * 1000));
+            paths.add(path);
+        }
+        byte[] big = randomBytes(3 * 1024 * 1024 + 5);
+        fs.writeFile("/src/big.bin", big);
+        fs.mkdirs("/src/empty", null);
+        File local = new File(folder.getRoot(), "down");
+        TransferOptions options = new TransferOptions();
+        options.chunkSize = 1024 * 1024;
+
+        TransferReport report = client.utils.downloadDirectory("/src", local.getPath(), options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(21, report.fileCount);
+        assertEquals(4, report.directoryCount);
+        assertEquals(19 + 4, server.getRequestCount("OPEN"));   // the empty file is not read
+        assertArrayEquals(big, read(new File(local, "big.bin")));
+        for (String path : paths) {
+            assertArrayEquals(path, fs.readFile(path), read(new File(local, path.substring("/src/".length()))));
+        }
+        assertTrue(new File(local, "empty").isDirectory());
+    }
+
+    @Test
+    public void listingsAndTransfersShareTheConcurrencyLimit() throws IOException {
+        for (int i = 0; i < 40; i++) fs.writeFile("/src/d" + (i % 8) + "/e" + (i % 3) + "/f" + i, randomBytes(100));
+        server.setLatency(LatencyModel.fixed(10));
+        final AtomicInteger inFlight = new AtomicInteger(0);
+        final AtomicInteger maxInFlight = new AtomicInteger(0);
+        client.addRequestListener(new RequestListenerAdapter() {
+            public void onRequestStart(RequestEvent event) {
+                int n = inFlight.incrementAndGet();
+                while (n > maxInFlight.get() && !maxInFlight.compareAndSet(maxInFlight.get(), n)) { }
+            }
+
+            public void onBodyCompleted(RequestEvent event) {
+                inFlight.decrementAndGet();
+            }
+
+            public void onFailure(RequestEvent event) {
+                inFlight.decrementAndGet();
+            }
+        });
+        TransferOptions options = new TransferOptions();
+        options.maxConcurrency = 3;
+
+        TransferReport report = client.utils.downloadDirectory("/src", new File(folder.getRoot(), "down").getPath(),
+                options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(40, report.fileCount);
+        assertTrue("requests in flight: " + maxInFlight.get(), maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void progressIsReported() throws IOException {
+        File local = createLocalTree();
+        server.setLatency("CREATE", LatencyModel.fixed(20));
+        final List<TransferReport> progress = new ArrayList<TransferReport>();
+        TransferOptions options = new TransferOptions();
+        options.maxConcurrency = 2;
+        options.progressIntervalMillis = 50;
+        options.progressListener = new TransferProgressListener() {
+            public void progress(TransferReport soFar) {
+                progress.add(soFar);
+            }
+        };
+
+        TransferReport report = client.utils.uploadDirectory("/up", local.getPath(), options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertTrue("progress reports: " + progress.size(), progress.size() >= 2);
+        TransferReport last = progress.get(progress.size() - 1);
+        assertTrue(last.fileCount < 32);
+        assertTrue(last.byteCount <= report.byteCount);
+        assertTrue(report.getBytesPerSecond() > 0);
+    }
+}
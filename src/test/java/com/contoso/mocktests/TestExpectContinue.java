@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.RejectingServer;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestBody;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import com.microsoft.azure.datalake.store.retrypolicies.NoRetryPolicy;
+import com.microsoft.azure.datalake.store.retrypolicies.RetryPolicy;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class TestExpectContinue {
+
+    private static final int BODY_SIZE = 4 * 1024 * 1024;
+
+    private static OperationResponse append(ADLStoreClient client, RequestBody body, RetryPolicy retryPolicy) {
+        RequestOptions opts = new RequestOptions();
+        opts.retryPolicy = retryPolicy;
+        OperationResponse resp = new OperationResponse();
+        Core.append("/a.bin", -1, body, null, null, client, opts, resp);
+        return resp;
+    }
+
+    /*
+     retries the given number of times, without sleeping
+     */
+    private static RetryPolicy retries(final int count) {
+        return new RetryPolicy() {
+            private int retries = 0;
+            public boolean shouldRetry(int httpResponseCode, Exception lastException) {
+                return retries++ < count;
+            }
+        };
+    }
+
+    private static long bytesSentForRejections(int expectThreshold, int requests, int expectedWithHeader)
+            throws IOException {
+        RejectingServer server = new RejectingServer(429, "ThrottledException").start();
+        try {
+            ADLStoreClient client = server.createClient();
+            client.setExpectContinueThreshold(expectThreshold);
+            byte[] body = new byte[BODY_SIZE];
+            for (int i = 0; i < requests; i++) {
+                OperationResponse resp = append(client, RequestBody.fromArray(body, 0, body.length), new NoRetryPolicy());
+                assertFalse(resp.successful);
+                assertEquals(429, resp.httpResponseCode);
+                // a rejection read in place of 100 Continue has only its status code
+                if (expectedWithHeader == 0) assertEquals("ThrottledException", resp.remoteExceptionName);
+            }
+            assertEquals(requests, server.getRequestCount());
+            assertEquals(expectedWithHeader, server.getExpectContinueCount());
+            return server.getBodyBytesReceived();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void rejectionsCostNoUpload() throws IOException {
+        // ten rejected 4MB appends: 40MB on the wire without the header, nothing with it
+        assertEquals(10L * BODY_SIZE, bytesSentForRejections(-1, 10, 0));
+        assertEquals(0, bytesSentForRejections(1024 * 1024, 10, 10));
+    }
+
+    @Test
+    public void smallBodiesAreSentDirectly() throws IOException {
+        assertEquals(10L * BODY_SIZE, bytesSentForRejections(BODY_SIZE + 1, 10, 0));
+    }
+
+    @Test
+    public void rejectedOneShotBodyCanBeRetried() throws IOException {
+        RejectingServer server = new RejectingServer(429, "ThrottledException").start();
+        try {
+            ADLStoreClient client = server.createClient();
+            client.setExpectContinueThreshold(0);
+            RequestBody body = RequestBody.fromInputStream(new ByteArrayInputStream(new byte[1000]), 1000);
+            OperationResponse resp = append(client, body, retries(2));
+            assertFalse(resp.successful);
+            assertEquals(3, server.getRequestCount());   // body never sent, so the stream body could be retried
+            assertEquals(0, server.getBodyBytesReceived());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void acceptedBodyIsSent() throws IOException {
+        FakeAdlServer server = new FakeAdlServer().start();
+        try {
+            byte[] contents = new byte[BODY_SIZE];
+            new Random(1).nextBytes(contents);
+            server.getFileSystem().writeFile("/a.bin", new byte[0]);
+            ADLStoreClient client = server.createClient();
+            client.setExpectContinueThreshold(0);
+            OperationResponse resp = append(client, RequestBody.fromArray(contents, 0, contents.length), new NoRetryPolicy());
+            assertTrue(resp.message, resp.successful);
+            assertArrayEquals(contents, server.getFileSystem().readFile("/a.bin"));
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.DirectoryEntry;
+import com.microsoft.azure.datalake.store.protocol.HedgingPolicy;
+import com.microsoft.azure.datalake.store.protocol.RequestScheduler;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class TestHedging {
+
+    private MockWebServer server = null;
+    private ADLStoreClient client = null;
+    private final AtomicLong stallNext = new AtomicLong(0);   // millis to hold up the next non-hedge request
+    private final AtomicBoolean failHedges = new AtomicBoolean(false);
+
+    @Before
+    public void setup() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                String requestId = request.getHeader("x-ms-client-request-id");
+                if (!requestId.endsWith(".h")) {
+                    long stall = stallNext.getAndSet(0);
+                    if (stall > 0) Thread.sleep(stall);  // an outlier - only the hedge can make this fast
+                }
+                if (requestId.endsWith(".h") && failHedges.get()) {
+                    return CannedResponses.serverError();
+                }
+                return CannedResponses.fileStatus();
+            }
+        });
+        client = CannedResponses.startClient(server);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void slowRequestIsHedged() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(90, 0, 10, 64);
+        client.setHedgingPolicy(policy);
+        for (int i = 0; i < 64; i++) {
+            client.getDirectoryEntry("/a/b.txt");  // build up the latency history
+        }
+        assertEquals("no hedges expected while requests are fast", 0, policy.getHedgeWinCount());
+
+        stallNext.set(5000);
+        long start = System.nanoTime();
+        DirectoryEntry de = client.getDirectoryEntry("/a/b.txt");
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals("file length should match", 10, de.length);
+        assertTrue("hedged request should not wait for the outlier: " + elapsedMillis + "ms", elapsedMillis < 4000);
+        assertEquals("hedge should have won", 1, policy.getHedgeWinCount());
+        assertTrue("hedge count should be reported", policy.getHedgeCount() >= 1);
+    }
+
+    @Test
+    public void errorFromHedgeLeavesPrimaryToFinish() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(90, 0, 10, 64);
+        client.setHedgingPolicy(policy);
+        for (int i = 0; i < 64; i++) {
+            client.getDirectoryEntry("/a/b.txt");
+        }
+
+        failHedges.set(true);
+        stallNext.set(1000);
+        long start = System.nanoTime();
+        DirectoryEntry de = client.getDirectoryEntry("/a/b.txt");
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals("file length should match", 10, de.length);
+        assertTrue("hedge count should be reported", policy.getHedgeCount() >= 1);
+        assertEquals("an error response is not a win", 0, policy.getHedgeWinCount());
+        assertTrue("the primary should have been waited for: " + elapsedMillis + "ms", elapsedMillis >= 900);
+        assertEquals("the primary should not have been cut off and retried", 64 + 2, server.getRequestCount());
+    }
+
+    @Test
+    public void hedgeNeedsASchedulerSlot() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(90, 0, 10, 64);
+        client.setHedgingPolicy(policy);
+        for (int i = 0; i < 64; i++) {
+            client.getDirectoryEntry("/a/b.txt");
+        }
+
+        RequestScheduler scheduler = new RequestScheduler(1);   // the slow primary holds the only slot
+        client.setRequestScheduler(scheduler);
+        stallNext.set(1000);
+        DirectoryEntry de = client.getDirectoryEntry("/a/b.txt");
+
+        assertEquals("file length should match", 10, de.length);
+        assertEquals("no hedge without a free slot", 0, policy.getHedgeCount());
+        assertEquals("only the primary should have been sent", 64 + 1, server.getRequestCount());
+        assertEquals("the slot should be released", 0, scheduler.getInFlightCount());
+
+        client.setRequestScheduler(new RequestScheduler(2));   // room for the hedge
+        stallNext.set(5000);
+        long start = System.nanoTime();
+        client.getDirectoryEntry("/a/b.txt");
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertTrue("hedge should have been sent in the free slot: " + elapsedMillis + "ms", elapsedMillis < 4000);
+        assertEquals("hedge should have won", 1, policy.getHedgeWinCount());
+    }
+
+    @Test
+    public void noHedgingWithoutPolicy() throws IOException {
+        for (int i = 0; i < 64; i++) {
+            client.getDirectoryEntry("/a/b.txt");
+        }
+        assertNull(client.getHedgingPolicy());
+        assertEquals(64, server.getRequestCount());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.microsoft.azure.datalake.store.ADLException;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+
+public class TestLatencyTracker {
+
+    private MockWebServer server = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new MockWebServer();
+        client = CannedResponses.startClient(server);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void latencyHeaderFormat() throws IOException, InterruptedException {
+        server.enqueue(CannedResponses.fileStatus());
+        server.enqueue(new MockResponse().setResponseCode(409));
+        server.enqueue(CannedResponses.fileStatus());
+        server.enqueue(CannedResponses.fileStatus());
+
+        client.getDirectoryEntry("/a.txt");
+        try {
+            client.getDirectoryEntry("/a.txt");
+            fail("409 should fail the call");
+        } catch (ADLException ex) {
+            assertEquals(409, ex.httpResponseCode);
+        }
+        client.getDirectoryEntry("/a.txt");
+        client.getDirectoryEntry("/a.txt");
+
+        String id = Long.toString(client.getClientId());
+        String success = "[0-9a-f-]{36}\\.0\\.0,\\d+,,GETFILESTATUS," + CannedResponses.FILE_STATUS.length() + "," + id;
+        String failure = "[0-9a-f-]{36}\\.0\\.0,\\d+,(HTTP409|java\\.io\\.IOException),GETFILESTATUS,0," + id;
+        String entry = "[^,;]+,\\d+,[^,;]*,[A-Z]+,\\d+,\\d+";
+
+        boolean sawSuccess = false;
+        boolean sawFailure = false;
+        for (int i = 0; i < 4; i++) {
+            RecordedRequest request = server.takeRequest();
+            String header = request.getHeader("x-ms-adl-client-latency");
+            if (header == null) continue;
+            String[] entries = header.split(";");
+            assertTrue("at most three entries per header: " + header, entries.length <= 3);
+            for (String e : entries) {
+                assertTrue("malformed entry: " + e, e.matches(entry));
+                if (e.matches(success)) sawSuccess = true;
+                if (e.matches(failure)) sawFailure = true;
+            }
+        }
+        assertTrue("success entry should be reported", sawSuccess);
+        assertTrue("failure entry should be reported", sawFailure);
+    }
+
+    @Test
+    public void failureWithoutResponseIsReportedAsError() throws IOException, InterruptedException {
+        // fails in the SDK before a request is sent: no exception and no HTTP status
+        OperationResponse resp = new OperationResponse();
+        Core.getFileStatus("", client, new RequestOptions(), resp);
+        assertFalse(resp.successful);
+        assertEquals(0, resp.httpResponseCode);
+
+        // entries left by other tests may be reported first
+        String failure = "[0-9a-f-]{36}\\.0\\.0,\\d+,HTTP0,GETFILESTATUS,0," + client.getClientId();
+        boolean sawFailure = false;
+        for (int i = 0; i < 100 && !sawFailure; i++) {
+            server.enqueue(CannedResponses.fileStatus());
+            client.getDirectoryEntry("/a.txt");
+            String header = server.takeRequest().getHeader("x-ms-adl-client-latency");
+            if (header == null) continue;
+            for (String e : header.split(";")) {
+                if (e.matches(failure)) sawFailure = true;
+            }
+        }
+        assertTrue("failure without a response should be reported as HTTP0", sawFailure);
+    }
+}
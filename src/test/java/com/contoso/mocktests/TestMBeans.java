@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.microsoft.azure.datalake.store.ADLFileInputStream;
+import com.microsoft.azure.datalake.store.ADLFileOutputStream;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.IfExists;
+import com.microsoft.azure.datalake.store.oauth2.AccessTokenProvider;
+import com.microsoft.azure.datalake.store.oauth2.AzureADToken;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+public class TestMBeans {
+
+    private MockWebServer server = null;
+    private ADLStoreClient client = null;
+    private final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+
+    @Before
+    public void setup() throws IOException {
+        server = new MockWebServer();
+        client = CannedResponses.startClient(server);
+    }
+
+    @After
+    public void teardown() throws IOException, JMException {
+        client.unregisterMBeans();
+        server.shutdown();
+    }
+
+    private ObjectName name(String type) throws JMException {
+        return new ObjectName("com.microsoft.azure.datalake.store:type=" + type
+                + ",account=" + ObjectName.quote(client.getAccountName()) + ",clientId=" + client.getClientId());
+    }
+
+    @Test
+    public void beansReportClientAndStreams() throws IOException, JMException {
+        client.registerMBeans();
+        client.registerMBeans();  // second registration is a no-op
+
+        server.enqueue(CannedResponses.fileStatus());
+        server.enqueue(new MockResponse().setResponseCode(429));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("0123456789"));
+        server.enqueue(new MockResponse().setResponseCode(201));
+        server.enqueue(new MockResponse().setResponseCode(200));
+
+        ADLFileInputStream in = client.getReadStream("/a.txt");
+        in.setBufferSize(1024);
+        assertEquals(10, in.read(new byte[10]));
+        ADLFileOutputStream out = client.createOutputStream("/b.txt", IfExists.OVERWRITE);
+        out.setBufferSize(2048);
+        out.write(new byte[100]);
+
+        ObjectName streams = name("Streams");
+        assertEquals(1L, mbs.getAttribute(streams, "OpenInputStreams"));
+        assertEquals(1L, mbs.getAttribute(streams, "OpenOutputStreams"));
+        assertEquals(1024L, mbs.getAttribute(streams, "InputBufferBytes"));
+        assertEquals(2048L, mbs.getAttribute(streams, "OutputBufferBytes"));
+        assertEquals(100L, mbs.getAttribute(streams, "OutputPendingBytes"));
+        assertEquals(10L, mbs.getAttribute(streams, "BytesRead"));
+
+        in.close();
+        in.close();
+        out.close();
+        assertEquals(0L, mbs.getAttribute(streams, "OpenInputStreams"));
+        assertEquals(0L, mbs.getAttribute(streams, "OpenOutputStreams"));
+        assertEquals(0L, mbs.getAttribute(streams, "InputBufferBytes"));
+        assertEquals(0L, mbs.getAttribute(streams, "OutputPendingBytes"));
+        assertEquals(100L, mbs.getAttribute(streams, "BytesWritten"));
+
+        ObjectName clientBean = name("ADLStoreClient");
+        // snapshots are cached for a second; reset to make sure the counts below are fresh
+        mbs.invoke(clientBean, "resetMetrics", null, null);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(CannedResponses.fileStatus());
+        client.getDirectoryEntry("/a.txt");
+        try {
+            Thread.sleep(1100);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        assertEquals(1L, mbs.getAttribute(clientBean, "RequestCount"));
+        assertEquals(0, mbs.getAttribute(clientBean, "InFlightRequests"));
+        assertTrue((Double) mbs.getAttribute(clientBean, "LatencyP99Millis") > 0);
+        assertNull(mbs.getAttribute(clientBean, "LastTokenRefreshTime"));
+
+        ObjectName transport = name("Transport");
+        assertEquals(2L, mbs.getAttribute(transport, "TryCount"));
+        assertEquals(1L, mbs.getAttribute(transport, "RetryCount"));
+        assertEquals(1L, mbs.getAttribute(transport, "ThrottledCount"));
+        assertEquals(0L, mbs.getAttribute(transport, "HedgeCount"));
+        assertNotNull(mbs.getAttribute(transport, "ErrorCountByHttpCode"));
+
+        client.unregisterMBeans();
+        Set<ObjectName> left = mbs.queryNames(new ObjectName("com.microsoft.azure.datalake.store:*,clientId="
+                + client.getClientId()), null);
+        assertTrue(left.isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void tokenStatisticsDoNotWaitForRefresh() throws Exception {
+        final CountDownLatch refreshing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AccessTokenProvider provider = new AccessTokenProvider() {
+            protected AzureADToken refreshToken() throws IOException {
+                refreshing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new InterruptedIOException();
+                }
+                AzureADToken token = new AzureADToken();
+                token.accessToken = "token";
+                token.expiry = new Date(System.currentTimeMillis() + 3600 * 1000);
+                return token;
+            }
+        };
+        client = ADLStoreClient.createClient(server.getHostName() + ":" + server.getPort(), provider);
+        client.registerMBeans();
+        ObjectName clientBean = name("ADLStoreClient");
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<AzureADToken> refresh = executor.submit(new Callable<AzureADToken>() {
+                public AzureADToken call() throws IOException {
+                    return provider.getToken();
+                }
+            });
+            assertTrue(refreshing.await(10, TimeUnit.SECONDS));
+
+            // read while the refresh is stuck in the call to AAD
+            assertEquals(0L, mbs.getAttribute(clientBean, "TokenRefreshCount"));
+            assertNull(mbs.getAttribute(clientBean, "TokenExpiry"));
+            assertNotNull(mbs.getAttribute(clientBean, "LastTokenRefreshTime"));
+
+            release.countDown();
+            assertEquals("token", refresh.get(10, TimeUnit.SECONDS).accessToken);
+            assertEquals(1L, mbs.getAttribute(clientBean, "TokenRefreshCount"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.microsoft.azure.datalake.store.ADLException;
+import com.microsoft.azure.datalake.store.ADLFileInputStream;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.protocol.MetricsSnapshot;
+import com.microsoft.azure.datalake.store.protocol.OperationMetrics;
+import com.microsoft.azure.datalake.store.protocol.RequestMetrics;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+
+public class TestMetrics {
+
+    private MockWebServer server = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new MockWebServer();
+        client = CannedResponses.startClient(server);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void countsSuccessesRetriesAndErrors() throws IOException {
+        server.enqueue(CannedResponses.fileStatus());
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(CannedResponses.fileStatus());
+        server.enqueue(CannedResponses.notFound());
+
+        client.getDirectoryEntry("/a.txt");
+        client.getDirectoryEntry("/a.txt");  // throttled once, then succeeds
+        try {
+            client.getDirectoryEntry("/b.txt");
+            fail("getDirectoryEntry should throw on 404");
+        } catch (ADLException ex) {
+            assertEquals(404, ex.httpResponseCode);
+        }
+
+        MetricsSnapshot snapshot = client.getMetricsSnapshot();
+        OperationMetrics m = snapshot.getOperation("GETFILESTATUS");
+        assertNotNull(m);
+        assertEquals(3, m.requestCount);
+        assertEquals(1, m.failedRequestCount);
+        assertEquals(4, m.tryCount);
+        assertEquals(1, m.retryCount);
+        assertEquals(1, m.getThrottledCount());
+        assertEquals(1, m.getErrorCount(404));
+        assertEquals(4, m.latency.getCount());
+        assertTrue(m.latency.getP50Nanos() > 0);
+        assertTrue(m.latency.getP50Nanos() <= m.latency.getP99Nanos());
+        assertTrue(m.latency.getP999Nanos() <= m.latency.getMaxNanos());
+        assertEquals(2 * CannedResponses.FILE_STATUS.length(), m.bytesReceived);
+        assertEquals(0, m.dnsLatency.getCount());   // not timed unless enabled
+        assertEquals(3, snapshot.total.requestCount);
+        assertNull(snapshot.getOperation("OPEN"));
+    }
+
+    @Test
+    public void recordsPhaseTimings() throws IOException {
+        client.setDnsTimingEnabled(true);
+        server.enqueue(CannedResponses.fileStatus());
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("0123456789"));
+        server.enqueue(new MockResponse().setResponseCode(409));
+
+        ADLFileInputStream in = client.getReadStream("/a.txt");
+        assertEquals(10, in.read(new byte[10]));
+        in.close();
+        try {
+            client.getDirectoryEntry("/a.txt");
+            fail("409 should fail the call");
+        } catch (ADLException ex) {
+            // expected
+        }
+
+        MetricsSnapshot snapshot = client.getMetricsSnapshot();
+        OperationMetrics status = snapshot.getOperation("GETFILESTATUS");
+        assertEquals(2, status.connectLatency.getCount());
+        assertEquals(2, status.timeToFirstByteLatency.getCount());
+        assertEquals(2, status.dnsLatency.getCount());
+        assertEquals(1, status.bodyLatency.getCount());   // the 409 had no body to read
+        assertTrue(status.timeToFirstByteLatency.getMaxNanos() > 0);
+        assertTrue(status.timeToFirstByteLatency.getMaxNanos() <= status.latency.getMaxNanos());
+
+        OperationMetrics open = snapshot.getOperation("OPEN");
+        assertEquals(1, open.bodyLatency.getCount());    // recorded when the stream was read to the end
+        assertEquals(3, snapshot.total.connectLatency.getCount());
+    }
+
+    @Test
+    public void resetClearsCounters() throws IOException {
+        server.enqueue(CannedResponses.fileStatus());
+        server.enqueue(CannedResponses.fileStatus());
+        client.getDirectoryEntry("/a.txt");
+
+        MetricsSnapshot first = client.getMetricsSnapshotAndReset();
+        assertEquals(1, first.getOperation("GETFILESTATUS").requestCount);
+        assertTrue(client.getMetricsSnapshot().operations.isEmpty());
+
+        client.getDirectoryEntry("/a.txt");
+        assertEquals(1, client.getMetricsSnapshot().getOperation("GETFILESTATUS").requestCount);
+        client.resetMetrics();
+        assertEquals(0, client.getMetricsSnapshot().total.requestCount);
+    }
+
+    @Test
+    public void metricsViewDoesNotReset() throws IOException {
+        server.enqueue(CannedResponses.fileStatus());
+        client.getDirectoryEntry("/a.txt");
+
+        RequestMetrics metrics = client.getMetrics();
+        assertEquals(0, metrics.getInFlightRequestCount());
+        assertEquals(1, metrics.snapshot().getOperation("GETFILESTATUS").requestCount);
+        assertEquals(1, metrics.snapshot().getOperation("GETFILESTATUS").requestCount);
+        assertEquals(1, client.getMetricsSnapshot().total.requestCount);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.Fault;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.TreeOperationOptions;
+import com.microsoft.azure.datalake.store.TreeOperationReport;
+import com.microsoft.azure.datalake.store.acl.AclEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class TestRecursiveAcl {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+        // /t has 3 subdirectories with 5 files each, and one file of its own: 19 paths in all
+        for (String dir : new String[] {"a", "b", "c"}) {
+            for (int i = 0; i < 5; i++) fs.writeFile("/t/" + dir + "/f" + i, new byte[10]);
+        }
+        fs.writeFile("/t/top", new byte[10]);
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    private List<String> acl(String path) {
+        return fs.getAcl(path).entries;
+    }
+
+    @Test
+    public void defaultEntriesOnlyGoToDirectories() throws IOException {
+        TreeOperationReport report = client.modifyAclEntriesRecursive("/t",
+                AclEntry.parseAclSpec("user:bob:r-x,default:user:bob:r-x"), null);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(4, report.directoryCount);
+        assertEquals(16, report.fileCount);
+        assertEquals(20, server.getRequestCount("MODIFYACLENTRIES"));
+        assertEquals(2, acl("/t").size());
+        assertEquals(2, acl("/t/b").size());
+        assertEquals(1, acl("/t/b/f3").size());
+        assertEquals("user:bob:r-x", acl("/t/top").get(0));
+
+        report = client.removeDefaultAclsRecursive("/t", null);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(4, server.getRequestCount("REMOVEDEFAULTACL"));
+        assertEquals(1, acl("/t/c").size());
+        assertEquals(1, acl("/t/c/f0").size());
+    }
+
+    @Test
+    public void shortPagesAreNotTheEndOfADirectory() throws IOException {
+        server.setMaxListSize(2);   // the service may return fewer entries than asked for
+
+        TreeOperationReport report = client.modifyAclEntriesRecursive("/t",
+                AclEntry.parseAclSpec("user:bob:r-x"), null);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(4, report.directoryCount);
+        assertEquals(16, report.fileCount);
+        assertEquals("user:bob:r-x", acl("/t/c/f4").get(0));
+    }
+
+    @Test
+    public void throttlingLowersConcurrency() throws IOException {
+        server.injectFault("SETACL", Fault.THROTTLE_429, 2);
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.maxConcurrency = 16;
+
+        TreeOperationReport report = client.setAclRecursive("/t",
+                AclEntry.parseAclSpec("user::rwx,group::r-x,other::---,user:bob:rwx"), options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(2, report.throttleCount);
+        // halved on the first 429, then only 20 successes to grow back with
+        assertTrue(report.toString(), report.finalConcurrency < 16);
+        assertEquals(4, acl("/t/a/f4").size());
+    }
+
+    @Test
+    public void failuresAreReportedAndTheRestIsDone() throws IOException {
+        server.injectFault("REMOVEACLENTRIES", Fault.INTERNAL_ERROR_500, 3);   // the first path, and its 2 retries
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.maxConcurrency = 1;
+        client.modifyAclEntriesRecursive("/t", AclEntry.parseAclSpec("user:bob:rwx,group:eng:r--"), null);
+
+        TreeOperationReport report = client.removeAclEntriesRecursive("/t",
+                AclEntry.parseAclSpec("user:bob:rwx"), options);
+
+        assertFalse(report.isSuccessful());
+        assertEquals(1, report.failureCount);
+        assertEquals(1, report.failures.size());
+        assertEquals("/t", report.failures.get(0).path);
+        assertEquals(500, report.failures.get(0).httpResponseCode);
+        assertEquals(19, report.directoryCount + report.fileCount);
+        assertEquals(2, acl("/t").size());
+        assertEquals(1, acl("/t/a").size());
+        assertEquals("group:eng:r--", acl("/t/a/f2").get(0));
+    }
+
+    @Test
+    public void checkpointResumesWhereTheLastRunFailed() throws IOException {
+        File checkpoint = File.createTempFile("acl-checkpoint", ".txt");
+        checkpoint.delete();
+        checkpoint.deleteOnExit();
+        List<AclEntry> spec = AclEntry.parseAclSpec("user:bob:r--");
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.maxConcurrency = 1;
+        options.checkpointFile = checkpoint.getAbsolutePath();
+
+        // the root fails, so only the subtrees under it are recorded as done
+        server.injectFault("MODIFYACLENTRIES", Fault.INTERNAL_ERROR_500, 3);
+        TreeOperationReport first = client.modifyAclEntriesRecursive("/t", spec, options);
+        assertEquals(1, first.failureCount);
+        server.resetStatistics();
+
+        TreeOperationReport second = client.modifyAclEntriesRecursive("/t", spec, options);
+        assertTrue(second.toString(), second.isSuccessful());
+        assertEquals(3, second.skippedDirectoryCount);
+        assertEquals(2, server.getRequestCount("MODIFYACLENTRIES"));   // the root and its own file
+        assertEquals(1, acl("/t").size());
+
+        try {
+            client.removeAclEntriesRecursive("/t", spec, options);
+            fail("a checkpoint should not be resumed by a different operation");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("different operation"));
+        }
+        checkpoint.delete();
+    }
+}
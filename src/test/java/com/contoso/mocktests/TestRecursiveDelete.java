@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.Fault;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.TreeOperationOptions;
+import com.microsoft.azure.datalake.store.TreeOperationReport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+
+public class TestRecursiveDelete {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    // /t has 3 subdirectories, each with 2 subdirectories of 4 files: 10 directories and 24 files
+    private void createTree() {
+        for (String dir : new String[] {"a", "b", "c"}) {
+            for (String sub : new String[] {"x", "y"}) {
+                for (int i = 0; i < 4; i++) fs.writeFile("/t/" + dir + "/" + sub + "/f" + i, new byte[10]);
+            }
+        }
+    }
+
+    @Test
+    public void deletesBottomUp() throws IOException {
+        createTree();
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.serverSideDeleteThreshold = 0;
+
+        TreeOperationReport report = client.deleteRecursive("/t", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(10, report.directoryCount);
+        assertEquals(24, report.fileCount);
+        assertEquals(34, server.getRequestCount("DELETE"));
+        assertFalse(fs.exists("/t"));
+    }
+
+    @Test
+    public void smallDirectoriesAreDeletedServerSide() throws IOException {
+        createTree();
+
+        TreeOperationReport report = client.deleteRecursive("/t", null);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(10, report.directoryCount);
+        assertEquals(24, report.fileCount);
+        assertEquals(10, server.getRequestCount("DELETE"));   // one per directory
+        assertFalse(fs.exists("/t"));
+    }
+
+    @Test
+    public void failedServerSideDeleteFallsBackToWalking() throws IOException {
+        createTree();
+        server.injectFault("DELETE", Fault.INTERNAL_ERROR_500, 3);   // the first delete, and its 2 retries
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.maxConcurrency = 1;
+
+        TreeOperationReport report = client.deleteRecursive("/t", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(24, report.fileCount);
+        assertEquals(3 + 4 + 1 + 5 + 3 + 1, server.getRequestCount("DELETE"));   // the failed directory walked
+        assertFalse(fs.exists("/t"));
+    }
+
+    @Test
+    public void failuresLeaveParentsForARerun() throws IOException {
+        createTree();
+        server.injectFault("DELETE", Fault.INTERNAL_ERROR_500, 3);
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.maxConcurrency = 1;
+        options.serverSideDeleteThreshold = 0;
+
+        TreeOperationReport report = client.deleteRecursive("/t", options);
+
+        assertEquals(1, report.failureCount);
+        assertEquals(500, report.failures.get(0).httpResponseCode);
+        String failed = report.failures.get(0).path;
+        assertTrue(failed, fs.exists(failed));
+        String parent = failed.substring(0, failed.lastIndexOf('/'));
+        assertTrue(fs.exists(parent));
+        assertEquals(1, fs.list(parent, null, null, 10).size());
+        assertTrue(fs.exists("/t"));
+
+        report = client.deleteRecursive("/t", options);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertFalse(fs.exists("/t"));
+    }
+
+    // a file system whose delete of /t/a/x/f0 answers false; it deletes the file first if deleteAnyway is set
+    private void startWithFalseDelete(final boolean deleteAnyway) throws IOException {
+        server.stop();
+        server = new FakeAdlServer(new FakeFileSystem() {
+            @Override
+            public synchronized boolean delete(String path, boolean recursive) {
+                if (!path.equals("/t/a/x/f0")) return super.delete(path, recursive);
+                if (deleteAnyway) super.delete(path, recursive);
+                return false;
+            }
+        }).start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+    }
+
+    @Test
+    public void falseForAPathThatIsGoneCountsAsDeleted() throws IOException {
+        startWithFalseDelete(true);
+        createTree();
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.serverSideDeleteThreshold = 0;
+
+        TreeOperationReport report = client.deleteRecursive("/t", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(24, report.fileCount);
+        assertFalse(fs.exists("/t"));
+    }
+
+    @Test
+    public void falseForAPathThatIsStillThereIsAFailure() throws IOException {
+        startWithFalseDelete(false);
+        createTree();
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.serverSideDeleteThreshold = 0;
+
+        TreeOperationReport report = client.deleteRecursive("/t", options);
+
+        assertEquals(1, report.failureCount);
+        assertEquals("/t/a/x/f0", report.failures.get(0).path);
+        assertTrue(fs.exists("/t/a/x/f0"));
+        assertFalse(fs.exists("/t/b"));
+    }
+
+    @Test
+    public void hugeDirectoryIsListedInRanges() throws IOException {
+        // names around the points the listing is split at, including names equal to them
+        int count = 0;
+        for (int i = 0; i < 6000; i++) {
+            fs.writeFile(String.format("/big/part-%05d", i), new byte[1]);
+            count++;
+        }
+        for (String name : new String[] {"part-05", "part-0", "part-1", "part-0Z", "part-0~", "zzz", "part-05-"}) {
+            fs.writeFile("/big/" + name, new byte[1]);
+            count++;
+        }
+
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.dryRun = true;
+        TreeOperationReport report = client.setOwnerRecursive("/big", "alice", null, options);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(count, report.fileCount);
+        assertTrue(server.getRequestCount("LISTSTATUS") > 3);
+
+        server.resetStatistics();
+        options = new TreeOperationOptions();
+        options.maxConcurrency = 32;
+        report = client.deleteRecursive("/big", options);
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(count, report.fileCount);
+        assertEquals(count + 1, server.getRequestCount("DELETE"));
+        assertFalse(fs.exists("/big"));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.LatencyModel;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.DirectoryEntry;
+import com.microsoft.azure.datalake.store.PathFilter;
+import com.microsoft.azure.datalake.store.TreeOperationOptions;
+import com.microsoft.azure.datalake.store.TreeOperationReport;
+import com.microsoft.azure.datalake.store.TreeProgressListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+public class TestRecursivePermission {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        client = server.createClient();
+        // /t has 4 subdirectories, each with 5 .csv files and a .log file: 5 directories and 24 files
+        for (String dir : new String[] {"a", "b", "c", "d"}) {
+            for (int i = 0; i < 5; i++) fs.writeFile("/t/" + dir + "/f" + i + ".csv", new byte[10]);
+            fs.writeFile("/t/" + dir + "/run.log", new byte[10]);
+        }
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    @Test
+    public void directoriesAndFilesGetTheirOwnPermission() throws IOException {
+        TreeOperationReport report = client.setPermissionRecursive("/t", "750", "640", null);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(5, report.directoryCount);
+        assertEquals(24, report.fileCount);
+        assertEquals("750", fs.getAcl("/t/c").permission);
+        assertEquals("640", fs.getAcl("/t/c/f2.csv").permission);
+
+        report = client.setPermissionRecursive("/t", null, "600", null);
+        assertEquals(0, report.directoryCount);
+        assertEquals(24, report.fileCount);
+        assertEquals("750", fs.getAcl("/t/a").permission);
+        assertEquals("600", fs.getAcl("/t/a/run.log").permission);
+    }
+
+    @Test
+    public void filterSelectsPaths() throws IOException {
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.filter = new PathFilter() {
+            public boolean accept(DirectoryEntry entry) {
+                return entry.name.endsWith(".csv");
+            }
+        };
+
+        TreeOperationReport report = client.setOwnerRecursive("/t", "alice", "analysts", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(0, report.directoryCount);
+        assertEquals(20, report.fileCount);
+        assertEquals(9, report.excludedCount);
+        assertEquals(20, server.getRequestCount("SETOWNER"));
+        assertEquals("alice", fs.getAcl("/t/d/f4.csv").owner);
+        assertEquals("analysts", fs.getAcl("/t/d/f4.csv").group);
+        assertFalse("alice".equals(fs.getAcl("/t/d/run.log").owner));
+        assertFalse("alice".equals(fs.getAcl("/t/d").owner));
+    }
+
+    @Test
+    public void dryRunOnlyCounts() throws IOException {
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.dryRun = true;
+
+        TreeOperationReport report = client.setOwnerRecursive("/t", "bob", null, options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertEquals(5, report.directoryCount);
+        assertEquals(24, report.fileCount);
+        assertEquals(0, server.getRequestCount("SETOWNER"));
+        assertEquals(10, server.getRequestCount("LISTSTATUS"));   // each directory, then an empty page to end it
+        assertFalse("bob".equals(fs.getAcl("/t/b/f0.csv").owner));
+    }
+
+    @Test
+    public void progressIsReportedWhileRunning() throws IOException {
+        server.setLatency("SETPERMISSION", LatencyModel.fixed(20));
+        final List<TreeOperationReport> progress = new ArrayList<TreeOperationReport>();
+        final Thread caller = Thread.currentThread();
+        TreeOperationOptions options = new TreeOperationOptions();
+        options.maxConcurrency = 2;
+        options.progressIntervalMillis = 100;
+        options.progressListener = new TreeProgressListener() {
+            public void progress(TreeOperationReport soFar) {
+                assertSame(caller, Thread.currentThread());
+                progress.add(soFar);
+            }
+        };
+
+        TreeOperationReport report = client.setPermissionRecursive("/t", "755", "644", options);
+
+        assertTrue(report.toString(), report.isSuccessful());
+        assertTrue("progress reports: " + progress.size(), progress.size() >= 2);
+        for (int i = 1; i < progress.size(); i++) {
+            TreeOperationReport before = progress.get(i - 1);
+            TreeOperationReport after = progress.get(i);
+            assertTrue(after.fileCount + after.directoryCount >= before.fileCount + before.directoryCount);
+            assertTrue(after.elapsedMillis > before.elapsedMillis);
+        }
+        TreeOperationReport last = progress.get(progress.size() - 1);
+        assertTrue(last.fileCount + last.directoryCount < 29);
+        assertTrue(last.getPathsPerSecond() > 0);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.FakeFileSystem;
+import com.contoso.fakeserver.Fault;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestBody;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import com.microsoft.azure.datalake.store.retrypolicies.ExponentialOnThrottlePolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class TestRequestBody {
+
+    private FakeAdlServer server = null;
+    private FakeFileSystem fs = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        fs = server.getFileSystem();
+        fs.writeFile("/a.bin", new byte[0]);
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] b = new byte[length];
+        new Random(length).nextBytes(b);
+        return b;
+    }
+
+    private OperationResponse append(RequestBody body) {
+        RequestOptions opts = new RequestOptions();
+        opts.retryPolicy = new ExponentialOnThrottlePolicy();
+        OperationResponse resp = new OperationResponse();
+        Core.append("/a.bin", -1, body, null, null, client, opts, resp);
+        return resp;
+    }
+
+    @Test
+    public void streamsWhileProducerWrites() throws Exception {
+        final byte[] contents = randomBytes(1024 * 1024);
+        PipedInputStream in = new PipedInputStream(64 * 1024);
+        final PipedOutputStream producer = new PipedOutputStream(in);
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    for (int off = 0; off < contents.length; off += 100000) {
+                        producer.write(contents, off, Math.min(100000, contents.length - off));
+                    }
+                    producer.close();
+                } catch (IOException ex) {
+                    // test fails on the contents check
+                }
+            }
+        };
+        t.start();
+
+        // the pipe holds only 64KB, so this only completes if the body is sent while it is being produced
+        OperationResponse resp = append(RequestBody.fromInputStream(in, contents.length));
+        t.join();
+        assertTrue(resp.message, resp.successful);
+        assertArrayEquals(contents, fs.readFile("/a.bin"));
+    }
+
+    @Test
+    public void buffersAndChannels() throws IOException {
+        byte[] contents = randomBytes(300000);
+        ByteBuffer direct = ByteBuffer.allocateDirect(100000);
+        direct.put(contents, 100000, 100000).flip();
+        ByteBuffer heap = ByteBuffer.wrap(contents, 200000, 100000);
+        assertTrue(append(RequestBody.fromBuffers(ByteBuffer.wrap(contents, 0, 100000), direct, heap)).successful);
+        assertEquals(0, direct.position());
+
+        assertTrue(append(RequestBody.fromChannel(Channels.newChannel(new ByteArrayInputStream(contents)), 1000)).successful);
+
+        byte[] expected = Arrays.copyOf(contents, 301000);
+        System.arraycopy(contents, 0, expected, 300000, 1000);
+        assertArrayEquals(expected, fs.readFile("/a.bin"));
+    }
+
+    @Test
+    public void oneShotBodyIsNotRetried() throws IOException {
+        byte[] contents = randomBytes(1000);
+        server.injectFault("APPEND", Fault.UNAVAILABLE_503, 1);
+        OperationResponse resp = append(RequestBody.fromInputStream(new ByteArrayInputStream(contents), contents.length));
+        assertFalse(resp.successful);
+        assertEquals(1, server.getRequestCount("APPEND"));
+
+        server.injectFault("APPEND", Fault.UNAVAILABLE_503, 1);
+        resp = append(RequestBody.fromBuffers(ByteBuffer.wrap(contents)));
+        assertTrue(resp.successful);
+        assertEquals(3, server.getRequestCount("APPEND"));
+        assertArrayEquals(contents, fs.readFile("/a.bin"));
+    }
+
+    @Test
+    public void shortStreamFails() {
+        OperationResponse resp = append(RequestBody.fromInputStream(new ByteArrayInputStream(new byte[10]), 20));
+        assertFalse(resp.successful);
+        assertTrue(resp.ex instanceof java.io.EOFException);
+        assertEquals(0, fs.readFile("/a.bin").length);
+    }
+}
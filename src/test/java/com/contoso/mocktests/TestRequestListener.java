@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.microsoft.azure.datalake.store.ADLException;
+import com.microsoft.azure.datalake.store.ADLFileInputStream;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.protocol.RequestEvent;
+import com.microsoft.azure.datalake.store.protocol.RequestListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class TestRequestListener {
+
+    private MockWebServer server = null;
+    private ADLStoreClient client = null;
+    private final Recorder recorder = new Recorder();
+
+    private static class Recorder implements RequestListener {
+        final List<String> events = new ArrayList<String>();
+        RequestEvent last;
+
+        private void add(String callback, RequestEvent e) {
+            events.add(callback + ":" + e.getOperation() + ":" + e.getRetryNumber() + ":" + e.getHttpResponseCode());
+            last = e;
+        }
+
+        public void onRequestStart(RequestEvent e)    { add("start", e); }
+        public void onRetry(RequestEvent e)           { add("retry", e); }
+        public void onResponseHeaders(RequestEvent e) { add("headers", e); }
+        public void onBodyCompleted(RequestEvent e)   { add("body", e); }
+        public void onFailure(RequestEvent e)         { add("failure", e); }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        server = new MockWebServer();
+        client = CannedResponses.startClient(server);
+        client.addRequestListener(recorder);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void retriedCallAndStreamedBody() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(CannedResponses.fileStatus());
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("0123456789"));
+
+        ADLFileInputStream in = client.getReadStream("/a.txt");
+        assertEquals("start:GETFILESTATUS:0:0", recorder.events.get(0));
+        assertEquals("headers:GETFILESTATUS:0:503", recorder.events.get(1));
+        assertEquals("retry:GETFILESTATUS:1:503", recorder.events.get(2));
+        assertEquals("headers:GETFILESTATUS:1:200", recorder.events.get(3));
+        assertEquals("body:GETFILESTATUS:1:200", recorder.events.get(4));
+        assertTrue(recorder.last.getClientRequestId().endsWith(".1"));
+        assertEquals(CannedResponses.FILE_STATUS.length(), recorder.last.getBytesReceived());
+        assertTrue(recorder.last.getTimeToHeadersNanos() > 0);
+        assertTrue(recorder.last.getElapsedNanos() >= recorder.last.getTimeToHeadersNanos());
+
+        recorder.events.clear();
+        byte[] b = new byte[10];
+        assertEquals(10, in.read(b));
+        assertEquals("start:OPEN:0:0", recorder.events.get(0));
+        assertEquals("headers:OPEN:0:200", recorder.events.get(1));
+        assertEquals("body:OPEN:0:200", recorder.events.get(2));
+        assertEquals(3, recorder.events.size());
+        assertEquals(10, recorder.last.getBytesReceived());
+        assertEquals("/a.txt", recorder.last.getPath());
+    }
+
+    @Test
+    public void failureAndRemoval() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(409));
+        try {
+            client.getDirectoryEntry("/a.txt");
+            fail("409 should fail the call");
+        } catch (ADLException ex) {
+            // expected
+        }
+        assertEquals(3, recorder.events.size());
+        assertEquals("failure:GETFILESTATUS:0:409", recorder.events.get(2));
+        assertTrue(recorder.last.getElapsedNanos() > 0);
+
+        client.removeRequestListener(recorder);
+        recorder.events.clear();
+        server.enqueue(CannedResponses.fileStatus());
+        client.getDirectoryEntry("/a.txt");
+        assertTrue(recorder.events.isEmpty());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License.
+ * See License.txt in the project root for license information.
+ */
+
+package com.contoso.mocktests;
+
+import com.contoso.fakeserver.FakeAdlServer;
+import com.contoso.fakeserver.Fault;
+import com.contoso.fakeserver.LatencyModel;
+import com.microsoft.azure.datalake.store.ADLStoreClient;
+import com.microsoft.azure.datalake.store.protocol.Core;
+import com.microsoft.azure.datalake.store.protocol.OperationResponse;
+import com.microsoft.azure.datalake.store.protocol.RequestOptions;
+import com.microsoft.azure.datalake.store.protocol.RequestPriority;
+import com.microsoft.azure.datalake.store.protocol.RequestScheduler;
+import com.microsoft.azure.datalake.store.retrypolicies.ExponentialOnThrottlePolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+
+public class TestRequestScheduler {
+
+    private static final long MILLIS = 1000000L;
+
+    private FakeAdlServer server = null;
+    private ADLStoreClient client = null;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeAdlServer().start();
+        server.getFileSystem().writeFile("/a.txt", new byte[10]);
+        client = server.createClient();
+    }
+
+    @After
+    public void teardown() {
+        server.stop();
+    }
+
+    private boolean stat(RequestPriority priority) {
+        RequestOptions opts = new RequestOptions();
+        opts.retryPolicy = new ExponentialOnThrottlePolicy();
+        opts.priority = priority;
+        OperationResponse resp = new OperationResponse();
+        Core.getFileStatus("/a.txt", client, opts, resp);
+        return resp.successful;
+    }
+
+    private Thread[] startLoops(final RequestPriority priority, int threads, final AtomicBoolean stop) {
+        Thread[] t = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            t[i] = new Thread() {
+                public void run() {
+                    while (!stop.get()) stat(priority);
+                }
+            };
+            t[i].start();
+        }
+        return t;
+    }
+
+    @Test
+    public void limitsConcurrency() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(2);
+        client.setRequestScheduler(scheduler);
+        server.setLatency(LatencyModel.fixed(100));
+
+        Thread[] t = new Thread[6];
+        long start = System.nanoTime();
+        for (int i = 0; i < t.length; i++) {
+            t[i] = new Thread() {
+                public void run() {
+                    stat(null);
+                }
+            };
+            t[i].start();
+        }
+        for (Thread thread : t) thread.join();
+        long elapsed = System.nanoTime() - start;
+        assertTrue("six requests through two slots took " + elapsed / MILLIS + " ms", elapsed >= 290 * MILLIS);
+        assertEquals(6, scheduler.getAdmittedCount(RequestPriority.NORMAL));
+        assertEquals(0, scheduler.getInFlightCount());
+    }
+
+    @Test
+    public void interactiveOvertakesBackgroundQueue() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        client.setRequestScheduler(scheduler);
+        server.setLatency(LatencyModel.fixed(50));
+
+        // one request's round trip on an idle client, once connections are warm
+        long alone = 0;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            assertTrue(stat(RequestPriority.INTERACTIVE));
+            alone = Math.max(alone, System.nanoTime() - start);
+        }
+
+        AtomicBoolean stop = new AtomicBoolean(false);
+        Thread[] bulk = startLoops(RequestPriority.BACKGROUND, 4, stop);
+        Thread.sleep(300);
+        stat(RequestPriority.INTERACTIVE);
+
+        long worst = 0;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            assertTrue(stat(RequestPriority.INTERACTIVE));
+            worst = Math.max(worst, System.nanoTime() - start);
+        }
+        stop.set(true);
+        for (Thread t : bulk) t.join();
+
+        // at worst an interactive request waits out the one background request in flight; behind the whole
+        // background queue it would take about five round trips
+        assertTrue("worst interactive latency " + worst / MILLIS + " ms, alone " + alone / MILLIS + " ms",
+                worst < 3 * alone);
+        assertTrue(scheduler.getAdmittedCount(RequestPriority.BACKGROUND) > 0);
+    }
+
+    @Test
+    public void throttlingDemotesBackground() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(8);
+        client.setRequestScheduler(scheduler);
+        server.injectFault("GETFILESTATUS", Fault.THROTTLE_429, 2);
+
+        assertTrue(stat(RequestPriority.BACKGROUND));
+        assertEquals(2, scheduler.getBackgroundLimit());
+        assertEquals(2, scheduler.getDemotionCount());
+        assertEquals(0, scheduler.getInFlightCount());
+    }
+
+    @Test
+    public void interruptedWhileQueuedIsNotRetried() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        client.setRequestScheduler(scheduler);
+        server.setLatency(LatencyModel.fixed(500));
+        Thread holder = new Thread() {
+            public void run() {
+                stat(RequestPriority.NORMAL);
+            }
+        };
+        holder.start();
+        while (scheduler.getInFlightCount() == 0) Thread.sleep(1);
+
+        RequestOptions opts = new RequestOptions();
+        opts.retryPolicy = new ExponentialOnThrottlePolicy();
+        OperationResponse resp = new OperationResponse();
+        Thread.currentThread().interrupt();
+        Core.getFileStatus("/a.txt", client, opts, resp);
+        boolean stillInterrupted = Thread.interrupted();
+
+        assertTrue("interrupt flag should be kept", stillInterrupted);
+        assertFalse(resp.successful);
+        assertTrue(resp.ex instanceof InterruptedIOException);
+        assertEquals("an interrupted call should not be retried", 0, resp.numRetries);
+        holder.join();
+        assertEquals(0, scheduler.getInFlightCount());
+    }
+}